@@ -1,11 +1,20 @@
 package com.kenzie.appserver.config;
 
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.service.model.StudyGroup;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.cache.annotation.EnableCaching;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
 
+import java.nio.file.Paths;
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableCaching
@@ -13,8 +22,86 @@ public class CacheConfig {
 
 
     @Bean
-    public CacheStore StudyGroupCache() {
-        int cacheDurationSeconds = 24; // 24 hours in seconds
-        return new CacheStore(cacheDurationSeconds,TimeUnit.HOURS);
+    public CacheStore studyGroupCache(StudyGroupRepository studyGroupRepository, MeterRegistry meterRegistry,
+                                      ObjectProvider<CacheTier> sharedTier,
+                                      ObjectProvider<CacheInvalidationBus> invalidationBus,
+                                      @Value("${studygroup.cache.maxWeightBytes:16777216}") long maxWeightBytes,
+                                      @Value("${studygroup.cache.expireAfterWrite:PT24H}") Duration expireAfterWrite,
+                                      @Value("${studygroup.cache.refreshAfterWrite:PT5M}") Duration refreshAfterWrite,
+                                      @Value("${studygroup.cache.negativeTtl:PT30S}") Duration negativeTtl,
+                                      @Value("${studygroup.cache.shared.ttl:PT1H}") Duration sharedTtl) {
+        // hot groups are reloaded from DynamoDB in the background instead of expiring;
+        // a group deleted elsewhere loads as null and drops out of the cache
+        return new CacheStore(maxWeightBytes, expireAfterWrite, refreshAfterWrite, negativeTtl,
+                groupId -> studyGroupRepository.findById(groupId)
+                        .map(record -> new StudyGroup(record.getGroupId(),
+                                record.getGroupName(),
+                                record.getDiscussionTopic(),
+                                record.getCreationDate(),
+                                record.isActive(),
+                                record.getVersion()))
+                        .orElse(null),
+                sharedTier.getIfAvailable(), sharedTtl, invalidationBus.getIfAvailable(),
+                meterRegistry, "studyGroups");
+    }
+
+    @Bean
+    public StudyGroupMemberCache studyGroupMemberCache(MeterRegistry meterRegistry,
+                                                       ObjectProvider<CacheInvalidationBus> invalidationBus,
+                                                       @Value("${studygroup.memberCache.maxGroups:10000}") long maxGroups,
+                                                       @Value("${studygroup.memberCache.expireAfterWrite:PT1H}") Duration expireAfterWrite) {
+        return new StudyGroupMemberCache(maxGroups, expireAfterWrite, invalidationBus.getIfAvailable(),
+                meterRegistry, "studyGroupMembers");
+    }
+
+    // studygroup.cache.shared=redis puts Redis (runLocalRedis.sh locally) behind the in-process cache,
+    // studygroup.cache.invalidation=redis broadcasts evictions to the other instances over Redis pub/sub
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("'${studygroup.cache.shared:none}' == 'redis' or '${studygroup.cache.invalidation:none}' == 'redis'")
+    public JedisPool jedisPool(@Value("${redis.host:localhost}") String host,
+                               @Value("${redis.port:6379}") int port,
+                               @Value("${redis.timeoutMillis:200}") int timeoutMillis) {
+        return new JedisPool(new JedisPoolConfig(), host, port, timeoutMillis);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "studygroup.cache.shared", havingValue = "redis")
+    public CacheTier redisCacheTier(JedisPool jedisPool) {
+        return new RedisCacheTier(jedisPool, "studyGroup:");
+    }
+
+    // single-instance stand-in, for local runs without Redis
+    @Bean
+    @ConditionalOnProperty(name = "studygroup.cache.shared", havingValue = "memory")
+    public CacheTier inMemoryCacheTier() {
+        return new InMemoryCacheTier();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "studygroup.cache.invalidation", havingValue = "redis")
+    public InvalidationTransport redisInvalidationTransport(JedisPool jedisPool) {
+        return new RedisInvalidationTransport(jedisPool, "studyGroupCacheInvalidation");
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "studygroup.cache.invalidation", havingValue = "memory")
+    public InvalidationTransport inMemoryInvalidationTransport() {
+        return new InMemoryInvalidationTransport();
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("'${studygroup.cache.invalidation:none}' != 'none'")
+    public CacheInvalidationBus cacheInvalidationBus(InvalidationTransport transport, MeterRegistry meterRegistry,
+                                                     @Value("${studygroup.cache.invalidation.batchWindow:PT0.02S}") Duration batchWindow,
+                                                     @Value("${studygroup.cache.invalidation.maxBatchSize:500}") int maxBatchSize) {
+        return new CacheInvalidationBus(transport, batchWindow, maxBatchSize, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "studygroup.cache.snapshot.enabled", havingValue = "true", matchIfMissing = true)
+    public CacheSnapshotFile cacheSnapshotFile(
+            @Value("${studygroup.cache.snapshot.path:${java.io.tmpdir}/studygroup-cache.snapshot}") String path) {
+        return new CacheSnapshotFile(Paths.get(path));
     }
 }
@@ -0,0 +1,171 @@
+package com.kenzie.appserver.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache keys that changed on this instance so every other instance drops its local copy.
+ *
+ * Keys passed to {@link #invalidate(String)} are collected for one batch window and published as a single,
+ * de-duplicated message, so a burst of updates to the same groups costs one message. Messages published
+ * by this instance are ignored when they come back, since the local cache was already updated.
+ */
+public class CacheInvalidationBus implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final InvalidationTransport transport;
+    private final long batchWindowMillis;
+    private final int maxBatchSize;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService flusher;
+    private final List<Consumer<String>> listeners = new ArrayList<>();
+    private final Counter publishedMessages;
+    private final Counter publishedKeys;
+    private final Counter receivedKeys;
+
+    private final Object lock = new Object();
+    private Set<String> pendingKeys = new LinkedHashSet<>();
+    private boolean flushScheduled;
+
+    public CacheInvalidationBus(InvalidationTransport transport, Duration batchWindow, int maxBatchSize,
+                                MeterRegistry meterRegistry) {
+        this.transport = transport;
+        this.batchWindowMillis = batchWindow.toMillis();
+        this.maxBatchSize = maxBatchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.publishedMessages = meterRegistry.counter("cache.invalidation.published.messages");
+        this.publishedKeys = meterRegistry.counter("cache.invalidation.published.keys");
+        this.receivedKeys = meterRegistry.counter("cache.invalidation.received.keys");
+        transport.subscribe(this::onMessage);
+    }
+
+    /**
+     * Registers a callback run for every key invalidated by another instance.
+     */
+    public void addListener(Consumer<String> listener) {
+        synchronized (listeners) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Queues the key for the next broadcast.
+     */
+    public void invalidate(String key) {
+        boolean flushNow = false;
+        synchronized (lock) {
+            pendingKeys.add(key);
+            if (pendingKeys.size() >= maxBatchSize) {
+                flushNow = true;
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                flusher.schedule(this::flush, batchWindowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (flushNow) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Publishes everything queued so far.
+     */
+    public void flush() {
+        Set<String> keys;
+        synchronized (lock) {
+            flushScheduled = false;
+            if (pendingKeys.isEmpty()) {
+                return;
+            }
+            keys = pendingKeys;
+            pendingKeys = new LinkedHashSet<>();
+        }
+        try {
+            transport.publish(MAPPER.writeValueAsString(new InvalidationMessage(instanceId, new ArrayList<>(keys))));
+            publishedMessages.increment();
+            publishedKeys.increment(keys.size());
+        } catch (JsonProcessingException | RuntimeException e) {
+            // the other instances fall back to their TTLs for these keys
+            log.warn("Could not publish {} cache invalidations", keys.size(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        flusher.shutdown();
+        transport.close();
+    }
+
+    private void onMessage(String message) {
+        InvalidationMessage invalidation;
+        try {
+            invalidation = MAPPER.readValue(message, InvalidationMessage.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed cache invalidation message", e);
+            return;
+        }
+        if (instanceId.equals(invalidation.getOrigin()) || invalidation.getKeys() == null) {
+            return;
+        }
+        List<Consumer<String>> currentListeners;
+        synchronized (listeners) {
+            currentListeners = new ArrayList<>(listeners);
+        }
+        for (String key : invalidation.getKeys()) {
+            receivedKeys.increment();
+            for (Consumer<String> listener : currentListeners) {
+                listener.accept(key);
+            }
+        }
+    }
+
+    private static class InvalidationMessage {
+        private String origin;
+        private List<String> keys;
+
+        InvalidationMessage() {
+        }
+
+        InvalidationMessage(String origin, List<String> keys) {
+            this.origin = origin;
+            this.keys = keys;
+        }
+
+        public String getOrigin() {
+            return origin;
+        }
+
+        public void setOrigin(String origin) {
+            this.origin = origin;
+        }
+
+        public List<String> getKeys() {
+            return keys;
+        }
+
+        public void setKeys(List<String> keys) {
+            this.keys = keys;
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.kenzie.appserver.config;
+
+import com.kenzie.appserver.service.model.StudyGroup;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary snapshot of cached study groups on local disk, written and read through memory-mapped files.
+ *
+ * Layout: magic, version, written-at millis, entry count, the entries, then a CRC32 of everything before it.
+ * Strings are a length followed by UTF-8 bytes (length -1 for null); the record version is a long (-1 for null).
+ * A snapshot is written to a temporary file and moved into place, so readers never see a half-written file.
+ */
+public class CacheSnapshotFile {
+    private static final int MAGIC = 0x53475331; // "SGS1"
+    // 2 added the record version to each entry
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES * 3 + Long.BYTES;
+
+    private final Path path;
+
+    public CacheSnapshotFile(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void write(Collection<StudyGroup> studyGroups) throws IOException {
+        List<EncodedEntry> entries = new ArrayList<>(studyGroups.size());
+        long size = HEADER_BYTES + Long.BYTES;
+        for (StudyGroup studyGroup : studyGroups) {
+            EncodedEntry entry = new EncodedEntry(studyGroup);
+            entries.add(entry);
+            size += entry.size();
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putLong(System.currentTimeMillis());
+            buffer.putInt(entries.size());
+            for (EncodedEntry entry : entries) {
+                entry.writeTo(buffer);
+            }
+            buffer.putLong(checksum(buffer, buffer.position()));
+            buffer.force();
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the snapshot in one sequential pass, after checking its CRC. Entries are validated field by field
+     * (a group id, flags of 0 or 1, a zone with every creation date), so a file that passes the CRC but was not
+     * written by this class is rejected too.
+     *
+     * @return null if there is no snapshot, or it is unreadable, corrupt or older than maxAgeMillis
+     */
+    public Snapshot read(long maxAgeMillis) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Long.BYTES) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int checksumPosition = (int) size - Long.BYTES;
+            if (buffer.getLong(checksumPosition) != checksum(buffer, checksumPosition)) {
+                return null;
+            }
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long writtenAtMillis = buffer.getLong();
+            if (System.currentTimeMillis() - writtenAtMillis > maxAgeMillis) {
+                return null;
+            }
+            int count = buffer.getInt();
+            if (count < 0) {
+                return null;
+            }
+            List<StudyGroup> studyGroups = new ArrayList<>(Math.max(0, Math.min(count, 100_000)));
+            for (int i = 0; i < count; i++) {
+                studyGroups.add(readEntry(buffer));
+            }
+            if (buffer.position() != checksumPosition) {
+                return null;
+            }
+            return new Snapshot(Instant.ofEpochMilli(writtenAtMillis), studyGroups);
+        } catch (BufferUnderflowException | IllegalArgumentException | DateTimeException e) {
+            // truncated or corrupt
+            return null;
+        }
+    }
+
+    // throws IllegalArgumentException for an entry this class cannot have written
+    private static StudyGroup readEntry(ByteBuffer buffer) {
+        String groupId = readString(buffer);
+        if (groupId == null) {
+            throw new IllegalArgumentException("Snapshot entry without a group id");
+        }
+        String groupName = readString(buffer);
+        String discussionTopic = readString(buffer);
+        boolean active = readFlag(buffer);
+        ZonedDateTime creationDate = null;
+        if (readFlag(buffer)) {
+            long epochSecond = buffer.getLong();
+            int nanos = buffer.getInt();
+            String zoneId = readString(buffer);
+            if (zoneId == null) {
+                throw new IllegalArgumentException("Snapshot creation date without a zone");
+            }
+            creationDate = ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nanos), ZoneId.of(zoneId));
+        }
+        long version = buffer.getLong();
+        return new StudyGroup(groupId, groupName, discussionTopic, creationDate, active, version < 0 ? null : version);
+    }
+
+    private static boolean readFlag(ByteBuffer buffer) {
+        byte flag = buffer.get();
+        if (flag != 0 && flag != 1) {
+            throw new IllegalArgumentException("Snapshot flag is neither 0 nor 1");
+        }
+        return flag == 1;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative string length in snapshot");
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("String length past end of snapshot");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(ByteBuffer buffer, int length) {
+        ByteBuffer content = buffer.duplicate();
+        content.position(0);
+        content.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    public static class Snapshot {
+        private final Instant writtenAt;
+        private final List<StudyGroup> studyGroups;
+
+        public Snapshot(Instant writtenAt, List<StudyGroup> studyGroups) {
+            this.writtenAt = writtenAt;
+            this.studyGroups = studyGroups;
+        }
+
+        public Instant getWrittenAt() {
+            return writtenAt;
+        }
+
+        public List<StudyGroup> getStudyGroups() {
+            return studyGroups;
+        }
+    }
+
+    private static class EncodedEntry {
+        private final byte[] groupId;
+        private final byte[] groupName;
+        private final byte[] discussionTopic;
+        private final boolean active;
+        private final ZonedDateTime creationDate;
+        private final byte[] zone;
+        private final long version;
+
+        EncodedEntry(StudyGroup studyGroup) {
+            this.groupId = encode(studyGroup.getGroupId());
+            this.groupName = encode(studyGroup.getGroupName());
+            this.discussionTopic = encode(studyGroup.getDiscussionTopic());
+            this.active = studyGroup.isActive();
+            this.creationDate = studyGroup.getCreationDate();
+            this.zone = creationDate == null ? null : encode(creationDate.getZone().getId());
+            this.version = studyGroup.getVersion() == null ? -1 : studyGroup.getVersion();
+        }
+
+        long size() {
+            long size = stringSize(groupId) + stringSize(groupName) + stringSize(discussionTopic) + 2 + Long.BYTES;
+            if (creationDate != null) {
+                size += Long.BYTES + Integer.BYTES + stringSize(zone);
+            }
+            return size;
+        }
+
+        void writeTo(ByteBuffer buffer) {
+            writeString(buffer, groupId);
+            writeString(buffer, groupName);
+            writeString(buffer, discussionTopic);
+            buffer.put((byte) (active ? 1 : 0));
+            buffer.put((byte) (creationDate == null ? 0 : 1));
+            if (creationDate != null) {
+                Instant instant = creationDate.toInstant();
+                buffer.putLong(instant.getEpochSecond());
+                buffer.putInt(instant.getNano());
+                writeString(buffer, zone);
+            }
+            buffer.putLong(version);
+        }
+
+        private static byte[] encode(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static int stringSize(byte[] value) {
+            return Integer.BYTES + (value == null ? 0 : value.length);
+        }
+
+        private static void writeString(ByteBuffer buffer, byte[] value) {
+            if (value == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(value.length);
+                buffer.put(value);
+            }
+        }
+    }
+}
@@ -1,39 +1,263 @@
 package com.kenzie.appserver.config;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.kenzie.appserver.service.model.StudyGroup;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
 
 public class CacheStore {
+    private static final Logger log = LoggerFactory.getLogger(CacheStore.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .disable(DeserializationFeature.ADJUST_DATES_TO_CONTEXT_TIME_ZONE);
+    // rough per-entry overhead (entry node, StudyGroup object, String headers, ZonedDateTime) in bytes
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+    private static final int MAX_MISSING_KEYS = 10_000;
+
     // we are storing it in local memory
-    // constricts the size of memory and type of key-value pairs
-    private Cache<String, StudyGroup> cache;
-
-    public CacheStore(int expiry, TimeUnit timeUnit) {
-        // initialize the cache
-        this.cache = CacheBuilder.newBuilder()
-                .expireAfterWrite(expiry, timeUnit)
-                .concurrencyLevel(Runtime.getRuntime().availableProcessors())
+    // bounded by the approximate size of the entries; Caffeine evicts with W-TinyLFU once maximumWeight is reached
+    private final LoadingCache<String, StudyGroup> cache;
+    // keys recently looked up and not found; Caffeine cannot hold nulls, so they live in their own short-lived cache
+    private final Cache<String, Boolean> missingKeys;
+    // a token per key being loaded; add and evict drop it, so a load they overlap does not record a stale miss
+    private final ConcurrentMap<String, Object> loadTokens = new ConcurrentHashMap<>();
+    // optional tier shared with the other instances; null when disabled
+    private final CacheTier sharedTier;
+    private final Duration sharedTtl;
+    // optional broadcast of changed keys to the other instances; null when disabled
+    private final CacheInvalidationBus invalidationBus;
+    private final Counter sharedHits;
+    private final Counter sharedMisses;
+    private final Counter sharedErrors;
+
+    /**
+     * @param maximumWeightBytes approximate heap the cached study groups may use
+     * @param expireAfterWrite   entries that are not refreshed within this time are dropped
+     * @param refreshAfterWrite  an entry read after this time is reloaded in the background while the old value is served
+     * @param negativeTtl        how long a key that was not found is remembered as missing
+     * @param loader             reloads a study group; returning null drops the entry
+     * @param sharedTier         L2 tier read on a local miss and written through on every load and add, or null
+     * @param sharedTtl          time to live of entries written to the shared tier
+     * @param invalidationBus    add and evict are broadcast on it, and keys received from it are dropped locally;
+     *                           null to keep invalidation local
+     * @param meterRegistry      hit/miss/eviction/load-time statistics are published here under cacheName
+     *                           (and cacheName.missing for the negative cache)
+     */
+    public CacheStore(long maximumWeightBytes, Duration expireAfterWrite, Duration refreshAfterWrite,
+                      Duration negativeTtl, CacheLoader<String, StudyGroup> loader,
+                      CacheTier sharedTier, Duration sharedTtl, CacheInvalidationBus invalidationBus,
+                      MeterRegistry meterRegistry, String cacheName) {
+        this.sharedTier = sharedTier;
+        this.sharedTtl = sharedTtl;
+        this.invalidationBus = invalidationBus;
+        // initialize the cache; background refreshes go to the loader (the source of truth) and write through
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeightBytes)
+                .weigher(CacheStore::weigh)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .recordStats()
+                .build(key -> writeThrough(key, loader.load(key)));
+        this.missingKeys = Caffeine.newBuilder()
+                .maximumSize(MAX_MISSING_KEYS)
+                .expireAfterWrite(negativeTtl)
+                .recordStats()
                 .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+        CaffeineCacheMetrics.monitor(meterRegistry, missingKeys, cacheName + ".missing");
+        this.sharedHits = meterRegistry.counter("cache.shared.gets", "cache", cacheName, "result", "hit");
+        this.sharedMisses = meterRegistry.counter("cache.shared.gets", "cache", cacheName, "result", "miss");
+        this.sharedErrors = meterRegistry.counter("cache.shared.errors", "cache", cacheName);
+        if (invalidationBus != null) {
+            invalidationBus.addListener(this::evictLocal);
+        }
     }
 
     public StudyGroup get(String key) {
-        // Retrieve and return the studyGroup
+        // Retrieve and return the studyGroup; a stale entry is returned as-is and refreshed in the background
         return cache.getIfPresent(key);
     }
 
+    /**
+     * Returns the cached studyGroup, loading it on a miss from the shared tier and then with the given function.
+     * Concurrent misses for the same key wait for a single load instead of each calling the loader,
+     * and a key the loader returned null for is answered with null, without loading, for the negative TTL -
+     * unless the key was added or evicted while it loaded, since the group may exist by then.
+     */
+    public StudyGroup get(String key, Function<String, StudyGroup> loader) {
+        if (missingKeys.getIfPresent(key) != null) {
+            return null;
+        }
+        Object token = new Object();
+        loadTokens.put(key, token);
+        StudyGroup studyGroup = null;
+        boolean loaded = false;
+        try {
+            studyGroup = cache.get(key, k -> {
+                StudyGroup shared = readShared(k);
+                return shared != null ? shared : writeThrough(k, loader.apply(k));
+            });
+            loaded = true;
+        } finally {
+            // a load that threw says nothing about whether the key exists
+            boolean missing = loaded && studyGroup == null;
+            // runs under the map's lock for the key, so an add or evict lands entirely before or after it
+            loadTokens.computeIfPresent(key, (k, current) -> {
+                if (current != token) {
+                    return current;
+                }
+                if (missing) {
+                    missingKeys.put(k, Boolean.TRUE);
+                }
+                return null;
+            });
+        }
+        return studyGroup;
+    }
+
     public void evict(String key) {
         // Invalidate/evict the StudyGroup from cache
         if(key != null){
-            cache.invalidate(key);
+            evictLocal(key);
+            deleteShared(key);
+            broadcast(key);
         }
     }
 
     public void add(String key, StudyGroup value) {
         // Add studyGroup to cache
         cache.put(key,value);
+        forgetMissing(key);
+        writeThrough(key, value);
+        // the other instances drop their copy and read the new value from the shared tier or the loader
+        broadcast(key);
+    }
+
+    /**
+     * Puts the studyGroup in this instance's cache only, without writing through or broadcasting;
+     * used to warm the cache at start-up.
+     */
+    public void addLocal(String key, StudyGroup value) {
+        cache.put(key, value);
+        forgetMissing(key);
+    }
+
+    /**
+     * Replaces the key's entry in this instance's cache only if it is still the given instance, so a value added,
+     * reloaded or evicted since that one was put is left alone; used to refresh groups restored from a snapshot.
+     *
+     * @return true if the entry was replaced
+     */
+    public boolean replaceLocal(String key, StudyGroup expected, StudyGroup value) {
+        // compared by identity: a newer copy of the same group can be equal to the restored one
+        return cache.asMap().computeIfPresent(key, (k, current) -> current == expected ? value : current) == value;
+    }
+
+    /**
+     * Drops the key from this instance only if its entry is still the given instance.
+     */
+    public void evictLocal(String key, StudyGroup expected) {
+        cache.asMap().computeIfPresent(key, (k, current) -> current == expected ? null : current);
+    }
+
+    /**
+     * Copies the studyGroups currently held by this instance, e.g. for a snapshot.
+     */
+    public List<StudyGroup> localEntries() {
+        return new ArrayList<>(cache.asMap().values());
+    }
+
+    /**
+     * Drops the key from this instance only; used for invalidations received from other instances.
+     */
+    public void evictLocal(String key) {
+        cache.invalidate(key);
+        forgetMissing(key);
+    }
+
+    // the token goes first: a load still running then cannot record the key as missing after it is forgotten
+    private void forgetMissing(String key) {
+        loadTokens.remove(key);
+        missingKeys.invalidate(key);
+    }
+
+    static int weigh(String key, StudyGroup group) {
+        // Strings are at most two bytes per char
+        return ENTRY_OVERHEAD_BYTES + 2 * (length(key) + length(group.getGroupId())
+                + length(group.getGroupName()) + length(group.getDiscussionTopic()));
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private void broadcast(String key) {
+        if (invalidationBus != null) {
+            invalidationBus.invalidate(key);
+        }
+    }
+
+    // the shared tier is only an optimization: when it is unreachable we log, count and fall back to the loader
+
+    private StudyGroup readShared(String key) {
+        if (sharedTier == null) {
+            return null;
+        }
+        try {
+            String json = sharedTier.get(key);
+            if (json == null) {
+                sharedMisses.increment();
+                return null;
+            }
+            sharedHits.increment();
+            return MAPPER.readValue(json, StudyGroup.class);
+        } catch (JsonProcessingException | RuntimeException e) {
+            sharedErrors.increment();
+            log.warn("Could not read study group {} from the shared cache", key, e);
+            return null;
+        }
+    }
+
+    private StudyGroup writeThrough(String key, StudyGroup value) {
+        if (sharedTier == null || value == null) {
+            return value;
+        }
+        try {
+            sharedTier.put(key, MAPPER.writeValueAsString(value), sharedTtl);
+        } catch (JsonProcessingException | RuntimeException e) {
+            sharedErrors.increment();
+            log.warn("Could not write study group {} to the shared cache", key, e);
+        }
+        return value;
+    }
+
+    private void deleteShared(String key) {
+        if (sharedTier == null) {
+            return;
+        }
+        try {
+            sharedTier.delete(key);
+        } catch (RuntimeException e) {
+            sharedErrors.increment();
+            log.warn("Could not delete study group {} from the shared cache", key, e);
+        }
     }
 }
@@ -0,0 +1,19 @@
+package com.kenzie.appserver.config;
+
+import java.time.Duration;
+
+/**
+ * A cache shared by every instance of the service, sitting behind the in-process CacheStore.
+ * Values are opaque strings; CacheStore does the serialization.
+ */
+public interface CacheTier {
+
+    /**
+     * @return the value, or null if the key is absent or expired
+     */
+    String get(String key);
+
+    void put(String key, String value, Duration ttl);
+
+    void delete(String key);
+}
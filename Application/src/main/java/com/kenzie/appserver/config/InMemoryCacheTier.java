@@ -0,0 +1,57 @@
+package com.kenzie.appserver.config;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in for Redis when running locally or in tests: an in-process map with per-entry expiry.
+ * Several CacheStores sharing one instance behave like several service instances sharing Redis.
+ */
+public class InMemoryCacheTier implements CacheTier {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Clock clock;
+
+    public InMemoryCacheTier() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryCacheTier(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.expiresAt.isAfter(clock.instant())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        entries.put(key, new Entry(value, clock.instant().plus(ttl)));
+    }
+
+    @Override
+    public void delete(String key) {
+        entries.remove(key);
+    }
+
+    private static class Entry {
+        private final String value;
+        private final Instant expiresAt;
+
+        Entry(String value, Instant expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.kenzie.appserver.config;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers messages synchronously to every subscriber in this JVM. Several CacheInvalidationBuses
+ * sharing one instance behave like several service instances sharing a Redis channel.
+ */
+public class InMemoryInvalidationTransport implements InvalidationTransport {
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(String message) {
+        for (Consumer<String> listener : listeners) {
+            listener.accept(message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        listeners.clear();
+    }
+}
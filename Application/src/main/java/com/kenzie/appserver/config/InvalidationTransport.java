@@ -0,0 +1,18 @@
+package com.kenzie.appserver.config;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries cache invalidation messages between instances. Messages are opaque strings;
+ * CacheInvalidationBus does the batching and encoding. Every subscriber receives every message,
+ * including the ones its own instance published.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+
+    void publish(String message);
+
+    void subscribe(Consumer<String> listener);
+
+    @Override
+    void close();
+}
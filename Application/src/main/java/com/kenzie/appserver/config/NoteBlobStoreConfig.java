@@ -0,0 +1,45 @@
+package com.kenzie.appserver.config;
+
+import com.kenzie.appserver.repositories.FileSystemNoteBlobStore;
+import com.kenzie.appserver.repositories.NoteBlobStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Note blobs are off unless notes.blob.enabled is true; without a NoteBlobStore every body stays inline in the
+ * Note table. A record keeps only the hash of an externalized body, so every instance, and every later deploy,
+ * has to see the same blobs: the filesystem store refuses to start on a relative directory, and on more than
+ * one instance, since its reference counts are only guarded within one process.
+ */
+@Configuration
+@ConditionalOnProperty(name = "notes.blob.enabled", havingValue = "true")
+public class NoteBlobStoreConfig {
+
+    // another NoteBlobStore is plugged in with its own value of notes.blob.store
+    @Bean
+    @ConditionalOnProperty(name = "notes.blob.store", havingValue = "filesystem", matchIfMissing = true)
+    public NoteBlobStore fileSystemNoteBlobStore(@Value("${notes.blob.directory}") String directory,
+                                                 @Value("${deployment.instances:1}") int instances) {
+        return new FileSystemNoteBlobStore(checkedDirectory(directory, instances));
+    }
+
+    static Path checkedDirectory(String directory, int instances) {
+        Path root = Paths.get(directory);
+        if (!root.isAbsolute()) {
+            throw new IllegalStateException("notes.blob.directory must be an absolute path, not " + directory
+                    + ": blobs in a directory relative to the working directory are lost when it changes");
+        }
+        if (instances > 1) {
+            throw new IllegalStateException("The filesystem note blob store serves one instance, but " + instances
+                    + " instances are deployed; several instances on one directory lose reference counts and "
+                    + "delete blobs still in use. Configure a notes.blob.store they all share, or keep "
+                    + "notes.blob.enabled=false");
+        }
+        return root;
+    }
+}
@@ -0,0 +1,40 @@
+package com.kenzie.appserver.config;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.time.Duration;
+
+/**
+ * CacheTier backed by Redis (see runLocalRedis.sh for a local instance).
+ */
+public class RedisCacheTier implements CacheTier {
+    private final JedisPool jedisPool;
+    private final String keyPrefix;
+
+    public RedisCacheTier(JedisPool jedisPool, String keyPrefix) {
+        this.jedisPool = jedisPool;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public String get(String key) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.get(keyPrefix + key);
+        }
+    }
+
+    @Override
+    public void put(String key, String value, Duration ttl) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.setex(keyPrefix + key, (int) Math.max(1, ttl.getSeconds()), value);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.del(keyPrefix + key);
+        }
+    }
+}
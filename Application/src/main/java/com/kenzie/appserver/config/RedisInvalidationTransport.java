@@ -0,0 +1,83 @@
+package com.kenzie.appserver.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * InvalidationTransport over a Redis pub/sub channel. A daemon thread holds the subscription and
+ * resubscribes after connection failures; messages published while it is disconnected are lost,
+ * which the cache TTLs bound.
+ */
+public class RedisInvalidationTransport implements InvalidationTransport {
+    private static final Logger log = LoggerFactory.getLogger(RedisInvalidationTransport.class);
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final JedisPool jedisPool;
+    private final String channel;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private final JedisPubSub pubSub = new JedisPubSub() {
+        @Override
+        public void onMessage(String channel, String message) {
+            for (Consumer<String> listener : listeners) {
+                listener.accept(message);
+            }
+        }
+    };
+    private volatile boolean running = true;
+
+    public RedisInvalidationTransport(JedisPool jedisPool, String channel) {
+        this.jedisPool = jedisPool;
+        this.channel = channel;
+        Thread subscriber = new Thread(this::subscribeLoop, "cache-invalidation-subscriber");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    @Override
+    public void publish(String message) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            jedis.publish(channel, message);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (pubSub.isSubscribed()) {
+            pubSub.unsubscribe();
+        }
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            try (Jedis jedis = jedisPool.getResource()) {
+                // blocks until unsubscribed or the connection drops
+                jedis.subscribe(pubSub, channel);
+            } catch (JedisException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cache invalidation subscription to {} lost, retrying", channel, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
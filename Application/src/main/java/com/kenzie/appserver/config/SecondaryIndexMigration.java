@@ -0,0 +1,271 @@
+package com.kenzie.appserver.config;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.CreateGlobalSecondaryIndexAction;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveRequest;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveSpecification;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
+import com.kenzie.appserver.repositories.TableNames;
+import com.kenzie.appserver.repositories.model.CascadeDeletionJobRecord;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Adds the global secondary indexes declared on the records to tables that already exist.
+ *
+ * entity2ddl's create-only mode builds a table with all of its indexes, but leaves a deployed table alone,
+ * so an index added to a record later never reaches it. At start-up each table in {@link #RECORDS} is
+ * described, and every index the record declares that the table lacks is created with UpdateTable, with
+ * the key schema the mapper would have used and the configured projection and capacity. Only one index can be
+ * created per table per call, and a table accepts no new index while another is still being built, so until
+ * every declared index is ACTIVE the tables are described again every pollInterval, on a background thread,
+ * and the next index is requested as soon as its table is free.
+ *
+ * DynamoDB builds an index online and queries against it fail until it is ACTIVE, so the repositories ask
+ * {@link #isActive(Class, String)} first and fall back to a filtered scan while it is not.
+ *
+ * Time to live is a table setting entity2ddl never makes either, so it is turned on here for each table in
+ * {@link #TIME_TO_LIVE}, on the attribute named there.
+ */
+@Component
+public class SecondaryIndexMigration {
+    private static final Logger log = LoggerFactory.getLogger(SecondaryIndexMigration.class);
+
+    // records whose indexes were added after their table was first deployed
+    static final List<Class<?>> RECORDS = Arrays.asList(
+            StudyGroupMemberRecord.class,
+            StudyGroupReviewRecord.class,
+            NoteRecord.class,
+            CascadeDeletionJobRecord.class);
+
+    // records whose items expire, and the epoch-seconds attribute they expire at
+    static final Map<Class<?>, String> TIME_TO_LIVE = Collections.singletonMap(
+            CascadeDeletionJobRecord.class, CascadeDeletionJobRecord.EXPIRES_AT);
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final DynamoDBMapper mapper;
+    private final DynamoDBMapperConfig mapperConfig;
+    private final boolean enabled;
+    private final ProjectionType projectionType;
+    private final long readCapacity;
+    private final long writeCapacity;
+    private final Duration pollInterval;
+    // recordClass#indexName of every index seen ACTIVE; an index never goes back to building
+    private final Set<String> activeIndexes = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public SecondaryIndexMigration(AmazonDynamoDB amazonDynamoDB, DynamoDBMapper mapper,
+                                   DynamoDBMapperConfig mapperConfig,
+                                   @Value("${dynamodb.indexMigration.enabled:true}") boolean enabled,
+                                   @Value("${spring.data.dynamodb.entity2ddl.gsiProjectionType:ALL}")
+                                           String projectionType,
+                                   @Value("${spring.data.dynamodb.entity2ddl.readCapacity:10}") long readCapacity,
+                                   @Value("${spring.data.dynamodb.entity2ddl.writeCapacity:1}") long writeCapacity,
+                                   @Value("${dynamodb.indexMigration.pollInterval:PT30S}") Duration pollInterval) {
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.mapper = mapper;
+        this.mapperConfig = mapperConfig;
+        this.enabled = enabled;
+        this.projectionType = ProjectionType.fromValue(projectionType);
+        this.readCapacity = readCapacity;
+        this.writeCapacity = writeCapacity;
+        this.pollInterval = pollInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        for (Map.Entry<Class<?>, String> expiring : TIME_TO_LIVE.entrySet()) {
+            try {
+                enableTimeToLive(expiring.getKey(), expiring.getValue());
+            } catch (RuntimeException e) {
+                log.warn("Could not check the time to live of {}", expiring.getKey().getSimpleName(), e);
+            }
+        }
+        if (migrateAll()) {
+            return;
+        }
+        Thread poller = new Thread(() -> {
+            try {
+                do {
+                    Thread.sleep(pollInterval.toMillis());
+                } while (!migrateAll());
+                log.info("Every secondary index is ACTIVE");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "secondary-index-migration");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    /**
+     * Whether queries on the record's index can be served. Always true when the migration is disabled, since the
+     * indexes are then assumed to have been created with their tables.
+     */
+    public boolean isActive(Class<?> recordClass, String indexName) {
+        return !enabled || activeIndexes.contains(indexKey(recordClass, indexName));
+    }
+
+    /**
+     * Moves every table in {@link #RECORDS} one step along.
+     *
+     * @return true once every declared index is ACTIVE
+     */
+    boolean migrateAll() {
+        boolean complete = true;
+        for (Class<?> recordClass : RECORDS) {
+            try {
+                migrate(recordClass);
+            } catch (RuntimeException e) {
+                log.warn("Could not check the secondary indexes of {}", recordClass.getSimpleName(), e);
+            }
+            List<GlobalSecondaryIndex> declared = mapper.generateCreateTableRequest(recordClass)
+                    .getGlobalSecondaryIndexes();
+            if (declared != null) {
+                for (GlobalSecondaryIndex index : declared) {
+                    complete &= isActive(recordClass, index.getIndexName());
+                }
+            }
+        }
+        return complete;
+    }
+
+    /**
+     * Turns on time to live on the record's table, unless it is already on or being turned on.
+     *
+     * @return true if it was requested
+     */
+    boolean enableTimeToLive(Class<?> recordClass, String attributeName) {
+        String tableName = TableNames.of(recordClass, mapperConfig);
+        TimeToLiveDescription current = amazonDynamoDB.describeTimeToLive(new DescribeTimeToLiveRequest()
+                .withTableName(tableName)).getTimeToLiveDescription();
+        if (current != null && !"DISABLED".equals(current.getTimeToLiveStatus())) {
+            return false;
+        }
+        amazonDynamoDB.updateTimeToLive(new UpdateTimeToLiveRequest()
+                .withTableName(tableName)
+                .withTimeToLiveSpecification(new TimeToLiveSpecification()
+                        .withAttributeName(attributeName)
+                        .withEnabled(true)));
+        log.info("Turned on time to live on {}, on {}", tableName, attributeName);
+        return true;
+    }
+
+    /**
+     * Notes which of the table's indexes are ACTIVE and requests the first index declared on the record that its
+     * table lacks.
+     *
+     * @return the name of the index being created, or null if there was nothing to do or it has to wait
+     */
+    String migrate(Class<?> recordClass) {
+        CreateTableRequest declared = mapper.generateCreateTableRequest(recordClass)
+                .withTableName(TableNames.of(recordClass, mapperConfig));
+        if (declared.getGlobalSecondaryIndexes() == null) {
+            return null;
+        }
+        TableDescription table;
+        try {
+            table = amazonDynamoDB.describeTable(declared.getTableName()).getTable();
+        } catch (ResourceNotFoundException e) {
+            // entity2ddl creates it, indexes included
+            return null;
+        }
+        Set<String> existing = new HashSet<>();
+        boolean building = false;
+        if (table.getGlobalSecondaryIndexes() != null) {
+            for (GlobalSecondaryIndexDescription index : table.getGlobalSecondaryIndexes()) {
+                existing.add(index.getIndexName());
+                if ("ACTIVE".equals(index.getIndexStatus())) {
+                    activeIndexes.add(indexKey(recordClass, index.getIndexName()));
+                } else {
+                    log.info("Index {} on {} is {}; new indexes wait for it", index.getIndexName(),
+                            declared.getTableName(), index.getIndexStatus());
+                    building = true;
+                }
+            }
+        }
+        if (building) {
+            return null;
+        }
+        for (GlobalSecondaryIndex index : declared.getGlobalSecondaryIndexes()) {
+            if (!existing.contains(index.getIndexName())) {
+                createIndex(declared, table, index);
+                return index.getIndexName();
+            }
+        }
+        return null;
+    }
+
+    private void createIndex(CreateTableRequest declared, TableDescription table, GlobalSecondaryIndex index) {
+        CreateGlobalSecondaryIndexAction create = new CreateGlobalSecondaryIndexAction()
+                .withIndexName(index.getIndexName())
+                .withKeySchema(index.getKeySchema())
+                .withProjection(new Projection().withProjectionType(projectionType));
+        boolean onDemand = table.getBillingModeSummary() != null
+                && BillingMode.PAY_PER_REQUEST.toString().equals(table.getBillingModeSummary().getBillingMode());
+        if (!onDemand) {
+            create.setProvisionedThroughput(new ProvisionedThroughput(readCapacity, writeCapacity));
+        }
+        amazonDynamoDB.updateTable(new UpdateTableRequest()
+                .withTableName(declared.getTableName())
+                .withAttributeDefinitions(keyAttributes(declared, index))
+                .withGlobalSecondaryIndexUpdates(new GlobalSecondaryIndexUpdate().withCreate(create)));
+        log.warn("Creating index {} on {}; queries that use it scan the table until it is ACTIVE",
+                index.getIndexName(), declared.getTableName());
+    }
+
+    private static String indexKey(Class<?> recordClass, String indexName) {
+        return recordClass.getName() + "#" + indexName;
+    }
+
+    private static List<AttributeDefinition> keyAttributes(CreateTableRequest declared, GlobalSecondaryIndex index) {
+        Set<String> keyNames = new HashSet<>();
+        for (KeySchemaElement key : index.getKeySchema()) {
+            keyNames.add(key.getAttributeName());
+        }
+        List<AttributeDefinition> definitions = new ArrayList<>();
+        for (AttributeDefinition definition : declared.getAttributeDefinitions()) {
+            if (keyNames.contains(definition.getAttributeName())) {
+                definitions.add(definition);
+            }
+        }
+        return definitions;
+    }
+}
@@ -0,0 +1,103 @@
+package com.kenzie.appserver.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kenzie.appserver.service.model.StudyGroupMember;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+
+/**
+ * Member lists per study group, keyed by groupId, each list ordered by memberId like the table's range key.
+ *
+ * A list is loaded whole on first use and then kept current by {@link #addMember(StudyGroupMember)} and
+ * {@link #removeMember(String, String)} rather than reloaded. Groups whose list the loader declines to return
+ * (null, e.g. because it is too large) are remembered as not cached until the entry expires or is evicted, so the
+ * loader is not run for them on every read. When an invalidation bus is configured, every change also makes the
+ * other instances drop their copy of that group's list.
+ */
+public class StudyGroupMemberCache {
+    // keeps member-list keys apart from the study group ids sharing the invalidation bus
+    private static final String KEY_PREFIX = "members:";
+    // held for groups the loader declined; compared by identity and never handed out or modified
+    private static final NavigableMap<String, StudyGroupMember> NOT_CACHED = new ConcurrentSkipListMap<>();
+
+    private final Cache<String, NavigableMap<String, StudyGroupMember>> cache;
+    private final CacheInvalidationBus invalidationBus;
+
+    public StudyGroupMemberCache(long maximumGroups, Duration expireAfterWrite, CacheInvalidationBus invalidationBus,
+                                 MeterRegistry meterRegistry, String cacheName) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumGroups)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.invalidationBus = invalidationBus;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, cacheName);
+        if (invalidationBus != null) {
+            invalidationBus.addListener(key -> {
+                if (key.startsWith(KEY_PREFIX)) {
+                    cache.invalidate(key.substring(KEY_PREFIX.length()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the group's members, loading the list on a miss; concurrent misses for one group share a load.
+     *
+     * @return a read-only view, or null if the loader returned null for this group, now or on an earlier miss
+     */
+    public NavigableMap<String, StudyGroupMember> get(String groupId,
+                                                      Function<String, NavigableMap<String, StudyGroupMember>> loader) {
+        NavigableMap<String, StudyGroupMember> members = cache.get(groupId, key -> {
+            NavigableMap<String, StudyGroupMember> loaded = loader.apply(key);
+            return loaded == null ? NOT_CACHED : new ConcurrentSkipListMap<>(loaded);
+        });
+        return members == NOT_CACHED ? null : Collections.unmodifiableNavigableMap(members);
+    }
+
+    /**
+     * Adds the member to its group's list if that list is cached.
+     */
+    public void addMember(StudyGroupMember member) {
+        cache.asMap().computeIfPresent(member.getGroupId(), (groupId, members) -> {
+            if (members != NOT_CACHED) {
+                members.put(member.getMemberId(), member);
+            }
+            return members;
+        });
+        broadcast(member.getGroupId());
+    }
+
+    /**
+     * Removes the member from its group's list if that list is cached.
+     */
+    public void removeMember(String groupId, String memberId) {
+        cache.asMap().computeIfPresent(groupId, (key, members) -> {
+            if (members != NOT_CACHED) {
+                members.remove(memberId);
+            }
+            return members;
+        });
+        broadcast(groupId);
+    }
+
+    public void evict(String groupId) {
+        if (groupId != null) {
+            cache.invalidate(groupId);
+            broadcast(groupId);
+        }
+    }
+
+    private void broadcast(String groupId) {
+        if (invalidationBus != null) {
+            invalidationBus.invalidate(KEY_PREFIX + groupId);
+        }
+    }
+}
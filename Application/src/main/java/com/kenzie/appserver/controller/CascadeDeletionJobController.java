@@ -0,0 +1,54 @@
+package com.kenzie.appserver.controller;
+
+import com.kenzie.appserver.controller.model.CascadeDeletionJobResponse;
+import com.kenzie.appserver.service.CascadeDeletionService;
+import com.kenzie.appserver.service.model.CascadeDeletionJob;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+
+/**
+ * Progress of the background deletions started by DELETE /v1/groups/{groupId} and DELETE /v1/{email}.
+ */
+@RestController
+@RequestMapping("/v1")
+public class CascadeDeletionJobController {
+    private final CascadeDeletionService cascadeDeletionService;
+
+    CascadeDeletionJobController(CascadeDeletionService cascadeDeletionService) {
+        this.cascadeDeletionService = cascadeDeletionService;
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<CascadeDeletionJobResponse> getDeletionJob(@PathVariable String jobId) {
+        CascadeDeletionJob job = cascadeDeletionService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(convertToResponse(job));
+    }
+
+    // 202 Accepted pointing at the status endpoint
+    static ResponseEntity<CascadeDeletionJobResponse> accepted(CascadeDeletionJob job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/deletions/" + job.getJobId()))
+                .body(convertToResponse(job));
+    }
+
+    static CascadeDeletionJobResponse convertToResponse(CascadeDeletionJob job) {
+        CascadeDeletionJobResponse response = new CascadeDeletionJobResponse();
+        response.setJobId(job.getJobId());
+        response.setTargetType(job.getTargetType().name());
+        response.setTargetId(job.getTargetId());
+        response.setStatus(job.getStatus().name());
+        response.setDeleted(job.getDeletedCounts());
+        response.setError(job.getError());
+        response.setCreatedAt(job.getCreatedAt().toString());
+        response.setUpdatedAt(job.getUpdatedAt().toString());
+        return response;
+    }
+}
@@ -4,8 +4,10 @@ package com.kenzie.appserver.controller;
 import com.kenzie.appserver.controller.model.*;
 import com.kenzie.appserver.repositories.converter.ZonedDateTimeConverter;
 import com.kenzie.appserver.repositories.model.NoteUserId;
+import com.kenzie.appserver.exception.NoteNotFoundException;
 import com.kenzie.appserver.service.NoteService;
 import com.kenzie.appserver.service.model.Note;
+import com.kenzie.appserver.service.model.NotePage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,10 +16,16 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.net.URI;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1")
 public class NoteController {
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    // search results are read with one BatchGetItem, which takes at most 100 keys
+    private static final int MAX_SEARCH_LIMIT = 100;
+
     @Autowired
     NoteService noteService;
 
@@ -25,17 +33,6 @@ public class NoteController {
     // had to change the endpoints
     @PostMapping("/notes/create")
     public ResponseEntity<NoteResponse> createNote(@RequestBody NoteRequest request) {
-        // Scenario #1: Note Exists
-        boolean exists = noteService.doesNoteExist(request.getNoteId());
-        if (exists){
-            NoteResponse noteExistsResponse = new NoteResponse(request.getNoteId(),
-                    request.getUserId(),
-                    request.getContent(),
-                    request.getCreatedDateTime(),
-                    request.getUpdatedDateTime());
-            return ResponseEntity.created(URI.create("/notes/" + noteExistsResponse.getNoteId())).body(noteExistsResponse);
-        }
-
         // Scenario #2: UserID not valid
 //        if (!noteService.isValidUserId(request.getUserId())) {
 //            NoteResponse invalidUserIdResponse = new NoteResponse(request.getNoteId(),
@@ -47,16 +44,62 @@ public class NoteController {
 //        }
 
         Note note = new Note(request.getNoteId(), request.getUserId(), request.getContent(), ZonedDateTime.now(), ZonedDateTime.now());
+        // Scenario #1: Note Exists - the stored note comes back instead
         Note newNote = noteService.createNote(note);
+        if (newNote.getUserId() != null && !newNote.getUserId().equals(request.getUserId())) {
+            // the noteId belongs to someone else's note
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
 
-        NoteResponse createNoteSuccessfulResponse = new NoteResponse(newNote.getNoteId(),
-                newNote.getUserId(),
-                newNote.getContent(),
-                new ZonedDateTimeConverter().convert(newNote.getCreatedDateTime()),
-                new ZonedDateTimeConverter().convert(newNote.getUpdatedDateTime()));
+        NoteResponse createNoteSuccessfulResponse = convertToNoteResponse(newNote);
         return ResponseEntity.created(URI.create("/notes/" + createNoteSuccessfulResponse.getNoteId())).body(createNoteSuccessfulResponse);
     }
 
+    /**
+     * One page of the user's notes, most recently updated first.
+     *      /notes?userId={userId}&limit=&cursor=   [next cursor in X-Next-Cursor]
+     */
+    @GetMapping("/notes")
+    public ResponseEntity<List<NoteResponse>> getNotesByUserId(@RequestParam String userId,
+                                                               @RequestParam(required = false) String cursor,
+                                                               @RequestParam(defaultValue = "" + StudyGroupController.DEFAULT_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > StudyGroupController.MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + StudyGroupController.MAX_PAGE_SIZE);
+        }
+        NotePage page;
+        try {
+            page = noteService.getNotesForUser(userId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        List<NoteResponse> responses = new ArrayList<>(page.getNotes().size());
+        for (Note note : page.getNotes()) {
+            responses.add(convertToNoteResponse(note));
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(200);
+        if (page.getNextCursor() != null) {
+            builder.header(StudyGroupController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(responses);
+    }
+
+    /**
+     * The user's notes that contain any word of q, best match first.
+     *      /notes/search?userId={userId}&q={words}&limit=20
+     */
+    @GetMapping("/notes/search")
+    public ResponseEntity<List<NoteResponse>> searchNotes(@RequestParam String userId, @RequestParam String q,
+                                                          @RequestParam(defaultValue = "" + DEFAULT_SEARCH_LIMIT) int limit) {
+        if (limit < 1 || limit > MAX_SEARCH_LIMIT) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_SEARCH_LIMIT);
+        }
+        List<NoteResponse> responses = new ArrayList<>();
+        for (Note note : noteService.searchNotes(userId, q, limit)) {
+            responses.add(convertToNoteResponse(note));
+        }
+        return ResponseEntity.ok(responses);
+    }
+
     @GetMapping("/notes/{noteId}")
     public ResponseEntity<NoteResponse> getNoteById(@PathVariable String noteId) {
         Note note = noteService.findByNoteId(noteId);
@@ -75,19 +118,23 @@ public class NoteController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Note ID is required");
         }
 
-        Note existingNote = noteService.findByNoteId(noteId);
-        if (existingNote == null) {
+        // autosaves send only the content; the service keeps the stored creation date
+        ZonedDateTime createdDateTime = noteRequest.getCreatedDateTime() == null ? null
+                : new ZonedDateTimeConverter().unconvert(noteRequest.getCreatedDateTime());
+        ZonedDateTime updatedDateTime = noteRequest.getUpdatedDateTime() == null ? ZonedDateTime.now()
+                : new ZonedDateTimeConverter().unconvert(noteRequest.getUpdatedDateTime());
+        Note note = new Note(noteId, noteRequest.getUserId(), noteRequest.getContent(),
+                createdDateTime, updatedDateTime, noteRequest.getVersion());
+
+        // a stale version is answered with 409 by VersionConflictAdvice
+        Note updatedNote;
+        try {
+            updatedNote = noteService.updateNote(note);
+        } catch (NoteNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
-        existingNote.setNoteId(noteRequest.getNoteId());
-        existingNote.setUserId(noteRequest.getUserId());
-        existingNote.setContent(noteRequest.getContent());
-        existingNote.setCreatedDateTime(new ZonedDateTimeConverter().unconvert(noteRequest.getCreatedDateTime()));
-        existingNote.setUpdatedDateTime(new ZonedDateTimeConverter().unconvert(noteRequest.getUpdatedDateTime()));
-
-        noteService.updateNote(existingNote);
 
-        NoteResponse noteResponse = convertToNoteResponse(existingNote);
+        NoteResponse noteResponse = convertToNoteResponse(updatedNote);
         return ResponseEntity.ok(noteResponse);
     }
 
@@ -103,10 +150,12 @@ public class NoteController {
     }
 
     private NoteResponse convertToNoteResponse(Note note) {
-        return new NoteResponse(note.getNoteId(),
+        NoteResponse response = new NoteResponse(note.getNoteId(),
                 note.getUserId(),
                 note.getContent(),
                 new ZonedDateTimeConverter().convert(note.getCreatedDateTime()),
                 new ZonedDateTimeConverter().convert(note.getUpdatedDateTime()));
+        response.setVersion(note.getVersion());
+        return response;
     }
 }
@@ -2,14 +2,22 @@ package com.kenzie.appserver.controller;
 
 import com.kenzie.appserver.controller.model.AddStudyGroupRequest;
 import com.kenzie.appserver.controller.model.AddStudyGroupResponse;
+import com.kenzie.appserver.controller.model.BulkMembershipRequest;
+import com.kenzie.appserver.controller.model.CascadeDeletionJobResponse;
+import com.kenzie.appserver.controller.model.MembershipResultResponse;
 import com.kenzie.appserver.controller.model.StudyGroupMemberResponse;
+import com.kenzie.appserver.exception.StudyGroupNameTakenException;
 import com.kenzie.appserver.exception.StudyGroupNotFoundException;
 import com.kenzie.appserver.exception.MemberNotFoundException;
 import com.kenzie.appserver.repositories.converter.ZonedDateTimeConverter;
+import com.kenzie.appserver.service.CascadeDeletionService;
 import com.kenzie.appserver.service.StudyGroupService;
 import com.kenzie.appserver.service.MemberService;
+import com.kenzie.appserver.service.model.MembershipResult;
 import com.kenzie.appserver.service.model.StudyGroup;
 import com.kenzie.appserver.service.model.StudyGroupMember;
+import com.kenzie.appserver.service.model.StudyGroupMemberPage;
+import com.kenzie.appserver.service.model.StudyGroupPage;
 import com.kenzie.appserver.service.model.Member;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -27,11 +35,18 @@ import java.util.UUID;
 @RestController
 @RequestMapping("/v1")
 public class StudyGroupController {
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 500;
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int MAX_BULK_MEMBERS = 1000;
+
     @Autowired
     private StudyGroupService studyGroupService;
 
     @Autowired
     private MemberService memberService;
+    @Autowired
+    private CascadeDeletionService cascadeDeletionService;
     StudyGroupController(StudyGroupService studyGroupService){
         this.studyGroupService = studyGroupService;
     }
@@ -84,6 +99,30 @@ public class StudyGroupController {
                 .body(studyGroupMemberResponse);
     }
 
+    // Route to the groups [study groups] endpoint, for adding many members to a study group in one request
+    @PostMapping("/groups/{groupId}/members")
+    public ResponseEntity<List<MembershipResultResponse>> addMembersToStudyGroup(@PathVariable String groupId,
+                                                                                 @RequestBody BulkMembershipRequest request) {
+        if (request.getMemberIds() == null || request.getMemberIds().isEmpty()
+                || request.getMemberIds().size() > MAX_BULK_MEMBERS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "memberIds must hold between 1 and " + MAX_BULK_MEMBERS + " member ids");
+        }
+        StudyGroup studyGroup = studyGroupService.findByCachedGroupId(groupId);
+        if (studyGroup == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "StudyGroup not found for groupId " + groupId);
+        }
+
+        List<MembershipResultResponse> responses = new ArrayList<>();
+        for (MembershipResult result : studyGroupService.addMembersToStudyGroup(studyGroup, request.getMemberIds())) {
+            MembershipResultResponse response = new MembershipResultResponse();
+            response.setMemberId(result.getMemberId());
+            response.setStatus(result.getStatus().name());
+            responses.add(response);
+        }
+        return ResponseEntity.ok(responses);
+    }
+
     private StudyGroupMemberResponse convertToStudyGroupMemberResponse(StudyGroupMember studyGroupMember) {
         StudyGroupMemberResponse response = new StudyGroupMemberResponse();
         response.setGroupId(studyGroupMember.getGroupId());
@@ -103,7 +142,7 @@ public class StudyGroupController {
      *      /groups/                                [Returns all Groups]
      *      /groups/{groupId}                       [Returns a group]
      *
-     *      /groups/{groupId}/members/                [Returns all Members]
+     *      /groups/{groupId}/members/                [Returns a page of Members, ?cursor=&limit=, next cursor in X-Next-Cursor]
      *      /groups/{groupId}/members/{memberId}      [Returns a member within a group]
      *
      * Note:
@@ -112,22 +151,61 @@ public class StudyGroupController {
      * source: https://technicalsand.com/using-responseentity-in-spring/
      */
     @GetMapping("/groups/{groupId}/members/")
-    public ResponseEntity<List<StudyGroupMemberResponse>> getStudyGroupMembers(@PathVariable String groupId){
-
-        List<StudyGroupMember> studyGroupMembers = studyGroupService.getStudyGroupMembers(groupId);
-        if (studyGroupMembers == null || studyGroupMembers.isEmpty()) {
+    public ResponseEntity<List<StudyGroupMemberResponse>> getStudyGroupMembers(@PathVariable String groupId,
+                                                                               @RequestParam(required = false) String cursor,
+                                                                               @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit){
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        StudyGroupMemberPage page;
+        try {
+            page = studyGroupService.getStudyGroupMemberPage(groupId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        if (page.getMembers().isEmpty()) {
             return ResponseEntity.notFound().build();
         }
         List<StudyGroupMemberResponse> responses = new ArrayList<>();
-        for(StudyGroupMember member:studyGroupMembers) {
+        for(StudyGroupMember member:page.getMembers()) {
             responses.add(convertToStudyGroupMemberResponse(member));
         }
-        return ResponseEntity
-                .status(200)
-                .body(responses);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(200);
+        if (page.getNextCursor() != null) {
+            builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(responses);
 
     }
 
+    /**
+     * Endpoint to get the groups a member belongs to
+     *      /members/{memberId}/groups                [Returns a page of the member's groups, ?cursor=&limit=, next cursor in X-Next-Cursor]
+     */
+    @GetMapping("/members/{memberId}/groups")
+    public ResponseEntity<List<StudyGroupMemberResponse>> getGroupsForMember(@PathVariable String memberId,
+                                                                             @RequestParam(required = false) String cursor,
+                                                                             @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        StudyGroupMemberPage page;
+        try {
+            page = studyGroupService.getGroupsForMember(memberId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
+        List<StudyGroupMemberResponse> responses = new ArrayList<>();
+        for (StudyGroupMember group : page.getMembers()) {
+            responses.add(convertToStudyGroupMemberResponse(group));
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(200);
+        if (page.getNextCursor() != null) {
+            builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(responses);
+    }
+
     /**
      * Endpoint to remove member from study Group
      * */
@@ -177,21 +255,39 @@ public class StudyGroupController {
 
 
     /**
-     * Endpoint for retrieving all study groups
+     * Endpoint for retrieving study groups, one page at a time
+     *      /groups?limit=100                       [Returns the first page]
+     *      /groups?limit=100&cursor={nextCursor}   [Returns the page after the cursor]
+     *
+     * The body stays a JSON array; the cursor for the next page is returned in the
+     * X-Next-Cursor header and is absent on the last page.
      */
     @GetMapping("/groups")
-    public ResponseEntity<List<AddStudyGroupResponse>> getAllStudyGroups() {
-        List<StudyGroup> studyGroups = studyGroupService.getAllStudyGroups();
+    public ResponseEntity<List<AddStudyGroupResponse>> getAllStudyGroups(@RequestParam(required = false) String cursor,
+                                                                         @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        StudyGroupPage page;
+        try {
+            page = studyGroupService.getStudyGroupPage(cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
         // if no studyGroups found return 204
-        if(studyGroups == null || studyGroups.isEmpty()){
+        if(page.getStudyGroups().isEmpty()){
             return ResponseEntity.noContent().build();
         }
         // Otherwise, convert the List of StudyGroup objects into a List of StudyGroupResponse and return it
         List<AddStudyGroupResponse> response = new ArrayList<>();
-        for (StudyGroup studyGroup : studyGroups) {
+        for (StudyGroup studyGroup : page.getStudyGroups()) {
             response.add(convertToStudyGroupResponse(studyGroup));
         }
-        return ResponseEntity.ok(response);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return builder.body(response);
     }
 
 
@@ -205,31 +301,35 @@ public class StudyGroupController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Group Name is required");
         }
 
-        StudyGroup existingStudyGroup = studyGroupService.findByCachedGroupId(groupId);
-        if (existingStudyGroup == null) {
+        StudyGroup studyGroup = new StudyGroup(groupId, updateRequest.getGroupName(),
+                updateRequest.getDiscussionTopic(), ZonedDateTime.now(), updateRequest.isActive(),
+                updateRequest.getVersion());
+
+        // a stale version is answered with 409 by VersionConflictAdvice
+        StudyGroup updatedStudyGroup;
+        try {
+            updatedStudyGroup = studyGroupService.updateStudyGroup(studyGroup);
+        } catch (StudyGroupNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (StudyGroupNameTakenException e) {
+            // another group already has this name and topic
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
-        existingStudyGroup.setGroupName(updateRequest.getGroupName());
-        existingStudyGroup.setDiscussionTopic(updateRequest.getDiscussionTopic());
-        existingStudyGroup.setCreationDate(ZonedDateTime.now());
-        existingStudyGroup.setActive(updateRequest.isActive());
-
-        studyGroupService.updateStudyGroup(existingStudyGroup);
 
-        AddStudyGroupResponse studyGroupResponse = convertToStudyGroupResponse(existingStudyGroup);
+        AddStudyGroupResponse studyGroupResponse = convertToStudyGroupResponse(updatedStudyGroup);
         return ResponseEntity.ok(studyGroupResponse);
 
 
     }
+    // the group is gone when this returns; its members and reviews are deleted in the background
     @DeleteMapping("/groups/{groupId}")
-    public ResponseEntity deleteStudyGroup(@PathVariable String groupId) {
+    public ResponseEntity<CascadeDeletionJobResponse> deleteStudyGroup(@PathVariable String groupId) {
 
         StudyGroup existingStudyGroup = studyGroupService.findByCachedGroupId(groupId);
         if (existingStudyGroup == null) {
             return ResponseEntity.notFound().build();
         }
-        studyGroupService.deleteStudyGroup(groupId);
-        return ResponseEntity.noContent().build();
+        return CascadeDeletionJobController.accepted(cascadeDeletionService.submitGroupDeletion(groupId));
     }
 
 
@@ -252,6 +352,7 @@ public class StudyGroupController {
         response.setDiscussionTopic(studyGroup.getDiscussionTopic());
         response.setCreationDate(new ZonedDateTimeConverter().convert(studyGroup.getCreationDate()));
         response.setActive(studyGroup.isActive());
+        response.setVersion(studyGroup.getVersion());
         return response;
     }
 
@@ -1,29 +1,57 @@
 package com.kenzie.appserver.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kenzie.appserver.controller.model.GroupReviewResponse;
 import com.kenzie.appserver.controller.model.StudyGroupReviewRequest;
 import com.kenzie.appserver.controller.model.StudyGroupReviewResponse;
+import com.kenzie.appserver.controller.model.TopRatedGroupResponse;
+import com.kenzie.appserver.exception.ReviewQueueFullException;
+import com.kenzie.appserver.service.StudyGroupReviewIngestion;
 import com.kenzie.appserver.service.StudyGroupReviewService;
+import com.kenzie.appserver.service.model.StudyGroupCommentPage;
+import com.kenzie.appserver.service.model.StudyGroupRating;
+import com.kenzie.appserver.service.model.StudyGroupRatingPage;
 import com.kenzie.appserver.service.model.StudyGroupReview;
+import com.kenzie.appserver.service.model.StudyGroupReviewPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.util.*;
+import java.util.function.Consumer;
 
 
 @RestController
 @RequestMapping("/v1")
 public class StudyGroupReviewController {
+    // seconds a client should wait before resubmitting a review the ingestion queue had no room for
+    private static final String RETRY_AFTER_SECONDS = "1";
 
     @Autowired
     private StudyGroupReviewService reviewService;
 
-    public StudyGroupReviewController(StudyGroupReviewService reviewService) {
+    @Autowired
+    private StudyGroupReviewIngestion reviewIngestion;
+
+    // the application's mapper, so the streamed arrays are written like every other response body
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public StudyGroupReviewController(StudyGroupReviewService reviewService, StudyGroupReviewIngestion reviewIngestion,
+                                      ObjectMapper objectMapper) {
         this.reviewService = reviewService;
+        this.reviewIngestion = reviewIngestion;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping("/studygroup/reviews")
@@ -33,12 +61,35 @@ public class StudyGroupReviewController {
         }
 
         StudyGroupReview studyGroupReview = convertToReview(request);
+        if (reviewIngestion.isEnabled()) {
+            return queueReview(studyGroupReview);
+        }
         StudyGroupReview review = reviewService.submitStudyGroupReview(studyGroupReview);
         StudyGroupReviewResponse response = convertToResponse(review);
         return ResponseEntity.created(URI.create("/studygroup/reviews" + response.getReviewId())).body(response);
 
     }
 
+    /**
+     * Write-behind submission: 202 with the review's id as soon as it is queued. The review, and its effect on
+     * the group's average, can be read once the queue has been flushed.
+     */
+    private ResponseEntity<StudyGroupReviewResponse> queueReview(StudyGroupReview studyGroupReview) {
+        String reviewId;
+        try {
+            reviewId = reviewIngestion.submit(studyGroupReview);
+        } catch (ReviewQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .build();
+        }
+        StudyGroupReviewResponse response = convertToResponse(studyGroupReview);
+        response.setReviewId(reviewId);
+        return ResponseEntity.accepted()
+                .location(URI.create("/v1/studygroup/reviews/" + reviewId))
+                .body(response);
+    }
+
     @GetMapping("/studygroup/reviews/{reviewId}")
     public ResponseEntity<StudyGroupReviewResponse> getReviewByReviewId(@PathVariable String reviewId) {
         StudyGroupReview review = reviewService.getStudyGroupReview(reviewId);
@@ -50,40 +101,125 @@ public class StudyGroupReviewController {
         }
     }
 
+    /**
+     * One page of the reviews under the topic (?cursor=&limit=, next cursor in X-Next-Cursor).
+     */
     @GetMapping("/studygroup/reviews/discussionTopic/{discussionTopic}")
-    public ResponseEntity<List<GroupReviewResponse>> getStudyGroupReviewsByTopic(@PathVariable String discussionTopic)  {
-
-        List<StudyGroupReview> reviewsByTopic = reviewService.getStudyGroupReviewsByTopic(discussionTopic);
+    public ResponseEntity<List<GroupReviewResponse>> getStudyGroupReviewsByTopic(@PathVariable String discussionTopic,
+                                                                                 @RequestParam(required = false) String cursor,
+                                                                                 @RequestParam(defaultValue = "" + StudyGroupController.DEFAULT_PAGE_SIZE) int limit) {
+        checkLimit(limit);
+        StudyGroupReviewPage page;
+        try {
+            page = reviewService.getStudyGroupReviewPageByTopic(discussionTopic, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
 
-        if (reviewsByTopic == null || reviewsByTopic.isEmpty()) {
+        // a later page can come back empty when the previous one ended exactly at the last review
+        if (page.getReviews().isEmpty() && cursor == null) {
             return ResponseEntity.notFound().build();
         }
-        List<GroupReviewResponse> reviewResponseList = new ArrayList<>();
-        if (reviewsByTopic != null) {
-            for (StudyGroupReview review : reviewsByTopic) {
-                reviewResponseList.add(reviewToResponses(review));
-            }
+        List<GroupReviewResponse> reviewResponseList = new ArrayList<>(page.getReviews().size());
+        for (StudyGroupReview review : page.getReviews()) {
+            reviewResponseList.add(reviewToResponses(review));
+        }
+        return withNextCursor(page.getNextCursor()).body(reviewResponseList);
+    }
+
+    /**
+     * Every review under the topic as one JSON array, written to the response as it is read from DynamoDB a
+     * page at a time.
+     */
+    @GetMapping(value = "/studygroup/reviews/discussionTopic/{discussionTopic}/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStudyGroupReviewsByTopic(@PathVariable String discussionTopic) {
+        StreamingResponseBody body = outputStream -> writeJsonArray(outputStream, generator ->
+                reviewService.streamStudyGroupReviewsByTopic(discussionTopic,
+                        review -> writeValue(generator, reviewToResponses(review))));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * One page of the comments on the group's reviews (?cursor=&limit=, next cursor in X-Next-Cursor).
+     */
+    @GetMapping("/studygroup/comments/{groupId}")
+    public ResponseEntity<List<String>> getCommentsForStudyGroup(@PathVariable String groupId,
+                                                                 @RequestParam(required = false) String cursor,
+                                                                 @RequestParam(defaultValue = "" + StudyGroupController.DEFAULT_PAGE_SIZE) int limit) {
+        checkLimit(limit);
+        StudyGroupCommentPage page;
+        try {
+            page = reviewService.getCommentPageForStudyGroup(groupId, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
         }
-        return ResponseEntity
-                .status(200)
-                .body(reviewResponseList);
+        return withNextCursor(page.getNextCursor()).body(page.getComments());
     }
 
     /**
-     * Vicky - implement this one
+     * Every comment on the group's reviews as one JSON array of strings, written as it is read.
+     */
+    @GetMapping(value = "/studygroup/comments/{groupId}/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamCommentsForStudyGroup(@PathVariable String groupId) {
+        StreamingResponseBody body = outputStream -> writeJsonArray(outputStream, generator ->
+                reviewService.streamCommentsForStudyGroup(groupId, comment -> writeValue(generator, comment)));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * Groups reviewed under the topic with an average rating of at least averageRating, highest first,
+     * one page at a time (?cursor=&limit=, next cursor in X-Next-Cursor). The body maps groupId to average rating.
      */
     @GetMapping("/studygroup/ratings/{averageRating}/{discussionTopic}")
-    public ResponseEntity<Map<String, ?>> getGroupsWithDesiredAvgRatingByTopic(@PathVariable double averageRating, @PathVariable String discussionTopic) {
-        Map<String, Double> groupsWithDesiredRating = reviewService.getGroupsWithDesiredRating(averageRating,discussionTopic);
+    public ResponseEntity<Map<String, ?>> getGroupsWithDesiredAvgRatingByTopic(@PathVariable double averageRating, @PathVariable String discussionTopic,
+                                                                             @RequestParam(required = false) String cursor,
+                                                                             @RequestParam(defaultValue = "" + StudyGroupController.DEFAULT_PAGE_SIZE) int limit) {
+        checkLimit(limit);
+        StudyGroupRatingPage page;
+        try {
+            page = reviewService.getGroupsWithDesiredRating(averageRating, discussionTopic, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor");
+        }
 
-        if(groupsWithDesiredRating == null || groupsWithDesiredRating.isEmpty()){
+        // a later page can come back empty when ratings changed since the previous one
+        if (page.getRatings().isEmpty() && cursor == null) {
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("message", "Desired rating not found for topic: " + discussionTopic);
             return ResponseEntity.status(400).body(errorResponse);
         }
-        return ResponseEntity
-                .status(200)
-                .body(groupsWithDesiredRating);
+        // keeps the page's order in the JSON object
+        Map<String, Double> groupsWithDesiredRating = new LinkedHashMap<>();
+        for (StudyGroupRating rating : page.getRatings()) {
+            groupsWithDesiredRating.put(rating.getGroupId(), rating.getAverageRating());
+        }
+        return withNextCursor(page.getNextCursor()).body(groupsWithDesiredRating);
+    }
+
+    /**
+     * The topic's best-rated groups (those with enough reviews to rank), best first, from memory.
+     *      /studygroup/leaderboard/{discussionTopic}?limit=5
+     */
+    @GetMapping("/studygroup/leaderboard/{discussionTopic}")
+    public ResponseEntity<List<TopRatedGroupResponse>> getTopRatedGroupsByTopic(@PathVariable String discussionTopic,
+                                                                                @RequestParam(required = false) Integer limit) {
+        int maxLimit = reviewService.getLeaderboardSize();
+        int pageSize = limit == null ? maxLimit : limit;
+        if (pageSize < 1 || pageSize > maxLimit) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + maxLimit);
+        }
+        List<TopRatedGroupResponse> response = new ArrayList<>();
+        for (StudyGroupRating rating : reviewService.getTopRatedGroups(discussionTopic, pageSize)) {
+            TopRatedGroupResponse entry = new TopRatedGroupResponse();
+            entry.setRank(response.size() + 1);
+            entry.setGroupId(rating.getGroupId());
+            entry.setGroupName(rating.getGroupName());
+            entry.setDiscussionTopic(rating.getDiscussionTopic());
+            entry.setAverageRating(rating.getAverageRating());
+            entry.setReviewCount(rating.getReviewCount());
+            response.add(entry);
+        }
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/studygroup/averageRating/{groupId}")
@@ -92,6 +228,43 @@ public class StudyGroupReviewController {
         return ResponseEntity.ok(averageRating);
     }
 
+    private static void checkLimit(int limit) {
+        if (limit < 1 || limit > StudyGroupController.MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "limit must be between 1 and " + StudyGroupController.MAX_PAGE_SIZE);
+        }
+    }
+
+    private static ResponseEntity.BodyBuilder withNextCursor(String nextCursor) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(200);
+        if (nextCursor != null) {
+            builder.header(StudyGroupController.NEXT_CURSOR_HEADER, nextCursor);
+        }
+        return builder;
+    }
+
+    // the generator buffers a few KB and flushes to the client as it fills, so nothing holds the whole array
+    private void writeJsonArray(OutputStream outputStream, Consumer<JsonGenerator> elements) throws IOException {
+        // the container owns the response stream and closes it after the body is written
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartArray();
+            try {
+                elements.accept(generator);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) {
+        try {
+            objectMapper.writeValue(generator, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     private StudyGroupReview convertToReview(StudyGroupReviewRequest request) {
         StudyGroupReview review = new StudyGroupReview();
         review.setGroupId(request.getGroupId());
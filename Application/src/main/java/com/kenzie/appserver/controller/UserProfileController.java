@@ -1,9 +1,12 @@
 package com.kenzie.appserver.controller;
 
+import com.kenzie.appserver.controller.model.CascadeDeletionJobResponse;
 import com.kenzie.appserver.controller.model.NoteResponse;
 import com.kenzie.appserver.controller.model.UserProfileRequest;
 import com.kenzie.appserver.controller.model.UserProfileResponse;
+import com.kenzie.appserver.exception.UserNotFoundException;
 import com.kenzie.appserver.repositories.converter.ZonedDateTimeConverter;
+import com.kenzie.appserver.service.CascadeDeletionService;
 import com.kenzie.appserver.service.UserService;
 import com.kenzie.appserver.service.model.Note;
 import com.kenzie.appserver.service.model.User;
@@ -34,6 +37,9 @@ public class UserProfileController {
     @Autowired
     private StudySessionServiceClient studySessionServiceClient;
 
+    @Autowired
+    private CascadeDeletionService cascadeDeletionService;
+
     UserProfileController(UserService userService) {
         this.userService = userService;
     }
@@ -56,19 +62,20 @@ public class UserProfileController {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User ID is required");
         }
 
-        User existingUser = userService.findByUserId(email);
-        if (existingUser == null) {
+        User user = new User(email, userProfileRequest.getPassword(), userProfileRequest.getLastName(),
+                userProfileRequest.getFirstName(),
+                new ZonedDateTimeConverter().unconvert(userProfileRequest.getCreationDate()),
+                userProfileRequest.getVersion());
+
+        // a stale version is answered with 409 by VersionConflictAdvice
+        User updatedUser;
+        try {
+            updatedUser = userService.updateUser(user);
+        } catch (UserNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
-        existingUser.setEmail(userProfileRequest.getEmail());
-        existingUser.setPassword(userProfileRequest.getPassword());
-        existingUser.setLastName(userProfileRequest.getLastName());
-        existingUser.setFirstName(userProfileRequest.getFirstName());
-        existingUser.setCreationDate(new ZonedDateTimeConverter().unconvert(userProfileRequest.getCreationDate()));
-
-        userService.updateUser(existingUser);
 
-        UserProfileResponse userResponse = convertToUserProfileResponse(existingUser);
+        UserProfileResponse userResponse = convertToUserProfileResponse(updatedUser);
         return ResponseEntity.ok(userResponse);
     }
 
@@ -82,23 +89,24 @@ public class UserProfileController {
     }
 
     private UserProfileResponse convertToUserProfileResponse(User user) {
-        return new UserProfileResponse(user.getEmail(),
+        UserProfileResponse response = new UserProfileResponse(user.getEmail(),
                 user.getPassword(),
                 user.getFirstName(),
                 user.getLastName(),
                 new ZonedDateTimeConverter().convert(user.getCreationDate()));
+        response.setVersion(user.getVersion());
+        return response;
     }
 
+    // the user is gone when this returns; memberships, notes and study sessions are deleted in the background
     @DeleteMapping("/{email}")
-    public ResponseEntity deleteUserById(@PathVariable("email") String email) {
-        // todo
+    public ResponseEntity<CascadeDeletionJobResponse> deleteUserById(@PathVariable("email") String email) {
         User byUserId = userService.findByUserId(email);
 
         if(byUserId == null){
                 return ResponseEntity.notFound().build();
         }
-        userService.deleteUser(email);
-        return ResponseEntity.noContent().build();
+        return CascadeDeletionJobController.accepted(cascadeDeletionService.submitUserDeletion(email));
     }
 
     /**
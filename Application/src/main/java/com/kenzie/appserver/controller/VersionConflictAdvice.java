@@ -0,0 +1,22 @@
+package com.kenzie.appserver.controller;
+
+import com.kenzie.appserver.exception.VersionConflictException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Answers an update based on a stale version with 409 and the current version, for any controller:
+ *      {"errorType": "version_conflict", "message": ..., "currentVersion": 7}
+ */
+@RestControllerAdvice
+public class VersionConflictAdvice {
+
+    @ExceptionHandler(VersionConflictException.class)
+    public ResponseEntity<Map<String, Object>> versionConflict(VersionConflictException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(e.errorPayload());
+    }
+}
@@ -20,6 +20,10 @@ public class AddStudyGroupRequest {
     @JsonProperty("active")
     private boolean active;
 
+    // the version the update is based on; omitted, the update is unconditional
+    @JsonProperty("version")
+    private Long version;
+
     public String getGroupName() {
         return groupName;
     }
@@ -51,4 +55,12 @@ public class AddStudyGroupRequest {
     public void setActive(boolean active) {
         this.active = active;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
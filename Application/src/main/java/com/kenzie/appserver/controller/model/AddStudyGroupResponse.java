@@ -19,6 +19,9 @@ public class AddStudyGroupResponse {
     @JsonProperty("active")
     private boolean active;
 
+    @JsonProperty("version")
+    private Long version;
+
     public String getGroupId() {
         return groupId;
     }
@@ -57,4 +60,12 @@ public class AddStudyGroupResponse {
     public void setActive(boolean active) {
         this.active = active;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,90 @@
+package com.kenzie.appserver.controller.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Map;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CascadeDeletionJobResponse {
+    @JsonProperty("jobId")
+    private String jobId;
+    @JsonProperty("targetType")
+    private String targetType;
+    @JsonProperty("targetId")
+    private String targetId;
+    @JsonProperty("status")
+    private String status;
+    @JsonProperty("deleted")
+    private Map<String, Long> deleted;
+    @JsonProperty("error")
+    private String error;
+    @JsonProperty("createdAt")
+    private String createdAt;
+    @JsonProperty("updatedAt")
+    private String updatedAt;
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    public String getTargetType() {
+        return targetType;
+    }
+
+    public void setTargetType(String targetType) {
+        this.targetType = targetType;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public void setTargetId(String targetId) {
+        this.targetId = targetId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Map<String, Long> getDeleted() {
+        return deleted;
+    }
+
+    public void setDeleted(Map<String, Long> deleted) {
+        this.deleted = deleted;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public String getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(String createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(String updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -26,6 +26,10 @@ public class NoteRequest {
     @JsonProperty("updatedDateTime")
     private String updatedDateTime;
 
+    // the version the update is based on; omitted, the update is unconditional
+    @JsonProperty("version")
+    private Long version;
+
 
 
     // getter and setters
@@ -60,4 +64,12 @@ public class NoteRequest {
 
     public String getUpdatedDateTime() {return updatedDateTime;}
     public void setUpdatedDateTime(String updatedDateTime) {this.updatedDateTime = updatedDateTime;}
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
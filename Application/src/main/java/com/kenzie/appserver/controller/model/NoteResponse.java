@@ -27,6 +27,9 @@ public class NoteResponse {
     @JsonProperty("updatedDateTime")
     private String updatedDateTime;
 
+    @JsonProperty("version")
+    private Long version;
+
     @JsonCreator
     public NoteResponse(@JsonProperty("noteId") String noteId, @JsonProperty("userId")String userId, @JsonProperty("content")String content, @JsonProperty("createdDateTime")String createdDateTime, @JsonProperty("updatedDateTime")String updatedDateTime) {
         this.noteId = noteId;
@@ -68,4 +71,12 @@ public class NoteResponse {
 
     public String getUpdatedDateTime() {return updatedDateTime;}
     public void setUpdatedDateTime(String updatedDateTime) {this.updatedDateTime = updatedDateTime;}
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
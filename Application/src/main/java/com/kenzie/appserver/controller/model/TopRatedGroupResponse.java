@@ -0,0 +1,68 @@
+package com.kenzie.appserver.controller.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TopRatedGroupResponse {
+    @JsonProperty("rank")
+    private int rank;
+    @JsonProperty("groupId")
+    private String groupId;
+    @JsonProperty("groupName")
+    private String groupName;
+    @JsonProperty("discussionTopic")
+    private String discussionTopic;
+    @JsonProperty("averageRating")
+    private double averageRating;
+    @JsonProperty("reviewCount")
+    private long reviewCount;
+
+    public int getRank() {
+        return rank;
+    }
+
+    public void setRank(int rank) {
+        this.rank = rank;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    public String getDiscussionTopic() {
+        return discussionTopic;
+    }
+
+    public void setDiscussionTopic(String discussionTopic) {
+        this.discussionTopic = discussionTopic;
+    }
+
+    public double getAverageRating() {
+        return averageRating;
+    }
+
+    public void setAverageRating(double averageRating) {
+        this.averageRating = averageRating;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+}
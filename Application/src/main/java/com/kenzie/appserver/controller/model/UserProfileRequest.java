@@ -26,6 +26,10 @@ public class UserProfileRequest {
     @JsonProperty("creationDate")
     private String creationDate;
 
+    // the version the update is based on; omitted, the update is unconditional
+    @JsonProperty("version")
+    private Long version;
+
     // getter and setters
 
     public String getFirstName() {
@@ -62,4 +66,12 @@ public class UserProfileRequest {
     public String getCreationDate() {return creationDate;}
 
     public void setCreationDate(String creationDate) {this.creationDate = creationDate;}
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -27,6 +27,9 @@ public class UserProfileResponse {
     @JsonProperty("creationDate")
     private String creationDate;
 
+    @JsonProperty("version")
+    private Long version;
+
     @JsonCreator
     public UserProfileResponse(@JsonProperty("email") String email,@JsonProperty("password") String password, @JsonProperty("firstName") String firstName, @JsonProperty("lastName") String lastName, @JsonProperty("creationDate") String creationDate) {
         this.email = email;
@@ -75,4 +78,12 @@ public class UserProfileResponse {
     public void setCreationDate(String creationDate) {
         this.creationDate = creationDate;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,10 @@
+package com.kenzie.appserver.exception;
+
+/**
+ * The write-behind review queue stayed full for the whole offer timeout; the client should retry later.
+ */
+public class ReviewQueueFullException extends RuntimeException {
+    public ReviewQueueFullException(String message) {
+        super(message);
+    }
+}
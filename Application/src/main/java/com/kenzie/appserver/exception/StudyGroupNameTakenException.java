@@ -0,0 +1,20 @@
+package com.kenzie.appserver.exception;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An update would give a study group the (groupName, discussionTopic) pair another group already holds.
+ */
+public class StudyGroupNameTakenException extends RuntimeException {
+    public StudyGroupNameTakenException(String msg) {
+        super(msg);
+    }
+
+    public Map<String, Object> errorPayload() {
+        Map<String, Object> errorPayload = new HashMap<>();
+        errorPayload.put("errorType", "name_taken");
+        errorPayload.put("message", this.getMessage());
+        return errorPayload;
+    }
+}
@@ -0,0 +1,28 @@
+package com.kenzie.appserver.exception;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An update named a version that is no longer the stored one.
+ */
+public class VersionConflictException extends RuntimeException {
+    private final long currentVersion;
+
+    public VersionConflictException(String msg, long currentVersion) {
+        super(msg);
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+
+    public Map<String, Object> errorPayload() {
+        Map<String, Object> errorPayload = new HashMap<>();
+        errorPayload.put("errorType", "version_conflict");
+        errorPayload.put("message", this.getMessage());
+        errorPayload.put("currentVersion", currentVersion);
+        return errorPayload;
+    }
+}
@@ -0,0 +1,189 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes many records of one table with BatchWriteItem: 25 items per call, at most concurrency calls at a time
+ * across all callers. Items DynamoDB leaves unprocessed are resubmitted after a full-jitter exponential backoff;
+ * whatever is still unwritten after maxRetries, or belongs to a call that failed outright, is handed back.
+ *
+ * Publishes dynamodb.batch.write.items (table, operation, result=written|unwritten),
+ * dynamodb.batch.write.retries (table) and the per-call dynamodb.batch.write timer (table, operation).
+ */
+@Component
+public class BatchWriter {
+    private static final Logger log = LoggerFactory.getLogger(BatchWriter.class);
+    // the most items one BatchWriteItem call accepts
+    static final int BATCH_SIZE = 25;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+
+    private final DynamoDBMapper mapper;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final DynamoDBMapperConfig batchWriteConfig;
+
+    public BatchWriter(DynamoDBMapper mapper, MeterRegistry meterRegistry,
+                       @Value("${dynamodb.batchWrite.concurrency:4}") int concurrency,
+                       @Value("${dynamodb.batchWrite.maxRetries:8}") int maxRetries) {
+        this.mapper = mapper;
+        this.meterRegistry = meterRegistry;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "dynamodb-batch-write-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchWriteConfig = DynamoDBMapperConfig.builder()
+                .withBatchWriteRetryStrategy(new DynamoDBMapperConfig.BatchWriteRetryStrategy() {
+                    @Override
+                    public int getMaxRetryOnUnprocessedItems(Map<String, List<WriteRequest>> batchWriteItemInput) {
+                        return maxRetries;
+                    }
+
+                    @Override
+                    public long getDelayBeforeRetryUnprocessedItems(Map<String, List<WriteRequest>> unprocessedItems,
+                                                                    int retriesAttempted) {
+                        for (String tableName : unprocessedItems.keySet()) {
+                            meterRegistry.counter("dynamodb.batch.write.retries", "table", tableName).increment();
+                        }
+                        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(retriesAttempted, 16));
+                        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Puts the records, which must all be of one table.
+     *
+     * @return the records that could not be written, empty when all were
+     */
+    public <T> List<T> saveAll(List<T> records) {
+        return write(records, Operation.PUT);
+    }
+
+    /**
+     * Deletes the records by key, which must all be of one table.
+     *
+     * @return the records that could not be deleted, empty when all were
+     */
+    public <T> List<T> deleteAll(List<T> records) {
+        return write(records, Operation.DELETE);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> List<T> write(List<T> records, Operation operation) {
+        if (records.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<CompletableFuture<List<T>>> batches = new ArrayList<>();
+        for (int from = 0; from < records.size(); from += BATCH_SIZE) {
+            List<T> batch = records.subList(from, Math.min(from + BATCH_SIZE, records.size()));
+            batches.add(CompletableFuture.supplyAsync(() -> writeBatch(batch, operation), executor));
+        }
+        List<T> unwritten = new ArrayList<>();
+        for (CompletableFuture<List<T>> batch : batches) {
+            unwritten.addAll(batch.join());
+        }
+        return unwritten;
+    }
+
+    // one BatchWriteItem call plus the mapper's retries of unprocessed items; returns the records left unwritten
+    private <T> List<T> writeBatch(List<T> batch, Operation operation) {
+        String tableName = tableName(batch.get(0).getClass());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<T> unwritten;
+        try {
+            List<DynamoDBMapper.FailedBatch> failedBatches = operation == Operation.PUT
+                    ? mapper.batchWrite(batch, Collections.emptyList(), batchWriteConfig)
+                    : mapper.batchWrite(Collections.emptyList(), batch, batchWriteConfig);
+            unwritten = failedBatches.isEmpty() ? new ArrayList<>() : unwritten(batch, failedBatches);
+        } catch (RuntimeException e) {
+            log.warn("Batch {} of {} items to {} failed", operation.tag, batch.size(), tableName, e);
+            unwritten = new ArrayList<>(batch);
+        }
+        sample.stop(meterRegistry.timer("dynamodb.batch.write", "table", tableName, "operation", operation.tag));
+        meterRegistry.counter("dynamodb.batch.write.items", "table", tableName, "operation", operation.tag,
+                "result", "written").increment(batch.size() - unwritten.size());
+        meterRegistry.counter("dynamodb.batch.write.items", "table", tableName, "operation", operation.tag,
+                "result", "unwritten").increment(unwritten.size());
+        return unwritten;
+    }
+
+    // maps the items of the failed batches back to the records of this batch by primary key
+    @SuppressWarnings("unchecked")
+    private <T> List<T> unwritten(List<T> batch, List<DynamoDBMapper.FailedBatch> failedBatches) {
+        DynamoDBMapperTableModel<T> tableModel = mapper.getTableModel((Class<T>) batch.get(0).getClass());
+        Map<Map<String, AttributeValue>, T> byKey = new HashMap<>();
+        for (T record : batch) {
+            byKey.put(tableModel.convertKey(record), record);
+        }
+        List<T> unwritten = new ArrayList<>();
+        for (DynamoDBMapper.FailedBatch failedBatch : failedBatches) {
+            if (failedBatch.getException() != null) {
+                log.warn("Batch write failed", failedBatch.getException());
+            }
+            for (List<WriteRequest> writeRequests : failedBatch.getUnprocessedItems().values()) {
+                for (WriteRequest writeRequest : writeRequests) {
+                    Map<String, AttributeValue> item = writeRequest.getPutRequest() != null
+                            ? writeRequest.getPutRequest().getItem()
+                            : writeRequest.getDeleteRequest().getKey();
+                    Map<String, AttributeValue> key = new HashMap<>();
+                    for (DynamoDBMapperFieldModel<T, Object> keyField : tableModel.keys()) {
+                        key.put(keyField.name(), item.get(keyField.name()));
+                    }
+                    T record = byKey.get(key);
+                    if (record != null) {
+                        unwritten.add(record);
+                    }
+                }
+            }
+        }
+        return unwritten;
+    }
+
+    private static String tableName(Class<?> recordType) {
+        DynamoDBTable table = recordType.getAnnotation(DynamoDBTable.class);
+        return table != null ? table.tableName() : recordType.getSimpleName();
+    }
+
+    private enum Operation {
+        PUT("put"),
+        DELETE("delete");
+
+        private final String tag;
+
+        Operation(String tag) {
+            this.tag = tag;
+        }
+    }
+}
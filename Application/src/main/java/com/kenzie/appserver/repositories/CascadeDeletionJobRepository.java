@@ -0,0 +1,8 @@
+package com.kenzie.appserver.repositories;
+
+import com.kenzie.appserver.repositories.model.CascadeDeletionJobRecord;
+import org.springframework.data.repository.CrudRepository;
+
+public interface CascadeDeletionJobRepository extends CrudRepository<CascadeDeletionJobRecord, String>,
+        CascadeDeletionJobRepositoryCustom {
+}
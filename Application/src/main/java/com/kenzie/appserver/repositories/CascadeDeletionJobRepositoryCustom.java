@@ -0,0 +1,34 @@
+package com.kenzie.appserver.repositories;
+
+import com.kenzie.appserver.repositories.model.CascadeDeletionJobRecord;
+
+import java.util.List;
+
+/**
+ * Lease-guarded job writes, so only one instance runs a cascade deletion job at a time, and the StatusIndex query
+ * that finds the jobs to resume.
+ */
+public interface CascadeDeletionJobRepositoryCustom {
+
+    /**
+     * Queries StatusIndex for every job in the status. The index is eventually consistent, so a job may already
+     * have moved on; {@link #claim(CascadeDeletionJobRecord, long)} checks again. Until the index is ACTIVE, the
+     * jobs are found with a filtered scan instead.
+     */
+    List<CascadeDeletionJobRecord> findByStatus(String status);
+
+    /**
+     * Saves the job, with record's lease owner and expiry, but only if it is still pending, running or failed
+     * with attempts left, and its lease has expired, was never taken or is already held by record's owner.
+     *
+     * @return true if the job is now leased to record's owner
+     */
+    boolean claim(CascadeDeletionJobRecord record, long nowMillis);
+
+    /**
+     * Saves the job only if record's owner still holds its lease.
+     *
+     * @return false if another instance has taken the job over
+     */
+    boolean saveIfLeaseHeld(CascadeDeletionJobRecord record);
+}
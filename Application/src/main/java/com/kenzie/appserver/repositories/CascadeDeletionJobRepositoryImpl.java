@@ -0,0 +1,104 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.kenzie.appserver.config.SecondaryIndexMigration;
+import com.kenzie.appserver.repositories.model.CascadeDeletionJobRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picked up by spring-data as the implementation of {@link CascadeDeletionJobRepositoryCustom}.
+ */
+public class CascadeDeletionJobRepositoryImpl implements CascadeDeletionJobRepositoryCustom {
+    private final DynamoDBMapper mapper;
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final DynamoDBMapperConfig mapperConfig;
+    private final SecondaryIndexMigration indexMigration;
+
+    @Autowired
+    public CascadeDeletionJobRepositoryImpl(DynamoDBMapper mapper, AmazonDynamoDB amazonDynamoDB,
+                                            DynamoDBMapperConfig mapperConfig,
+                                            SecondaryIndexMigration indexMigration) {
+        this.mapper = mapper;
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.mapperConfig = mapperConfig;
+        this.indexMigration = indexMigration;
+    }
+
+    @Override
+    public List<CascadeDeletionJobRecord> findByStatus(String status) {
+        if (!indexMigration.isActive(CascadeDeletionJobRecord.class, CascadeDeletionJobRecord.STATUS_INDEX)) {
+            DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                    // Status is a reserved word
+                    .withFilterExpression("#status = :status")
+                    .withExpressionAttributeNames(Collections.singletonMap("#status", "Status"))
+                    .withExpressionAttributeValues(Collections.singletonMap(":status", new AttributeValue(status)));
+            return new ArrayList<>(mapper.scan(CascadeDeletionJobRecord.class, scanExpression));
+        }
+        CascadeDeletionJobRecord hashKey = new CascadeDeletionJobRecord();
+        hashKey.setStatus(status);
+        DynamoDBQueryExpression<CascadeDeletionJobRecord> queryExpression =
+                new DynamoDBQueryExpression<CascadeDeletionJobRecord>()
+                        .withIndexName(CascadeDeletionJobRecord.STATUS_INDEX)
+                        .withHashKeyValues(hashKey)
+                        // global secondary indexes do not support consistent reads
+                        .withConsistentRead(false);
+        // the paginated list loads the remaining pages as it is copied
+        return new ArrayList<>(mapper.query(CascadeDeletionJobRecord.class, queryExpression));
+    }
+
+    // an UpdateItem, since the claim's condition mixes AND and OR, which a save expression cannot
+    @Override
+    public boolean claim(CascadeDeletionJobRecord record, long nowMillis) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        // the names of CascadeDeletionJob.Status values
+        values.put(":pending", new AttributeValue("PENDING"));
+        values.put(":running", new AttributeValue("RUNNING"));
+        values.put(":failed", new AttributeValue("FAILED"));
+        values.put(":now", new AttributeValue().withN(Long.toString(nowMillis)));
+        values.put(":owner", new AttributeValue(record.getLeaseOwner()));
+        values.put(":expires", new AttributeValue().withN(Long.toString(record.getLeaseExpiresAtMillis())));
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(TableNames.of(CascadeDeletionJobRecord.class, mapperConfig))
+                .withKey(Collections.singletonMap("JobId", new AttributeValue(record.getJobId())))
+                .withUpdateExpression("SET LeaseOwner = :owner, LeaseExpiresAt = :expires, UpdatedAt = :now")
+                // Status is a reserved word
+                // a failed job with no attempts left has ExpiresAt set
+                .withConditionExpression("#status IN (:pending, :running, :failed)"
+                        + " AND attribute_not_exists(" + CascadeDeletionJobRecord.EXPIRES_AT + ")"
+                        + " AND (attribute_not_exists(LeaseExpiresAt) OR LeaseExpiresAt < :now OR LeaseOwner = :owner)")
+                .withExpressionAttributeNames(Collections.singletonMap("#status", "Status"))
+                .withExpressionAttributeValues(values);
+        try {
+            amazonDynamoDB.updateItem(request);
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public boolean saveIfLeaseHeld(CascadeDeletionJobRecord record) {
+        try {
+            mapper.save(record, new DynamoDBSaveExpression().withExpectedEntry("LeaseOwner",
+                    new ExpectedAttributeValue(new AttributeValue(record.getLeaseOwner()))));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.kenzie.appserver.repositories;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps note blobs on local disk, so notes run without any storage service. Each blob is a file named by its hash,
+ * in a directory named by the hash's first two characters, next to a ".refs" file holding its reference count.
+ * Files are written to a temporary file and moved into place, so readers never see a half-written blob.
+ *
+ * Reference counts are guarded by in-process locks, so a directory must not be shared by several service
+ * instances; NoteBlobStoreConfig refuses to create this store for more than one, and a fleet needs a NoteBlobStore
+ * they all reach.
+ */
+public class FileSystemNoteBlobStore implements NoteBlobStore {
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public FileSystemNoteBlobStore(Path root) {
+        this.root = root;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public boolean retain(String hash, byte[] content) {
+        Path blob = blobPath(hash);
+        synchronized (lock(hash)) {
+            try {
+                boolean stored = !Files.exists(blob);
+                if (stored) {
+                    Files.createDirectories(blob.getParent());
+                    writeAtomically(blob, content);
+                }
+                writeAtomically(refsPath(blob), Long.toString(readRefs(blob) + 1).getBytes(StandardCharsets.UTF_8));
+                return stored;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not store note blob " + hash, e);
+            }
+        }
+    }
+
+    @Override
+    public void release(String hash) {
+        Path blob = blobPath(hash);
+        synchronized (lock(hash)) {
+            try {
+                long refs = readRefs(blob) - 1;
+                if (refs > 0) {
+                    writeAtomically(refsPath(blob), Long.toString(refs).getBytes(StandardCharsets.UTF_8));
+                } else {
+                    // the count goes first: a crash in between leaves an unreferenced blob, never a stale count
+                    Files.deleteIfExists(refsPath(blob));
+                    Files.deleteIfExists(blob);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not release note blob " + hash, e);
+            }
+        }
+    }
+
+    @Override
+    public byte[] get(String hash) {
+        try {
+            return Files.readAllBytes(blobPath(hash));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read note blob " + hash, e);
+        }
+    }
+
+    // the hash becomes a file name, so anything but a hex SHA-256 is refused
+    private Path blobPath(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) {
+            throw new IllegalArgumentException("Not a SHA-256 hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    private static Path refsPath(Path blob) {
+        return blob.resolveSibling(blob.getFileName() + ".refs");
+    }
+
+    private static long readRefs(Path blob) throws IOException {
+        try {
+            return Long.parseLong(new String(Files.readAllBytes(refsPath(blob)), StandardCharsets.UTF_8).trim());
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    private static void writeAtomically(Path path, byte[] content) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temporary, content);
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Object lock(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+}
@@ -0,0 +1,26 @@
+package com.kenzie.appserver.repositories;
+
+/**
+ * Content-addressed storage for large note bodies. Blobs are keyed by the hex SHA-256 of their bytes, so identical
+ * content is stored once; each blob counts the references to it and is deleted with the last one.
+ * NoteBodyStore does the hashing and caching.
+ */
+public interface NoteBlobStore {
+
+    /**
+     * Adds a reference to the blob, storing content under hash first if no blob has it yet.
+     *
+     * @return true if the content was stored, false if an identical blob was already there
+     */
+    boolean retain(String hash, byte[] content);
+
+    /**
+     * Drops a reference to the blob, deleting it with its last one. Unknown hashes are ignored.
+     */
+    void release(String hash);
+
+    /**
+     * @return the blob's content, or null if no blob has the hash
+     */
+    byte[] get(String hash);
+}
@@ -0,0 +1,49 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Note writes and reads that must not touch more than the one item or index partition they are about.
+ */
+public interface NoteRepositoryCustom {
+
+    /**
+     * Puts the note only if no note has its noteId yet (attribute_not_exists(NoteId)).
+     *
+     * @return empty if the note was written, otherwise the note already stored under its noteId
+     */
+    Optional<NoteRecord> saveIfAbsent(NoteRecord record);
+
+    /**
+     * Reads the note with a consistent read, so a write that has just succeeded is seen.
+     */
+    Optional<NoteRecord> findCurrent(String noteId);
+
+    /**
+     * Writes the note's user, content or content hash, and dates with one conditional UpdateItem and bumps its
+     * version; a deleted note is not written back. A null creation date leaves the stored one as it is.
+     *
+     * @param expectedVersion the version the update is based on, or null for last-writer-wins
+     * @return the note as it was before the update, or empty if it no longer exists
+     * @throws com.kenzie.appserver.exception.VersionConflictException if the stored version is not expectedVersion
+     */
+    Optional<NoteRecord> updateNote(NoteRecord record, Long expectedVersion);
+
+    /**
+     * Reads one page of a user's notes, most recently updated first, with a single Query on the UserIdIndex,
+     * resuming after exclusiveStartKey. The index is eventually consistent. Until the index is ACTIVE, the page
+     * comes from a filtered scan instead, in no particular order.
+     */
+    RecordPage<NoteRecord> findPageByUserId(String userId, int limit, Map<String, AttributeValue> exclusiveStartKey);
+
+    /**
+     * Reads one page of one segment of a parallel scan split into totalSegments, resuming after exclusiveStartKey.
+     */
+    RecordPage<NoteRecord> findSegmentPage(int segment, int totalSegments, int limit,
+                                           Map<String, AttributeValue> exclusiveStartKey);
+}
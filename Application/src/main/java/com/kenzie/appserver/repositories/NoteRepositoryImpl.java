@@ -0,0 +1,107 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.datamodeling.ScanResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.kenzie.appserver.config.SecondaryIndexMigration;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Picked up by spring-data as the implementation of {@link NoteRepositoryCustom}.
+ */
+public class NoteRepositoryImpl implements NoteRepositoryCustom {
+    private final DynamoDBMapper mapper;
+    private final VersionedUpdater versionedUpdater;
+    private final SecondaryIndexMigration indexMigration;
+
+    @Autowired
+    public NoteRepositoryImpl(DynamoDBMapper mapper, AmazonDynamoDB amazonDynamoDB,
+                              DynamoDBMapperConfig mapperConfig, SecondaryIndexMigration indexMigration) {
+        this.mapper = mapper;
+        this.versionedUpdater = new VersionedUpdater(mapper, amazonDynamoDB, mapperConfig);
+        this.indexMigration = indexMigration;
+    }
+
+    @Override
+    public Optional<NoteRecord> saveIfAbsent(NoteRecord record) {
+        try {
+            mapper.save(record, new DynamoDBSaveExpression()
+                    .withExpectedEntry("NoteId", new ExpectedAttributeValue(false)));
+            return Optional.empty();
+        } catch (ConditionalCheckFailedException e) {
+            // consistent, so the note that made the put fail is seen even if it was written a moment ago
+            return Optional.ofNullable(mapper.load(NoteRecord.class, record.getNoteId(),
+                    DynamoDBMapperConfig.ConsistentReads.CONSISTENT.config()));
+        }
+    }
+
+    @Override
+    public Optional<NoteRecord> findCurrent(String noteId) {
+        return Optional.ofNullable(mapper.load(NoteRecord.class, noteId,
+                DynamoDBMapperConfig.ConsistentReads.CONSISTENT.config()));
+    }
+
+    @Override
+    public Optional<NoteRecord> updateNote(NoteRecord record, Long expectedVersion) {
+        if (record.getCreatedDateTime() == null) {
+            return versionedUpdater.update(NoteRecord.class, record, expectedVersion, ReturnValue.ALL_OLD,
+                    "UserId", "Content", "ContentHash", "UpdatedDateTime");
+        }
+        return versionedUpdater.update(NoteRecord.class, record, expectedVersion, ReturnValue.ALL_OLD,
+                "UserId", "Content", "ContentHash", "CreatedDateTime", "UpdatedDateTime");
+    }
+
+    @Override
+    public RecordPage<NoteRecord> findPageByUserId(String userId, int limit,
+                                                   Map<String, AttributeValue> exclusiveStartKey) {
+        if (!indexMigration.isActive(NoteRecord.class, NoteRecord.USER_ID_INDEX)) {
+            DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                    .withFilterExpression("UserId = :userId")
+                    .withExpressionAttributeValues(Collections.singletonMap(":userId",
+                            new AttributeValue().withS(userId)))
+                    .withLimit(limit)
+                    .withExclusiveStartKey(exclusiveStartKey);
+            ScanResultPage<NoteRecord> page = mapper.scanPage(NoteRecord.class, scanExpression);
+            return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+        }
+        NoteRecord hashKey = new NoteRecord();
+        hashKey.setUserId(userId);
+        DynamoDBQueryExpression<NoteRecord> queryExpression = new DynamoDBQueryExpression<NoteRecord>()
+                .withIndexName(NoteRecord.USER_ID_INDEX)
+                .withHashKeyValues(hashKey)
+                // global secondary indexes do not support consistent reads
+                .withConsistentRead(false)
+                .withScanIndexForward(false)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+        QueryResultPage<NoteRecord> page = mapper.queryPage(NoteRecord.class, queryExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+
+    @Override
+    public RecordPage<NoteRecord> findSegmentPage(int segment, int totalSegments, int limit,
+                                                  Map<String, AttributeValue> exclusiveStartKey) {
+        DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                .withSegment(segment)
+                .withTotalSegments(totalSegments)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+        ScanResultPage<NoteRecord> page = mapper.scanPage(NoteRecord.class, scanExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+}
@@ -9,7 +9,7 @@ import java.util.List;
 import java.util.Optional;
 
 @EnableScan
-public interface StudyGroupMemberRepository extends CrudRepository<StudyGroupMemberRecord,StudyGroupMemberId> {
+public interface StudyGroupMemberRepository extends CrudRepository<StudyGroupMemberRecord,StudyGroupMemberId>, StudyGroupMemberRepositoryCustom {
 
     // boolean existsById(String groupId);
 //    @Override
@@ -20,6 +20,5 @@ public interface StudyGroupMemberRepository extends CrudRepository<StudyGroupMem
 
     // Returns all the records/rows within the partition
     Optional<List<StudyGroupMemberRecord>> findByGroupId(String groupId);
-    Optional<StudyGroupMemberRecord> findByMemberId(String userId);
 
 }
@@ -0,0 +1,37 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * StudyGroupMember reads that must be key-condition queries. The derived findByGroupId can fall back to a
+ * filtered scan because the repository is scan-enabled; these cannot.
+ */
+public interface StudyGroupMemberRepositoryCustom {
+
+    /**
+     * Reads one page of a group's members, ordered by memberId, with a single Query on the GroupId hash key,
+     * resuming after exclusiveStartKey.
+     */
+    RecordPage<StudyGroupMemberRecord> findPageByGroupId(String groupId, int limit,
+                                                         Map<String, AttributeValue> exclusiveStartKey);
+
+    /**
+     * Reads one page of the groups a member belongs to, ordered by groupId, with a single Query on the
+     * MemberIdIndex, resuming after exclusiveStartKey. The index is eventually consistent. Until the index is
+     * ACTIVE, the page comes from a filtered scan instead.
+     */
+    RecordPage<StudyGroupMemberRecord> findPageByMemberId(String memberId, int limit,
+                                                          Map<String, AttributeValue> exclusiveStartKey);
+
+    /**
+     * Returns which of memberIds already belong to the group, with consistent BatchGetItem calls on the full keys,
+     * so the answer does not depend on how many members the group has.
+     */
+    Set<String> findExistingMemberIds(String groupId, Collection<String> memberIds);
+}
@@ -0,0 +1,101 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.datamodeling.ScanResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.config.SecondaryIndexMigration;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Picked up by spring-data as the implementation of {@link StudyGroupMemberRepositoryCustom}.
+ */
+public class StudyGroupMemberRepositoryImpl implements StudyGroupMemberRepositoryCustom {
+    private final DynamoDBMapper mapper;
+    private final SecondaryIndexMigration indexMigration;
+
+    @Autowired
+    public StudyGroupMemberRepositoryImpl(DynamoDBMapper mapper, SecondaryIndexMigration indexMigration) {
+        this.mapper = mapper;
+        this.indexMigration = indexMigration;
+    }
+
+    @Override
+    public RecordPage<StudyGroupMemberRecord> findPageByGroupId(String groupId, int limit,
+                                                                Map<String, AttributeValue> exclusiveStartKey) {
+        StudyGroupMemberRecord hashKey = new StudyGroupMemberRecord();
+        hashKey.setGroupId(groupId);
+        DynamoDBQueryExpression<StudyGroupMemberRecord> queryExpression =
+                new DynamoDBQueryExpression<StudyGroupMemberRecord>()
+                        .withHashKeyValues(hashKey)
+                        .withLimit(limit)
+                        .withExclusiveStartKey(exclusiveStartKey);
+        QueryResultPage<StudyGroupMemberRecord> page = mapper.queryPage(StudyGroupMemberRecord.class, queryExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+
+    @Override
+    public RecordPage<StudyGroupMemberRecord> findPageByMemberId(String memberId, int limit,
+                                                                 Map<String, AttributeValue> exclusiveStartKey) {
+        if (!indexMigration.isActive(StudyGroupMemberRecord.class, StudyGroupMemberRecord.MEMBER_ID_INDEX)) {
+            // a page may hold fewer than limit members, or none, and still have a LastEvaluatedKey
+            DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                    .withFilterExpression("MemberId = :memberId")
+                    .withExpressionAttributeValues(Collections.singletonMap(":memberId",
+                            new AttributeValue().withS(memberId)))
+                    .withLimit(limit)
+                    .withExclusiveStartKey(exclusiveStartKey);
+            ScanResultPage<StudyGroupMemberRecord> page = mapper.scanPage(StudyGroupMemberRecord.class,
+                    scanExpression);
+            return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+        }
+        StudyGroupMemberRecord hashKey = new StudyGroupMemberRecord();
+        hashKey.setMemberId(memberId);
+        DynamoDBQueryExpression<StudyGroupMemberRecord> queryExpression =
+                new DynamoDBQueryExpression<StudyGroupMemberRecord>()
+                        .withIndexName(StudyGroupMemberRecord.MEMBER_ID_INDEX)
+                        .withHashKeyValues(hashKey)
+                        // global secondary indexes do not support consistent reads
+                        .withConsistentRead(false)
+                        .withLimit(limit)
+                        .withExclusiveStartKey(exclusiveStartKey);
+        QueryResultPage<StudyGroupMemberRecord> page = mapper.queryPage(StudyGroupMemberRecord.class, queryExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+
+    @Override
+    public Set<String> findExistingMemberIds(String groupId, Collection<String> memberIds) {
+        List<StudyGroupMemberRecord> keys = new ArrayList<>(memberIds.size());
+        for (String memberId : memberIds) {
+            StudyGroupMemberRecord key = new StudyGroupMemberRecord();
+            key.setGroupId(groupId);
+            key.setMemberId(memberId);
+            keys.add(key);
+        }
+        Set<String> existing = new HashSet<>();
+        if (keys.isEmpty()) {
+            return existing;
+        }
+        // the mapper splits the keys into batches of 100 and retries unprocessed ones
+        for (List<Object> loaded : mapper.batchLoad(keys, DynamoDBMapperConfig.ConsistentReads.CONSISTENT.config())
+                .values()) {
+            for (Object item : loaded) {
+                existing.add(((StudyGroupMemberRecord) item).getMemberId());
+            }
+        }
+        return existing;
+    }
+}
@@ -0,0 +1,10 @@
+package com.kenzie.appserver.repositories;
+
+import com.kenzie.appserver.repositories.model.StudyGroupNameRecord;
+import org.springframework.data.repository.CrudRepository;
+
+// Not scan-enabled on purpose: markers are only ever read by key.
+// Declaring the repository also lets entity2ddl create the StudyGroupName table.
+public interface StudyGroupNameRepository extends CrudRepository<StudyGroupNameRecord, String> {
+
+}
@@ -0,0 +1,8 @@
+package com.kenzie.appserver.repositories;
+
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import org.springframework.data.repository.CrudRepository;
+
+public interface StudyGroupRatingRepository extends CrudRepository<StudyGroupRatingRecord, String>,
+        StudyGroupRatingRepositoryCustom {
+}
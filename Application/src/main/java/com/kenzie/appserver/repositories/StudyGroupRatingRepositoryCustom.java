@@ -0,0 +1,54 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Atomic updates of the per-group rating totals, topic index queries and segment scans, which spring-data-dynamodb
+ * cannot express.
+ */
+public interface StudyGroupRatingRepositoryCustom {
+
+    /**
+     * Adds delta's review count, rating sum and star counts to the group's totals in a single UpdateItem with an
+     * ADD expression, creating the item on the group's first reviews. delta's group name and topic, when set,
+     * replace the stored ones.
+     *
+     * @return the totals after the update
+     */
+    StudyGroupRatingRecord addRatings(StudyGroupRatingRecord delta);
+
+    /**
+     * Puts a new review and adds delta to its group's totals in one TransactWriteItems, so a review is counted
+     * exactly when it is stored. The put is conditional on the reviewId not being stored yet: resubmitting a
+     * review changes neither the review nor the totals.
+     *
+     * @return the totals after the update, read consistently, or empty if the review was already stored
+     */
+    Optional<StudyGroupRatingRecord> addReview(StudyGroupReviewRecord review, StudyGroupRatingRecord delta);
+
+    /**
+     * Overwrites the totals, but only if the stored review count is still expectedCount
+     * (or the item does not exist yet, when expectedCount is null).
+     *
+     * @return true if the totals were written
+     */
+    boolean replaceIfCountIs(StudyGroupRatingRecord record, Long expectedCount);
+
+    /**
+     * Queries DiscussionTopicIndex for the totals of every group reviewed under the topic, one item per group.
+     */
+    List<StudyGroupRatingRecord> findByDiscussionTopic(String discussionTopic);
+
+    /**
+     * Reads one page of one segment of a parallel scan split into totalSegments, resuming after exclusiveStartKey.
+     */
+    RecordPage<StudyGroupRatingRecord> findSegmentPage(int segment, int totalSegments, int limit,
+                                                       Map<String, AttributeValue> exclusiveStartKey);
+}
@@ -0,0 +1,155 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.ScanResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.Put;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItem;
+import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsRequest;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.amazonaws.services.dynamodbv2.model.Update;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Picked up by spring-data as the implementation of {@link StudyGroupRatingRepositoryCustom}.
+ */
+public class StudyGroupRatingRepositoryImpl implements StudyGroupRatingRepositoryCustom {
+    private final DynamoDBMapper mapper;
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final DynamoDBMapperConfig mapperConfig;
+
+    @Autowired
+    public StudyGroupRatingRepositoryImpl(DynamoDBMapper mapper, AmazonDynamoDB amazonDynamoDB,
+                                          DynamoDBMapperConfig mapperConfig) {
+        this.mapper = mapper;
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.mapperConfig = mapperConfig;
+    }
+
+    @Override
+    public StudyGroupRatingRecord addRatings(StudyGroupRatingRecord delta) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(TableNames.of(StudyGroupRatingRecord.class, mapperConfig))
+                .withKey(Collections.singletonMap("GroupId", new AttributeValue(delta.getGroupId())))
+                .withUpdateExpression(addExpression(delta, values))
+                .withExpressionAttributeValues(values)
+                .withReturnValues(ReturnValue.ALL_NEW);
+        Map<String, AttributeValue> item = amazonDynamoDB.updateItem(request).getAttributes();
+        return mapper.marshallIntoObject(StudyGroupRatingRecord.class, item);
+    }
+
+    @Override
+    public Optional<StudyGroupRatingRecord> addReview(StudyGroupReviewRecord review, StudyGroupRatingRecord delta) {
+        Put put = new Put()
+                .withTableName(TableNames.of(StudyGroupReviewRecord.class, mapperConfig))
+                .withItem(mapper.getTableModel(StudyGroupReviewRecord.class).convert(review))
+                .withConditionExpression("attribute_not_exists(ReviewId)");
+        Map<String, AttributeValue> values = new HashMap<>();
+        Update update = new Update()
+                .withTableName(TableNames.of(StudyGroupRatingRecord.class, mapperConfig))
+                .withKey(Collections.singletonMap("GroupId", new AttributeValue(delta.getGroupId())))
+                .withUpdateExpression(addExpression(delta, values))
+                .withExpressionAttributeValues(values);
+        try {
+            amazonDynamoDB.transactWriteItems(new TransactWriteItemsRequest().withTransactItems(
+                    new TransactWriteItem().withPut(put),
+                    new TransactWriteItem().withUpdate(update)));
+        } catch (TransactionCanceledException e) {
+            List<CancellationReason> reasons = e.getCancellationReasons();
+            if (reasons != null && !reasons.isEmpty() && "ConditionalCheckFailed".equals(reasons.get(0).getCode())) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+        // a transaction returns no attributes; read the totals it just wrote
+        return Optional.ofNullable(mapper.load(StudyGroupRatingRecord.class, delta.getGroupId(),
+                DynamoDBMapperConfig.ConsistentReads.CONSISTENT.config()));
+    }
+
+    // fills values and returns the SET/ADD expression that adds delta to the stored totals
+    private static String addExpression(StudyGroupRatingRecord delta, Map<String, AttributeValue> values) {
+        StringBuilder expression = new StringBuilder();
+        if (delta.getGroupName() != null) {
+            expression.append(expression.length() == 0 ? "SET " : ", ").append("GroupName = :groupName");
+            values.put(":groupName", new AttributeValue(delta.getGroupName()));
+        }
+        if (delta.getDiscussionTopic() != null) {
+            expression.append(expression.length() == 0 ? "SET " : ", ").append("DiscussionTopic = :topic");
+            values.put(":topic", new AttributeValue(delta.getDiscussionTopic()));
+        }
+
+        expression.append(expression.length() == 0 ? "" : " ").append("ADD ReviewCount :count, RatingSum :sum");
+        values.put(":count", new AttributeValue().withN(Long.toString(delta.getReviewCount())));
+        values.put(":sum", new AttributeValue().withN(Double.toString(delta.getRatingSum())));
+        long[] histogram = delta.getHistogram();
+        for (int star = StudyGroupRatingRecord.MIN_STARS; star <= StudyGroupRatingRecord.MAX_STARS; star++) {
+            long count = histogram[star - 1];
+            if (count != 0) {
+                expression.append(", ").append(StudyGroupRatingRecord.histogramAttribute(star))
+                        .append(" :star").append(star);
+                values.put(":star" + star, new AttributeValue().withN(Long.toString(count)));
+            }
+        }
+        return expression.toString();
+    }
+
+    @Override
+    public boolean replaceIfCountIs(StudyGroupRatingRecord record, Long expectedCount) {
+        ExpectedAttributeValue expected = expectedCount == null
+                ? new ExpectedAttributeValue(false)
+                : new ExpectedAttributeValue(new AttributeValue().withN(Long.toString(expectedCount)));
+        try {
+            mapper.save(record, new DynamoDBSaveExpression().withExpectedEntry("ReviewCount", expected));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public List<StudyGroupRatingRecord> findByDiscussionTopic(String discussionTopic) {
+        StudyGroupRatingRecord hashKey = new StudyGroupRatingRecord();
+        hashKey.setDiscussionTopic(discussionTopic);
+        DynamoDBQueryExpression<StudyGroupRatingRecord> queryExpression =
+                new DynamoDBQueryExpression<StudyGroupRatingRecord>()
+                        .withIndexName(StudyGroupRatingRecord.DISCUSSION_TOPIC_INDEX)
+                        .withHashKeyValues(hashKey)
+                        // global secondary indexes do not support consistent reads
+                        .withConsistentRead(false);
+        // the paginated list loads the remaining pages as it is copied
+        return new ArrayList<>(mapper.query(StudyGroupRatingRecord.class, queryExpression));
+    }
+
+    @Override
+    public RecordPage<StudyGroupRatingRecord> findSegmentPage(int segment, int totalSegments, int limit,
+                                                              Map<String, AttributeValue> exclusiveStartKey) {
+        DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                .withSegment(segment)
+                .withTotalSegments(totalSegments)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+        ScanResultPage<StudyGroupRatingRecord> page = mapper.scanPage(StudyGroupRatingRecord.class, scanExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+}
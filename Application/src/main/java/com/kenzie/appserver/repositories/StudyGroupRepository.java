@@ -7,7 +7,7 @@ import org.springframework.data.repository.CrudRepository;
 import java.util.List;
 
 @EnableScan
-public interface StudyGroupRepository extends CrudRepository<StudyGroupRecord, String> {
+public interface StudyGroupRepository extends CrudRepository<StudyGroupRecord, String>, StudyGroupRepositoryCustom {
     //List<StudyGroupRecord> findByTopic(String topic);
 
 }
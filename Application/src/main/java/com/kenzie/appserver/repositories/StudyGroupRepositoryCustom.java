@@ -0,0 +1,70 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupNameRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * StudyGroup operations that spring-data-dynamodb cannot derive: conditional and transactional writes
+ * against the StudyGroupName uniqueness markers, and single-page scans.
+ */
+public interface StudyGroupRepositoryCustom {
+
+    /**
+     * Saves the study group and claims its (groupName, discussionTopic) pair in one transaction.
+     *
+     * @return the id of the group that owns the pair - the record's own id if it was saved,
+     *         otherwise the id of the group that already holds the pair (nothing is written)
+     */
+    String saveIfNameAvailable(StudyGroupRecord record);
+
+    /**
+     * Writes the group's name, topic, creation date and active flag with one conditional UpdateItem and bumps its
+     * version. The name marker is left to the caller, which gets the previous name and topic back.
+     *
+     * @param expectedVersion the version the update is based on, or null for last-writer-wins
+     * @return the group as it was before the update, or empty if it does not exist
+     * @throws com.kenzie.appserver.exception.VersionConflictException if the stored version is not expectedVersion
+     */
+    Optional<StudyGroupRecord> updateStudyGroup(StudyGroupRecord record, Long expectedVersion);
+
+    /**
+     * Looks up the group holding a (groupName, discussionTopic) pair with a single GetItem.
+     */
+    Optional<String> findGroupIdByName(String groupName, String discussionTopic);
+
+    /**
+     * Looks up the groups holding many pairs, keyed by {@link StudyGroupNameRecord#nameTopicKey}, with
+     * BatchGetItem calls of up to 100 keys. Pairs nobody holds are left out of the map.
+     */
+    Map<String, String> findGroupIdsByNameKeys(Collection<String> nameTopicKeys);
+
+    /**
+     * Points the pair at the group if no other group holds it yet, with one conditional put. Claiming a pair the
+     * group already holds succeeds.
+     *
+     * @return true if the group now owns the pair
+     */
+    boolean claimName(String groupId, String groupName, String discussionTopic);
+
+    /**
+     * Removes the marker for the pair, but only if it still belongs to the given group.
+     */
+    void releaseName(String groupId, String groupName, String discussionTopic);
+
+    /**
+     * Reads one page of study groups (a single Scan call with a Limit), resuming after exclusiveStartKey.
+     */
+    RecordPage<StudyGroupRecord> findPage(int limit, Map<String, AttributeValue> exclusiveStartKey);
+
+    /**
+     * Like {@link #findPage(int, Map)}, but scans only one segment of a parallel scan split into totalSegments.
+     */
+    RecordPage<StudyGroupRecord> findSegmentPage(int segment, int totalSegments, int limit,
+                                                 Map<String, AttributeValue> exclusiveStartKey);
+}
@@ -0,0 +1,170 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBDeleteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBSaveExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.ScanResultPage;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTransactionWriteExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.TransactionWriteRequest;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.CancellationReason;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
+import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupNameRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Picked up by spring-data as the implementation of {@link StudyGroupRepositoryCustom}.
+ */
+public class StudyGroupRepositoryImpl implements StudyGroupRepositoryCustom {
+    private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
+    // a marker can be released between our failed write and the read of its owner; retry a couple of times
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final DynamoDBMapper mapper;
+    private final VersionedUpdater versionedUpdater;
+
+    @Autowired
+    public StudyGroupRepositoryImpl(DynamoDBMapper mapper, AmazonDynamoDB amazonDynamoDB,
+                                    DynamoDBMapperConfig mapperConfig) {
+        this.mapper = mapper;
+        this.versionedUpdater = new VersionedUpdater(mapper, amazonDynamoDB, mapperConfig);
+    }
+
+    @Override
+    public String saveIfNameAvailable(StudyGroupRecord record) {
+        StudyGroupNameRecord nameRecord = new StudyGroupNameRecord(
+                StudyGroupNameRecord.nameTopicKey(record.getGroupName(), record.getDiscussionTopic()),
+                record.getGroupId());
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            TransactionWriteRequest request = new TransactionWriteRequest()
+                    .addPut(nameRecord, new DynamoDBTransactionWriteExpression()
+                            .withConditionExpression("attribute_not_exists(NameTopicKey)"))
+                    .addPut(record);
+            try {
+                mapper.transactionWrite(request);
+                return record.getGroupId();
+            } catch (TransactionCanceledException e) {
+                if (!isConditionalCheckFailure(e)) {
+                    throw e;
+                }
+            }
+            StudyGroupNameRecord owner = mapper.load(StudyGroupNameRecord.class, nameRecord.getNameTopicKey(),
+                    DynamoDBMapperConfig.ConsistentReads.CONSISTENT.config());
+            if (owner != null) {
+                return owner.getGroupId();
+            }
+        }
+        throw new IllegalStateException("Could not claim study group name " + nameRecord.getNameTopicKey());
+    }
+
+    @Override
+    public Optional<StudyGroupRecord> updateStudyGroup(StudyGroupRecord record, Long expectedVersion) {
+        return versionedUpdater.update(StudyGroupRecord.class, record, expectedVersion, ReturnValue.ALL_OLD,
+                "GroupName", "DiscussionTopic", "CreationDate", "Active");
+    }
+
+    @Override
+    public Optional<String> findGroupIdByName(String groupName, String discussionTopic) {
+        StudyGroupNameRecord owner = mapper.load(StudyGroupNameRecord.class,
+                StudyGroupNameRecord.nameTopicKey(groupName, discussionTopic));
+        return Optional.ofNullable(owner).map(StudyGroupNameRecord::getGroupId);
+    }
+
+    @Override
+    public Map<String, String> findGroupIdsByNameKeys(Collection<String> nameTopicKeys) {
+        List<StudyGroupNameRecord> keys = new ArrayList<>(nameTopicKeys.size());
+        for (String nameTopicKey : nameTopicKeys) {
+            keys.add(new StudyGroupNameRecord(nameTopicKey, null));
+        }
+        Map<String, String> owners = new HashMap<>();
+        if (keys.isEmpty()) {
+            return owners;
+        }
+        for (List<Object> loaded : mapper.batchLoad(keys).values()) {
+            for (Object item : loaded) {
+                StudyGroupNameRecord owner = (StudyGroupNameRecord) item;
+                owners.put(owner.getNameTopicKey(), owner.getGroupId());
+            }
+        }
+        return owners;
+    }
+
+    @Override
+    public boolean claimName(String groupId, String groupName, String discussionTopic) {
+        StudyGroupNameRecord nameRecord = new StudyGroupNameRecord(
+                StudyGroupNameRecord.nameTopicKey(groupName, discussionTopic), groupId);
+        Map<String, ExpectedAttributeValue> expected = new HashMap<>();
+        expected.put("NameTopicKey", new ExpectedAttributeValue(false));
+        expected.put("GroupId", new ExpectedAttributeValue(new AttributeValue(groupId)));
+        try {
+            mapper.save(nameRecord, new DynamoDBSaveExpression()
+                    .withExpected(expected)
+                    .withConditionalOperator(ConditionalOperator.OR));
+            return true;
+        } catch (ConditionalCheckFailedException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void releaseName(String groupId, String groupName, String discussionTopic) {
+        StudyGroupNameRecord nameRecord = new StudyGroupNameRecord(
+                StudyGroupNameRecord.nameTopicKey(groupName, discussionTopic), groupId);
+        try {
+            mapper.delete(nameRecord, new DynamoDBDeleteExpression()
+                    .withExpectedEntry("GroupId", new ExpectedAttributeValue(new AttributeValue(groupId))));
+        } catch (ConditionalCheckFailedException e) {
+            // the pair belongs to another group (or is already gone) - leave it alone
+        }
+    }
+
+    @Override
+    public RecordPage<StudyGroupRecord> findPage(int limit, Map<String, AttributeValue> exclusiveStartKey) {
+        DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+        ScanResultPage<StudyGroupRecord> page = mapper.scanPage(StudyGroupRecord.class, scanExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+
+    @Override
+    public RecordPage<StudyGroupRecord> findSegmentPage(int segment, int totalSegments, int limit,
+                                                        Map<String, AttributeValue> exclusiveStartKey) {
+        DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                .withSegment(segment)
+                .withTotalSegments(totalSegments)
+                .withLimit(limit)
+                .withExclusiveStartKey(exclusiveStartKey);
+        ScanResultPage<StudyGroupRecord> page = mapper.scanPage(StudyGroupRecord.class, scanExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+
+    private static boolean isConditionalCheckFailure(TransactionCanceledException e) {
+        if (e.getCancellationReasons() == null) {
+            return false;
+        }
+        for (CancellationReason reason : e.getCancellationReasons()) {
+            if (CONDITIONAL_CHECK_FAILED.equals(reason.getCode())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
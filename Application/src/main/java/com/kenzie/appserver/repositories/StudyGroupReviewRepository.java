@@ -8,11 +8,11 @@ import java.util.List;
 import java.util.Optional;
 
 @EnableScan
-public interface StudyGroupReviewRepository extends CrudRepository<StudyGroupReviewRecord, StudyGroupReviewId> {
+public interface StudyGroupReviewRepository extends CrudRepository<StudyGroupReviewRecord, StudyGroupReviewId>,
+        StudyGroupReviewRepositoryCustom {
     // Returns a single record/row within the partition
     Optional<StudyGroupReviewRecord> findById(StudyGroupReviewId studyGroupReviewId);
     Optional<List<StudyGroupReviewRecord>> findByGroupId(String groupId);
-    Optional<StudyGroupReviewRecord> findByReviewId(String reviewId);
     Optional<List<StudyGroupReviewRecord>> findByDiscussionTopic(String discussionTopic);
 }
 
@@ -0,0 +1,36 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * StudyGroupReview reads that spring-data-dynamodb would otherwise serve with a scan.
+ */
+public interface StudyGroupReviewRepositoryCustom {
+
+    /**
+     * Loads a review by its id alone. The review's group is resolved once per review through ReviewIdIndex and
+     * then remembered, so repeated reads are a single GetItem on the full key. Until ReviewIdIndex is ACTIVE,
+     * the group is found with a filtered scan instead.
+     */
+    Optional<StudyGroupReviewRecord> findByReviewId(String reviewId);
+
+    /**
+     * Reads one page of a group's reviews, ordered by reviewId, with a single Query on the GroupId hash key,
+     * resuming after exclusiveStartKey.
+     */
+    RecordPage<StudyGroupReviewRecord> findPageByGroupId(String groupId, int limit,
+                                                         Map<String, AttributeValue> exclusiveStartKey);
+
+    /**
+     * Reads one page of the reviews under a discussion topic with a single Query on the DiscussionTopicIndex,
+     * resuming after exclusiveStartKey. The index is eventually consistent. Until the index is ACTIVE, the page
+     * comes from a filtered scan instead.
+     */
+    RecordPage<StudyGroupReviewRecord> findPageByDiscussionTopic(String discussionTopic, int limit,
+                                                                 Map<String, AttributeValue> exclusiveStartKey);
+}
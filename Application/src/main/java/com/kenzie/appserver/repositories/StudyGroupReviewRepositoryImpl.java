@@ -0,0 +1,137 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.datamodeling.ScanResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kenzie.appserver.config.SecondaryIndexMigration;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Picked up by spring-data as the implementation of {@link StudyGroupReviewRepositoryCustom}.
+ */
+public class StudyGroupReviewRepositoryImpl implements StudyGroupReviewRepositoryCustom {
+    private final DynamoDBMapper mapper;
+    // reviewId -> groupId; a review never changes group, so entries only go stale when the review is deleted
+    private final Cache<String, String> reviewGroupIds;
+    private final SecondaryIndexMigration indexMigration;
+
+    @Autowired
+    public StudyGroupReviewRepositoryImpl(DynamoDBMapper mapper, SecondaryIndexMigration indexMigration,
+                                          @Value("${studygroup.review.groupIdCache.maxSize:100000}") long maxSize) {
+        this.mapper = mapper;
+        this.indexMigration = indexMigration;
+        this.reviewGroupIds = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    @Override
+    public Optional<StudyGroupReviewRecord> findByReviewId(String reviewId) {
+        String groupId = reviewGroupIds.getIfPresent(reviewId);
+        if (groupId != null) {
+            StudyGroupReviewRecord record = mapper.load(StudyGroupReviewRecord.class, groupId, reviewId);
+            if (record != null) {
+                return Optional.of(record);
+            }
+            reviewGroupIds.invalidate(reviewId);
+            return Optional.empty();
+        }
+
+        if (!indexMigration.isActive(StudyGroupReviewRecord.class, StudyGroupReviewRecord.REVIEW_ID_INDEX)) {
+            return scanForReviewId(reviewId);
+        }
+        StudyGroupReviewRecord hashKey = new StudyGroupReviewRecord();
+        hashKey.setReviewId(reviewId);
+        DynamoDBQueryExpression<StudyGroupReviewRecord> queryExpression =
+                new DynamoDBQueryExpression<StudyGroupReviewRecord>()
+                        .withIndexName(StudyGroupReviewRecord.REVIEW_ID_INDEX)
+                        .withHashKeyValues(hashKey)
+                        // global secondary indexes do not support consistent reads
+                        .withConsistentRead(false)
+                        .withLimit(1);
+        QueryResultPage<StudyGroupReviewRecord> page = mapper.queryPage(StudyGroupReviewRecord.class, queryExpression);
+        List<StudyGroupReviewRecord> results = page.getResults();
+        if (results.isEmpty()) {
+            return Optional.empty();
+        }
+        StudyGroupReviewRecord record = results.get(0);
+        reviewGroupIds.put(reviewId, record.getGroupId());
+        return Optional.of(record);
+    }
+
+    // reads pages only until the review turns up
+    private Optional<StudyGroupReviewRecord> scanForReviewId(String reviewId) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                    .withFilterExpression("ReviewId = :reviewId")
+                    .withExpressionAttributeValues(Collections.singletonMap(":reviewId",
+                            new AttributeValue().withS(reviewId)))
+                    .withExclusiveStartKey(startKey);
+            ScanResultPage<StudyGroupReviewRecord> page = mapper.scanPage(StudyGroupReviewRecord.class,
+                    scanExpression);
+            if (!page.getResults().isEmpty()) {
+                StudyGroupReviewRecord record = page.getResults().get(0);
+                reviewGroupIds.put(reviewId, record.getGroupId());
+                return Optional.of(record);
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+        return Optional.empty();
+    }
+
+    @Override
+    public RecordPage<StudyGroupReviewRecord> findPageByGroupId(String groupId, int limit,
+                                                                Map<String, AttributeValue> exclusiveStartKey) {
+        StudyGroupReviewRecord hashKey = new StudyGroupReviewRecord();
+        hashKey.setGroupId(groupId);
+        DynamoDBQueryExpression<StudyGroupReviewRecord> queryExpression =
+                new DynamoDBQueryExpression<StudyGroupReviewRecord>()
+                        .withHashKeyValues(hashKey)
+                        .withLimit(limit)
+                        .withExclusiveStartKey(exclusiveStartKey);
+        QueryResultPage<StudyGroupReviewRecord> page = mapper.queryPage(StudyGroupReviewRecord.class, queryExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+
+    @Override
+    public RecordPage<StudyGroupReviewRecord> findPageByDiscussionTopic(String discussionTopic, int limit,
+                                                                        Map<String, AttributeValue> exclusiveStartKey) {
+        if (!indexMigration.isActive(StudyGroupReviewRecord.class, StudyGroupReviewRecord.DISCUSSION_TOPIC_INDEX)) {
+            DynamoDBScanExpression scanExpression = new DynamoDBScanExpression()
+                    .withFilterExpression("DiscussionTopic = :topic")
+                    .withExpressionAttributeValues(Collections.singletonMap(":topic",
+                            new AttributeValue().withS(discussionTopic)))
+                    .withLimit(limit)
+                    .withExclusiveStartKey(exclusiveStartKey);
+            ScanResultPage<StudyGroupReviewRecord> page = mapper.scanPage(StudyGroupReviewRecord.class,
+                    scanExpression);
+            return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+        }
+        StudyGroupReviewRecord hashKey = new StudyGroupReviewRecord();
+        hashKey.setDiscussionTopic(discussionTopic);
+        DynamoDBQueryExpression<StudyGroupReviewRecord> queryExpression =
+                new DynamoDBQueryExpression<StudyGroupReviewRecord>()
+                        .withIndexName(StudyGroupReviewRecord.DISCUSSION_TOPIC_INDEX)
+                        .withHashKeyValues(hashKey)
+                        // global secondary indexes do not support consistent reads
+                        .withConsistentRead(false)
+                        .withLimit(limit)
+                        .withExclusiveStartKey(exclusiveStartKey);
+        QueryResultPage<StudyGroupReviewRecord> page = mapper.queryPage(StudyGroupReviewRecord.class, queryExpression);
+        return new RecordPage<>(page.getResults(), page.getLastEvaluatedKey());
+    }
+}
@@ -0,0 +1,20 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+
+/**
+ * Resolves a record's table name for low-level requests the way the mapper does for its own calls, through the
+ * TableNameResolver of the mapper config, so a table name override or prefix reaches them too.
+ */
+public final class TableNames {
+    private TableNames() {
+    }
+
+    public static String of(Class<?> type, DynamoDBMapperConfig config) {
+        DynamoDBMapperConfig.TableNameResolver resolver = config.getTableNameResolver();
+        if (resolver == null) {
+            resolver = DynamoDBMapperConfig.DefaultTableNameResolver.INSTANCE;
+        }
+        return resolver.getTableName(type, config);
+    }
+}
@@ -5,6 +5,6 @@ import org.socialsignin.spring.data.dynamodb.repository.EnableScan;
 import org.springframework.data.repository.CrudRepository;
 
 @EnableScan
-public interface UserRepository extends CrudRepository<UserRecord, String> {
+public interface UserRepository extends CrudRepository<UserRecord, String>, UserRepositoryCustom {
 
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.kenzie.appserver.repositories;
+
+import com.kenzie.appserver.repositories.model.UserRecord;
+
+import java.util.Optional;
+
+/**
+ * User writes that spring-data-dynamodb cannot derive.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Writes the user's password, names and creation date with one conditional UpdateItem and bumps its version.
+     *
+     * @param expectedVersion the version the update is based on, or null for last-writer-wins
+     * @return the updated user, or empty if it does not exist
+     * @throws com.kenzie.appserver.exception.VersionConflictException if the stored version is not expectedVersion
+     */
+    Optional<UserRecord> updateUser(UserRecord record, Long expectedVersion);
+}
@@ -0,0 +1,29 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.kenzie.appserver.repositories.model.UserRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Optional;
+
+/**
+ * Picked up by spring-data as the implementation of {@link UserRepositoryCustom}.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    private final VersionedUpdater versionedUpdater;
+
+    @Autowired
+    public UserRepositoryImpl(DynamoDBMapper mapper, AmazonDynamoDB amazonDynamoDB,
+                              DynamoDBMapperConfig mapperConfig) {
+        this.versionedUpdater = new VersionedUpdater(mapper, amazonDynamoDB, mapperConfig);
+    }
+
+    @Override
+    public Optional<UserRecord> updateUser(UserRecord record, Long expectedVersion) {
+        return versionedUpdater.update(UserRecord.class, record, expectedVersion, ReturnValue.ALL_NEW,
+                "Password", "FirstName", "LastName", "DateCreated");
+    }
+}
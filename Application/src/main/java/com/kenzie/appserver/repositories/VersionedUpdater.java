@@ -0,0 +1,114 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperFieldModel;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.kenzie.appserver.exception.VersionConflictException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Writes some attributes of a record with a @DynamoDBVersionAttribute in a single UpdateItem, without reading it
+ * first. The update bumps the version and is conditioned on the item existing and, when an expected version is
+ * given, on its version still being that one. An item written before it had a version counts as version 0.
+ *
+ * Only a failed condition costs a second call: a consistent read of the version, to tell a missing item from a
+ * conflicting one.
+ */
+class VersionedUpdater {
+    private final DynamoDBMapper mapper;
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final DynamoDBMapperConfig mapperConfig;
+
+    VersionedUpdater(DynamoDBMapper mapper, AmazonDynamoDB amazonDynamoDB, DynamoDBMapperConfig mapperConfig) {
+        this.mapper = mapper;
+        this.amazonDynamoDB = amazonDynamoDB;
+        this.mapperConfig = mapperConfig;
+    }
+
+    /**
+     * Sets the named attributes to their values in record (removing those that are null).
+     *
+     * @param expectedVersion the version the caller last read, or null to update whatever version is stored
+     * @param returnValue     ALL_NEW for the updated record, ALL_OLD for the record as it was before
+     * @return the record, or empty if no item has the record's key
+     * @throws VersionConflictException if the stored version is not expectedVersion
+     */
+    <T> Optional<T> update(Class<T> type, T record, Long expectedVersion, ReturnValue returnValue,
+                           String... attributeNames) {
+        DynamoDBMapperTableModel<T> model = mapper.getTableModel(type);
+        String hashKey = model.hashKey().name();
+        String version = versionAttribute(model);
+        Map<String, AttributeValue> key = model.convertKey(record);
+        Map<String, AttributeValue> item = model.convert(record);
+
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        StringBuilder set = new StringBuilder("SET #version = if_not_exists(#version, :zero) + :one");
+        StringBuilder remove = new StringBuilder();
+        names.put("#key", hashKey);
+        names.put("#version", version);
+        values.put(":zero", new AttributeValue().withN("0"));
+        values.put(":one", new AttributeValue().withN("1"));
+        for (int i = 0; i < attributeNames.length; i++) {
+            names.put("#a" + i, attributeNames[i]);
+            AttributeValue value = item.get(attributeNames[i]);
+            if (value != null) {
+                set.append(", #a").append(i).append(" = :a").append(i);
+                values.put(":a" + i, value);
+            } else {
+                remove.append(remove.length() == 0 ? " REMOVE " : ", ").append("#a").append(i);
+            }
+        }
+
+        String condition = "attribute_exists(#key)";
+        if (expectedVersion != null && expectedVersion == 0) {
+            condition += " AND attribute_not_exists(#version)";
+        } else if (expectedVersion != null) {
+            condition += " AND #version = :expected";
+            values.put(":expected", new AttributeValue().withN(Long.toString(expectedVersion)));
+        }
+
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(TableNames.of(type, mapperConfig))
+                .withKey(key)
+                .withUpdateExpression(set.append(remove).toString())
+                .withConditionExpression(condition)
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values)
+                .withReturnValues(returnValue);
+        try {
+            return Optional.of(model.unconvert(amazonDynamoDB.updateItem(request).getAttributes()));
+        } catch (ConditionalCheckFailedException e) {
+            Map<String, AttributeValue> stored = amazonDynamoDB.getItem(new GetItemRequest()
+                    .withTableName(request.getTableName())
+                    .withKey(key)
+                    .withProjectionExpression("#version")
+                    .withExpressionAttributeNames(Collections.singletonMap("#version", version))
+                    .withConsistentRead(true)).getItem();
+            if (stored == null) {
+                return Optional.empty();
+            }
+            AttributeValue storedVersion = stored.get(version);
+            throw new VersionConflictException("Version conflict for " + type.getSimpleName(),
+                    storedVersion == null ? 0 : Long.parseLong(storedVersion.getN()));
+        }
+    }
+
+    private static String versionAttribute(DynamoDBMapperTableModel<?> model) {
+        for (DynamoDBMapperFieldModel<?, Object> field : model.versions()) {
+            return field.name();
+        }
+        throw new IllegalArgumentException(model.targetType().getSimpleName() + " has no version attribute");
+    }
+}
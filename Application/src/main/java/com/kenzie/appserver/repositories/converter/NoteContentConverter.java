@@ -0,0 +1,108 @@
+package com.kenzie.appserver.repositories.converter;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverter;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores note content longer than {@link #COMPRESSION_THRESHOLD_BYTES} as a deflated binary attribute, and
+ * anything shorter as the plain string it always was. A binary value starts with a one-byte format marker, so
+ * notes written before this converter, or below the threshold, read back unchanged.
+ *
+ * The mapper creates converters itself, so the savings are reported to the global Micrometer registry, which
+ * Spring Boot adds its registries to: notes.content.bytes.saved, and notes.content.capacity.saved for the
+ * write units (per 1 KB) and read units (per 4 KB) each compressed body avoids.
+ */
+public class NoteContentConverter implements DynamoDBTypeConverter<AttributeValue, String> {
+    // UTF-8 bytes above which content is compressed; shorter text rarely shrinks enough to change its capacity
+    static final int COMPRESSION_THRESHOLD_BYTES = 1024;
+    static final byte DEFLATE = 1;
+    private static final int WRITE_UNIT_BYTES = 1024;
+    private static final int READ_UNIT_BYTES = 4096;
+
+    private final Counter bytesSaved = Metrics.counter("notes.content.bytes.saved");
+    private final Counter writeUnitsSaved = Metrics.counter("notes.content.capacity.saved", "operation", "write");
+    private final Counter readUnitsSaved = Metrics.counter("notes.content.capacity.saved", "operation", "read");
+
+    @Override
+    public AttributeValue convert(String content) {
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        if (plain.length <= COMPRESSION_THRESHOLD_BYTES) {
+            return new AttributeValue().withS(content);
+        }
+        byte[] compressed = deflate(plain);
+        if (compressed.length >= plain.length) {
+            return new AttributeValue().withS(content);
+        }
+        bytesSaved.increment(plain.length - compressed.length);
+        writeUnitsSaved.increment(units(plain.length, WRITE_UNIT_BYTES) - units(compressed.length, WRITE_UNIT_BYTES));
+        return new AttributeValue().withB(ByteBuffer.wrap(compressed));
+    }
+
+    @Override
+    public String unconvert(AttributeValue value) {
+        if (value.getS() != null) {
+            return value.getS();
+        }
+        ByteBuffer buffer = value.getB().duplicate();
+        byte[] stored = new byte[buffer.remaining()];
+        buffer.get(stored);
+        if (stored.length == 0 || stored[0] != DEFLATE) {
+            throw new IllegalArgumentException("Unknown note content format");
+        }
+        byte[] plain = inflate(stored);
+        readUnitsSaved.increment(units(plain.length, READ_UNIT_BYTES) - units(stored.length, READ_UNIT_BYTES));
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    // the format marker followed by the deflated bytes
+    private static byte[] deflate(byte[] plain) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(plain);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 2 + 16);
+            out.write(DEFLATE);
+            byte[] chunk = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(stored, 1, stored.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(stored.length * 3);
+            byte[] chunk = new byte[4096];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(chunk);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated note content");
+                }
+                out.write(chunk, 0, inflated);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt note content", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static long units(int bytes, int unitBytes) {
+        return (bytes + unitBytes - 1) / unitBytes;
+    }
+}
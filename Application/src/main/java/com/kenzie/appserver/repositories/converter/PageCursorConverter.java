@@ -0,0 +1,78 @@
+package com.kenzie.appserver.repositories.converter;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Turns a DynamoDB LastEvaluatedKey into an opaque, URL-safe cursor string and back.
+ * Only string (S) and number (N) key attributes are supported, which covers every key in this service.
+ */
+public class PageCursorConverter {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String STRING_PREFIX = "S:";
+    private static final String NUMBER_PREFIX = "N:";
+
+    public String convert(Map<String, AttributeValue> key) {
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+        Map<String, String> flat = new LinkedHashMap<>();
+        for (Map.Entry<String, AttributeValue> entry : key.entrySet()) {
+            AttributeValue value = entry.getValue();
+            if (value.getS() != null) {
+                flat.put(entry.getKey(), STRING_PREFIX + value.getS());
+            } else if (value.getN() != null) {
+                flat.put(entry.getKey(), NUMBER_PREFIX + value.getN());
+            } else {
+                throw new IllegalArgumentException("Unsupported key attribute type for " + entry.getKey());
+            }
+        }
+        try {
+            byte[] json = MAPPER.writeValueAsBytes(flat);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not encode page cursor", e);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #convert(Map)}
+     */
+    public Map<String, AttributeValue> unconvert(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(cursor);
+            Map<String, String> flat = MAPPER.readValue(new String(json, StandardCharsets.UTF_8),
+                    new TypeReference<LinkedHashMap<String, String>>() {});
+            // a JSON null, as the whole cursor or as a value, is valid JSON but never a key convert produced
+            if (flat == null) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            Map<String, AttributeValue> key = new LinkedHashMap<>();
+            for (Map.Entry<String, String> entry : flat.entrySet()) {
+                String value = entry.getValue();
+                if (value == null) {
+                    throw new IllegalArgumentException("Invalid page cursor");
+                } else if (value.startsWith(STRING_PREFIX)) {
+                    key.put(entry.getKey(), new AttributeValue().withS(value.substring(STRING_PREFIX.length())));
+                } else if (value.startsWith(NUMBER_PREFIX)) {
+                    key.put(entry.getKey(), new AttributeValue().withN(value.substring(NUMBER_PREFIX.length())));
+                } else {
+                    throw new IllegalArgumentException("Invalid page cursor");
+                }
+            }
+            return key;
+        } catch (IllegalArgumentException | JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
+        }
+    }
+}
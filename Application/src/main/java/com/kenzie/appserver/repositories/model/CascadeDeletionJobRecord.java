@@ -0,0 +1,149 @@
+package com.kenzie.appserver.repositories.model;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A background deletion of everything that depends on a study group or a user, kept so it can be reported on and
+ * resumed after a restart. DeletedCounts maps each dependent table to the number of rows deleted so far.
+ * LeaseOwner is the instance running the job and LeaseExpiresAt when another instance may take it over; the
+ * owner pushes the expiry forward as the job makes progress. Failures counts the runs that ended FAILED; a failed
+ * job is retried once its lease expires, until it runs out of attempts. ExpiresAt is set, in epoch seconds, once a
+ * job is finished for good, and the table's time to live deletes it then.
+ */
+@DynamoDBTable(tableName = "CascadeDeletionJob")
+public class CascadeDeletionJobRecord {
+    // finds the jobs to resume without scanning the table
+    public static final String STATUS_INDEX = "StatusIndex";
+    public static final String EXPIRES_AT = "ExpiresAt";
+
+    private String jobId;
+    private String targetType;
+    private String targetId;
+    private String status;
+    private Map<String, Long> deletedCounts = new HashMap<>();
+    private String error;
+    private long createdAtMillis;
+    private long updatedAtMillis;
+    private String leaseOwner;
+    private Long leaseExpiresAtMillis;
+    private int failures;
+    private Long expiresAtSeconds;
+
+    @DynamoDBHashKey(attributeName = "JobId")
+    public String getJobId() {
+        return jobId;
+    }
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    @DynamoDBAttribute(attributeName = "TargetType")
+    public String getTargetType() {
+        return targetType;
+    }
+    public void setTargetType(String targetType) {
+        this.targetType = targetType;
+    }
+
+    @DynamoDBAttribute(attributeName = "TargetId")
+    public String getTargetId() {
+        return targetId;
+    }
+    public void setTargetId(String targetId) {
+        this.targetId = targetId;
+    }
+
+    @DynamoDBIndexHashKey(attributeName = "Status", globalSecondaryIndexName = STATUS_INDEX)
+    public String getStatus() {
+        return status;
+    }
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    @DynamoDBAttribute(attributeName = "DeletedCounts")
+    public Map<String, Long> getDeletedCounts() {
+        return deletedCounts;
+    }
+    public void setDeletedCounts(Map<String, Long> deletedCounts) {
+        this.deletedCounts = deletedCounts;
+    }
+
+    @DynamoDBAttribute(attributeName = "Error")
+    public String getError() {
+        return error;
+    }
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @DynamoDBAttribute(attributeName = "CreatedAt")
+    public long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+    public void setCreatedAtMillis(long createdAtMillis) {
+        this.createdAtMillis = createdAtMillis;
+    }
+
+    @DynamoDBAttribute(attributeName = "UpdatedAt")
+    public long getUpdatedAtMillis() {
+        return updatedAtMillis;
+    }
+    public void setUpdatedAtMillis(long updatedAtMillis) {
+        this.updatedAtMillis = updatedAtMillis;
+    }
+
+    @DynamoDBAttribute(attributeName = "LeaseOwner")
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    // null until the job is first leased
+    @DynamoDBAttribute(attributeName = "LeaseExpiresAt")
+    public Long getLeaseExpiresAtMillis() {
+        return leaseExpiresAtMillis;
+    }
+    public void setLeaseExpiresAtMillis(Long leaseExpiresAtMillis) {
+        this.leaseExpiresAtMillis = leaseExpiresAtMillis;
+    }
+
+    @DynamoDBAttribute(attributeName = "Failures")
+    public int getFailures() {
+        return failures;
+    }
+    public void setFailures(int failures) {
+        this.failures = failures;
+    }
+
+    // null while the job may still run
+    @DynamoDBAttribute(attributeName = EXPIRES_AT)
+    public Long getExpiresAtSeconds() {
+        return expiresAtSeconds;
+    }
+    public void setExpiresAtSeconds(Long expiresAtSeconds) {
+        this.expiresAtSeconds = expiresAtSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CascadeDeletionJobRecord)) return false;
+        CascadeDeletionJobRecord that = (CascadeDeletionJobRecord) o;
+        return Objects.equals(jobId, that.jobId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(jobId);
+    }
+}
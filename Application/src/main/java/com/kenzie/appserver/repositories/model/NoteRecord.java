@@ -1,6 +1,7 @@
 package com.kenzie.appserver.repositories.model;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.*;
+import com.kenzie.appserver.repositories.converter.NoteContentConverter;
 import com.kenzie.appserver.repositories.converter.ZonedDateTimeConverter;
 
 import java.time.ZonedDateTime;
@@ -8,11 +9,16 @@ import java.util.Objects;
 
 @DynamoDBTable(tableName = "Note")
 public class NoteRecord {
+    // a user's notes, ordered by the day they were last updated
+    public static final String USER_ID_INDEX = "UserIdIndex";
+
     private String noteId;
     private String userId;
     private String content;
+    private String contentHash;
     private ZonedDateTime createdDateTime;
     private ZonedDateTime updatedDateTime;
+    private Long version;
 
     @DynamoDBHashKey(attributeName = "NoteId")
     public String getNoteId() {
@@ -22,15 +28,25 @@ public class NoteRecord {
         this.noteId = noteId;
     }
     @DynamoDBAttribute(attributeName = "UserId")
+    @DynamoDBIndexHashKey(attributeName = "UserId", globalSecondaryIndexName = USER_ID_INDEX)
     public String getUserId() { return userId; }
     public void setUserId(String userId) {this.userId = userId;}
     @DynamoDBAttribute(attributeName = "Content")
+    @DynamoDBTypeConverted(converter = NoteContentConverter.class)
     public String getContent() {
         return content;
     }
     public void setContent(String content) {
         this.content = content;
     }
+    // SHA-256 of a body kept in the note blob store instead of Content; null for inline bodies
+    @DynamoDBAttribute(attributeName = "ContentHash")
+    public String getContentHash() {
+        return contentHash;
+    }
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
 
     @DynamoDBAttribute(attributeName = "CreatedDateTime")
     @DynamoDBTypeConverted(converter = ZonedDateTimeConverter.class)
@@ -41,6 +57,7 @@ public class NoteRecord {
         this.createdDateTime = createdDateTime;
     }
     @DynamoDBAttribute(attributeName = "UpdatedDateTime")
+    @DynamoDBIndexRangeKey(attributeName = "UpdatedDateTime", globalSecondaryIndexName = USER_ID_INDEX)
     @DynamoDBTypeConverted(converter = ZonedDateTimeConverter.class)
     public ZonedDateTime getUpdatedDateTime() {
         return updatedDateTime;
@@ -48,6 +65,15 @@ public class NoteRecord {
     public void setUpdatedDateTime(ZonedDateTime updatedDateTime) {
         this.updatedDateTime = updatedDateTime;
     }
+    // bumped by every conditional update; null until the record is first saved
+    @DynamoDBVersionAttribute(attributeName = "Version")
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,32 @@
+package com.kenzie.appserver.repositories.model;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of records read from DynamoDB, plus the key to resume from (null when there is nothing left).
+ */
+public class RecordPage<T> {
+    private final List<T> records;
+    private final Map<String, AttributeValue> lastEvaluatedKey;
+
+    public RecordPage(List<T> records, Map<String, AttributeValue> lastEvaluatedKey) {
+        this.records = records != null ? records : Collections.emptyList();
+        this.lastEvaluatedKey = lastEvaluatedKey;
+    }
+
+    public List<T> getRecords() {
+        return records;
+    }
+
+    public Map<String, AttributeValue> getLastEvaluatedKey() {
+        return lastEvaluatedKey;
+    }
+
+    public boolean hasMore() {
+        return lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty();
+    }
+}
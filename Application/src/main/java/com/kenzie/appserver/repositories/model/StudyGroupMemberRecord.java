@@ -9,6 +9,9 @@ import java.util.Objects;
 
 @DynamoDBTable(tableName = "StudyGroupMember")
 public class StudyGroupMemberRecord {
+    // the groups of one member, ordered by groupId
+    public static final String MEMBER_ID_INDEX = "MemberIdIndex";
+
    @Id
     private StudyGroupMemberId studyGroupMemberId;
     private String groupName;
@@ -27,6 +30,7 @@ public class StudyGroupMemberRecord {
     }
 
     @DynamoDBHashKey(attributeName = "GroupId")
+    @DynamoDBIndexRangeKey(attributeName = "GroupId", globalSecondaryIndexName = MEMBER_ID_INDEX)
     public String getGroupId() {
         return studyGroupMemberId != null ? studyGroupMemberId.getGroupId() : null;
     }
@@ -38,6 +42,7 @@ public class StudyGroupMemberRecord {
     }
 
     @DynamoDBRangeKey(attributeName = "MemberId")
+    @DynamoDBIndexHashKey(attributeName = "MemberId", globalSecondaryIndexName = MEMBER_ID_INDEX)
     public String getMemberId() {
         return studyGroupMemberId != null ? studyGroupMemberId.getMemberId() : null;
     }
@@ -0,0 +1,84 @@
+package com.kenzie.appserver.repositories.model;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Uniqueness marker for a study group's (groupName, discussionTopic) pair.
+ *
+ * One item exists per pair, keyed on the normalized name and topic, pointing at the group that owns it.
+ * The marker is written in the same transaction as the StudyGroup item with an attribute_not_exists
+ * condition, so the duplicate check and the insert are a single round trip.
+ */
+@DynamoDBTable(tableName = "StudyGroupName")
+public class StudyGroupNameRecord {
+    private String nameTopicKey;
+    private String groupId;
+
+    public StudyGroupNameRecord() {}
+
+    public StudyGroupNameRecord(String nameTopicKey, String groupId) {
+        this.nameTopicKey = nameTopicKey;
+        this.groupId = groupId;
+    }
+
+    @DynamoDBHashKey(attributeName = "NameTopicKey")
+    public String getNameTopicKey() {
+        return nameTopicKey;
+    }
+    public void setNameTopicKey(String nameTopicKey) {
+        this.nameTopicKey = nameTopicKey;
+    }
+
+    @DynamoDBAttribute(attributeName = "GroupId")
+    public String getGroupId() {
+        return groupId;
+    }
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    /**
+     * Builds the marker key: name and topic are trimmed, lower-cased and whitespace-collapsed,
+     * then joined with '#' (escaped inside the values so distinct pairs never share a key).
+     */
+    public static String nameTopicKey(String groupName, String discussionTopic) {
+        return normalize(groupName) + "#" + normalize(discussionTopic);
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.trim()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("#", "\\#");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudyGroupNameRecord)) return false;
+        StudyGroupNameRecord that = (StudyGroupNameRecord) o;
+        return Objects.equals(nameTopicKey, that.nameTopicKey) && Objects.equals(groupId, that.groupId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(nameTopicKey, groupId);
+    }
+
+    @Override
+    public String toString() {
+        return "StudyGroupNameRecord{" +
+                "nameTopicKey='" + nameTopicKey + '\'' +
+                ", groupId='" + groupId + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,183 @@
+package com.kenzie.appserver.repositories.model;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIgnore;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBIndexHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+
+import java.util.Objects;
+
+/**
+ * Running totals of a study group's reviews: how many there are, the sum of their ratings and how many fall
+ * on each star of the 1-5 scale (a rating is counted under its nearest whole star).
+ *
+ * The item is only ever changed with ADD update expressions, so concurrent reviews never overwrite each other's
+ * counts, and the average rating is one GetItem however many reviews the group has. DiscussionTopicIndex lists
+ * the totals of every group reviewed under a topic.
+ */
+@DynamoDBTable(tableName = "StudyGroupRating")
+public class StudyGroupRatingRecord {
+    public static final int MIN_STARS = 1;
+    public static final int MAX_STARS = 5;
+    public static final String DISCUSSION_TOPIC_INDEX = "DiscussionTopicIndex";
+
+    private String groupId;
+    private String groupName;
+    private String discussionTopic;
+    private long reviewCount;
+    private double ratingSum;
+    private long oneStarCount;
+    private long twoStarCount;
+    private long threeStarCount;
+    private long fourStarCount;
+    private long fiveStarCount;
+
+    @DynamoDBHashKey(attributeName = "GroupId")
+    public String getGroupId() {
+        return groupId;
+    }
+    public void setGroupId(String groupId) {
+        this.groupId = groupId;
+    }
+
+    @DynamoDBAttribute(attributeName = "GroupName")
+    public String getGroupName() {
+        return groupName;
+    }
+    public void setGroupName(String groupName) {
+        this.groupName = groupName;
+    }
+
+    @DynamoDBAttribute(attributeName = "DiscussionTopic")
+    @DynamoDBIndexHashKey(attributeName = "DiscussionTopic", globalSecondaryIndexName = DISCUSSION_TOPIC_INDEX)
+    public String getDiscussionTopic() {
+        return discussionTopic;
+    }
+    public void setDiscussionTopic(String discussionTopic) {
+        this.discussionTopic = discussionTopic;
+    }
+
+    @DynamoDBAttribute(attributeName = "ReviewCount")
+    public long getReviewCount() {
+        return reviewCount;
+    }
+    public void setReviewCount(long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "RatingSum")
+    public double getRatingSum() {
+        return ratingSum;
+    }
+    public void setRatingSum(double ratingSum) {
+        this.ratingSum = ratingSum;
+    }
+
+    @DynamoDBAttribute(attributeName = "OneStarCount")
+    public long getOneStarCount() {
+        return oneStarCount;
+    }
+    public void setOneStarCount(long oneStarCount) {
+        this.oneStarCount = oneStarCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "TwoStarCount")
+    public long getTwoStarCount() {
+        return twoStarCount;
+    }
+    public void setTwoStarCount(long twoStarCount) {
+        this.twoStarCount = twoStarCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "ThreeStarCount")
+    public long getThreeStarCount() {
+        return threeStarCount;
+    }
+    public void setThreeStarCount(long threeStarCount) {
+        this.threeStarCount = threeStarCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "FourStarCount")
+    public long getFourStarCount() {
+        return fourStarCount;
+    }
+    public void setFourStarCount(long fourStarCount) {
+        this.fourStarCount = fourStarCount;
+    }
+
+    @DynamoDBAttribute(attributeName = "FiveStarCount")
+    public long getFiveStarCount() {
+        return fiveStarCount;
+    }
+    public void setFiveStarCount(long fiveStarCount) {
+        this.fiveStarCount = fiveStarCount;
+    }
+
+    /**
+     * Counts per star, index 0 holding one-star reviews.
+     */
+    @DynamoDBIgnore
+    public long[] getHistogram() {
+        return new long[] {oneStarCount, twoStarCount, threeStarCount, fourStarCount, fiveStarCount};
+    }
+
+    @DynamoDBIgnore
+    public double getAverageRating() {
+        return reviewCount > 0 ? ratingSum / reviewCount : 0.0;
+    }
+
+    /**
+     * Adds one review with the given rating to the totals held in this object (not to the stored item).
+     */
+    public void add(double rating) {
+        reviewCount++;
+        ratingSum += rating;
+        switch (stars(rating)) {
+            case 1: oneStarCount++; break;
+            case 2: twoStarCount++; break;
+            case 3: threeStarCount++; break;
+            case 4: fourStarCount++; break;
+            default: fiveStarCount++;
+        }
+    }
+
+    /**
+     * The attribute counting reviews with the given rating.
+     */
+    public static String histogramAttribute(double rating) {
+        switch (stars(rating)) {
+            case 1: return "OneStarCount";
+            case 2: return "TwoStarCount";
+            case 3: return "ThreeStarCount";
+            case 4: return "FourStarCount";
+            default: return "FiveStarCount";
+        }
+    }
+
+    private static int stars(double rating) {
+        return (int) Math.max(MIN_STARS, Math.min(MAX_STARS, Math.round(rating)));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudyGroupRatingRecord)) return false;
+        StudyGroupRatingRecord that = (StudyGroupRatingRecord) o;
+        return Objects.equals(groupId, that.groupId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(groupId);
+    }
+
+    @Override
+    public String toString() {
+        return "StudyGroupRatingRecord{" +
+                "groupId='" + groupId + '\'' +
+                ", reviewCount=" + reviewCount +
+                ", ratingSum=" + ratingSum +
+                '}';
+    }
+}
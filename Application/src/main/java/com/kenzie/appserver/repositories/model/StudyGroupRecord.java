@@ -12,6 +12,7 @@ public class StudyGroupRecord {
     private String discussionTopic;
     private ZonedDateTime creationDate;
     private boolean active;
+    private Long version;
 
     @DynamoDBHashKey(attributeName = "GroupId")
     public String getGroupId() {
@@ -55,6 +56,15 @@ public class StudyGroupRecord {
         this.active = active;
     }
 
+    // bumped by every conditional update; null until the record is first saved
+    @DynamoDBVersionAttribute(attributeName = "Version")
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
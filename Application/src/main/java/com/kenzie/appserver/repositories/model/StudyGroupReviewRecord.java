@@ -7,6 +7,9 @@ import java.util.Objects;
 
 @DynamoDBTable(tableName = "StudyGroupReview")
 public class StudyGroupReviewRecord {
+    // finds a review's group from its id alone
+    public static final String REVIEW_ID_INDEX = "ReviewIdIndex";
+    public static final String DISCUSSION_TOPIC_INDEX = "DiscussionTopicIndex";
 
     @Id
     private StudyGroupReviewId studyGroupReviewId;
@@ -46,6 +49,7 @@ public class StudyGroupReviewRecord {
     }
 
     @DynamoDBRangeKey(attributeName = "ReviewId")
+    @DynamoDBIndexHashKey(attributeName = "ReviewId", globalSecondaryIndexName = REVIEW_ID_INDEX)
     public String getReviewId() {
         return studyGroupReviewId != null ? studyGroupReviewId.getReviewId() : null;
     }
@@ -56,7 +60,7 @@ public class StudyGroupReviewRecord {
         studyGroupReviewId.setReviewId(reviewId);
     }
     @DynamoDBAttribute(attributeName = "DiscussionTopic")
-    @DynamoDBIndexHashKey(globalSecondaryIndexName = "DiscussionTopicIndex")
+    @DynamoDBIndexHashKey(globalSecondaryIndexName = DISCUSSION_TOPIC_INDEX)
     public String getDiscussionTopic(){
         return discussionTopic;
     }
@@ -4,6 +4,7 @@ import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTypeConverted;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBVersionAttribute;
 import com.kenzie.appserver.repositories.converter.ZonedDateTimeConverter;
 
 import java.time.ZonedDateTime;
@@ -16,6 +17,7 @@ public class UserRecord {
     private String firstName;
     private String lastName;
     private ZonedDateTime dateCreated;
+    private Long version;
 
     @DynamoDBHashKey(attributeName = "Email")
     public String getEmail() {
@@ -56,6 +58,15 @@ public class UserRecord {
         this.firstName = firstName;
     }
 
+    // bumped by every conditional update; null until the record is first saved
+    @DynamoDBVersionAttribute(attributeName = "Version")
+    public Long getVersion() {
+        return version;
+    }
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,402 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.config.StudyGroupMemberCache;
+import com.kenzie.appserver.repositories.BatchWriter;
+import com.kenzie.appserver.repositories.CascadeDeletionJobRepository;
+import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.StudyGroupMemberRepository;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
+import com.kenzie.appserver.repositories.StudyGroupReviewRepository;
+import com.kenzie.appserver.repositories.model.CascadeDeletionJobRecord;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import com.kenzie.appserver.service.model.CascadeDeletionJob;
+import com.kenzie.capstone.service.client.StudySessionServiceClient;
+import com.kenzie.capstone.service.model.StudySession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Deletes what depends on a deleted study group (members, reviews and their rating totals) or user (memberships,
+ * notes, study sessions) in the background, so the DELETE request returns as soon as the group or user row itself
+ * is gone.
+ *
+ * Each job is a CascadeDeletionJob record, saved before the group or user row is deleted and updated as every
+ * page of dependents is deleted. Every step reads what is left and deletes it, so a job can simply be run again.
+ *
+ * A job is leased to the instance running it: every progress update is conditional on this instance still
+ * holding the lease and pushes its expiry forward, and long steps renew it on the way. At start-up and then
+ * periodically, pending and running jobs whose lease has expired - their instance stopped - are claimed with a
+ * conditional write and run again here, after deleting the group or user row once more in case the instance
+ * stopped before it got to it. A job whose lease is lost stops without touching the record.
+ *
+ * A failed job keeps its lease for a backoff that doubles with every failure, from cascade.deletion.retryBackoff,
+ * and is then resumed the same way, up to cascade.deletion.maxAttempts runs. Jobs that succeeded or ran out of
+ * attempts are kept for cascade.deletion.retention to be reported on, then removed by the table's time to live.
+ * The jobs to resume are found with a Query per status on StatusIndex, never a scan.
+ */
+@Service
+public class CascadeDeletionService {
+    private static final Logger log = LoggerFactory.getLogger(CascadeDeletionService.class);
+    private static final int PAGE_SIZE = 100;
+
+    static final String MEMBERS = "members";
+    static final String REVIEWS = "reviews";
+    static final String MEMBERSHIPS = "memberships";
+    static final String NOTES = "notes";
+    static final String SESSIONS = "sessions";
+
+    private final CascadeDeletionJobRepository jobRepository;
+    private final StudyGroupMemberRepository studyGroupMemberRepository;
+    private final StudyGroupReviewRepository reviewRepository;
+    private final StudyGroupRatingRepository ratingRepository;
+    private final StudyGroupLeaderboard leaderboard;
+    private final NoteRepository noteRepository;
+    private final NoteSearchIndex noteSearchIndex;
+    private final NoteBodyStore noteBodyStore;
+    private final StudySessionServiceClient studySessionServiceClient;
+    private final StudyGroupMemberCache memberCache;
+    private final BatchWriter batchWriter;
+    private final TaskExecutor executor;
+    private final StudyGroupService studyGroupService;
+    private final UserService userService;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration retention;
+    // this instance, as a lease owner
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public CascadeDeletionService(CascadeDeletionJobRepository jobRepository,
+                                  StudyGroupMemberRepository studyGroupMemberRepository,
+                                  StudyGroupReviewRepository reviewRepository,
+                                  StudyGroupRatingRepository ratingRepository,
+                                  StudyGroupLeaderboard leaderboard,
+                                  NoteRepository noteRepository,
+                                  NoteSearchIndex noteSearchIndex,
+                                  NoteBodyStore noteBodyStore,
+                                  StudySessionServiceClient studySessionServiceClient,
+                                  StudyGroupMemberCache memberCache,
+                                  BatchWriter batchWriter,
+                                  @Qualifier("executorService") TaskExecutor executor,
+                                  StudyGroupService studyGroupService,
+                                  UserService userService,
+                                  @Value("${cascade.deletion.leaseDuration:PT5M}") Duration leaseDuration,
+                                  @Value("${cascade.deletion.maxAttempts:5}") int maxAttempts,
+                                  @Value("${cascade.deletion.retryBackoff:PT5M}") Duration retryBackoff,
+                                  @Value("${cascade.deletion.retention:P7D}") Duration retention) {
+        this.jobRepository = jobRepository;
+        this.studyGroupMemberRepository = studyGroupMemberRepository;
+        this.reviewRepository = reviewRepository;
+        this.ratingRepository = ratingRepository;
+        this.leaderboard = leaderboard;
+        this.noteRepository = noteRepository;
+        this.noteSearchIndex = noteSearchIndex;
+        this.noteBodyStore = noteBodyStore;
+        this.studySessionServiceClient = studySessionServiceClient;
+        this.memberCache = memberCache;
+        this.batchWriter = batchWriter;
+        this.executor = executor;
+        this.studyGroupService = studyGroupService;
+        this.userService = userService;
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.retention = retention;
+    }
+
+    /**
+     * Deletes the study group and starts the deletion of its members and reviews.
+     */
+    public CascadeDeletionJob submitGroupDeletion(String groupId) {
+        return submit(CascadeDeletionJob.TargetType.GROUP, groupId);
+    }
+
+    /**
+     * Deletes the user and starts the deletion of their memberships, notes and study sessions.
+     */
+    public CascadeDeletionJob submitUserDeletion(String userId) {
+        return submit(CascadeDeletionJob.TargetType.USER, userId);
+    }
+
+    // null if there is no such job
+    public CascadeDeletionJob getJob(String jobId) {
+        return jobRepository.findById(jobId).map(CascadeDeletionService::buildJob).orElse(null);
+    }
+
+    /**
+     * Restarts the pending and running jobs whose lease has expired, and the failed ones whose backoff is over.
+     */
+    @Scheduled(initialDelayString = "${cascade.deletion.resumeInitialDelayMillis:0}",
+            fixedDelayString = "${cascade.deletion.resumeIntervalMillis:300000}")
+    public void resumeUnfinishedJobs() {
+        List<CascadeDeletionJobRecord> unfinished = new ArrayList<>();
+        try {
+            unfinished.addAll(jobRepository.findByStatus(CascadeDeletionJob.Status.PENDING.name()));
+            unfinished.addAll(jobRepository.findByStatus(CascadeDeletionJob.Status.RUNNING.name()));
+            unfinished.addAll(jobRepository.findByStatus(CascadeDeletionJob.Status.FAILED.name()));
+        } catch (RuntimeException e) {
+            log.warn("Could not look up unfinished cascade deletion jobs", e);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (CascadeDeletionJobRecord record : unfinished) {
+            if (record.getExpiresAtSeconds() != null) {
+                continue; // out of attempts
+            }
+            if (record.getLeaseExpiresAtMillis() != null && record.getLeaseExpiresAtMillis() >= now) {
+                continue; // a live instance is running it, or a failed job is backing off
+            }
+            record.setLeaseOwner(instanceId);
+            record.setLeaseExpiresAtMillis(now + leaseDuration.toMillis());
+            if (!jobRepository.claim(record, now)) {
+                continue; // another instance claimed it first
+            }
+            log.info("Resuming cascade deletion job {} for {} {}", record.getJobId(), record.getTargetType(),
+                    record.getTargetId());
+            executor.execute(() -> {
+                try {
+                    deleteTarget(record);
+                } catch (RuntimeException e) {
+                    log.warn("Cascade deletion job {} could not delete {} {}", record.getJobId(),
+                            record.getTargetType(), record.getTargetId(), e);
+                    return; // the lease runs out and the job is tried again
+                }
+                run(record);
+            });
+        }
+    }
+
+    private CascadeDeletionJob submit(CascadeDeletionJob.TargetType targetType, String targetId) {
+        long now = System.currentTimeMillis();
+        CascadeDeletionJobRecord record = new CascadeDeletionJobRecord();
+        record.setJobId(UUID.randomUUID().toString());
+        record.setTargetType(targetType.name());
+        record.setTargetId(targetId);
+        record.setStatus(CascadeDeletionJob.Status.PENDING.name());
+        record.setCreatedAtMillis(now);
+        record.setUpdatedAtMillis(now);
+        record.setLeaseOwner(instanceId);
+        record.setLeaseExpiresAtMillis(now + leaseDuration.toMillis());
+        // saved first, so dependents are deleted even if this instance stops right after the row goes
+        jobRepository.save(record);
+        try {
+            deleteTarget(record);
+        } catch (RuntimeException e) {
+            // nothing was deleted; a job left behind would delete the dependents of a row that still exists
+            jobRepository.delete(record);
+            throw e;
+        }
+        CascadeDeletionJob job = buildJob(record);
+        executor.execute(() -> run(record));
+        return job;
+    }
+
+    // deleting a row that is already gone is a no-op, so this is safe to repeat
+    private void deleteTarget(CascadeDeletionJobRecord record) {
+        if (CascadeDeletionJob.TargetType.GROUP.name().equals(record.getTargetType())) {
+            studyGroupService.deleteStudyGroup(record.getTargetId());
+        } else {
+            userService.deleteUser(record.getTargetId());
+        }
+    }
+
+    void run(CascadeDeletionJobRecord record) {
+        if (record.getDeletedCounts() == null) {
+            record.setDeletedCounts(new HashMap<>());
+        }
+        try {
+            update(record, CascadeDeletionJob.Status.RUNNING, null);
+        } catch (LeaseLostException e) {
+            log.info("Cascade deletion job {} was taken over by another instance", record.getJobId());
+            return;
+        }
+        try {
+            if (CascadeDeletionJob.TargetType.GROUP.name().equals(record.getTargetType())) {
+                deleteGroupMembers(record);
+                deleteGroupReviews(record);
+            } else {
+                deleteMemberships(record);
+                deleteNotes(record);
+                deleteStudySessions(record);
+            }
+            update(record, CascadeDeletionJob.Status.SUCCEEDED, null);
+        } catch (LeaseLostException e) {
+            log.info("Cascade deletion job {} was taken over by another instance", record.getJobId());
+        } catch (RuntimeException e) {
+            log.warn("Cascade deletion job {} for {} {} failed", record.getJobId(), record.getTargetType(),
+                    record.getTargetId(), e);
+            record.setFailures(record.getFailures() + 1);
+            if (record.getFailures() >= maxAttempts) {
+                log.error("Cascade deletion job {} for {} {} failed {} times; giving up", record.getJobId(),
+                        record.getTargetType(), record.getTargetId(), record.getFailures());
+            }
+            try {
+                update(record, CascadeDeletionJob.Status.FAILED, e.getMessage());
+            } catch (LeaseLostException lost) {
+                log.info("Cascade deletion job {} was taken over by another instance", record.getJobId());
+            }
+        }
+    }
+
+    private void deleteGroupMembers(CascadeDeletionJobRecord record) {
+        String groupId = record.getTargetId();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupMemberRecord> page = studyGroupMemberRepository.findPageByGroupId(groupId,
+                    PAGE_SIZE, startKey);
+            deleteBatch(record, MEMBERS, page.getRecords());
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+        memberCache.evict(groupId);
+    }
+
+    private void deleteGroupReviews(CascadeDeletionJobRecord record) {
+        List<StudyGroupReviewRecord> reviews = reviewRepository.findByGroupId(record.getTargetId())
+                .orElse(Collections.emptyList());
+        deleteBatch(record, REVIEWS, reviews);
+        ratingRepository.deleteById(record.getTargetId());
+        leaderboard.remove(record.getTargetId());
+    }
+
+    private void deleteMemberships(CascadeDeletionJobRecord record) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupMemberRecord> page = studyGroupMemberRepository.findPageByMemberId(
+                    record.getTargetId(), PAGE_SIZE, startKey);
+            deleteBatch(record, MEMBERSHIPS, page.getRecords(), membership ->
+                    memberCache.removeMember(membership.getGroupId(), membership.getMemberId()));
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+
+    private void deleteNotes(CascadeDeletionJobRecord record) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<NoteRecord> page = noteRepository.findPageByUserId(record.getTargetId(), PAGE_SIZE, startKey);
+            deleteBatch(record, NOTES, page.getRecords(), note -> {
+                noteSearchIndex.remove(note.getNoteId());
+                noteBodyStore.release(note.getContentHash());
+            });
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+
+    // the study session service deletes one session per call
+    private void deleteStudySessions(CascadeDeletionJobRecord record) {
+        List<StudySession> sessions = studySessionServiceClient.getStudySessionsByUserId(record.getTargetId());
+        if (sessions == null) {
+            return;
+        }
+        for (StudySession session : sessions) {
+            studySessionServiceClient.deleteStudySessionBySessionId(session.getSessionId());
+            addDeleted(record, SESSIONS, 1);
+            renewLeaseIfDue(record);
+        }
+        update(record, CascadeDeletionJob.Status.RUNNING, null);
+    }
+
+    private <T> void deleteBatch(CascadeDeletionJobRecord record, String table, List<T> rows) {
+        deleteBatch(record, table, rows, row -> { });
+    }
+
+    /**
+     * Deletes the rows and hands each one that is actually gone to afterDelete, before failing on the ones left,
+     * so what hangs off a deleted row (a blob reference, a cache entry) is let go even when the batch fails.
+     */
+    private <T> void deleteBatch(CascadeDeletionJobRecord record, String table, List<T> rows,
+                                 Consumer<T> afterDelete) {
+        if (rows.isEmpty()) {
+            addDeleted(record, table, 0);
+            return;
+        }
+        List<T> notDeleted = batchWriter.deleteAll(rows);
+        Set<T> left = new HashSet<>(notDeleted);
+        for (T row : rows) {
+            if (!left.contains(row)) {
+                afterDelete.accept(row);
+            }
+        }
+        addDeleted(record, table, rows.size() - notDeleted.size());
+        update(record, CascadeDeletionJob.Status.RUNNING, null);
+        if (!notDeleted.isEmpty()) {
+            throw new IllegalStateException("Could not delete " + notDeleted.size() + " " + table);
+        }
+    }
+
+    private static void addDeleted(CascadeDeletionJobRecord record, String table, long count) {
+        record.getDeletedCounts().merge(table, count, Long::sum);
+    }
+
+    // the heartbeat for steps that make many calls between progress updates
+    private void renewLeaseIfDue(CascadeDeletionJobRecord record) {
+        if (record.getLeaseExpiresAtMillis() - System.currentTimeMillis() < leaseDuration.toMillis() / 2) {
+            update(record, CascadeDeletionJob.Status.RUNNING, null);
+        }
+    }
+
+    /**
+     * Saves the job's progress and extends its lease. A failed job with attempts left keeps the lease for its
+     * backoff; a job that is done for good gets its expiry instead.
+     *
+     * @throws LeaseLostException if another instance has taken the job over
+     */
+    private void update(CascadeDeletionJobRecord record, CascadeDeletionJob.Status status, String error) {
+        long now = System.currentTimeMillis();
+        record.setStatus(status.name());
+        record.setError(error);
+        record.setUpdatedAtMillis(now);
+        record.setLeaseExpiresAtMillis(now + leaseDuration.toMillis());
+        boolean retrying = status == CascadeDeletionJob.Status.FAILED && record.getFailures() < maxAttempts;
+        if (retrying) {
+            record.setLeaseExpiresAtMillis(now + backoff(record.getFailures()).toMillis());
+        }
+        boolean finished = status == CascadeDeletionJob.Status.SUCCEEDED
+                || (status == CascadeDeletionJob.Status.FAILED && !retrying);
+        if (finished) {
+            record.setExpiresAtSeconds((now + retention.toMillis()) / 1000);
+        }
+        if (!jobRepository.saveIfLeaseHeld(record)) {
+            throw new LeaseLostException();
+        }
+    }
+
+    // retryBackoff after the first failure, doubling after each one after that
+    private Duration backoff(int failures) {
+        return retryBackoff.multipliedBy(1L << Math.min(failures - 1, 16));
+    }
+
+    private static final class LeaseLostException extends RuntimeException {
+    }
+
+    private static CascadeDeletionJob buildJob(CascadeDeletionJobRecord record) {
+        return new CascadeDeletionJob(record.getJobId(),
+                CascadeDeletionJob.TargetType.valueOf(record.getTargetType()),
+                record.getTargetId(),
+                CascadeDeletionJob.Status.valueOf(record.getStatus()),
+                record.getDeletedCounts() == null ? new HashMap<>() : new HashMap<>(record.getDeletedCounts()),
+                record.getError(),
+                Instant.ofEpochMilli(record.getCreatedAtMillis()),
+                Instant.ofEpochMilli(record.getUpdatedAtMillis()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.kenzie.appserver.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kenzie.appserver.repositories.NoteBlobStore;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Moves note bodies longer than a threshold out of the Note table into the NoteBlobStore, leaving only their
+ * SHA-256 in the record's ContentHash. Shorter bodies stay inline in Content.
+ *
+ * Every record holding a hash holds one reference to its blob: {@link #externalize(NoteRecord)} takes it and
+ * {@link #release(String)} gives it back once the record is deleted or no longer points at the blob. Reads go
+ * through a cache bounded by bytes; a hash always names the same content, so entries never go stale.
+ *
+ * Without a NoteBlobStore (notes.blob.enabled is false, the default) every body stays inline.
+ */
+@Component
+public class NoteBodyStore {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final NoteBlobStore blobStore;
+    private final int thresholdBytes;
+    private final Cache<String, String> cache;
+    private final Counter stored;
+    private final Counter deduplicated;
+
+    @Autowired
+    public NoteBodyStore(@Nullable NoteBlobStore blobStore, MeterRegistry meterRegistry,
+                         @Value("${notes.blob.thresholdBytes:4096}") int thresholdBytes,
+                         @Value("${notes.blob.cache.maxWeightBytes:16777216}") long cacheMaxWeightBytes) {
+        this.blobStore = blobStore;
+        this.thresholdBytes = thresholdBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxWeightBytes)
+                // Strings hold two bytes per char
+                .weigher((String hash, String content) -> content.length() * 2)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "noteBodies");
+        this.stored = meterRegistry.counter("notes.blob.writes", "result", "stored");
+        this.deduplicated = meterRegistry.counter("notes.blob.writes", "result", "deduplicated");
+    }
+
+    /**
+     * Stores the record's content in the blob store if it is longer than the threshold, replacing it in the
+     * record with its hash.
+     *
+     * @return the hash the record now holds a reference to, or null if the content stays inline
+     */
+    public String externalize(NoteRecord record) {
+        String content = record.getContent();
+        if (content == null || blobStore == null) {
+            return null;
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= thresholdBytes) {
+            return null;
+        }
+        String hash = sha256(bytes);
+        (blobStore.retain(hash, bytes) ? stored : deduplicated).increment();
+        cache.put(hash, content);
+        record.setContent(null);
+        record.setContentHash(hash);
+        return hash;
+    }
+
+    /**
+     * @return the record's content, read from the blob store if it only holds a hash
+     * @throws IllegalStateException if the blob the record points at is missing
+     */
+    public String contentOf(NoteRecord record) {
+        String hash = record.getContentHash();
+        if (hash == null) {
+            return record.getContent();
+        }
+        if (blobStore == null) {
+            throw new IllegalStateException("Note " + record.getNoteId() + " has its body in a blob, but no note "
+                    + "blob store is configured");
+        }
+        String content = cache.get(hash, key -> {
+            byte[] bytes = blobStore.get(key);
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        });
+        if (content == null) {
+            throw new IllegalStateException("Missing blob " + hash + " for note " + record.getNoteId());
+        }
+        return content;
+    }
+
+    // gives back a reference taken by externalize; null is ignored
+    public void release(String hash) {
+        if (hash != null && blobStore != null) {
+            blobStore.release(hash);
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
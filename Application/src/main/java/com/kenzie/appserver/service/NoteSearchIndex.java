@@ -0,0 +1,414 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.service.model.Note;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory inverted index of every note's id and content, so a user's notes can be searched without reading
+ * the Note table.
+ *
+ * The index is partitioned by userId: each user has their own term dictionary, and each term maps to a posting
+ * list of that user's notes, varint-encoded as doc-id gaps and term counts. Results are ranked with BM25.
+ * NoteService keeps the index current with {@link #put(Note)} and {@link #remove(String)} on every write; a
+ * parallel scan of the Note table rebuilds it at start-up and then on a fixed delay to pick up notes written by
+ * other instances. A note whose body cannot be read is left out of the rebuilt index, logged and counted in
+ * notes.search.rebuild.skipped, rather than failing the whole rebuild.
+ */
+@Component
+public class NoteSearchIndex {
+    private static final Logger log = LoggerFactory.getLogger(NoteSearchIndex.class);
+    private static final int SCAN_PAGE_SIZE = 500;
+    private static final int MAX_TERM_LENGTH = 64;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // BM25 term-frequency saturation and length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final NoteRepository noteRepository;
+    private final NoteBodyStore bodyStore;
+    private final int segments;
+    private final Counter skipped;
+
+    private final Object lock = new Object();
+    private volatile Index index = new Index();
+    // changes made while a rebuild is scanning, by noteId; replayed over the fresh index before it is published
+    private Map<String, Optional<IndexedNote>> pendingUpdates;
+
+    @Autowired
+    public NoteSearchIndex(NoteRepository noteRepository, NoteBodyStore bodyStore, MeterRegistry meterRegistry,
+                           @Value("${notes.search.segments:4}") int segments) {
+        this.noteRepository = noteRepository;
+        this.bodyStore = bodyStore;
+        this.segments = segments;
+        this.skipped = meterRegistry.counter("notes.search.rebuild.skipped");
+    }
+
+    /**
+     * Up to limit of the user's note ids that contain any of the query's terms, best match first.
+     */
+    public List<String> search(String userId, String query, int limit) {
+        UserIndex userIndex = index.users.get(userId);
+        if (userIndex == null || query == null) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>(termFrequencies(query).keySet());
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        synchronized (userIndex) {
+            return userIndex.search(terms, limit);
+        }
+    }
+
+    /**
+     * Indexes the note, replacing whatever was indexed under its noteId before.
+     */
+    public void put(Note note) {
+        IndexedNote indexed = IndexedNote.of(note.getNoteId(), note.getUserId(), note.getContent());
+        synchronized (lock) {
+            index.put(indexed);
+            if (pendingUpdates != null) {
+                pendingUpdates.put(indexed.noteId, Optional.of(indexed));
+            }
+        }
+    }
+
+    public void remove(String noteId) {
+        synchronized (lock) {
+            index.remove(noteId);
+            if (pendingUpdates != null) {
+                pendingUpdates.put(noteId, Optional.empty());
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${notes.search.initialDelayMillis:0}",
+            fixedDelayString = "${notes.search.refreshIntervalMillis:3600000}")
+    public void rebuild() {
+        synchronized (lock) {
+            if (pendingUpdates != null) {
+                return; // a rebuild is already running
+            }
+            pendingUpdates = new HashMap<>();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(segments, runnable -> {
+            Thread thread = new Thread(runnable, "note-search-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Index fresh = new Index();
+            List<Future<?>> results = new ArrayList<>();
+            for (int segment = 0; segment < segments; segment++) {
+                int currentSegment = segment;
+                results.add(executor.submit(() -> scanSegment(currentSegment, fresh)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            synchronized (lock) {
+                for (Map.Entry<String, Optional<IndexedNote>> update : pendingUpdates.entrySet()) {
+                    if (update.getValue().isPresent()) {
+                        fresh.put(update.getValue().get());
+                    } else {
+                        fresh.remove(update.getKey());
+                    }
+                }
+                index = fresh;
+            }
+            log.info("Note search index rebuilt for {} notes of {} users", fresh.owners.size(), fresh.users.size());
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.warn("Note search index rebuild failed", e);
+        } finally {
+            executor.shutdownNow();
+            synchronized (lock) {
+                pendingUpdates = null;
+            }
+        }
+    }
+
+    private void scanSegment(int segment, Index fresh) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<NoteRecord> page = noteRepository.findSegmentPage(segment, segments, SCAN_PAGE_SIZE, startKey);
+            for (NoteRecord record : page.getRecords()) {
+                String content;
+                try {
+                    content = bodyStore.contentOf(record);
+                } catch (RuntimeException e) {
+                    log.warn("Leaving note {} out of the search index: its body could not be read",
+                            record.getNoteId(), e);
+                    skipped.increment();
+                    continue;
+                }
+                IndexedNote indexed = IndexedNote.of(record.getNoteId(), record.getUserId(), content);
+                synchronized (fresh) {
+                    fresh.put(indexed);
+                }
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+
+    // lower-cased letter and digit runs, with how often each occurs
+    static Map<String, Integer> termFrequencies(String text) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        if (text == null) {
+            return frequencies;
+        }
+        for (String token : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            String term = token.length() > MAX_TERM_LENGTH ? token.substring(0, MAX_TERM_LENGTH) : token;
+            frequencies.merge(term, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    /**
+     * A note's terms, counted once outside the lock.
+     */
+    private static final class IndexedNote {
+        private final String noteId;
+        private final String userId;
+        private final Map<String, Integer> termFrequencies;
+        private final int length;
+
+        private IndexedNote(String noteId, String userId, Map<String, Integer> termFrequencies, int length) {
+            this.noteId = noteId;
+            this.userId = userId;
+            this.termFrequencies = termFrequencies;
+            this.length = length;
+        }
+
+        // the noteId is searched too: the notes page uses it as the note's title
+        private static IndexedNote of(String noteId, String userId, String content) {
+            Map<String, Integer> frequencies = termFrequencies(noteId);
+            termFrequencies(content).forEach((term, count) -> frequencies.merge(term, count, Integer::sum));
+            int length = 0;
+            for (int count : frequencies.values()) {
+                length += count;
+            }
+            return new IndexedNote(noteId, userId, frequencies, length);
+        }
+    }
+
+    /**
+     * Every user's index. Changed by one thread at a time; a {@link UserIndex} is also locked while it is changed
+     * or searched.
+     */
+    private static final class Index {
+        private final Map<String, UserIndex> users = new ConcurrentHashMap<>();
+        // the user each indexed note belongs to
+        private final Map<String, String> owners = new HashMap<>();
+
+        private void put(IndexedNote note) {
+            if (note.noteId == null || note.userId == null) {
+                return;
+            }
+            remove(note.noteId);
+            UserIndex userIndex = users.computeIfAbsent(note.userId, userId -> new UserIndex());
+            synchronized (userIndex) {
+                userIndex.put(note);
+            }
+            owners.put(note.noteId, note.userId);
+        }
+
+        private void remove(String noteId) {
+            String userId = owners.remove(noteId);
+            if (userId == null) {
+                return;
+            }
+            UserIndex userIndex = users.get(userId);
+            synchronized (userIndex) {
+                userIndex.remove(noteId);
+                if (userIndex.docIds.isEmpty()) {
+                    users.remove(userId);
+                }
+            }
+        }
+    }
+
+    private static final class UserIndex {
+        private final Map<String, PostingList> postings = new HashMap<>();
+        private final Map<String, Integer> docIds = new HashMap<>();
+        private final Map<Integer, Document> documents = new HashMap<>();
+        // doc ids are never reused, so every posting list only ever appends
+        private int nextDocId;
+        private long totalLength;
+
+        private void put(IndexedNote note) {
+            int docId = nextDocId++;
+            docIds.put(note.noteId, docId);
+            documents.put(docId, new Document(note.noteId,
+                    note.termFrequencies.keySet().toArray(new String[0]), note.length));
+            totalLength += note.length;
+            for (Map.Entry<String, Integer> term : note.termFrequencies.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), key -> new PostingList()).append(docId, term.getValue());
+            }
+        }
+
+        private void remove(String noteId) {
+            Integer docId = docIds.remove(noteId);
+            if (docId == null) {
+                return;
+            }
+            Document document = documents.remove(docId);
+            totalLength -= document.length;
+            for (String term : document.terms) {
+                PostingList list = postings.get(term);
+                list.remove(docId);
+                if (list.size == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+
+        private List<String> search(List<String> terms, int limit) {
+            int noteCount = documents.size();
+            double averageLength = noteCount == 0 ? 0 : (double) totalLength / noteCount;
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                PostingList list = postings.get(term);
+                if (list == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (noteCount - list.size + 0.5) / (list.size + 0.5));
+                list.forEach((docId, frequency) -> {
+                    double lengthRatio = documents.get(docId).length / averageLength;
+                    double score = idf * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengthRatio));
+                    scores.merge(docId, score, Double::sum);
+                });
+            }
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore
+                        : documents.get(a.getKey()).noteId.compareTo(documents.get(b.getKey()).noteId);
+            });
+            List<String> noteIds = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (Map.Entry<Integer, Double> entry : ranked) {
+                if (noteIds.size() == limit) {
+                    break;
+                }
+                noteIds.add(documents.get(entry.getKey()).noteId);
+            }
+            return noteIds;
+        }
+    }
+
+    private static final class Document {
+        private final String noteId;
+        // the posting lists the note is on
+        private final String[] terms;
+        private final int length;
+
+        private Document(String noteId, String[] terms, int length) {
+            this.noteId = noteId;
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+
+    /**
+     * The notes a term occurs in, by ascending doc id, each stored as two varints: the gap from the previous
+     * doc id and the term's count in that note.
+     */
+    private static final class PostingList {
+        private byte[] bytes = new byte[8];
+        private int length;
+        private int size;
+        private int lastDocId;
+
+        private void append(int docId, int frequency) {
+            writeVarint(docId - lastDocId);
+            writeVarint(frequency);
+            lastDocId = docId;
+            size++;
+        }
+
+        private void remove(int docId) {
+            byte[] old = bytes;
+            int oldLength = length;
+            bytes = new byte[Math.max(8, oldLength)];
+            length = 0;
+            size = 0;
+            lastDocId = 0;
+            decode(old, oldLength, (id, frequency) -> {
+                if (id != docId) {
+                    append(id, frequency);
+                }
+            });
+        }
+
+        private void forEach(PostingConsumer consumer) {
+            decode(bytes, length, consumer);
+        }
+
+        private static void decode(byte[] data, int dataLength, PostingConsumer consumer) {
+            int[] position = {0};
+            int docId = 0;
+            while (position[0] < dataLength) {
+                docId += readVarint(data, position);
+                consumer.accept(docId, readVarint(data, position));
+            }
+        }
+
+        private void writeVarint(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private static int readVarint(byte[] data, int[] position) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position[0]++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+    }
+
+    private interface PostingConsumer {
+        void accept(int docId, int frequency);
+    }
+}
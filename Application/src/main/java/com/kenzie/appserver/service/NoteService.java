@@ -1,15 +1,22 @@
 package com.kenzie.appserver.service;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.kenzie.appserver.exception.NoteNotFoundException;
+import com.kenzie.appserver.exception.VersionConflictException;
 import com.kenzie.appserver.repositories.MemberRepository;
 import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.converter.PageCursorConverter;
 import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
 import com.kenzie.appserver.service.model.Note;
+import com.kenzie.appserver.service.model.NotePage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Service
@@ -18,10 +25,20 @@ public class NoteService {
     private NoteRepository noteRepository;
     @Autowired
     private MemberRepository memberRepository;
+    @Autowired
+    private NoteSearchIndex searchIndex;
+    @Autowired
+    private NoteWriteCoalescer writeCoalescer;
+    @Autowired
+    private NoteBodyStore bodyStore;
 
-    public NoteService(NoteRepository noteRepository, MemberRepository memberRepository) {
+    public NoteService(NoteRepository noteRepository, MemberRepository memberRepository,
+                       NoteSearchIndex searchIndex, NoteWriteCoalescer writeCoalescer, NoteBodyStore bodyStore) {
         this.noteRepository = noteRepository;
         this.memberRepository = memberRepository;
+        this.searchIndex = searchIndex;
+        this.writeCoalescer = writeCoalescer;
+        this.bodyStore = bodyStore;
     }
 
     public boolean doesNoteExist(String noteId) {
@@ -34,36 +51,63 @@ public class NoteService {
 //        return userById.isPresent();
 //    }
 
+    /**
+     * Stores the note unless its noteId is taken, with one conditional put. A long body is stored in the
+     * NoteBodyStore first and given back if the put does not happen.
+     *
+     * @return the new note, or the note already stored under its noteId - which may belong to another user
+     */
     public Note createNote(Note note) {
-
-        // Check if the study group already exists
-        Note existingNote = getExistingNote(note);
-        if (existingNote != null) {
-            // If the study group exists, return it
-            return existingNote;
-        }
-        // add to the repo
         NoteRecord record = buildNoteRecord(note);
-        noteRepository.save(record);
-        return buildNote(record);
+        String hash = bodyStore.externalize(record);
+        Optional<NoteRecord> existing;
+        try {
+            existing = noteRepository.saveIfAbsent(record);
+        } catch (RuntimeException e) {
+            bodyStore.release(hash);
+            throw e;
+        }
+        if (existing.isPresent()) {
+            bodyStore.release(hash);
+            return buildNote(existing.get());
+        }
+        Note created = buildNote(record);
+        searchIndex.put(created);
+        return created;
     }
 
+    // the user's note with the same noteId, or null
     public Note getExistingNote(Note note) {
-        Iterable<NoteRecord> records = noteRepository.findAll();
-        List<Note> allNotes = new ArrayList<>();
-        if (records != null) {
-            for (NoteRecord record : records) {
-                Note studyNote = buildNote(record);
-                allNotes.add(studyNote);
-            }
+        Optional<NoteRecord> record = noteRepository.findById(note.getNoteId());
+        if (record.isPresent() && record.get().getUserId().equals(note.getUserId())) {
+            return buildNote(record.get());
         }
-        for (Note existingNote : allNotes) {
-            if (existingNote.getNoteId().equals(note.getNoteId())
-                    && existingNote.getUserId().equals(note.getUserId())) {
-                return existingNote;
+        return null;
+    }
+
+    /**
+     * Returns one page of the user's notes, most recently updated first, read with a single query on the
+     * UserIdIndex.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is not one this service produced
+     */
+    public NotePage getNotesForUser(String userId, String cursor, int limit) {
+        PageCursorConverter cursorConverter = new PageCursorConverter();
+        Map<String, AttributeValue> startKey = cursorConverter.unconvert(cursor);
+        if (startKey != null) {
+            if (!startKey.containsKey("NoteId") || startKey.get("NoteId").getS() == null
+                    || !startKey.containsKey("UpdatedDateTime") || startKey.get("UpdatedDateTime").getS() == null) {
+                throw new IllegalArgumentException("Invalid page cursor");
             }
+            startKey.put("UserId", new AttributeValue().withS(userId));
         }
-        return null;
+        RecordPage<NoteRecord> page = noteRepository.findPageByUserId(userId, limit, startKey);
+        List<Note> notes = new ArrayList<>(page.getRecords().size());
+        for (NoteRecord record : page.getRecords()) {
+            notes.add(buildNote(record));
+        }
+        return new NotePage(notes, cursorConverter.convert(page.getLastEvaluatedKey()));
     }
 
     private NoteRecord buildNoteRecord(Note note) {        ;
@@ -78,12 +122,17 @@ public class NoteService {
 
     private Note buildNote(NoteRecord record) {
         Note note = new Note(record.getNoteId(), record.getUserId(),
-                record.getContent(), record.getCreatedDateTime(),
-                record.getUpdatedDateTime());
+                bodyStore.contentOf(record), record.getCreatedDateTime(),
+                record.getUpdatedDateTime(), record.getVersion());
         return note;
     }
 
+    // an edit still waiting in the write coalescer wins over the stored note
     public Note findByNoteId(String noteId) {
+        Note pending = writeCoalescer.get(noteId);
+        if (pending != null) {
+            return pending;
+        }
         Optional<NoteRecord> noteById = noteRepository.findById(noteId);
         if(noteById.isEmpty()) {
             return null;
@@ -93,22 +142,53 @@ public class NoteService {
         return buildNote(noteRecord);
     }
 
-    public void updateNote(Note note) {
-        Optional<NoteRecord> existingNote = noteRepository.findById(note.getNoteId());
-        if (existingNote.isEmpty()) {
-            throw new NoteNotFoundException("Note not found for noteId: " + note.getNoteId());
-        }
-        // Update the properties of the existing note with the new values
-        NoteRecord noteRecord = existingNote.get();
-        noteRecord.setNoteId(note.getNoteId());
-        noteRecord.setUserId(note.getUserId());
-        noteRecord.setContent(note.getContent());
-        noteRecord.setCreatedDateTime(note.getCreatedDateTime());
-        noteRecord.setUpdatedDateTime(note.getUpdatedDateTime());
-        noteRepository.save(noteRecord);
+    /**
+     * Hands the edit to the write coalescer, which writes the first edit of a burst straight away and the latest
+     * of the rest once, without reading the note. The note's version, if set, must be the one the client last
+     * saw: the stored version, or while an edit is pending the version that edit will be written as. A missing
+     * creation date is kept from the stored note.
+     *
+     * @return the note as it is or will be written, with the version it has or will have
+     * @throws NoteNotFoundException if the note does not exist
+     * @throws VersionConflictException if the note's version is not the current one
+     */
+    public Note updateNote(Note note) {
+        Note saved = writeCoalescer.save(note);
+        searchIndex.put(saved);
+        return saved;
     }
 
+    // the note is read first for the blob its body may be in, which is released with it
     public void deleteNote(String noteId) {
-        noteRepository.deleteById(noteId);
+        writeCoalescer.discard(noteId);
+        noteRepository.findById(noteId).ifPresent(record -> {
+            noteRepository.delete(record);
+            bodyStore.release(record.getContentHash());
+        });
+        searchIndex.remove(noteId);
+    }
+
+    /**
+     * Up to limit of the user's notes matching any word of the query, best match first. The matches come from
+     * the in-memory search index; only the matching notes are read, with one batch get.
+     */
+    public List<Note> searchNotes(String userId, String query, int limit) {
+        List<String> noteIds = searchIndex.search(userId, query, limit);
+        if (noteIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, NoteRecord> records = new HashMap<>();
+        for (NoteRecord record : noteRepository.findAllById(noteIds)) {
+            records.put(record.getNoteId(), record);
+        }
+        List<Note> notes = new ArrayList<>(noteIds.size());
+        for (String noteId : noteIds) {
+            NoteRecord record = records.get(noteId);
+            // the index can briefly trail writes made by another instance
+            if (record != null && userId.equals(record.getUserId())) {
+                notes.add(buildNote(record));
+            }
+        }
+        return notes;
     }
 }
@@ -0,0 +1,396 @@
+package com.kenzie.appserver.service;
+
+import com.kenzie.appserver.exception.NoteNotFoundException;
+import com.kenzie.appserver.exception.VersionConflictException;
+import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.service.model.Note;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds note edits for a short window so a burst of autosaves to one note costs two DynamoDB writes and no reads.
+ *
+ * The first edit to a note is written straight away with one UpdateItem, conditioned on the note existing and, if
+ * the edit names the version it was based on, on that version still being stored; that write tells the caller
+ * whether the note is missing or was changed since. It opens a window: later edits within it replace the pending
+ * version in memory, checked against the version the coalescer knows, and are written with one more UpdateItem
+ * when the window closes. For each note the coalescer keeps the version it last wrote alongside the pending edit,
+ * and every flush is conditioned on that written version, so a note deleted or changed elsewhere meanwhile is not
+ * overwritten. An edit made while a flush is writing the one before it is given the version after, and is written
+ * by the next flush.
+ *
+ * A long body goes to the NoteBodyStore first, and the blob the note pointed at before is released once the write
+ * has succeeded. A failed flush is retried after another window, up to MAX_FLUSH_ATTEMPTS times, after which the
+ * edits are dropped. As a failed write may have landed all the same, the retry first reads the note consistently:
+ * if the note holds that write it counts as written and the blob it replaced is released; its own blob reference
+ * is only given back if it does not.
+ * Until then {@link #get(String)} returns the pending version, which NoteService serves to reads. Everything
+ * pending is flushed on shutdown.
+ *
+ * Counts flushes in notes.autosave.flushes by result: written, conflict, failed and dropped.
+ */
+@Component
+public class NoteWriteCoalescer {
+    private static final Logger log = LoggerFactory.getLogger(NoteWriteCoalescer.class);
+    private static final int MAX_FLUSH_ATTEMPTS = 5;
+
+    private final NoteRepository noteRepository;
+    private final NoteBodyStore bodyStore;
+    private final Duration window;
+    private final Map<String, PendingEdit> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final Counter written;
+    private final Counter conflicts;
+    private final Counter failed;
+    private final Counter dropped;
+
+    @Autowired
+    public NoteWriteCoalescer(NoteRepository noteRepository, NoteBodyStore bodyStore, MeterRegistry meterRegistry,
+                              @Value("${notes.autosave.window:PT2S}") Duration window) {
+        this.noteRepository = noteRepository;
+        this.bodyStore = bodyStore;
+        this.window = window;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "note-autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.written = meterRegistry.counter("notes.autosave.flushes", "result", "written");
+        this.conflicts = meterRegistry.counter("notes.autosave.flushes", "result", "conflict");
+        this.failed = meterRegistry.counter("notes.autosave.flushes", "result", "failed");
+        this.dropped = meterRegistry.counter("notes.autosave.flushes", "result", "dropped");
+    }
+
+    /**
+     * Checks an edit against the note's current version and writes or queues it. The edit's version, if set, must
+     * be the one the client last saw: the stored version, or while an edit is pending the version that edit will
+     * be written as. Within a window the check and the queueing are one step with respect to other edits and
+     * flushes of the note. A missing creation date is kept from the current note.
+     *
+     * @return the note as it is or will be written, with the version it has or will have
+     * @throws NoteNotFoundException if the note does not exist
+     * @throws VersionConflictException if the edit's version is not the current one
+     */
+    public Note save(Note note) {
+        Note queued = queue(note);
+        return queued != null ? queued : writeThrough(note);
+    }
+
+    // the edit as queued, or null if no window is open for the note
+    private Note queue(Note note) {
+        String noteId = note.getNoteId();
+        Note[] queued = new Note[1];
+        pending.computeIfPresent(noteId, (id, current) -> {
+            Note latest = current.latest;
+            if (note.getVersion() != null && !note.getVersion().equals(latest.getVersion())) {
+                throw new VersionConflictException("Version conflict for note " + noteId, latest.getVersion());
+            }
+            Note edit = copy(note);
+            if (edit.getCreatedDateTime() == null) {
+                edit.setCreatedDateTime(latest.getCreatedDateTime());
+            }
+            // an edit made while the pending one is being written, or may have been, is written after it
+            edit.setVersion(Math.max(latest.getVersion(),
+                    current.writtenVersion + (current.writing() ? 2 : 1)));
+            queued[0] = edit;
+            return current.with(edit);
+        });
+        return queued[0] == null ? null : copy(queued[0]);
+    }
+
+    // writes the first edit of a burst and opens the window for the ones after it
+    private Note writeThrough(Note note) {
+        String noteId = note.getNoteId();
+        NoteRecord record = buildNoteRecord(note);
+        String hash = bodyStore.externalize(record);
+        Optional<NoteRecord> previous;
+        try {
+            previous = noteRepository.updateNote(record, note.getVersion());
+        } catch (VersionConflictException e) {
+            bodyStore.release(hash);
+            throw e;
+        } catch (RuntimeException e) {
+            releaseUnlessStored(noteId, hash);
+            throw e;
+        }
+        if (previous.isEmpty()) {
+            bodyStore.release(hash);
+            throw new NoteNotFoundException("Note not found for noteId: " + noteId);
+        }
+        bodyStore.release(previous.get().getContentHash());
+        // a note written before it had a version counts as version 0
+        long version = (previous.get().getVersion() == null ? 0 : previous.get().getVersion()) + 1;
+        Note saved = copy(note);
+        if (saved.getCreatedDateTime() == null) {
+            saved.setCreatedDateTime(previous.get().getCreatedDateTime());
+        }
+        saved.setVersion(version);
+        boolean[] opened = new boolean[1];
+        pending.compute(noteId, (id, current) -> {
+            // another edit made at the same moment may have opened the window already
+            if (current != null && (current.dirty || current.writing() || current.writtenVersion > version)) {
+                return current;
+            }
+            opened[0] = current == null;
+            return new PendingEdit(copy(saved), version, hash, false, false, 0, null, null);
+        });
+        if (opened[0]) {
+            schedule(noteId);
+        }
+        return saved;
+    }
+
+    // after a write that failed without telling whether it landed; a blob the note may point at is kept
+    private void releaseUnlessStored(String noteId, String hash) {
+        if (hash == null) {
+            return;
+        }
+        try {
+            Optional<NoteRecord> stored = noteRepository.findCurrent(noteId);
+            if (stored.isEmpty() || !hash.equals(stored.get().getContentHash())) {
+                bodyStore.release(hash);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not tell whether note {} points at blob {}; keeping the reference", noteId, hash, e);
+        }
+    }
+
+    // the latest version while a window is open, or null
+    public Note get(String noteId) {
+        PendingEdit edit = pending.get(noteId);
+        return edit == null ? null : copy(edit.latest);
+    }
+
+    /**
+     * Drops the note's unwritten edits, for a note that is being deleted.
+     */
+    public void discard(String noteId) {
+        pending.remove(noteId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            // lets a flush in progress finish before the same notes are flushed here
+            scheduler.awaitTermination(window.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (String noteId : new ArrayList<>(pending.keySet())) {
+            flush(noteId);
+        }
+    }
+
+    void flush(String noteId) {
+        // a window that closes with nothing to write just ends
+        PendingEdit flushing = pending.computeIfPresent(noteId,
+                (id, edit) -> edit.dirty || edit.uncertain != null ? edit.flushing(true) : null);
+        if (flushing == null) {
+            return;
+        }
+        if (flushing.uncertain != null) {
+            try {
+                flushing = settle(noteId, flushing);
+            } catch (RuntimeException e) {
+                retry(noteId, flushing.uncertain, flushing.uncertainHash, e);
+                return;
+            }
+            if (flushing == null) {
+                return;
+            }
+        }
+        long expectedVersion = flushing.writtenVersion;
+        String hash = null;
+        try {
+            NoteRecord record = buildNoteRecord(flushing.latest);
+            hash = bodyStore.externalize(record);
+            Optional<NoteRecord> previous = noteRepository.updateNote(record, expectedVersion);
+            if (previous.isPresent()) {
+                bodyStore.release(previous.get().getContentHash());
+                written.increment();
+                finish(noteId, flushing.latest, expectedVersion + 1, hash);
+            } else {
+                log.info("Dropped pending edits to note {}, which was deleted", noteId);
+                bodyStore.release(hash);
+                pending.remove(noteId);
+            }
+        } catch (VersionConflictException e) {
+            // another instance wrote the note since this one read or wrote it
+            log.warn("Dropped pending edits to note {}, now at version {}", noteId, e.getCurrentVersion());
+            conflicts.increment();
+            bodyStore.release(hash);
+            pending.remove(noteId);
+        } catch (RuntimeException e) {
+            // the write may have landed: the next attempt reads the note to find out before writing again
+            retry(noteId, flushing.latest, hash, e);
+        }
+    }
+
+    /**
+     * Settles a write that failed without telling whether it landed, by reading the note consistently. If the
+     * note holds that write, the written version moves past it; a pending edit made since is written after it.
+     *
+     * @return the edit to write now, or null if nothing is left to write
+     */
+    private PendingEdit settle(String noteId, PendingEdit flushing) {
+        Optional<NoteRecord> stored = noteRepository.findCurrent(noteId);
+        if (stored.isEmpty()) {
+            log.info("Dropped pending edits to note {}, which was deleted", noteId);
+            bodyStore.release(flushing.uncertainHash);
+            pending.remove(noteId);
+            return null;
+        }
+        long storedVersion = stored.get().getVersion() == null ? 0 : stored.get().getVersion();
+        if (storedVersion == flushing.writtenVersion + 1 && holds(stored.get(), flushing)) {
+            written.increment();
+            // the note pointed at what this coalescer wrote before, which the failed write replaced
+            bodyStore.release(flushing.writtenHash);
+            String hash = flushing.uncertainHash;
+            long version = storedVersion;
+            Note landed = flushing.uncertain;
+            PendingEdit rest = pending.computeIfPresent(noteId, (id, edit) ->
+                    edit.latest == landed && edit.latest.getVersion() == version
+                            ? null
+                            : new PendingEdit(edit.latest, version, hash, true, edit.flushing, 0, null, null));
+            return rest == null || !rest.flushing ? null : rest;
+        }
+        bodyStore.release(flushing.uncertainHash);
+        if (storedVersion != flushing.writtenVersion) {
+            log.warn("Dropped pending edits to note {}, now at version {}", noteId, storedVersion);
+            conflicts.increment();
+            pending.remove(noteId);
+            return null;
+        }
+        return pending.computeIfPresent(noteId, (id, edit) ->
+                new PendingEdit(edit.latest, edit.writtenVersion, edit.writtenHash, true, edit.flushing, edit.failures,
+                        null, null));
+    }
+
+    // whether the stored note has the body of the write that may have failed
+    private static boolean holds(NoteRecord stored, PendingEdit flushing) {
+        if (flushing.uncertainHash != null) {
+            return flushing.uncertainHash.equals(stored.getContentHash());
+        }
+        return stored.getContentHash() == null && Objects.equals(stored.getContent(), flushing.uncertain.getContent());
+    }
+
+    // records the written version and flushes again if an edit arrived during the write
+    private void finish(String noteId, Note flushed, long version, String hash) {
+        PendingEdit rest = pending.computeIfPresent(noteId, (id, edit) ->
+                edit.latest == flushed && edit.latest.getVersion() == version
+                        ? null
+                        : new PendingEdit(edit.latest, version, hash, true, false, 0, null, null));
+        if (rest != null) {
+            schedule(noteId);
+        }
+    }
+
+    // attempted and hash describe a write that may have landed; they are kept until a read settles it
+    private void retry(String noteId, Note attempted, String hash, RuntimeException e) {
+        failed.increment();
+        PendingEdit edit = pending.computeIfPresent(noteId, (id, current) ->
+                new PendingEdit(current.latest, current.writtenVersion, current.writtenHash, current.dirty, false,
+                        current.failures + 1, attempted, hash));
+        if (edit == null) {
+            // discarded for a delete, which releases the reference the note holds, whichever it is
+            return;
+        }
+        if (edit.failures < MAX_FLUSH_ATTEMPTS) {
+            log.warn("Could not write pending edits to note {}; retrying", noteId, e);
+            schedule(noteId);
+        } else if (pending.remove(noteId, edit)) {
+            // a blob the last attempt may have left the note pointing at stays referenced
+            log.error("Dropped pending edits to note {} after {} failed writes", noteId, edit.failures, e);
+            dropped.increment();
+        } else {
+            // edited meanwhile: the new edit gets one more attempt
+            schedule(noteId);
+        }
+    }
+
+    private void schedule(String noteId) {
+        try {
+            scheduler.schedule(() -> flush(noteId), window.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // shutting down: shutdown() flushes what is left
+        }
+    }
+
+    private static NoteRecord buildNoteRecord(Note note) {
+        NoteRecord record = new NoteRecord();
+        record.setNoteId(note.getNoteId());
+        record.setUserId(note.getUserId());
+        record.setContent(note.getContent());
+        record.setCreatedDateTime(note.getCreatedDateTime());
+        record.setUpdatedDateTime(note.getUpdatedDateTime());
+        return record;
+    }
+
+    // Note is mutable; callers never share the pending instance
+    private static Note copy(Note note) {
+        return new Note(note.getNoteId(), note.getUserId(), note.getContent(), note.getCreatedDateTime(),
+                note.getUpdatedDateTime(), note.getVersion());
+    }
+
+    // replaced, never changed, so a flush can tell whether the edit it wrote is still the latest
+    private static final class PendingEdit {
+        private final Note latest;
+        // the stored version the next write is conditioned on
+        private final long writtenVersion;
+        // the blob the stored note points at as of that version, or null for an inline body
+        private final String writtenHash;
+        // latest is not written yet
+        private final boolean dirty;
+        private final boolean flushing;
+        private final int failures;
+        // the edit of a failed write that may have landed all the same, and the blob reference it took
+        private final Note uncertain;
+        private final String uncertainHash;
+
+        private PendingEdit(Note latest, long writtenVersion, String writtenHash, boolean dirty, boolean flushing,
+                            int failures, Note uncertain, String uncertainHash) {
+            this.latest = latest;
+            this.writtenVersion = writtenVersion;
+            this.writtenHash = writtenHash;
+            this.dirty = dirty;
+            this.flushing = flushing;
+            this.failures = failures;
+            this.uncertain = uncertain;
+            this.uncertainHash = uncertainHash;
+        }
+
+        private PendingEdit flushing(boolean flushing) {
+            return new PendingEdit(latest, writtenVersion, writtenHash, dirty, flushing, failures, uncertain,
+                    uncertainHash);
+        }
+
+        private PendingEdit with(Note latest) {
+            return new PendingEdit(latest, writtenVersion, writtenHash, true, flushing, failures, uncertain,
+                    uncertainHash);
+        }
+
+        // a write in progress or one that may have landed comes before any edit made now
+        private boolean writing() {
+            return flushing || uncertain != null;
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.config.CacheSnapshotFile;
+import com.kenzie.appserver.config.CacheStore;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import com.kenzie.appserver.service.model.StudyGroup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills the study group cache before the instance takes traffic, so the first users after a deploy
+ * do not each pay a DynamoDB read.
+ *
+ * Runs on ApplicationReadyEvent, which Spring Boot publishes before it reports the instance ready; until the
+ * warm-up finishes this indicator also keeps /actuator/health OUT_OF_SERVICE.
+ *
+ * When a recent on-disk snapshot of the cache exists it is loaded in one sequential read and the instance is
+ * ready straight away; the restored groups are then reconciled against DynamoDB in the background by paced batch
+ * gets of just their keys, which refresh them and drop the ones deleted since. Without a snapshot the table is read with a
+ * parallel segmented scan, one segment per thread of a fixed-size pool, which stops at the time budget or after
+ * maxEntries groups, whichever comes first. The snapshot is rewritten periodically and on shutdown.
+ */
+@Component
+public class StudyGroupCacheWarmer implements HealthIndicator {
+    private static final Logger log = LoggerFactory.getLogger(StudyGroupCacheWarmer.class);
+    private static final int SCAN_PAGE_SIZE = 500;
+    // BatchGetItem takes up to 100 keys
+    private static final int RECONCILE_BATCH_SIZE = 100;
+
+    private final StudyGroupRepository studyGroupRepository;
+    private final CacheStore cache;
+    private final boolean enabled;
+    private final int segments;
+    private final Duration budget;
+    private final int maxEntries;
+    private final CacheSnapshotFile snapshotFile;
+    private final Duration snapshotMaxAge;
+    private final Duration reconcilePause;
+    private final AtomicInteger loadedEntries = new AtomicInteger();
+    private final Timer duration;
+
+    private volatile WarmUpReport report;
+
+    @Autowired
+    public StudyGroupCacheWarmer(StudyGroupRepository studyGroupRepository, CacheStore cache,
+                                 @Nullable CacheSnapshotFile snapshotFile, MeterRegistry meterRegistry,
+                                 @Value("${studygroup.cache.warmup.enabled:true}") boolean enabled,
+                                 @Value("${studygroup.cache.warmup.segments:4}") int segments,
+                                 @Value("${studygroup.cache.warmup.budget:PT30S}") Duration budget,
+                                 @Value("${studygroup.cache.warmup.maxEntries:20000}") int maxEntries,
+                                 @Value("${studygroup.cache.snapshot.maxAge:PT1H}") Duration snapshotMaxAge,
+                                 @Value("${studygroup.cache.snapshot.reconcilePause:PT0.2S}") Duration reconcilePause) {
+        this.studyGroupRepository = studyGroupRepository;
+        this.cache = cache;
+        this.snapshotFile = snapshotFile;
+        this.enabled = enabled;
+        this.segments = segments;
+        this.budget = budget;
+        this.maxEntries = maxEntries;
+        this.snapshotMaxAge = snapshotMaxAge;
+        this.reconcilePause = reconcilePause;
+        meterRegistry.gauge("cache.warmup.entries", loadedEntries);
+        this.duration = Timer.builder("cache.warmup.duration").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            report = new WarmUpReport(0, 0, true);
+            return;
+        }
+        CacheSnapshotFile.Snapshot snapshot = restoreSnapshot();
+        if (snapshot == null) {
+            warmUp();
+            return;
+        }
+        Thread reconciler = new Thread(() -> reconcile(snapshot), "cache-snapshot-reconcile");
+        reconciler.setDaemon(true);
+        reconciler.start();
+    }
+
+    /**
+     * Loads the on-disk snapshot into the local cache.
+     *
+     * @return the snapshot, or null if there is none usable (nothing is loaded)
+     */
+    public CacheSnapshotFile.Snapshot restoreSnapshot() {
+        if (snapshotFile == null) {
+            return null;
+        }
+        long start = System.nanoTime();
+        CacheSnapshotFile.Snapshot snapshot;
+        try {
+            snapshot = snapshotFile.read(snapshotMaxAge.toMillis());
+        } catch (IOException e) {
+            log.warn("Could not read study group cache snapshot {}", snapshotFile.getPath(), e);
+            return null;
+        }
+        if (snapshot == null || snapshot.getStudyGroups().isEmpty()) {
+            return null;
+        }
+        for (StudyGroup studyGroup : snapshot.getStudyGroups()) {
+            cache.addLocal(studyGroup.getGroupId(), studyGroup);
+        }
+        loadedEntries.set(snapshot.getStudyGroups().size());
+        long elapsedNanos = System.nanoTime() - start;
+        duration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        report = new WarmUpReport(loadedEntries.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), true);
+        log.info("Study group cache restored {} groups from the snapshot written at {} in {} ms",
+                report.getLoadedEntries(), snapshot.getWrittenAt(), report.getDurationMillis());
+        return snapshot;
+    }
+
+    /**
+     * Brings groups restored from a snapshot up to date: each one is replaced by its copy read from the table,
+     * and restored groups that are no longer in the table are dropped. Only the restored keys are read, with
+     * BatchGetItem calls of up to 100 keys and a pause in between, so the cost follows the size of the snapshot
+     * rather than of the table and does not spike read capacity right after a deploy. Groups that were not in
+     * the snapshot were not hot before the restart and are left to be loaded on demand.
+     *
+     * An entry is only replaced or dropped while it is still the restored copy: one that was added, reloaded or
+     * evicted in the meantime is newer than this batch get may be, and is left alone. Until its batch is
+     * reconciled a restored group is served as it was when the snapshot was written, which is what
+     * snapshot.maxAge bounds.
+     */
+    public void reconcile(CacheSnapshotFile.Snapshot snapshot) {
+        List<String> groupIds = new ArrayList<>(snapshot.getStudyGroups().size());
+        Map<String, StudyGroup> restored = new HashMap<>();
+        for (StudyGroup studyGroup : snapshot.getStudyGroups()) {
+            groupIds.add(studyGroup.getGroupId());
+            restored.put(studyGroup.getGroupId(), studyGroup);
+        }
+        int refreshed = 0;
+        int dropped = 0;
+        try {
+            for (int from = 0; from < groupIds.size(); from += RECONCILE_BATCH_SIZE) {
+                if (from > 0) {
+                    Thread.sleep(reconcilePause.toMillis());
+                }
+                List<String> batch = groupIds.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, groupIds.size()));
+                Map<String, StudyGroup> unseen = new HashMap<>();
+                batch.forEach(groupId -> unseen.put(groupId, restored.get(groupId)));
+                for (StudyGroupRecord record : studyGroupRepository.findAllById(new ArrayList<>(batch))) {
+                    StudyGroup restoredGroup = unseen.remove(record.getGroupId());
+                    if (restoredGroup != null
+                            && cache.replaceLocal(record.getGroupId(), restoredGroup, buildStudyGroup(record))) {
+                        refreshed++;
+                    }
+                }
+                // a batch get answers every key it was given, so what is left was deleted
+                unseen.forEach(cache::evictLocal);
+                dropped += unseen.size();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            // the groups not reconciled yet still refresh and expire on their own
+            log.warn("Study group cache snapshot reconcile failed after {} groups", refreshed + dropped, e);
+            return;
+        }
+        log.info("Study group cache snapshot reconciled: {} groups refreshed, {} deleted groups dropped",
+                refreshed, dropped);
+    }
+
+    @Scheduled(initialDelayString = "${studygroup.cache.snapshot.intervalMillis:300000}",
+            fixedDelayString = "${studygroup.cache.snapshot.intervalMillis:300000}")
+    @PreDestroy
+    public void writeSnapshot() {
+        // before the warm-up finishes the cache holds less than the snapshot on disk
+        if (snapshotFile == null || report == null) {
+            return;
+        }
+        try {
+            snapshotFile.write(cache.localEntries());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write study group cache snapshot {}", snapshotFile.getPath(), e);
+        }
+    }
+
+    public WarmUpReport warmUp() {
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(segments, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int segment = 0; segment < segments; segment++) {
+            int currentSegment = segment;
+            results.add(executor.submit(() -> scanSegment(currentSegment, deadline, stop)));
+        }
+        executor.shutdown();
+
+        boolean complete;
+        try {
+            complete = executor.awaitTermination(budget.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            complete = false;
+        }
+        if (!complete) {
+            stop.set(true);
+            executor.shutdownNow();
+        }
+        complete = complete && allSegmentsFinished(results);
+
+        long elapsedNanos = System.nanoTime() - start;
+        duration.record(elapsedNanos, TimeUnit.NANOSECONDS);
+        report = new WarmUpReport(loadedEntries.get(), TimeUnit.NANOSECONDS.toMillis(elapsedNanos), complete);
+        log.info("Study group cache warm-up loaded {} groups in {} ms{}", report.getLoadedEntries(),
+                report.getDurationMillis(), complete ? "" : " (stopped early: time budget, entry limit or error)");
+        return report;
+    }
+
+    @Override
+    public Health health() {
+        WarmUpReport current = report;
+        if (current == null) {
+            return Health.outOfService().withDetail("cacheWarmUp", "running").build();
+        }
+        return Health.up()
+                .withDetail("loadedEntries", current.getLoadedEntries())
+                .withDetail("durationMillis", current.getDurationMillis())
+                .withDetail("complete", current.isComplete())
+                .build();
+    }
+
+    // returns true if the segment was read to the end
+    private boolean scanSegment(int segment, long deadline, AtomicBoolean stop) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            if (stop.get() || System.nanoTime() > deadline || loadedEntries.get() >= maxEntries) {
+                return false;
+            }
+            RecordPage<StudyGroupRecord> page = studyGroupRepository.findSegmentPage(segment, segments,
+                    SCAN_PAGE_SIZE, startKey);
+            for (StudyGroupRecord record : page.getRecords()) {
+                if (loadedEntries.incrementAndGet() > maxEntries) {
+                    loadedEntries.decrementAndGet();
+                    return false;
+                }
+                cache.addLocal(record.getGroupId(), buildStudyGroup(record));
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+        return true;
+    }
+
+    private static StudyGroup buildStudyGroup(StudyGroupRecord record) {
+        return new StudyGroup(record.getGroupId(), record.getGroupName(),
+                record.getDiscussionTopic(), record.getCreationDate(),
+                record.isActive(), record.getVersion());
+    }
+
+    private static boolean allSegmentsFinished(List<Future<Boolean>> results) {
+        boolean finished = true;
+        for (Future<Boolean> result : results) {
+            try {
+                finished &= result.get();
+            } catch (ExecutionException e) {
+                log.warn("Study group cache warm-up segment failed", e.getCause());
+                finished = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return finished;
+    }
+
+    public static class WarmUpReport {
+        private final int loadedEntries;
+        private final long durationMillis;
+        private final boolean complete;
+
+        public WarmUpReport(int loadedEntries, long durationMillis, boolean complete) {
+            this.loadedEntries = loadedEntries;
+            this.durationMillis = durationMillis;
+            this.complete = complete;
+        }
+
+        public int getLoadedEntries() {
+            return loadedEntries;
+        }
+
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        // false when the budget, the entry limit or an error cut the scan short
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+}
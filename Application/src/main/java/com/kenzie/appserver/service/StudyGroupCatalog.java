@@ -0,0 +1,160 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import com.kenzie.appserver.service.model.StudyGroup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory snapshot of every study group, ordered by groupId, used to serve GET /v1/groups pages
+ * without touching DynamoDB.
+ *
+ * The snapshot is built by a paged scan in the background (at start-up and then on a fixed delay to pick up
+ * changes made by other instances) and is kept current between rebuilds by StudyGroupService calling
+ * {@link #put(StudyGroup)} / {@link #remove(String)} on every create, update and delete.
+ * Until the first rebuild finishes, or if the table grows past the configured maximum, {@link #isLoaded()}
+ * is false and callers page straight from DynamoDB instead.
+ */
+@Component
+public class StudyGroupCatalog {
+    private static final Logger log = LoggerFactory.getLogger(StudyGroupCatalog.class);
+    private static final int SCAN_PAGE_SIZE = 500;
+
+    private final StudyGroupRepository studyGroupRepository;
+    private final int maxSize;
+
+    private final Object lock = new Object();
+    private volatile ConcurrentSkipListMap<String, StudyGroup> groups = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded;
+    // mutations that happen while a rebuild is scanning; replayed over the fresh snapshot before it is published
+    private Map<String, Optional<StudyGroup>> pendingMutations;
+
+    @Autowired
+    public StudyGroupCatalog(StudyGroupRepository studyGroupRepository,
+                             @Value("${studygroup.catalog.maxSize:50000}") int maxSize) {
+        this.studyGroupRepository = studyGroupRepository;
+        this.maxSize = maxSize;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Returns up to limit groups whose id sorts after afterGroupId (from the start when null).
+     */
+    public List<StudyGroup> page(String afterGroupId, int limit) {
+        NavigableMap<String, StudyGroup> tail = afterGroupId == null ? groups : groups.tailMap(afterGroupId, false);
+        List<StudyGroup> page = new ArrayList<>(limit);
+        for (StudyGroup group : tail.values()) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(copyOf(group));
+        }
+        return page;
+    }
+
+    public boolean hasGroupsAfter(String groupId) {
+        return groups.higherKey(groupId) != null;
+    }
+
+    public void put(StudyGroup studyGroup) {
+        StudyGroup copy = copyOf(studyGroup);
+        synchronized (lock) {
+            groups.put(copy.getGroupId(), copy);
+            if (pendingMutations != null) {
+                pendingMutations.put(copy.getGroupId(), Optional.of(copy));
+            }
+        }
+    }
+
+    public void remove(String groupId) {
+        if (groupId == null) {
+            return;
+        }
+        synchronized (lock) {
+            groups.remove(groupId);
+            if (pendingMutations != null) {
+                pendingMutations.put(groupId, Optional.empty());
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${studygroup.catalog.initialDelayMillis:0}",
+            fixedDelayString = "${studygroup.catalog.refreshIntervalMillis:900000}")
+    public void rebuild() {
+        synchronized (lock) {
+            if (pendingMutations != null) {
+                return; // a rebuild is already running
+            }
+            pendingMutations = new HashMap<>();
+        }
+        try {
+            ConcurrentSkipListMap<String, StudyGroup> fresh = new ConcurrentSkipListMap<>();
+            Map<String, AttributeValue> startKey = null;
+            do {
+                RecordPage<StudyGroupRecord> page = studyGroupRepository.findPage(SCAN_PAGE_SIZE, startKey);
+                for (StudyGroupRecord record : page.getRecords()) {
+                    fresh.put(record.getGroupId(), buildStudyGroup(record));
+                }
+                if (fresh.size() > maxSize) {
+                    log.warn("Study group catalog disabled: more than {} groups", maxSize);
+                    synchronized (lock) {
+                        groups = new ConcurrentSkipListMap<>();
+                        loaded = false;
+                        pendingMutations = null;
+                    }
+                    return;
+                }
+                startKey = page.getLastEvaluatedKey();
+            } while (startKey != null && !startKey.isEmpty());
+
+            synchronized (lock) {
+                for (Map.Entry<String, Optional<StudyGroup>> mutation : pendingMutations.entrySet()) {
+                    if (mutation.getValue().isPresent()) {
+                        fresh.put(mutation.getKey(), mutation.getValue().get());
+                    } else {
+                        fresh.remove(mutation.getKey());
+                    }
+                }
+                groups = fresh;
+                loaded = true;
+                pendingMutations = null;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Study group catalog rebuild failed", e);
+            synchronized (lock) {
+                pendingMutations = null;
+            }
+        }
+    }
+
+    private static StudyGroup buildStudyGroup(StudyGroupRecord record) {
+        return new StudyGroup(record.getGroupId(), record.getGroupName(),
+                record.getDiscussionTopic(), record.getCreationDate(),
+                record.isActive(), record.getVersion());
+    }
+
+    // callers mutate StudyGroup instances (see StudyGroupController.updateStudyGroup), so never share ours
+    private static StudyGroup copyOf(StudyGroup group) {
+        return new StudyGroup(group.getGroupId(), group.getGroupName(),
+                group.getDiscussionTopic(), group.getCreationDate(),
+                group.isActive(), group.getVersion());
+    }
+}
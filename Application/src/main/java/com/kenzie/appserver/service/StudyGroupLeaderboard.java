@@ -0,0 +1,237 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.service.model.StudyGroupRating;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The best-rated study groups of every discussion topic, held in memory so the leaderboard is served without
+ * touching DynamoDB.
+ *
+ * Each topic keeps a bounded ranking, highest average rating first, of the groups with at least minReviews reviews.
+ * It holds a few times more groups than are ever shown, so a leader whose average drops is replaced by the next
+ * group without a rescan. StudyGroupReviewService keeps the rankings current with {@link #update(StudyGroupRating)}
+ * on every review and {@link #remove(String)} when a group's reviews are deleted; a parallel scan of the rating
+ * totals rebuilds them at start-up and then on a fixed delay to pick up reviews taken by other instances.
+ */
+@Component
+public class StudyGroupLeaderboard {
+    private static final Logger log = LoggerFactory.getLogger(StudyGroupLeaderboard.class);
+    private static final int SCAN_PAGE_SIZE = 500;
+    // groups kept per topic, as a multiple of the groups shown
+    private static final int RESERVE_FACTOR = 4;
+
+    // highest average first, then most reviewed, then by groupId
+    static final Comparator<StudyGroupRating> RANKING = Comparator
+            .comparingDouble(StudyGroupRating::getAverageRating).reversed()
+            .thenComparing(Comparator.comparingLong(StudyGroupRating::getReviewCount).reversed())
+            .thenComparing(StudyGroupRating::getGroupId);
+
+    private final StudyGroupRatingRepository ratingRepository;
+    private final int size;
+    private final long minReviews;
+    private final int segments;
+
+    private final Object lock = new Object();
+    private volatile Rankings rankings;
+    // updates that happen while a rebuild is scanning; replayed over the fresh rankings before they are published
+    private Map<String, Optional<StudyGroupRating>> pendingUpdates;
+
+    @Autowired
+    public StudyGroupLeaderboard(StudyGroupRatingRepository ratingRepository,
+                                 @Value("${studygroup.leaderboard.size:10}") int size,
+                                 @Value("${studygroup.leaderboard.minReviews:3}") long minReviews,
+                                 @Value("${studygroup.leaderboard.segments:4}") int segments) {
+        this.ratingRepository = ratingRepository;
+        this.size = size;
+        this.minReviews = minReviews;
+        this.segments = segments;
+        this.rankings = new Rankings(size * RESERVE_FACTOR);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Up to limit of the topic's best-rated groups, best first. Never reads DynamoDB.
+     */
+    public List<StudyGroupRating> top(String discussionTopic, int limit) {
+        TopicRanking ranking = rankings.topics.get(discussionTopic);
+        if (ranking == null) {
+            return Collections.emptyList();
+        }
+        List<StudyGroupRating> leaders = ranking.leaders;
+        return leaders.size() <= limit ? leaders : leaders.subList(0, limit);
+    }
+
+    /**
+     * Re-ranks the group with its latest totals.
+     */
+    public void update(StudyGroupRating rating) {
+        synchronized (lock) {
+            rankings.put(rating, minReviews, size);
+            if (pendingUpdates != null) {
+                pendingUpdates.put(rating.getGroupId(), Optional.of(rating));
+            }
+        }
+    }
+
+    public void remove(String groupId) {
+        synchronized (lock) {
+            rankings.remove(groupId, size);
+            if (pendingUpdates != null) {
+                pendingUpdates.put(groupId, Optional.empty());
+            }
+        }
+    }
+
+    @Scheduled(initialDelayString = "${studygroup.leaderboard.initialDelayMillis:0}",
+            fixedDelayString = "${studygroup.leaderboard.refreshIntervalMillis:900000}")
+    public void rebuild() {
+        synchronized (lock) {
+            if (pendingUpdates != null) {
+                return; // a rebuild is already running
+            }
+            pendingUpdates = new HashMap<>();
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(segments, runnable -> {
+            Thread thread = new Thread(runnable, "leaderboard-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Rankings>> results = new ArrayList<>();
+            for (int segment = 0; segment < segments; segment++) {
+                int currentSegment = segment;
+                results.add(executor.submit(() -> scanSegment(currentSegment)));
+            }
+            // each segment's rankings are bounded the same way, so merging them keeps every overall leader
+            Rankings fresh = new Rankings(size * RESERVE_FACTOR);
+            for (Future<Rankings> result : results) {
+                for (TopicRanking ranking : result.get().topics.values()) {
+                    for (StudyGroupRating rating : ranking.ranked) {
+                        fresh.put(rating, minReviews, size);
+                    }
+                }
+            }
+            synchronized (lock) {
+                for (Map.Entry<String, Optional<StudyGroupRating>> update : pendingUpdates.entrySet()) {
+                    if (update.getValue().isPresent()) {
+                        fresh.put(update.getValue().get(), minReviews, size);
+                    } else {
+                        fresh.remove(update.getKey(), size);
+                    }
+                }
+                rankings = fresh;
+            }
+            log.info("Study group leaderboard rebuilt for {} topics", fresh.topics.size());
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            log.warn("Study group leaderboard rebuild failed", e);
+        } finally {
+            executor.shutdownNow();
+            synchronized (lock) {
+                pendingUpdates = null;
+            }
+        }
+    }
+
+    private Rankings scanSegment(int segment) {
+        Rankings segmentRankings = new Rankings(size * RESERVE_FACTOR);
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupRatingRecord> page = ratingRepository.findSegmentPage(segment, segments,
+                    SCAN_PAGE_SIZE, startKey);
+            for (StudyGroupRatingRecord record : page.getRecords()) {
+                segmentRankings.put(buildStudyGroupRating(record), minReviews, size);
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+        return segmentRankings;
+    }
+
+    private static StudyGroupRating buildStudyGroupRating(StudyGroupRatingRecord record) {
+        return new StudyGroupRating(record.getGroupId(), record.getGroupName(), record.getDiscussionTopic(),
+                record.getReviewCount(), record.getRatingSum(), record.getHistogram());
+    }
+
+    /**
+     * The rankings of every topic. Changed by one thread at a time; {@link TopicRanking#leaders} may be read
+     * concurrently.
+     */
+    private static final class Rankings {
+        private final int capacity;
+        private final Map<String, TopicRanking> topics = new ConcurrentHashMap<>();
+        // the topic each ranked group is on
+        private final Map<String, String> groupTopics = new HashMap<>();
+
+        private Rankings(int capacity) {
+            this.capacity = capacity;
+        }
+
+        private void put(StudyGroupRating rating, long minReviews, int size) {
+            remove(rating.getGroupId(), size);
+            if (rating.getDiscussionTopic() == null || rating.getReviewCount() < minReviews) {
+                return;
+            }
+            TopicRanking ranking = topics.computeIfAbsent(rating.getDiscussionTopic(), topic -> new TopicRanking());
+            ranking.ranked.add(rating);
+            groupTopics.put(rating.getGroupId(), rating.getDiscussionTopic());
+            if (ranking.ranked.size() > capacity) {
+                groupTopics.remove(ranking.ranked.pollLast().getGroupId());
+            }
+            ranking.publish(size);
+        }
+
+        private void remove(String groupId, int size) {
+            String topic = groupTopics.remove(groupId);
+            if (topic == null) {
+                return;
+            }
+            TopicRanking ranking = topics.get(topic);
+            ranking.ranked.removeIf(rating -> rating.getGroupId().equals(groupId));
+            ranking.publish(size);
+        }
+    }
+
+    private static final class TopicRanking {
+        private final TreeSet<StudyGroupRating> ranked = new TreeSet<>(RANKING);
+        // an immutable copy of the first size groups of ranked, replaced on every change
+        private volatile List<StudyGroupRating> leaders = Collections.emptyList();
+
+        private void publish(int size) {
+            List<StudyGroupRating> top = new ArrayList<>(Math.min(size, ranked.size()));
+            for (StudyGroupRating rating : ranked) {
+                if (top.size() == size) {
+                    break;
+                }
+                top.add(rating);
+            }
+            leaders = Collections.unmodifiableList(top);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupNameRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Claims the (groupName, discussionTopic) marker of every study group that was created before the markers
+ * existed, so renames and creates are checked against their names too.
+ *
+ * A one-off job, off by default: set studygroup.nameBackfill.enabled=true for a single deploy and it runs in the
+ * background once that start-up is done, then set it back to false, since every run scans the whole table. A run
+ * is a paged scan of the groups, one BatchGetItem per page for the markers already there, and a conditional put
+ * only for the pairs nobody holds, so running it again is safe and costs reads only. Pairs held by another group
+ * are duplicates from before the markers; they are logged and counted, and left for someone to rename.
+ */
+@Component
+public class StudyGroupNameBackfill {
+    private static final Logger log = LoggerFactory.getLogger(StudyGroupNameBackfill.class);
+    private static final int SCAN_PAGE_SIZE = 100;
+
+    private final StudyGroupRepository studyGroupRepository;
+    private final boolean enabled;
+    private final Counter claimed;
+    private final Counter duplicates;
+
+    @Autowired
+    public StudyGroupNameBackfill(StudyGroupRepository studyGroupRepository, MeterRegistry meterRegistry,
+                                  @Value("${studygroup.nameBackfill.enabled:false}") boolean enabled) {
+        this.studyGroupRepository = studyGroupRepository;
+        this.enabled = enabled;
+        this.claimed = meterRegistry.counter("studygroup.names.backfill", "result", "claimed");
+        this.duplicates = meterRegistry.counter("studygroup.names.backfill", "result", "duplicate");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread backfill = new Thread(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.warn("Study group name backfill stopped; it starts over when next enabled", e);
+            }
+        }, "study-group-name-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    void backfill() {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupRecord> page = studyGroupRepository.findPage(SCAN_PAGE_SIZE, startKey);
+            Set<String> nameTopicKeys = new HashSet<>();
+            for (StudyGroupRecord record : page.getRecords()) {
+                nameTopicKeys.add(StudyGroupNameRecord.nameTopicKey(record.getGroupName(),
+                        record.getDiscussionTopic()));
+            }
+            Map<String, String> owners = studyGroupRepository.findGroupIdsByNameKeys(nameTopicKeys);
+            for (StudyGroupRecord record : page.getRecords()) {
+                String nameTopicKey = StudyGroupNameRecord.nameTopicKey(record.getGroupName(),
+                        record.getDiscussionTopic());
+                String owner = owners.get(nameTopicKey);
+                if (record.getGroupId().equals(owner)) {
+                    continue;
+                }
+                if (owner == null && studyGroupRepository.claimName(record.getGroupId(), record.getGroupName(),
+                        record.getDiscussionTopic())) {
+                    owners.put(nameTopicKey, record.getGroupId());
+                    claimed.increment();
+                } else {
+                    log.warn("Study group {} shares its name and topic with study group {}", record.getGroupId(),
+                            owner == null ? studyGroupRepository.findGroupIdByName(record.getGroupName(),
+                                    record.getDiscussionTopic()).orElse("unknown") : owner);
+                    duplicates.increment();
+                }
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+}
@@ -0,0 +1,98 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import com.kenzie.appserver.service.model.StudyGroupRating;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts the rating totals of every group that was reviewed before the totals existed, so the topic rating
+ * query, which reads only the totals, does not leave those groups out.
+ *
+ * A one-off job, off by default: set studygroup.review.ratingBackfill.enabled=true for a single deploy and it runs
+ * in the background once that start-up is done, then set it back to false. A run is a paged scan of the groups,
+ * one BatchGetItem per page for the totals already there, and for each group without totals a rebuild from its
+ * reviews ({@link StudyGroupReviewService#getStudyGroupRating(String)}), which stores them if the group has any.
+ * Running it again is safe, but still costs the scan plus one Query per group that was never reviewed.
+ */
+@Component
+public class StudyGroupRatingBackfill {
+    private static final Logger log = LoggerFactory.getLogger(StudyGroupRatingBackfill.class);
+    private static final int SCAN_PAGE_SIZE = 100;
+
+    private final StudyGroupRepository studyGroupRepository;
+    private final StudyGroupRatingRepository ratingRepository;
+    private final StudyGroupReviewService reviewService;
+    private final boolean enabled;
+    private final Counter rebuilt;
+
+    @Autowired
+    public StudyGroupRatingBackfill(StudyGroupRepository studyGroupRepository,
+                                    StudyGroupRatingRepository ratingRepository,
+                                    StudyGroupReviewService reviewService, MeterRegistry meterRegistry,
+                                    @Value("${studygroup.review.ratingBackfill.enabled:false}") boolean enabled) {
+        this.studyGroupRepository = studyGroupRepository;
+        this.ratingRepository = ratingRepository;
+        this.reviewService = reviewService;
+        this.enabled = enabled;
+        this.rebuilt = meterRegistry.counter("studygroup.ratings.backfill", "result", "rebuilt");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        Thread backfill = new Thread(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.warn("Study group rating backfill stopped; it starts over when next enabled", e);
+            }
+        }, "study-group-rating-backfill");
+        backfill.setDaemon(true);
+        backfill.start();
+    }
+
+    void backfill() {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupRecord> page = studyGroupRepository.findPage(SCAN_PAGE_SIZE, startKey);
+            List<String> groupIds = new ArrayList<>(page.getRecords().size());
+            for (StudyGroupRecord record : page.getRecords()) {
+                groupIds.add(record.getGroupId());
+            }
+            Set<String> counted = new HashSet<>();
+            for (StudyGroupRatingRecord totals : ratingRepository.findAllById(groupIds)) {
+                counted.add(totals.getGroupId());
+            }
+            for (String groupId : groupIds) {
+                if (!counted.contains(groupId)) {
+                    StudyGroupRating rating = reviewService.getStudyGroupRating(groupId);
+                    if (rating.getReviewCount() > 0) {
+                        rebuilt.increment();
+                    }
+                }
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+}
@@ -0,0 +1,254 @@
+package com.kenzie.appserver.service;
+
+import com.kenzie.appserver.exception.ReviewQueueFullException;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import com.kenzie.appserver.service.model.ReviewBatchResult;
+import com.kenzie.appserver.service.model.StudyGroupReview;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind mode for review submission, on when studygroup.review.ingestion.enabled is true.
+ *
+ * Reviews are validated in the request and put on a bounded queue; a single drainer thread takes whatever has
+ * queued up (up to batchSize at a time) and hands it to {@link StudyGroupReviewService#persistReviews(List)},
+ * which batch-writes the reviews and applies one rating-total update per group. A review is therefore readable
+ * shortly after the request returns, not when it returns. When the queue is full a submit waits up to the offer
+ * timeout and then fails with {@link ReviewQueueFullException}. Reviews left unwritten by a flush are queued
+ * again, up to MAX_ATTEMPTS times. A group's rating delta that could not be added to its totals after its
+ * reviews were written is kept apart and applied again on the drainer's next turns, also up to MAX_ATTEMPTS
+ * times, without writing the reviews again. Both queues are flushed on shutdown.
+ *
+ * Publishes studygroup.review.ingestion.queue.depth, the studygroup.review.ingestion.flush timer, the
+ * studygroup.review.ingestion.reviews counter (result=written|rejected|dropped) and the
+ * studygroup.review.ingestion.ratings counter of rating deltas (result=failed|dropped).
+ */
+@Component
+public class StudyGroupReviewIngestion {
+    private static final Logger log = LoggerFactory.getLogger(StudyGroupReviewIngestion.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long POLL_MILLIS = 200;
+
+    private final StudyGroupReviewService reviewService;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration offerTimeout;
+    private final BlockingQueue<PendingReview> queue;
+    private final Timer flushTimer;
+    private final Counter written;
+    private final Counter rejected;
+    private final Counter dropped;
+    private final Queue<PendingRatings> uncountedRatings = new ConcurrentLinkedQueue<>();
+    private final Counter ratingsFailed;
+    private final Counter ratingsDropped;
+
+    private volatile boolean running;
+    private Thread drainer;
+
+    @Autowired
+    public StudyGroupReviewIngestion(StudyGroupReviewService reviewService, MeterRegistry meterRegistry,
+                                     @Value("${studygroup.review.ingestion.enabled:false}") boolean enabled,
+                                     @Value("${studygroup.review.ingestion.capacity:10000}") int capacity,
+                                     @Value("${studygroup.review.ingestion.batchSize:100}") int batchSize,
+                                     @Value("${studygroup.review.ingestion.offerTimeout:PT0.1S}") Duration offerTimeout) {
+        this.reviewService = reviewService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.offerTimeout = offerTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        meterRegistry.gauge("studygroup.review.ingestion.queue.depth", queue, BlockingQueue::size);
+        this.flushTimer = meterRegistry.timer("studygroup.review.ingestion.flush");
+        this.written = meterRegistry.counter("studygroup.review.ingestion.reviews", "result", "written");
+        this.rejected = meterRegistry.counter("studygroup.review.ingestion.reviews", "result", "rejected");
+        this.dropped = meterRegistry.counter("studygroup.review.ingestion.reviews", "result", "dropped");
+        this.ratingsFailed = meterRegistry.counter("studygroup.review.ingestion.ratings", "result", "failed");
+        this.ratingsDropped = meterRegistry.counter("studygroup.review.ingestion.ratings", "result", "dropped");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drain, "review-ingestion");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    /**
+     * Validates the review and queues it to be written.
+     *
+     * @return the review's id
+     * @throws ReviewQueueFullException if the queue stays full for the offer timeout
+     */
+    public String submit(StudyGroupReview review) {
+        reviewService.validateReview(review);
+        StudyGroupReviewRecord record = reviewService.getStudyGroupReviewRecord(review);
+        boolean queued;
+        try {
+            queued = queue.offer(new PendingReview(record), offerTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            rejected.increment();
+            throw new ReviewQueueFullException("Too many reviews are waiting to be saved; try again shortly");
+        }
+        return record.getReviewId();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (drainer != null) {
+            drainer.interrupt();
+            try {
+                drainer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // whatever the drainer did not get to
+        while (flushNext(0)) {
+            // keep flushing until the queue is empty
+        }
+        while (!uncountedRatings.isEmpty()) {
+            retryRatings();
+        }
+    }
+
+    private void drain() {
+        while (running) {
+            try {
+                retryRatings();
+                flushNext(POLL_MILLIS);
+            } catch (RuntimeException e) {
+                log.warn("Review ingestion flush failed", e);
+            }
+        }
+    }
+
+    /**
+     * Takes up to batchSize queued reviews, waiting up to waitMillis for the first, and persists them.
+     *
+     * @return false if there was nothing to flush
+     */
+    boolean flushNext(long waitMillis) {
+        PendingReview first;
+        try {
+            first = waitMillis > 0 ? queue.poll(waitMillis, TimeUnit.MILLISECONDS) : queue.poll();
+        } catch (InterruptedException e) {
+            // shutdown() flushes the rest
+            return false;
+        }
+        if (first == null) {
+            return false;
+        }
+        List<PendingReview> batch = new ArrayList<>(batchSize);
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+
+        List<StudyGroupReviewRecord> records = new ArrayList<>(batch.size());
+        for (PendingReview pending : batch) {
+            records.add(pending.record);
+        }
+        long start = System.nanoTime();
+        ReviewBatchResult result = reviewService.persistReviews(records);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        List<StudyGroupReviewRecord> unwritten = result.getUnwritten();
+        written.increment(records.size() - unwritten.size());
+
+        for (PendingReview pending : batch) {
+            if (unwritten.contains(pending.record)) {
+                retry(pending);
+            }
+        }
+        for (StudyGroupRatingRecord delta : result.getUncountedRatings()) {
+            ratingsFailed.increment();
+            uncountedRatings.add(new PendingRatings(delta, 1));
+        }
+        return true;
+    }
+
+    /**
+     * Applies each rating delta left uncounted by an earlier flush once more.
+     */
+    void retryRatings() {
+        for (int remaining = uncountedRatings.size(); remaining > 0; remaining--) {
+            PendingRatings pending = uncountedRatings.poll();
+            if (pending == null) {
+                return;
+            }
+            try {
+                reviewService.applyRatingDelta(pending.delta);
+            } catch (RuntimeException e) {
+                ratingsFailed.increment();
+                if (pending.attempts + 1 < MAX_ATTEMPTS) {
+                    uncountedRatings.add(new PendingRatings(pending.delta, pending.attempts + 1));
+                } else {
+                    ratingsDropped.increment();
+                    log.error("Dropped {} reviews (rating sum {}) from the rating totals of group {} "
+                            + "after {} attempts", pending.delta.getReviewCount(), pending.delta.getRatingSum(),
+                            pending.delta.getGroupId(), pending.attempts + 1, e);
+                }
+            }
+        }
+    }
+
+    private void retry(PendingReview pending) {
+        if (pending.attempts + 1 < MAX_ATTEMPTS && queue.offer(new PendingReview(pending.record, pending.attempts + 1))) {
+            return;
+        }
+        dropped.increment();
+        log.warn("Dropped review {} for group {} after {} attempts", pending.record.getReviewId(),
+                pending.record.getGroupId(), pending.attempts + 1);
+    }
+
+    private static final class PendingRatings {
+        private final StudyGroupRatingRecord delta;
+        private final int attempts;
+
+        private PendingRatings(StudyGroupRatingRecord delta, int attempts) {
+            this.delta = delta;
+            this.attempts = attempts;
+        }
+    }
+
+    private static final class PendingReview {
+        private final StudyGroupReviewRecord record;
+        private final int attempts;
+
+        private PendingReview(StudyGroupReviewRecord record) {
+            this(record, 0);
+        }
+
+        private PendingReview(StudyGroupReviewRecord record, int attempts) {
+            this.record = record;
+            this.attempts = attempts;
+        }
+    }
+}
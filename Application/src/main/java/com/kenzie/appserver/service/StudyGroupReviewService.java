@@ -1,44 +1,95 @@
 package com.kenzie.appserver.service;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.xspec.S;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.kenzie.appserver.controller.model.GroupReviewResponse;
 import com.kenzie.appserver.controller.model.StudyGroupReviewResponse;
 import com.kenzie.appserver.exception.ReviewNotFoundException;
+import com.kenzie.appserver.repositories.BatchWriter;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
 import com.kenzie.appserver.repositories.StudyGroupReviewRepository;
+import com.kenzie.appserver.repositories.converter.PageCursorConverter;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
 import com.kenzie.appserver.repositories.model.StudyGroupReviewId;
 import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import com.kenzie.appserver.service.model.ReviewBatchResult;
+import com.kenzie.appserver.service.model.StudyGroupCommentPage;
+import com.kenzie.appserver.service.model.StudyGroupRating;
+import com.kenzie.appserver.service.model.StudyGroupRatingPage;
 import com.kenzie.appserver.service.model.StudyGroupReview;
+import com.kenzie.appserver.service.model.StudyGroupReviewPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 public class StudyGroupReviewService {
+    private static final Logger log = LoggerFactory.getLogger(StudyGroupReviewService.class);
+    private static final String AVERAGE_RATING_CURSOR = "AverageRating";
+    private static final String GROUP_ID_CURSOR = "GroupId";
+    private static final String REVIEW_ID_CURSOR = "ReviewId";
+    private static final String DISCUSSION_TOPIC_CURSOR = "DiscussionTopic";
+    // reviews read per Query while streaming
+    private static final int STREAM_PAGE_SIZE = 100;
+    private static final int MAX_CACHED_TOPICS = 1000;
+
    @Autowired
     private StudyGroupReviewRepository reviewRepository;
-
-    public StudyGroupReviewService(StudyGroupReviewRepository reviewRepository) {
+    @Autowired
+    private StudyGroupRatingRepository ratingRepository;
+    @Autowired
+    private BatchWriter batchWriter;
+    @Autowired
+    private StudyGroupLeaderboard leaderboard;
+    // each topic's reviewed groups, best average first, so the pages of one listing share a single Query
+    private final Cache<String, List<StudyGroupRating>> topicRatings;
+
+    public StudyGroupReviewService(StudyGroupReviewRepository reviewRepository,
+                                   StudyGroupRatingRepository ratingRepository, BatchWriter batchWriter,
+                                   StudyGroupLeaderboard leaderboard,
+                                   @Value("${studygroup.review.topicRatings.expireAfterWrite:PT10S}")
+                                           Duration topicRatingsExpireAfterWrite) {
         this.reviewRepository = reviewRepository;
+        this.ratingRepository = ratingRepository;
+        this.batchWriter = batchWriter;
+        this.leaderboard = leaderboard;
+        this.topicRatings = Caffeine.newBuilder()
+                .maximumSize(MAX_CACHED_TOPICS)
+                .expireAfterWrite(topicRatingsExpireAfterWrite)
+                .build();
     }
 
+    /**
+     * Stores the review and counts it in its group's rating totals in one transaction. Submitting a reviewId that
+     * is already stored leaves both unchanged and reports the group's current average.
+     */
     public StudyGroupReview submitStudyGroupReview(StudyGroupReview review) {
-        if (review == null) {
-            throw new ReviewNotFoundException("Review cannot be null");
-        }
-        if (review.getRating() < 1 || review.getRating() > 5) {
-            throw new ReviewNotFoundException("Rating must be between 1 and 5");
-        }
-        if (review.getReviewComments() == null || review.getReviewComments().isEmpty()) {
-            throw new ReviewNotFoundException("Comments cannot be empty");
-        }
-
-        StudyGroupReviewId reviewId = new StudyGroupReviewId(review.getGroupId(), review.getReviewId());
+        validateReview(review);
 
         StudyGroupReviewRecord record = getStudyGroupReviewRecord(review);
-        reviewRepository.save(record);
-
-        double averageRating = calculateAverageRating(review.getGroupId());
+        StudyGroupRatingRecord delta = new StudyGroupRatingRecord();
+        delta.setGroupId(record.getGroupId());
+        delta.setGroupName(record.getGroupName());
+        delta.setDiscussionTopic(record.getDiscussionTopic());
+        delta.add(record.getRating());
+        Optional<StudyGroupRatingRecord> totals = ratingRepository.addReview(record, delta);
+        double averageRating;
+        if (totals.isPresent()) {
+            averageRating = rerank(delta, totals.get()).getAverageRating();
+        } else {
+            log.info("Review {} of group {} was already submitted; not counting it again", record.getReviewId(),
+                    record.getGroupId());
+            averageRating = getStudyGroupRating(record.getGroupId()).getAverageRating();
+        }
 
         StudyGroupReview groupReview = new StudyGroupReview();
         groupReview.setGroupId(record.getGroupId());
@@ -53,15 +104,106 @@ public class StudyGroupReviewService {
 
 
     }
+    /**
+     * @throws ReviewNotFoundException if the review is missing, its rating is outside 1-5 or it has no comments
+     */
+    public void validateReview(StudyGroupReview review) {
+        if (review == null) {
+            throw new ReviewNotFoundException("Review cannot be null");
+        }
+        if (review.getRating() < 1 || review.getRating() > 5) {
+            throw new ReviewNotFoundException("Rating must be between 1 and 5");
+        }
+        if (review.getReviewComments() == null || review.getReviewComments().isEmpty()) {
+            throw new ReviewNotFoundException("Comments cannot be empty");
+        }
+    }
+
+    /**
+     * Writes already validated reviews with BatchWriteItem, then adds the ones written to their groups' rating
+     * totals with one update per group. Used by the write-behind ingestion. A group whose totals cannot be
+     * updated does not stop the others; its delta comes back in the result to be applied again with
+     * {@link #applyRatingDelta(StudyGroupRatingRecord)}, since writing the reviews again would not count them.
+     */
+    public ReviewBatchResult persistReviews(List<StudyGroupReviewRecord> records) {
+        List<StudyGroupReviewRecord> unwritten = batchWriter.saveAll(records);
+        Set<StudyGroupReviewRecord> notCounted = new HashSet<>(unwritten);
+
+        Map<String, StudyGroupRatingRecord> deltas = new LinkedHashMap<>();
+        for (StudyGroupReviewRecord record : records) {
+            if (notCounted.contains(record)) {
+                continue;
+            }
+            StudyGroupRatingRecord delta = deltas.computeIfAbsent(record.getGroupId(), groupId -> {
+                StudyGroupRatingRecord groupDelta = new StudyGroupRatingRecord();
+                groupDelta.setGroupId(groupId);
+                return groupDelta;
+            });
+            delta.setGroupName(record.getGroupName());
+            delta.setDiscussionTopic(record.getDiscussionTopic());
+            delta.add(record.getRating());
+        }
+        List<StudyGroupRatingRecord> uncounted = new ArrayList<>();
+        for (StudyGroupRatingRecord delta : deltas.values()) {
+            try {
+                applyRatings(delta);
+            } catch (RuntimeException e) {
+                log.warn("Could not add {} reviews to the rating totals of group {}", delta.getReviewCount(),
+                        delta.getGroupId(), e);
+                uncounted.add(delta);
+            }
+        }
+        return new ReviewBatchResult(unwritten, uncounted);
+    }
+
+    /**
+     * Adds a delta returned uncounted by {@link #persistReviews(List)} to the group's rating totals.
+     *
+     * @throws RuntimeException if the totals could not be updated; the delta is still not counted
+     */
+    public void applyRatingDelta(StudyGroupRatingRecord delta) {
+        applyRatings(delta);
+    }
+
+    /**
+     * Adds the reviews counted in delta to the group's stored totals and re-ranks the group. Only the ADD update
+     * throws: once it succeeds the reviews are counted, so a failure after it must not get the delta applied again.
+     */
+    private StudyGroupRating applyRatings(StudyGroupRatingRecord delta) {
+        return rerank(delta, ratingRepository.addRatings(delta));
+    }
+
+    // totals already include delta, so nothing here may apply it again
+    private StudyGroupRating rerank(StudyGroupRatingRecord delta, StudyGroupRatingRecord totals) {
+        try {
+            if (totals.getReviewCount() == delta.getReviewCount()) {
+                // the group's first reviews - or its first since the totals were introduced
+                totals = rebuildRating(delta.getGroupId(), totals);
+            }
+            StudyGroupRating rating = buildStudyGroupRating(totals);
+            leaderboard.update(rating);
+            return rating;
+        } catch (RuntimeException e) {
+            // the next leaderboard rebuild and the next read of the totals catch up
+            log.warn("Counted reviews for group {} but could not refresh its rating", delta.getGroupId(), e);
+            return buildStudyGroupRating(totals);
+        }
+    }
+
     public double collectRatingsForStudyGroup(String groupId) {
-        Optional<List<StudyGroupReviewRecord>> byGroupId = reviewRepository.findByGroupId(groupId);
-        List<StudyGroupReviewRecord> ratingList = byGroupId.orElse(Collections.emptyList());
+        return getStudyGroupRating(groupId).getRatingSum();
+    }
 
-        double totalRating = 0.0;
-        for (StudyGroupReviewRecord rating : ratingList) {
-            totalRating = totalRating + rating.getRating();
+    /**
+     * The group's review count, rating sum and star histogram, read from its running totals with one GetItem.
+     */
+    public StudyGroupRating getStudyGroupRating(String groupId) {
+        Optional<StudyGroupRatingRecord> totals = ratingRepository.findById(groupId);
+        if (totals.isPresent()) {
+            return buildStudyGroupRating(totals.get());
         }
-        return totalRating;
+        StudyGroupRatingRecord rebuilt = rebuildRating(groupId, null);
+        return rebuilt != null ? buildStudyGroupRating(rebuilt) : StudyGroupRating.none(groupId);
     }
 
 
@@ -78,6 +220,51 @@ public class StudyGroupReviewService {
         return comments;
     }
 
+    /**
+     * Returns one page of the comments left on the group's reviews, ordered by reviewId, read with a single Query.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is not one this service produced
+     */
+    public StudyGroupCommentPage getCommentPageForStudyGroup(String groupId, String cursor, int limit) {
+        PageCursorConverter cursorConverter = new PageCursorConverter();
+        Map<String, AttributeValue> startKey = groupCursorKey(groupId, cursorConverter.unconvert(cursor));
+        RecordPage<StudyGroupReviewRecord> page = reviewRepository.findPageByGroupId(groupId, limit, startKey);
+        List<String> comments = new ArrayList<>(page.getRecords().size());
+        for (StudyGroupReviewRecord record : page.getRecords()) {
+            comments.add(record.getReviewComments());
+        }
+        return new StudyGroupCommentPage(comments, cursorConverter.convert(page.getLastEvaluatedKey()));
+    }
+
+    /**
+     * Hands every comment on the group's reviews to consumer, one Query page at a time, so only one page is held
+     * in memory however many reviews the group has.
+     */
+    public void streamCommentsForStudyGroup(String groupId, Consumer<String> consumer) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupReviewRecord> page = reviewRepository.findPageByGroupId(groupId, STREAM_PAGE_SIZE,
+                    startKey);
+            for (StudyGroupReviewRecord record : page.getRecords()) {
+                consumer.accept(record.getReviewComments());
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+
+    // the group's own GroupId goes back into the key, so a cursor cannot be replayed against another group
+    private static Map<String, AttributeValue> groupCursorKey(String groupId, Map<String, AttributeValue> startKey) {
+        if (startKey == null) {
+            return null;
+        }
+        if (!startKey.containsKey(REVIEW_ID_CURSOR) || startKey.get(REVIEW_ID_CURSOR).getS() == null) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        startKey.put(GROUP_ID_CURSOR, new AttributeValue().withS(groupId));
+        return startKey;
+    }
+
     public StudyGroupReviewRecord getStudyGroupReviewRecord(StudyGroupReview review) {
 
         StudyGroupReviewRecord record = new StudyGroupReviewRecord();
@@ -118,6 +305,47 @@ public class StudyGroupReviewService {
     }
 
 
+    /**
+     * Returns one page of the reviews under the topic, read with a single Query on the DiscussionTopicIndex.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is not one this service produced
+     */
+    public StudyGroupReviewPage getStudyGroupReviewPageByTopic(String discussionTopic, String cursor, int limit) {
+        PageCursorConverter cursorConverter = new PageCursorConverter();
+        Map<String, AttributeValue> startKey = cursorConverter.unconvert(cursor);
+        if (startKey != null) {
+            if (!startKey.containsKey(GROUP_ID_CURSOR) || startKey.get(GROUP_ID_CURSOR).getS() == null
+                    || !startKey.containsKey(REVIEW_ID_CURSOR) || startKey.get(REVIEW_ID_CURSOR).getS() == null) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            startKey.put(DISCUSSION_TOPIC_CURSOR, new AttributeValue().withS(discussionTopic));
+        }
+        RecordPage<StudyGroupReviewRecord> page = reviewRepository.findPageByDiscussionTopic(discussionTopic, limit,
+                startKey);
+        List<StudyGroupReview> reviews = new ArrayList<>(page.getRecords().size());
+        for (StudyGroupReviewRecord record : page.getRecords()) {
+            reviews.add(buildStudyGroupReview(record));
+        }
+        return new StudyGroupReviewPage(reviews, cursorConverter.convert(page.getLastEvaluatedKey()));
+    }
+
+    /**
+     * Hands every review under the topic to consumer, one Query page at a time, so only one page is held in
+     * memory however many reviews the topic has.
+     */
+    public void streamStudyGroupReviewsByTopic(String discussionTopic, Consumer<StudyGroupReview> consumer) {
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupReviewRecord> page = reviewRepository.findPageByDiscussionTopic(discussionTopic,
+                    STREAM_PAGE_SIZE, startKey);
+            for (StudyGroupReviewRecord record : page.getRecords()) {
+                consumer.accept(buildStudyGroupReview(record));
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+    }
+
     public StudyGroupReview buildStudyGroupReview(StudyGroupReviewRecord record){
         StudyGroupReview groupReview = new StudyGroupReview();
         groupReview.setGroupId(record.getGroupId());
@@ -134,105 +362,121 @@ public class StudyGroupReviewService {
 
 
 
-//
-//    public List<String> getGroupsWithDesiredRating1(String discussionTopic, double rating) {
-//
-//        final double HIGHEST_RATING = 5.0;
-//        Map<String, List<Double>> groupRatings = new HashMap<>();
-//
-//
-//        Iterable<StudyGroupReviewRecord> allRecords = reviewRepository.findAll();
-//
-//        if(allRecords !=null) {
-//
-//            for (StudyGroupReviewRecord reviewRecord : allRecords) {
-//                if (Objects.equals(reviewRecord.getDiscussionTopic(), discussionTopic)) {
-//                    String groupId = reviewRecord.getGroupId();
-//                    double averageRating = calculateAverageRating(groupId);
-//
-//                    if (averageRating >= rating) {
-//                        groupRatings.putIfAbsent(groupId, new ArrayList<>());
-//                        groupRatings.get(groupId).add(averageRating);
-//                    }
-//                }
-//            }
-//        }
-//        Map<String, Double> condensedResult = new HashMap<>();
-//        for (Map.Entry<String, List<Double>> entry : groupRatings.entrySet()) {
-//            String groupId = entry.getKey();
-//            List<Double> ratings = entry.getValue();
-//            double averageRating = ratings.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-//
-//            condensedResult.put(groupId, averageRating);
-//        }
-//        return groupsWithDesiredRating;
-//    }
-
-    public Map<String, Double> getGroupsWithDesiredRating(double rating,String discussionTopic) {
-        // Map to store ids and ratings
-        Map<String, List<Double>> groupRatings = new HashMap<>();
-
-        // all records
-        Iterable<StudyGroupReviewRecord> allRecords = reviewRepository.findAll();
-
-
-        for (StudyGroupReviewRecord reviewRecord : allRecords) {
-            // Check if the discussion topic matches the desired topic
-            if (Objects.equals(reviewRecord.getDiscussionTopic(), discussionTopic)) {
-                String groupId = reviewRecord.getGroupId();
-                double currentRating = reviewRecord.getRating();
-
-                // Check if the average rating greater or equal to desired rating
-                if (currentRating >= rating) {
-                    // If the group ID is already present in the map, add the rating to its list
-                    // Otherwise, create a new list and add the rating to it
-                    if (groupRatings.containsKey(groupId)) {
-                        groupRatings.get(groupId).add(currentRating);
-                    } else {
-                        List<Double> ratings = new ArrayList<>();
-                        ratings.add(currentRating);
-                        groupRatings.put(groupId, ratings);
-                    }
-                }
+    /**
+     * One page of the groups reviewed under the topic whose average rating is at least rating, highest average
+     * first and ties by groupId. Reads the topic's rating totals (one item per group) from DiscussionTopicIndex
+     * and keeps them sorted for topicRatings.expireAfterWrite, so paging through a topic queries and sorts it once;
+     * reviews counted within that window show up once it has passed.
+     *
+     * @throws IllegalArgumentException if the cursor was not returned by this method
+     */
+    public StudyGroupRatingPage getGroupsWithDesiredRating(double rating, String discussionTopic, String cursor,
+                                                           int limit) {
+        PageCursorConverter cursorConverter = new PageCursorConverter();
+        Map<String, AttributeValue> after = cursorConverter.unconvert(cursor);
+        double afterAverage = after != null ? averageRatingCursor(after) : 0.0;
+
+        List<StudyGroupRating> matches = new ArrayList<>();
+        for (StudyGroupRating totals : topicRatings.get(discussionTopic, this::loadTopicRatings)) {
+            if (totals.getAverageRating() < rating || matches.size() > limit) {
+                // sorted best first, so nothing further qualifies or fits on the page
+                break;
             }
+            if (after != null && compareByAverageRating(totals.getAverageRating(), totals.getGroupId(),
+                    afterAverage, after.get(GROUP_ID_CURSOR).getS()) <= 0) {
+                continue;
+            }
+            matches.add(totals);
         }
 
-        //  Condensed result with group IDs and their average ratings
-        Map<String, Double> condensedResult = new HashMap<>();
-
-        // Calculate the average rating for each group and add it to the condensed result map
-        for (Map.Entry<String, List<Double>> entry : groupRatings.entrySet()) {
-            String groupId = entry.getKey();
-            List<Double> ratings = entry.getValue();
+        if (matches.size() <= limit) {
+            return new StudyGroupRatingPage(matches, null);
+        }
+        List<StudyGroupRating> page = new ArrayList<>(matches.subList(0, limit));
+        StudyGroupRating last = page.get(page.size() - 1);
+        Map<String, AttributeValue> nextKey = new HashMap<>();
+        nextKey.put(AVERAGE_RATING_CURSOR, new AttributeValue().withN(Double.toString(last.getAverageRating())));
+        nextKey.put(GROUP_ID_CURSOR, new AttributeValue().withS(last.getGroupId()));
+        return new StudyGroupRatingPage(page, cursorConverter.convert(nextKey));
+    }
 
-            // Calculate the average rating by taking the sum and dividing it by the number of ratings
-            //double averageRating = calculateAverageRating(groupId);
-            double sum = 0.0;
-            for (double ratingValue : ratings) {
-                sum += ratingValue;
+    // every group reviewed under the topic, highest average first and ties by groupId
+    private List<StudyGroupRating> loadTopicRatings(String discussionTopic) {
+        List<StudyGroupRating> ratings = new ArrayList<>();
+        for (StudyGroupRatingRecord totals : ratingRepository.findByDiscussionTopic(discussionTopic)) {
+            if (totals.getReviewCount() > 0) {
+                ratings.add(buildStudyGroupRating(totals));
             }
-            double average = sum / ratings.size();
+        }
+        ratings.sort((a, b) -> compareByAverageRating(a.getAverageRating(), a.getGroupId(),
+                b.getAverageRating(), b.getGroupId()));
+        return Collections.unmodifiableList(ratings);
+    }
 
-            condensedResult.put(groupId, average);
+    // the average rating a getGroupsWithDesiredRating cursor resumes after, once its fields are checked
+    private static double averageRatingCursor(Map<String, AttributeValue> after) {
+        AttributeValue average = after.get(AVERAGE_RATING_CURSOR);
+        AttributeValue groupId = after.get(GROUP_ID_CURSOR);
+        if (after.size() != 2 || average == null || average.getN() == null || groupId == null
+                || groupId.getS() == null) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        try {
+            return Double.parseDouble(average.getN());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page cursor", e);
         }
+    }
+
+    // highest average first, then by groupId
+    private static int compareByAverageRating(double averageA, String groupIdA, double averageB, String groupIdB) {
+        int byAverage = Double.compare(averageB, averageA);
+        return byAverage != 0 ? byAverage : groupIdA.compareTo(groupIdB);
+    }
+
+    /**
+     * Up to limit of the topic's best-rated groups, best first, from the in-memory leaderboard.
+     */
+    public List<StudyGroupRating> getTopRatedGroups(String discussionTopic, int limit) {
+        return leaderboard.top(discussionTopic, limit);
+    }
 
-        // Return the condensed result map
-        return condensedResult;
+    // the most groups the leaderboard shows per topic
+    public int getLeaderboardSize() {
+        return leaderboard.getSize();
     }
 
     public double calculateAverageRating(String id) {
-        Optional<List<StudyGroupReviewRecord>> byGroupId = reviewRepository.findByGroupId(id);
-        List<StudyGroupReviewRecord> reviews = byGroupId.orElse(Collections.emptyList());
-        double totalRating = 0;
-        double reviewCount = reviews.size();
+        return getStudyGroupRating(id).getAverageRating();
+    }
 
-        for (StudyGroupReviewRecord reviewRecord  : reviews) {
-            totalRating += reviewRecord.getRating();
+    /**
+     * Counts the group's totals from its reviews, for groups reviewed before totals were kept. The result is
+     * stored only if it counts more reviews than current and no review was added to the totals meanwhile.
+     *
+     * @return the rebuilt totals, or current if the reviews add nothing to it
+     */
+    private StudyGroupRatingRecord rebuildRating(String groupId, StudyGroupRatingRecord current) {
+        List<StudyGroupReviewRecord> reviews = reviewRepository.findByGroupId(groupId)
+                .orElse(Collections.emptyList());
+        long storedCount = current != null ? current.getReviewCount() : 0;
+        if (reviews.size() <= storedCount) {
+            return current;
         }
-        double averageRating = (reviewCount > 0) ? (double) totalRating / reviewCount : 0.0;
-
-        return  averageRating;
+        StudyGroupRatingRecord rebuilt = new StudyGroupRatingRecord();
+        rebuilt.setGroupId(groupId);
+        for (StudyGroupReviewRecord reviewRecord : reviews) {
+            rebuilt.setGroupName(reviewRecord.getGroupName());
+            rebuilt.setDiscussionTopic(reviewRecord.getDiscussionTopic());
+            rebuilt.add(reviewRecord.getRating());
+        }
+        ratingRepository.replaceIfCountIs(rebuilt, current != null ? storedCount : null);
+        return rebuilt;
+    }
 
+    private static StudyGroupRating buildStudyGroupRating(StudyGroupRatingRecord record) {
+        return new StudyGroupRating(record.getGroupId(), record.getGroupName(), record.getDiscussionTopic(),
+                record.getReviewCount(), record.getRatingSum(), record.getHistogram());
     }
 
 
@@ -241,7 +485,13 @@ public class StudyGroupReviewService {
 
         if (byGroupId.isPresent()) {
             List<StudyGroupReviewRecord> studyGroupReviewRecords = byGroupId.get();
-            reviewRepository.deleteAll(studyGroupReviewRecords);
+            List<StudyGroupReviewRecord> notDeleted = batchWriter.deleteAll(studyGroupReviewRecords);
+            if (!notDeleted.isEmpty()) {
+                throw new IllegalStateException("Could not delete " + notDeleted.size()
+                        + " study group reviews for groupId: " + groupId);
+            }
+            ratingRepository.deleteById(groupId);
+            leaderboard.remove(groupId);
         } else {
             throw new ReviewNotFoundException("No study group reviews found for groupId: " + groupId);
         }
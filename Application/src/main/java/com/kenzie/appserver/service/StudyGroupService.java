@@ -1,19 +1,30 @@
 package com.kenzie.appserver.service;
 
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.kenzie.appserver.config.CacheStore;
+import com.kenzie.appserver.config.StudyGroupMemberCache;
+import com.kenzie.appserver.exception.StudyGroupNameTakenException;
 import com.kenzie.appserver.exception.StudyGroupNotFoundException;
 import com.kenzie.appserver.exception.MemberNotFoundException;
+import com.kenzie.appserver.exception.VersionConflictException;
+import com.kenzie.appserver.repositories.BatchWriter;
 import com.kenzie.appserver.repositories.StudyGroupMemberRepository;
 import com.kenzie.appserver.repositories.StudyGroupRepository;
 import com.kenzie.appserver.repositories.MemberRepository;
+import com.kenzie.appserver.repositories.converter.PageCursorConverter;
 import com.kenzie.appserver.repositories.model.MemberRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
 import com.kenzie.appserver.repositories.model.StudyGroupMemberId;
 import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupNameRecord;
 import com.kenzie.appserver.repositories.model.StudyGroupRecord;
 import com.kenzie.appserver.service.model.Member;
+import com.kenzie.appserver.service.model.MembershipResult;
 import com.kenzie.appserver.service.model.StudyGroup;
 import com.kenzie.appserver.service.model.StudyGroupMember;
+import com.kenzie.appserver.service.model.StudyGroupMemberPage;
+import com.kenzie.appserver.service.model.StudyGroupPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -42,55 +53,63 @@ public class StudyGroupService {
 
     @Autowired
     private MemberRepository memberRepository;
+    @Autowired
+    private StudyGroupCatalog catalog;
+    @Autowired
+    private StudyGroupMemberCache memberCache;
+    @Autowired
+    private BatchWriter batchWriter;
 
-    public StudyGroupService(StudyGroupRepository studyGroupRepository, StudyGroupMemberRepository studyGroupMemberRepository,MemberRepository memberRepository,CacheStore cache) {
+    // marks cursors handed out from the in-memory catalog, which is ordered by groupId rather than by scan order
+    private static final String CATALOG_CURSOR_ATTRIBUTE = "Catalog";
+    private static final int MEMBER_QUERY_PAGE_SIZE = 100;
+    // member lists larger than this are read page by page from DynamoDB instead of being cached
+    private static final int MAX_CACHED_MEMBERS = 5000;
+
+    public StudyGroupService(StudyGroupRepository studyGroupRepository, StudyGroupMemberRepository studyGroupMemberRepository,MemberRepository memberRepository,CacheStore cache, StudyGroupCatalog catalog, StudyGroupMemberCache memberCache, BatchWriter batchWriter) {
         this.studyGroupRepository = studyGroupRepository;
         this.studyGroupMemberRepository = studyGroupMemberRepository;
         this.memberRepository = memberRepository;
         this.cache = cache;
+        this.catalog = catalog;
+        this.memberCache = memberCache;
+        this.batchWriter = batchWriter;
     }
 
     /** addNewStudyGroup
      *
-     * made it idempotent
+     * made it idempotent: the (groupName, discussionTopic) pair is claimed with a conditional write
+     * in the same transaction as the insert, so a duplicate create returns the group that already exists
+     * without scanning the table, even when two creates race.
      */
     public StudyGroup addNewStudyGroup(StudyGroup group) {
-
-        // Check if the study group already exists
-        StudyGroup existingGroup = getExistingStudyGroup(group);
-        if (existingGroup != null) {
+        StudyGroupRecord record = buildStudyGroupRecord(group);
+        String ownerGroupId = studyGroupRepository.saveIfNameAvailable(record);
+        if (!record.getGroupId().equals(ownerGroupId)) {
             // If the study group exists, return it
-            return existingGroup;
+            return studyGroupRepository.findById(ownerGroupId)
+                    .map(this::buildStudyGroup)
+                    .orElseThrow(() -> new StudyGroupNotFoundException("Study group not found for groupId: " + ownerGroupId));
         }
-        // add to the repo
-        StudyGroupRecord record = buildStudyGroupRecord(group);
-        studyGroupRepository.save(record);
-        return buildStudyGroup(record);
+        StudyGroup newStudyGroup = buildStudyGroup(record);
+        catalog.put(newStudyGroup);
+        // also clears a negative-cache entry left by a lookup of this id before it existed
+        cache.evict(newStudyGroup.getGroupId());
+        return newStudyGroup;
     }
 
     public StudyGroup getExistingStudyGroup(StudyGroup group) {
-        Iterable<StudyGroupRecord> records = studyGroupRepository.findAll();
-        List<StudyGroup> allStudyGroups = new ArrayList<>();
-        if (records != null) {
-            for (StudyGroupRecord record : records) {
-                StudyGroup studyGroup = buildStudyGroup(record);
-                allStudyGroups.add(studyGroup);
-            }
-        }
-        for (StudyGroup existingGroup : allStudyGroups) {
-            if (existingGroup.getGroupName().equals(group.getGroupName())
-                    && existingGroup.getDiscussionTopic().equals(group.getDiscussionTopic())) {
-                return existingGroup;
-            }
-        }
-        return null;
+        return studyGroupRepository.findGroupIdByName(group.getGroupName(), group.getDiscussionTopic())
+                .flatMap(studyGroupRepository::findById)
+                .map(this::buildStudyGroup)
+                .orElse(null);
     }
 
     // helper method
     private StudyGroup buildStudyGroup(StudyGroupRecord record) {
         StudyGroup studyGroup = new StudyGroup(record.getGroupId(), record.getGroupName(),
                                                 record.getDiscussionTopic(), record.getCreationDate(),
-                                                record.isActive());
+                                                record.isActive(), record.getVersion());
         return studyGroup;
     }
     // helper method
@@ -117,27 +136,21 @@ public class StudyGroupService {
 //        return studyGroup;
 //    }
 
+    /**
+     * Concurrent misses for one groupId share a single repository read, and ids that do not exist
+     * are remembered for a short while (see CacheStore.get), so polling a deleted group does not hit DynamoDB.
+     */
     public StudyGroup findByCachedGroupId(String groupId) {
-        StudyGroup cachedStudyGroup = cache.get(groupId);
-        // Check if studyGroup is cached and return it if true
-        if (cachedStudyGroup != null) {
-            return cachedStudyGroup;
-        }
-        // if not cached, find the study group
-        StudyGroup studyGroupFromBackendService = studyGroupRepository
-                .findById(groupId)
+        // if not cached, find the study group; the cache stores what the loader returns
+        return cache.get(groupId, id -> studyGroupRepository
+                .findById(id)
                 .map(studyGroup-> new StudyGroup(studyGroup.getGroupId(),
                         studyGroup.getGroupName(),
                         studyGroup.getDiscussionTopic(),
                         studyGroup.getCreationDate(),
-                        studyGroup.isActive()))
-                .orElse(null);
-
-        // if study group found, cache it
-        if (studyGroupFromBackendService != null) {
-            cache.add(studyGroupFromBackendService.getGroupId(),studyGroupFromBackendService);
-        }
-        return studyGroupFromBackendService;
+                        studyGroup.isActive(),
+                        studyGroup.getVersion()))
+                .orElse(null));
     }
 
 
@@ -149,23 +162,98 @@ public class StudyGroupService {
             throw new MemberNotFoundException("memberId is null...");
         }
         StudyGroupMemberId studyGroupMemberId = new StudyGroupMemberId(studyGroup.getGroupId(), memberId);
-        if (isStudyGroupMemberExists(studyGroupMemberId)) {
-            // If the study group member exists, retrieve and return it
-            return getExistingStudyGroupMember(studyGroupMemberId);
+        Optional<StudyGroupMemberRecord> existingRecord = studyGroupMemberRepository.findById(studyGroupMemberId);
+        if (existingRecord.isPresent()) {
+            // If the study group member exists, return it
+            return buildStudyGroupMember(existingRecord.get());
         } else {
             StudyGroupMemberRecord studyGroupRecord = new StudyGroupMemberRecord(studyGroupMemberId, studyGroup.getGroupName(), studyGroup.getDiscussionTopic(), studyGroup.getCreationDate(), studyGroup.isActive());
             studyGroupMemberRepository.save(studyGroupRecord);
             StudyGroupMember studyGroupMember = buildStudyGroupMember(studyGroupRecord);
+            memberCache.addMember(studyGroupMember);
             return studyGroupMember;
         }
     }
-    private boolean isStudyGroupMemberExists(StudyGroupMemberId studyGroupMemberId) {
-        return studyGroupMemberRepository.existsById(studyGroupMemberId);
+
+    /**
+     * Adds many members in a few round trips: consistent BatchGetItem calls for the requested members' keys, then
+     * BatchWriteItem calls for the ones not yet in the group. The member cache is not consulted, since another
+     * instance may have added a member it does not know about yet.
+     *
+     * @return one result per distinct member id, in request order
+     */
+    public List<MembershipResult> addMembersToStudyGroup(StudyGroup studyGroup, List<String> memberIds) {
+        if (studyGroup == null) {
+            throw new StudyGroupNotFoundException("Study group is null...");
+        }
+        if (memberIds == null) {
+            throw new MemberNotFoundException("memberIds is null...");
+        }
+        Set<String> requestedMemberIds = new LinkedHashSet<>();
+        for (String memberId : memberIds) {
+            if (memberId != null && !memberId.trim().isEmpty()) {
+                requestedMemberIds.add(memberId);
+            }
+        }
+        Set<String> existingMemberIds = studyGroupMemberRepository.findExistingMemberIds(studyGroup.getGroupId(),
+                requestedMemberIds);
+
+        Map<String, MembershipResult.Status> statuses = new LinkedHashMap<>();
+        List<StudyGroupMemberRecord> newRecords = new ArrayList<>();
+        for (String memberId : memberIds) {
+            if (memberId == null || memberId.trim().isEmpty()) {
+                statuses.putIfAbsent(String.valueOf(memberId), MembershipResult.Status.INVALID);
+            } else if (!statuses.containsKey(memberId)) {
+                if (existingMemberIds.contains(memberId)) {
+                    statuses.put(memberId, MembershipResult.Status.ALREADY_MEMBER);
+                } else {
+                    statuses.put(memberId, MembershipResult.Status.ADDED);
+                    newRecords.add(new StudyGroupMemberRecord(new StudyGroupMemberId(studyGroup.getGroupId(), memberId),
+                            studyGroup.getGroupName(), studyGroup.getDiscussionTopic(),
+                            studyGroup.getCreationDate(), studyGroup.isActive()));
+                }
+            }
+        }
+
+        if (!newRecords.isEmpty()) {
+            for (StudyGroupMemberRecord unwritten : batchWriter.saveAll(newRecords)) {
+                statuses.put(unwritten.getMemberId(), MembershipResult.Status.FAILED);
+            }
+            for (StudyGroupMemberRecord groupMemberRecord : newRecords) {
+                if (statuses.get(groupMemberRecord.getMemberId()) == MembershipResult.Status.ADDED) {
+                    memberCache.addMember(buildStudyGroupMember(groupMemberRecord));
+                }
+            }
+        }
+
+        List<MembershipResult> results = new ArrayList<>(statuses.size());
+        for (Map.Entry<String, MembershipResult.Status> entry : statuses.entrySet()) {
+            results.add(new MembershipResult(entry.getKey(), entry.getValue()));
+        }
+        return results;
     }
-    private StudyGroupMember getExistingStudyGroupMember(StudyGroupMemberId studyGroupMemberId) {
-        Optional<StudyGroupMemberRecord> byMemberId = studyGroupMemberRepository.findByMemberId(studyGroupMemberId.getMemberId());
-        StudyGroupMemberRecord record = byMemberId.get();
-        return buildStudyGroupMember(record);
+
+    /**
+     * Returns one page of the groups the member belongs to, read with a single query on the MemberIdIndex.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public StudyGroupMemberPage getGroupsForMember(String memberId, String cursor, int limit) {
+        PageCursorConverter cursorConverter = new PageCursorConverter();
+        Map<String, AttributeValue> startKey = cursorConverter.unconvert(cursor);
+        if (startKey != null) {
+            if (!startKey.containsKey("GroupId") || startKey.get("GroupId").getS() == null) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+            startKey.put("MemberId", new AttributeValue().withS(memberId));
+        }
+        RecordPage<StudyGroupMemberRecord> page = studyGroupMemberRepository.findPageByMemberId(memberId, limit, startKey);
+        List<StudyGroupMember> groups = new ArrayList<>();
+        for (StudyGroupMemberRecord groupMemberRecord : page.getRecords()) {
+            groups.add(buildStudyGroupMember(groupMemberRecord));
+        }
+        return new StudyGroupMemberPage(groups, cursorConverter.convert(page.getLastEvaluatedKey()));
     }
 
     public Member findMemberById(String memberId) {
@@ -194,20 +282,91 @@ public class StudyGroupService {
         return studyGroupMember;
     }
 
+    /**
+     * Returns every member of the group. The list comes from the per-group member cache, which is filled
+     * with key-condition queries on GroupId (never a scan) and updated in place as members join and leave.
+     */
     public List<StudyGroupMember> getStudyGroupMembers(String groupId) {
+        NavigableMap<String, StudyGroupMember> cachedMembers = memberCache.get(groupId, this::loadStudyGroupMembers);
+        if (cachedMembers != null) {
+            return new ArrayList<>(cachedMembers.values());
+        }
+        // too large to cache: query every page
+        List<StudyGroupMember> members = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupMemberRecord> page = studyGroupMemberRepository.findPageByGroupId(groupId,
+                    MEMBER_QUERY_PAGE_SIZE, startKey);
+            for (StudyGroupMemberRecord groupMemberRecord : page.getRecords()) {
+                members.add(buildStudyGroupMember(groupMemberRecord));
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+        return members;
+    }
+
+    /**
+     * Returns one page of the group's members, ordered by memberId.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is not one this service produced
+     */
+    public StudyGroupMemberPage getStudyGroupMemberPage(String groupId, String cursor, int limit) {
+        PageCursorConverter cursorConverter = new PageCursorConverter();
+        Map<String, AttributeValue> startKey = cursorConverter.unconvert(cursor);
+        if (startKey != null && (!startKey.containsKey("MemberId") || startKey.get("MemberId").getS() == null)) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
 
-        Optional<List<StudyGroupMemberRecord>> studyGroupMembers = studyGroupMemberRepository.findByGroupId(groupId);
-        if (studyGroupMembers.isEmpty()) {
-            return Collections.emptyList();
+        NavigableMap<String, StudyGroupMember> cachedMembers = memberCache.get(groupId, this::loadStudyGroupMembers);
+        if (cachedMembers != null) {
+            NavigableMap<String, StudyGroupMember> tail = startKey == null ? cachedMembers
+                    : cachedMembers.tailMap(startKey.get("MemberId").getS(), false);
+            List<StudyGroupMember> members = new ArrayList<>(Math.min(limit, tail.size()));
+            for (StudyGroupMember member : tail.values()) {
+                if (members.size() == limit) {
+                    break;
+                }
+                members.add(member);
+            }
+            String nextCursor = null;
+            if (members.size() == limit && tail.size() > limit) {
+                // same shape as the LastEvaluatedKey of the table, so either path can resume from it
+                Map<String, AttributeValue> nextKey = new HashMap<>();
+                nextKey.put("GroupId", new AttributeValue().withS(groupId));
+                nextKey.put("MemberId", new AttributeValue().withS(members.get(members.size() - 1).getMemberId()));
+                nextCursor = cursorConverter.convert(nextKey);
+            }
+            return new StudyGroupMemberPage(members, nextCursor);
         }
 
-        List<StudyGroupMemberRecord> studyGroupMemberRecords = studyGroupMembers.get();
+        if (startKey != null) {
+            startKey.put("GroupId", new AttributeValue().withS(groupId));
+        }
+        RecordPage<StudyGroupMemberRecord> page = studyGroupMemberRepository.findPageByGroupId(groupId, limit, startKey);
         List<StudyGroupMember> members = new ArrayList<>();
-        // TODO: Convert to List<StudyGroupMember>
-        for(StudyGroupMemberRecord groupMemberRecord: studyGroupMemberRecords){
-            StudyGroupMember member = buildStudyGroupMember(groupMemberRecord);
-            members.add(member);
+        for (StudyGroupMemberRecord groupMemberRecord : page.getRecords()) {
+            members.add(buildStudyGroupMember(groupMemberRecord));
         }
+        return new StudyGroupMemberPage(members, cursorConverter.convert(page.getLastEvaluatedKey()));
+    }
+
+    // loads a whole member list for the cache, or returns null as soon as it grows past MAX_CACHED_MEMBERS; the
+    // member cache remembers that, so a large group is read this far once per expiry rather than on every call
+    private NavigableMap<String, StudyGroupMember> loadStudyGroupMembers(String groupId) {
+        NavigableMap<String, StudyGroupMember> members = new TreeMap<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupMemberRecord> page = studyGroupMemberRepository.findPageByGroupId(groupId,
+                    MEMBER_QUERY_PAGE_SIZE, startKey);
+            for (StudyGroupMemberRecord groupMemberRecord : page.getRecords()) {
+                members.put(groupMemberRecord.getMemberId(), buildStudyGroupMember(groupMemberRecord));
+            }
+            if (members.size() > MAX_CACHED_MEMBERS) {
+                return null;
+            }
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
         return members;
     }
 
@@ -224,56 +383,149 @@ public class StudyGroupService {
 
         StudyGroupMemberRecord studyGroupMemberRecord = studyGroupMemberRecordById.get();
         studyGroupMemberRepository.delete(studyGroupMemberRecord);
+        memberCache.removeMember(groupId, memberId);
     }
 
 
     // remove all members from study group
     public void removeAllMembersFromStudyGroup(String groupId) {
-        Optional<List<StudyGroupMemberRecord>> recordsOfMembers = studyGroupMemberRepository.findByGroupId(groupId);
-
-        if (recordsOfMembers.isEmpty()) {
+        if (deleteAllMembers(groupId) == 0) {
             throw new StudyGroupNotFoundException("Study group not found for groupId: " + groupId);
         }
-        List<StudyGroupMemberRecord> membersToRemove = recordsOfMembers.get();
+    }
 
-        for (StudyGroupMemberRecord memberRecord : membersToRemove) {
-            studyGroupMemberRepository.delete(memberRecord);
+    // returns the number of members removed
+    private int deleteAllMembers(String groupId) {
+        List<StudyGroupMemberRecord> membersToRemove = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            RecordPage<StudyGroupMemberRecord> page = studyGroupMemberRepository.findPageByGroupId(groupId,
+                    MEMBER_QUERY_PAGE_SIZE, startKey);
+            membersToRemove.addAll(page.getRecords());
+            startKey = page.getLastEvaluatedKey();
+        } while (startKey != null && !startKey.isEmpty());
+
+        List<StudyGroupMemberRecord> notRemoved = batchWriter.deleteAll(membersToRemove);
+        memberCache.evict(groupId);
+        if (!notRemoved.isEmpty()) {
+            throw new IllegalStateException("Could not remove " + notRemoved.size() + " members of study group " + groupId);
         }
+        return membersToRemove.size();
     }
 
-    public List<StudyGroup> getAllStudyGroups() {
-        Iterable<StudyGroupRecord> studyGroupRecords = studyGroupRepository.findAll();
-        List<StudyGroup> studyGroups = new ArrayList<>();
-        if(studyGroupRecords == null){
-            return null;
+    /**
+     * Returns one page of study groups.
+     * Pages come from the in-memory catalog once it is loaded; otherwise each page is a single
+     * limited Scan call resuming from the cursor, so no request reads the whole table.
+     *
+     * A listing stays with the source its first page came from, since the catalog's groupId order is not the
+     * scan's order. A catalog cursor that reaches an instance whose catalog is not loaded is refused rather
+     * than resumed from a scan, which would skip or repeat groups; the client starts over.
+     *
+     * @param cursor the nextCursor of the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is not one this service produced, or is a catalog cursor
+     *                                  while the catalog is not loaded
+     */
+    public StudyGroupPage getStudyGroupPage(String cursor, int limit) {
+        PageCursorConverter cursorConverter = new PageCursorConverter();
+        Map<String, AttributeValue> startKey = cursorConverter.unconvert(cursor);
+        if (startKey != null && (!startKey.containsKey("GroupId") || startKey.get("GroupId").getS() == null)) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+        boolean catalogCursor = startKey == null || startKey.containsKey(CATALOG_CURSOR_ATTRIBUTE);
+        if (startKey != null && startKey.size() != (catalogCursor ? 2 : 1)) {
+            throw new IllegalArgumentException("Invalid page cursor");
         }
-        for (StudyGroupRecord studyGroupRecord : studyGroupRecords) {
-            StudyGroup studyGroup = buildStudyGroup(studyGroupRecord);
-            studyGroups.add(studyGroup);
+        if (startKey != null && catalogCursor && !catalog.isLoaded()) {
+            throw new IllegalArgumentException("Page cursor no longer valid; start from the first page");
+        }
+
+        if (catalogCursor && catalog.isLoaded()) {
+            String afterGroupId = startKey == null ? null : startKey.get("GroupId").getS();
+            List<StudyGroup> studyGroups = catalog.page(afterGroupId, limit);
+            String nextCursor = null;
+            if (!studyGroups.isEmpty()) {
+                String lastGroupId = studyGroups.get(studyGroups.size() - 1).getGroupId();
+                if (catalog.hasGroupsAfter(lastGroupId)) {
+                    Map<String, AttributeValue> nextKey = new HashMap<>();
+                    nextKey.put("GroupId", new AttributeValue().withS(lastGroupId));
+                    nextKey.put(CATALOG_CURSOR_ATTRIBUTE, new AttributeValue().withS("1"));
+                    nextCursor = cursorConverter.convert(nextKey);
+                }
+            }
+            return new StudyGroupPage(studyGroups, nextCursor);
+        }
+
+        RecordPage<StudyGroupRecord> page = studyGroupRepository.findPage(limit, startKey);
+        List<StudyGroup> studyGroups = new ArrayList<>();
+        for (StudyGroupRecord studyGroupRecord : page.getRecords()) {
+            studyGroups.add(buildStudyGroup(studyGroupRecord));
         }
+        return new StudyGroupPage(studyGroups, cursorConverter.convert(page.getLastEvaluatedKey()));
+    }
 
-        return studyGroups;
+    /**
+     * Claims the group's name and topic, then writes the group with one conditional UpdateItem, without reading
+     * it first. The claim succeeds straight away when the group already holds the pair; after a rename the
+     * previous pair is released. An update that does not happen gives back a pair it newly claimed.
+     *
+     * @return the updated group, with its new version
+     * @throws StudyGroupNameTakenException if another group holds the name and topic; nothing is written
+     * @throws StudyGroupNotFoundException if the group does not exist
+     * @throws VersionConflictException if the group carries a version that is no longer the stored one
+     */
+    public StudyGroup updateStudyGroup(StudyGroup studyGroup) {
+        String groupId = studyGroup.getGroupId();
+        if (!studyGroupRepository.claimName(groupId, studyGroup.getGroupName(), studyGroup.getDiscussionTopic())) {
+            throw new StudyGroupNameTakenException("Another study group is named " + studyGroup.getGroupName()
+                    + " for topic " + studyGroup.getDiscussionTopic());
+        }
+        StudyGroupRecord studyGroupRecord = buildStudyGroupRecord(studyGroup);
+        Optional<StudyGroupRecord> updated;
+        try {
+            updated = studyGroupRepository.updateStudyGroup(studyGroupRecord, studyGroup.getVersion());
+        } catch (RuntimeException e) {
+            releaseUnusedName(studyGroup);
+            throw e;
+        }
+        if (!updated.isPresent()) {
+            releaseUnusedName(studyGroup);
+            throw new StudyGroupNotFoundException("Study group not found for groupId: " + groupId);
+        }
+        StudyGroupRecord previous = updated.get();
+        studyGroupRecord.setVersion(previous.getVersion() == null ? 1 : previous.getVersion() + 1);
+        if (!StudyGroupNameRecord.nameTopicKey(previous.getGroupName(), previous.getDiscussionTopic())
+                .equals(StudyGroupNameRecord.nameTopicKey(studyGroup.getGroupName(), studyGroup.getDiscussionTopic()))) {
+            studyGroupRepository.releaseName(groupId, previous.getGroupName(), previous.getDiscussionTopic());
+        }
+        // write through so the shared cache tier, and with it the other instances, see the update
+        StudyGroup updatedStudyGroup = buildStudyGroup(studyGroupRecord);
+        cache.add(updatedStudyGroup.getGroupId(), updatedStudyGroup);
+        catalog.put(updatedStudyGroup);
+        return updatedStudyGroup;
     }
 
-    public void updateStudyGroup(StudyGroup studyGroup) {
-        Optional<StudyGroupRecord> existingStudyGroup = studyGroupRepository.findById(studyGroup.getGroupId());
-        if (existingStudyGroup.isEmpty()) {
-            throw new StudyGroupNotFoundException("Study group not found for groupId: " + studyGroup.getGroupId());
+    // gives back the pair claimed for an update that did not happen, unless the stored group has that name anyway
+    private void releaseUnusedName(StudyGroup studyGroup) {
+        String claimedKey = StudyGroupNameRecord.nameTopicKey(studyGroup.getGroupName(), studyGroup.getDiscussionTopic());
+        Optional<StudyGroupRecord> stored = studyGroupRepository.findById(studyGroup.getGroupId());
+        if (!stored.isPresent() || !claimedKey.equals(StudyGroupNameRecord.nameTopicKey(
+                stored.get().getGroupName(), stored.get().getDiscussionTopic()))) {
+            studyGroupRepository.releaseName(studyGroup.getGroupId(), studyGroup.getGroupName(),
+                    studyGroup.getDiscussionTopic());
         }
-        // Update the properties of the existing study group with the new values
-        StudyGroupRecord studyGroupRecord = existingStudyGroup.get();
-        studyGroupRecord.setGroupId(studyGroup.getGroupId());
-        studyGroupRecord.setGroupName(studyGroup.getGroupName());
-        studyGroupRecord.setDiscussionTopic(studyGroup.getDiscussionTopic());
-        studyGroupRecord.setCreationDate(studyGroup.getCreationDate());
-        studyGroupRecord.setActive(true);
-        studyGroupRepository.save(studyGroupRecord);
-        cache.evict(studyGroup.getGroupId());
     }
 
+    /**
+     * Deletes the study group row and its name claim. Members and reviews are left to a
+     * cascade deletion job (see CascadeDeletionService), which calls this once the job is saved and again
+     * when it resumes the job, so it must stay safe to repeat.
+     */
     public void deleteStudyGroup(String groupId) {
+        studyGroupRepository.findById(groupId).ifPresent(record ->
+                studyGroupRepository.releaseName(groupId, record.getGroupName(), record.getDiscussionTopic()));
         studyGroupRepository.deleteById(groupId);
-        removeAllMembersFromStudyGroup(groupId);
+        catalog.remove(groupId);
         cache.evict(groupId);
     }
 
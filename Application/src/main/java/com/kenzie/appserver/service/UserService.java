@@ -3,6 +3,7 @@ package com.kenzie.appserver.service;
 import com.kenzie.appserver.controller.model.UserProfileRequest;
 import com.kenzie.appserver.controller.model.UserProfileResponse;
 import com.kenzie.appserver.exception.UserNotFoundException;
+import com.kenzie.appserver.exception.VersionConflictException;
 import com.kenzie.appserver.repositories.UserRepository;
 import com.kenzie.appserver.repositories.converter.ZonedDateTimeConverter;
 import com.kenzie.appserver.repositories.model.UserRecord;
@@ -62,19 +63,23 @@ public class UserService {
         return buildUser(userRecord);
     }
 
-    public void updateUser(User user) {
-        Optional<UserRecord> existingUser = userRepository.findById(user.getEmail());
-        if (existingUser.isEmpty()) {
-            throw new UserNotFoundException("User not found for userID: " + user.getEmail());
-        }
-        // Update the properties of the existing note with the new values
-        UserRecord userRecord = existingUser.get();
+    /**
+     * Writes the user with one conditional UpdateItem, without reading it first.
+     *
+     * @return the updated user, with its new version
+     * @throws UserNotFoundException if the user does not exist
+     * @throws VersionConflictException if the user carries a version that is no longer the stored one
+     */
+    public User updateUser(User user) {
+        UserRecord userRecord = new UserRecord();
         userRecord.setEmail(user.getEmail());
         userRecord.setPassword(user.getPassword());
         userRecord.setLastName(user.getLastName());
         userRecord.setFirstName(user.getFirstName());
         userRecord.setDateCreated(user.getCreationDate());
-        userRepository.save(userRecord);
+        return userRepository.updateUser(userRecord, user.getVersion())
+                .map(this::buildUser)
+                .orElseThrow(() -> new UserNotFoundException("User not found for userID: " + user.getEmail()));
     }
 
     public UserProfileResponse getUser(String userId) {
@@ -109,16 +114,18 @@ public class UserService {
             return null;
         }
 
-        return new UserProfileResponse(record.getEmail(),
+        UserProfileResponse response = new UserProfileResponse(record.getEmail(),
                 record.getPassword(),
                 record.getFirstName(),
                 record.getLastName(),
                 new ZonedDateTimeConverter().convert(record.getDateCreated()));
+        response.setVersion(record.getVersion());
+        return response;
     }
 
     private User buildUser(UserRecord record) {
         return new User(record.getEmail(), record.getPassword(),
                 record.getLastName(), record.getFirstName(),
-                record.getDateCreated());
+                record.getDateCreated(), record.getVersion());
     }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+package com.kenzie.appserver.service.model;
+
+import java.time.Instant;
+import java.util.Map;
+
+public class CascadeDeletionJob {
+    public enum TargetType {
+        GROUP,
+        USER
+    }
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    private final String jobId;
+    private final TargetType targetType;
+    private final String targetId;
+    private final Status status;
+    private final Map<String, Long> deletedCounts;
+    private final String error;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+
+    public CascadeDeletionJob(String jobId, TargetType targetType, String targetId, Status status,
+                              Map<String, Long> deletedCounts, String error, Instant createdAt, Instant updatedAt) {
+        this.jobId = jobId;
+        this.targetType = targetType;
+        this.targetId = targetId;
+        this.status = status;
+        this.deletedCounts = deletedCounts;
+        this.error = error;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public TargetType getTargetType() {
+        return targetType;
+    }
+
+    public String getTargetId() {
+        return targetId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    // rows deleted so far, per dependent table
+    public Map<String, Long> getDeletedCounts() {
+        return deletedCounts;
+    }
+
+    // null unless the job failed
+    public String getError() {
+        return error;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,29 @@
+package com.kenzie.appserver.service.model;
+
+/**
+ * Outcome of adding one member in a bulk membership request.
+ */
+public class MembershipResult {
+    public enum Status {
+        ADDED,
+        ALREADY_MEMBER,
+        INVALID,
+        FAILED
+    }
+
+    private final String memberId;
+    private final Status status;
+
+    public MembershipResult(String memberId, Status status) {
+        this.memberId = memberId;
+        this.status = status;
+    }
+
+    public String getMemberId() {
+        return memberId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+}
@@ -12,13 +12,21 @@ public class Note {
     private String content;
     private ZonedDateTime createdDateTime;
     private ZonedDateTime updatedDateTime;
+    // the stored version, null if unknown
+    private Long version;
 
     public Note(String noteId, String userId, String content, ZonedDateTime createdDateTime, ZonedDateTime updatedDateTime) {
+        this(noteId, userId, content, createdDateTime, updatedDateTime, null);
+    }
+
+    public Note(String noteId, String userId, String content, ZonedDateTime createdDateTime, ZonedDateTime updatedDateTime,
+                Long version) {
         this.noteId = noteId;
         this.userId = userId;
         this.content = content;
         this.createdDateTime = createdDateTime;
         this.updatedDateTime = updatedDateTime;
+        this.version = version;
     }
 
     public String getNoteId() {
@@ -60,4 +68,12 @@ public class Note {
     public void setUpdatedDateTime(ZonedDateTime updatedDateTime) {
         this.updatedDateTime = updatedDateTime;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
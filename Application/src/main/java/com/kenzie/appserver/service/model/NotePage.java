@@ -0,0 +1,22 @@
+package com.kenzie.appserver.service.model;
+
+import java.util.List;
+
+public class NotePage {
+    private final List<Note> notes;
+    private final String nextCursor;
+
+    public NotePage(List<Note> notes, String nextCursor) {
+        this.notes = notes;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Note> getNotes() {
+        return notes;
+    }
+
+    // null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,26 @@
+package com.kenzie.appserver.service.model;
+
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+
+import java.util.List;
+
+public class ReviewBatchResult {
+    private final List<StudyGroupReviewRecord> unwritten;
+    private final List<StudyGroupRatingRecord> uncountedRatings;
+
+    public ReviewBatchResult(List<StudyGroupReviewRecord> unwritten, List<StudyGroupRatingRecord> uncountedRatings) {
+        this.unwritten = unwritten;
+        this.uncountedRatings = uncountedRatings;
+    }
+
+    // reviews that could not be written; their ratings are not counted
+    public List<StudyGroupReviewRecord> getUnwritten() {
+        return unwritten;
+    }
+
+    // per-group totals of reviews that were written but could not be added to the group's rating totals
+    public List<StudyGroupRatingRecord> getUncountedRatings() {
+        return uncountedRatings;
+    }
+}
@@ -10,14 +10,23 @@ public class StudyGroup {
     private String discussionTopic;
     private ZonedDateTime creationDate;
     private boolean active;
+    // the stored version, null if unknown
+    private Long version;
     public StudyGroup(String groupId, String groupName,
                       String discussionTopic, ZonedDateTime creationDate,
                       boolean active) {
+        this(groupId, groupName, discussionTopic, creationDate, active, null);
+    }
+
+    public StudyGroup(String groupId, String groupName,
+                      String discussionTopic, ZonedDateTime creationDate,
+                      boolean active, Long version) {
         this.groupId = groupId;
         this.groupName = groupName;
         this.discussionTopic = discussionTopic;
         this.creationDate = creationDate;
         this.active = active;
+        this.version = version;
     }
 
     public StudyGroup() {
@@ -59,4 +68,12 @@ public class StudyGroup {
     public void setActive(boolean active) {
         this.active = active;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
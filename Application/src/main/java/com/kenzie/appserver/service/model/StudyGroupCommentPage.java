@@ -0,0 +1,22 @@
+package com.kenzie.appserver.service.model;
+
+import java.util.List;
+
+public class StudyGroupCommentPage {
+    private final List<String> comments;
+    private final String nextCursor;
+
+    public StudyGroupCommentPage(List<String> comments, String nextCursor) {
+        this.comments = comments;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<String> getComments() {
+        return comments;
+    }
+
+    // null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.kenzie.appserver.service.model;
+
+import java.util.List;
+
+public class StudyGroupMemberPage {
+    private final List<StudyGroupMember> members;
+    private final String nextCursor;
+
+    public StudyGroupMemberPage(List<StudyGroupMember> members, String nextCursor) {
+        this.members = members;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<StudyGroupMember> getMembers() {
+        return members;
+    }
+
+    // null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.kenzie.appserver.service.model;
+
+import java.util.List;
+
+public class StudyGroupPage {
+    private final List<StudyGroup> studyGroups;
+    private final String nextCursor;
+
+    public StudyGroupPage(List<StudyGroup> studyGroups, String nextCursor) {
+        this.studyGroups = studyGroups;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<StudyGroup> getStudyGroups() {
+        return studyGroups;
+    }
+
+    // null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,59 @@
+package com.kenzie.appserver.service.model;
+
+import java.util.Arrays;
+
+public class StudyGroupRating {
+    private final String groupId;
+    private final String groupName;
+    private final String discussionTopic;
+    private final long reviewCount;
+    private final double ratingSum;
+    // index 0 holds one-star reviews
+    private final long[] histogram;
+
+    public StudyGroupRating(String groupId, long reviewCount, double ratingSum, long[] histogram) {
+        this(groupId, null, null, reviewCount, ratingSum, histogram);
+    }
+
+    public StudyGroupRating(String groupId, String groupName, String discussionTopic, long reviewCount,
+                            double ratingSum, long[] histogram) {
+        this.groupId = groupId;
+        this.groupName = groupName;
+        this.discussionTopic = discussionTopic;
+        this.reviewCount = reviewCount;
+        this.ratingSum = ratingSum;
+        this.histogram = Arrays.copyOf(histogram, histogram.length);
+    }
+
+    public static StudyGroupRating none(String groupId) {
+        return new StudyGroupRating(groupId, 0, 0.0, new long[5]);
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public String getGroupName() {
+        return groupName;
+    }
+
+    public String getDiscussionTopic() {
+        return discussionTopic;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public double getRatingSum() {
+        return ratingSum;
+    }
+
+    public long[] getHistogram() {
+        return Arrays.copyOf(histogram, histogram.length);
+    }
+
+    public double getAverageRating() {
+        return reviewCount > 0 ? ratingSum / reviewCount : 0.0;
+    }
+}
@@ -0,0 +1,23 @@
+package com.kenzie.appserver.service.model;
+
+import java.util.List;
+
+public class StudyGroupRatingPage {
+    private final List<StudyGroupRating> ratings;
+    private final String nextCursor;
+
+    public StudyGroupRatingPage(List<StudyGroupRating> ratings, String nextCursor) {
+        this.ratings = ratings;
+        this.nextCursor = nextCursor;
+    }
+
+    // highest average rating first
+    public List<StudyGroupRating> getRatings() {
+        return ratings;
+    }
+
+    // null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,22 @@
+package com.kenzie.appserver.service.model;
+
+import java.util.List;
+
+public class StudyGroupReviewPage {
+    private final List<StudyGroupReview> reviews;
+    private final String nextCursor;
+
+    public StudyGroupReviewPage(List<StudyGroupReview> reviews, String nextCursor) {
+        this.reviews = reviews;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<StudyGroupReview> getReviews() {
+        return reviews;
+    }
+
+    // null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -12,13 +12,21 @@ public class User {
     private String firstName;
 
     private ZonedDateTime creationDate;
+    // the stored version, null if unknown
+    private Long version;
 
     public User(String email, String password, String lastName, String firstName, ZonedDateTime creationDate) {
+        this(email, password, lastName, firstName, creationDate, null);
+    }
+
+    public User(String email, String password, String lastName, String firstName, ZonedDateTime creationDate,
+                Long version) {
         this.email = email;
         this.password = password;
         this.lastName = lastName;
         this.firstName = firstName;
         this.creationDate = creationDate;
+        this.version = version;
     }
 
     public String getEmail() {
@@ -60,4 +68,12 @@ public class User {
     public void setCreationDate(ZonedDateTime creationDate) {
         this.creationDate = creationDate;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
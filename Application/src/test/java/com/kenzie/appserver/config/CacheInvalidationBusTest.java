@@ -0,0 +1,100 @@
+package com.kenzie.appserver.config;
+
+import com.kenzie.appserver.service.model.StudyGroup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheInvalidationBusTest {
+
+    private InMemoryInvalidationTransport transport;
+    private MeterRegistry meterRegistry;
+    private final List<CacheInvalidationBus> buses = new ArrayList<>();
+
+    @BeforeEach
+    void setup() {
+        transport = new InMemoryInvalidationTransport();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        buses.forEach(CacheInvalidationBus::close);
+    }
+
+    @Test
+    void invalidate_burstOfKeys_publishedAsOneDedupedMessage() {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        transport.subscribe(messages::add);
+        CacheInvalidationBus sender = newBus(Duration.ofHours(1));
+        CacheInvalidationBus receiver = newBus(Duration.ofHours(1));
+        List<String> received = new CopyOnWriteArrayList<>();
+        receiver.addListener(received::add);
+
+        sender.invalidate("1");
+        sender.invalidate("2");
+        sender.invalidate("1");
+        sender.flush();
+
+        assertEquals(1, messages.size());
+        assertEquals(List.of("1", "2"), received);
+    }
+
+    @Test
+    void invalidate_ownMessagesIgnored() {
+        CacheInvalidationBus subject = newBus(Duration.ofHours(1));
+        List<String> received = new CopyOnWriteArrayList<>();
+        subject.addListener(received::add);
+
+        subject.invalidate("1");
+        subject.flush();
+
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void update_otherInstanceDropsStaleCopyWithinBatchWindow() throws InterruptedException {
+        Map<String, StudyGroup> table = new ConcurrentHashMap<>();
+        table.put("1", studyGroup("Old name"));
+        CacheStore first = newCacheStore(table, newBus(Duration.ofMillis(5)));
+        CacheStore second = newCacheStore(table, newBus(Duration.ofMillis(5)));
+        assertEquals("Old name", second.get("1", table::get).getGroupName());
+
+        table.put("1", studyGroup("New name"));
+        first.add("1", studyGroup("New name"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (second.get("1") != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("New name", second.get("1", table::get).getGroupName());
+        assertEquals("New name", first.get("1").getGroupName());
+    }
+
+    private CacheInvalidationBus newBus(Duration batchWindow) {
+        CacheInvalidationBus bus = new CacheInvalidationBus(transport, batchWindow, 500, meterRegistry);
+        buses.add(bus);
+        return bus;
+    }
+
+    private CacheStore newCacheStore(Map<String, StudyGroup> table, CacheInvalidationBus bus) {
+        return new CacheStore(1_000_000, Duration.ofHours(1), Duration.ofHours(1), Duration.ofMinutes(1),
+                table::get, null, Duration.ofHours(1), bus, meterRegistry, "test" + buses.size());
+    }
+
+    private static StudyGroup studyGroup(String groupName) {
+        return new StudyGroup("1", groupName, "API", ZonedDateTime.now(), true);
+    }
+}
@@ -0,0 +1,85 @@
+package com.kenzie.appserver.config;
+
+import com.kenzie.appserver.service.model.StudyGroup;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheSnapshotFileTest {
+
+    private static final long ONE_DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeThenRead_roundTripsStudyGroups() throws IOException {
+        CacheSnapshotFile subject = new CacheSnapshotFile(directory.resolve("cache.snapshot"));
+        ZonedDateTime creationDate = ZonedDateTime.parse("2023-05-01T10:15:30.123456789-05:00[America/Chicago]");
+        List<StudyGroup> groups = Arrays.asList(
+                new StudyGroup("1", "Group 1", "API", creationDate, true, 7L),
+                new StudyGroup("2", "Gr\u00fcppe \u2713", null, null, false));
+
+        subject.write(groups);
+        CacheSnapshotFile.Snapshot snapshot = subject.read(ONE_DAY_MILLIS);
+
+        assertEquals(2, snapshot.getStudyGroups().size());
+        StudyGroup first = snapshot.getStudyGroups().get(0);
+        assertEquals("1", first.getGroupId());
+        assertEquals("Group 1", first.getGroupName());
+        assertEquals("API", first.getDiscussionTopic());
+        assertEquals(creationDate, first.getCreationDate());
+        assertTrue(first.isActive());
+        assertEquals(7L, first.getVersion());
+        StudyGroup second = snapshot.getStudyGroups().get(1);
+        assertEquals("Gr\u00fcppe \u2713", second.getGroupName());
+        assertNull(second.getDiscussionTopic());
+        assertNull(second.getCreationDate());
+        assertFalse(second.isActive());
+        assertNull(second.getVersion());
+    }
+
+    @Test
+    void read_noFile_returnsNull() throws IOException {
+        assertNull(new CacheSnapshotFile(directory.resolve("missing.snapshot")).read(ONE_DAY_MILLIS));
+    }
+
+    @Test
+    void read_corruptFile_returnsNull() throws IOException {
+        Path path = directory.resolve("cache.snapshot");
+        CacheSnapshotFile subject = new CacheSnapshotFile(path);
+        subject.write(Arrays.asList(new StudyGroup("1", "Group 1", "API", ZonedDateTime.now(), true)));
+
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[30] ^= 0x7f;
+        Files.write(path, bytes);
+
+        assertNull(subject.read(ONE_DAY_MILLIS));
+    }
+
+    @Test
+    void read_entryWithoutGroupId_returnsNull() throws IOException {
+        CacheSnapshotFile subject = new CacheSnapshotFile(directory.resolve("cache.snapshot"));
+        // a well-formed file with a valid CRC, but holding an entry no cache can have
+        subject.write(Arrays.asList(new StudyGroup(null, "Group 1", "API", ZonedDateTime.now(), true)));
+
+        assertNull(subject.read(ONE_DAY_MILLIS));
+    }
+
+    @Test
+    void read_olderThanMaxAge_returnsNull() throws IOException, InterruptedException {
+        CacheSnapshotFile subject = new CacheSnapshotFile(directory.resolve("cache.snapshot"));
+        subject.write(Arrays.asList(new StudyGroup("1", "Group 1", "API", ZonedDateTime.now(), true)));
+        Thread.sleep(5);
+
+        assertNull(subject.read(1));
+    }
+}
@@ -0,0 +1,251 @@
+package com.kenzie.appserver.config;
+
+import com.kenzie.appserver.service.model.StudyGroup;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheStoreTest {
+
+    private final Map<String, StudyGroup> backingStore = new ConcurrentHashMap<>();
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        backingStore.clear();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void addGetEvict() {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1));
+        StudyGroup group = studyGroup("1", "Group1");
+
+        subject.add("1", group);
+        assertEquals(group, subject.get("1"));
+
+        subject.evict("1");
+        subject.evict(null);
+        assertNull(subject.get("1"));
+    }
+
+    @Test
+    void get_statsPublishedToMeterRegistry() {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1));
+        subject.add("1", studyGroup("1", "Group1"));
+
+        subject.get("1");
+        subject.get("2");
+
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "test").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "test").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void get_afterRefreshInterval_reloadsInBackground() throws InterruptedException {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofMillis(1));
+        subject.add("1", studyGroup("1", "Old name"));
+        backingStore.put("1", studyGroup("1", "New name"));
+        Thread.sleep(5);
+
+        // the stale value is served while the refresh runs
+        assertEquals("Old name", subject.get("1").getGroupName());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"New name".equals(subject.get("1").getGroupName()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("New name", subject.get("1").getGroupName());
+    }
+
+    @Test
+    void get_concurrentMisses_loadOnce() throws Exception {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<StudyGroup>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> subject.get("1", key -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return studyGroup(key, "Group1");
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<StudyGroup> result : results) {
+                assertEquals("Group1", result.get(5, TimeUnit.SECONDS).getGroupName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_unknownKey_cachedAsMissingUntilAdded() {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        assertNull(subject.get("1", key -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(subject.get("1", key -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertEquals(1, loads.get());
+
+        subject.add("1", studyGroup("1", "Group1"));
+        assertEquals("Group1", subject.get("1", key -> null).getGroupName());
+    }
+
+    @Test
+    void get_loaderThrows_notCachedAsMissing() {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1));
+
+        assertThrows(IllegalStateException.class, () -> subject.get("1", key -> {
+            throw new IllegalStateException("throttled");
+        }));
+
+        assertEquals("Group1", subject.get("1", key -> studyGroup(key, "Group1")).getGroupName());
+    }
+
+    @Test
+    void evict_clearsMissingKey() {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1));
+        subject.get("1", key -> null);
+
+        subject.evict("1");
+
+        assertEquals("Group1", subject.get("1", key -> studyGroup(key, "Group1")).getGroupName());
+    }
+
+    @Test
+    void get_sharedTier_newInstanceStartsWarm() {
+        InMemoryCacheTier sharedTier = new InMemoryCacheTier();
+        CacheStore first = newCacheStore(1_000_000, Duration.ofHours(1), sharedTier);
+        CacheStore second = newCacheStore(1_000_000, Duration.ofHours(1), sharedTier);
+        StudyGroup group = new StudyGroup("1", "Group1", "API", ZonedDateTime.parse("2023-05-01T10:15:30-05:00"), true);
+        AtomicInteger loads = new AtomicInteger();
+
+        first.get("1", key -> {
+            loads.incrementAndGet();
+            return group;
+        });
+        StudyGroup result = second.get("1", key -> {
+            loads.incrementAndGet();
+            return null;
+        });
+
+        assertEquals(1, loads.get());
+        assertEquals("Group1", result.getGroupName());
+        assertEquals(group.getCreationDate(), result.getCreationDate());
+        assertTrue(result.isActive());
+    }
+
+    @Test
+    void addAndEvict_writeThroughToSharedTier() {
+        InMemoryCacheTier sharedTier = new InMemoryCacheTier();
+        CacheStore first = newCacheStore(1_000_000, Duration.ofHours(1), sharedTier);
+        CacheStore second = newCacheStore(1_000_000, Duration.ofHours(1), sharedTier);
+
+        first.add("1", studyGroup("1", "Updated"));
+        assertEquals("Updated", second.get("1", key -> null).getGroupName());
+
+        first.evict("1");
+        assertNull(sharedTier.get("1"));
+    }
+
+    @Test
+    void get_sharedTierUnavailable_fallsBackToLoader() {
+        CacheTier brokenTier = new CacheTier() {
+            @Override
+            public String get(String key) {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public void put(String key, String value, Duration ttl) {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public void delete(String key) {
+                throw new IllegalStateException("connection refused");
+            }
+        };
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1), brokenTier);
+
+        assertEquals("Group1", subject.get("1", key -> studyGroup(key, "Group1")).getGroupName());
+        subject.evict("1");
+        assertEquals(3.0, meterRegistry.get("cache.shared.errors").counter().count());
+    }
+
+    @Test
+    void replaceLocal_entryChangedSinceRestore_leftAlone() {
+        CacheStore subject = newCacheStore(1_000_000, Duration.ofHours(1));
+        StudyGroup restored = studyGroup("1", "Restored");
+        StudyGroup newer = studyGroup("1", "Newer");
+        subject.addLocal("1", restored);
+        subject.addLocal("2", studyGroup("2", "Restored"));
+
+        assertTrue(subject.replaceLocal("1", restored, studyGroup("1", "Reconciled")));
+        assertEquals("Reconciled", subject.get("1").getGroupName());
+
+        subject.add("1", newer);
+        assertFalse(subject.replaceLocal("1", restored, studyGroup("1", "Reconciled")));
+        subject.evictLocal("1", restored);
+        assertSame(newer, subject.get("1"));
+
+        subject.evictLocal("2");
+        assertFalse(subject.replaceLocal("2", restored, studyGroup("2", "Reconciled")));
+        assertNull(subject.get("2"));
+    }
+
+    @Test
+    void weigh_growsWithContent() {
+        StudyGroup small = studyGroup("1", "a");
+        StudyGroup large = studyGroup("1", "a much longer study group name");
+
+        assertTrue(CacheStore.weigh("1", large) > CacheStore.weigh("1", small));
+    }
+
+    private CacheStore newCacheStore(long maxWeightBytes, Duration refreshAfterWrite) {
+        return newCacheStore(maxWeightBytes, refreshAfterWrite, null);
+    }
+
+    private CacheStore newCacheStore(long maxWeightBytes, Duration refreshAfterWrite, CacheTier sharedTier) {
+        return new CacheStore(maxWeightBytes, Duration.ofHours(1), refreshAfterWrite, Duration.ofMinutes(1),
+                backingStore::get, sharedTier, Duration.ofHours(1), null, meterRegistry, "test");
+    }
+
+    private static StudyGroup studyGroup(String groupId, String groupName) {
+        return new StudyGroup(groupId, groupName, "API", ZonedDateTime.now(), true);
+    }
+}
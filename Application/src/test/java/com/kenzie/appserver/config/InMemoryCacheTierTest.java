@@ -0,0 +1,52 @@
+package com.kenzie.appserver.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryCacheTierTest {
+
+    @Test
+    void get_afterTtl_returnsNull() {
+        AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2023-05-01T00:00:00Z"));
+        Clock clock = new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(java.time.ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return now.get();
+            }
+        };
+        InMemoryCacheTier subject = new InMemoryCacheTier(clock);
+
+        subject.put("key", "value", Duration.ofSeconds(10));
+        assertEquals("value", subject.get("key"));
+
+        now.set(now.get().plusSeconds(10));
+        assertNull(subject.get("key"));
+    }
+
+    @Test
+    void delete_removesValue() {
+        InMemoryCacheTier subject = new InMemoryCacheTier();
+        subject.put("key", "value", Duration.ofMinutes(1));
+
+        subject.delete("key");
+
+        assertNull(subject.get("key"));
+    }
+}
@@ -0,0 +1,29 @@
+package com.kenzie.appserver.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoteBlobStoreConfigTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void checkedDirectory_singleInstance_accepted() {
+        assertEquals(directory, NoteBlobStoreConfig.checkedDirectory(directory.toString(), 1));
+    }
+
+    @Test
+    void checkedDirectory_relativePath_refused() {
+        assertThrows(IllegalStateException.class, () -> NoteBlobStoreConfig.checkedDirectory("note-blobs", 1));
+    }
+
+    @Test
+    void checkedDirectory_severalInstances_refused() {
+        assertThrows(IllegalStateException.class,
+                () -> NoteBlobStoreConfig.checkedDirectory(directory.toString(), 3));
+    }
+}
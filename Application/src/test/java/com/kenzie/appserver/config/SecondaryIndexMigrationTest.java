@@ -0,0 +1,216 @@
+package com.kenzie.appserver.config;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.BillingModeSummary;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTimeToLiveResult;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndex;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexUpdate;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.TimeToLiveDescription;
+import com.amazonaws.services.dynamodbv2.model.UpdateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateTimeToLiveRequest;
+import com.kenzie.appserver.repositories.model.CascadeDeletionJobRecord;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class SecondaryIndexMigrationTest {
+    private AmazonDynamoDB amazonDynamoDB;
+    private SecondaryIndexMigration subject;
+
+    @BeforeEach
+    void setup() {
+        amazonDynamoDB = mock(AmazonDynamoDB.class);
+        subject = new SecondaryIndexMigration(amazonDynamoDB, new DynamoDBMapper(amazonDynamoDB),
+                DynamoDBMapperConfig.DEFAULT, true,
+                "ALL", 10, 1, Duration.ofSeconds(30));
+    }
+
+    @Test
+    void migrate_indexMissing_createsIt() {
+        when(amazonDynamoDB.describeTable(anyString()))
+                .thenReturn(new DescribeTableResult().withTable(new TableDescription()));
+
+        assertEquals(StudyGroupMemberRecord.MEMBER_ID_INDEX, subject.migrate(StudyGroupMemberRecord.class));
+
+        ArgumentCaptor<UpdateTableRequest> request = ArgumentCaptor.forClass(UpdateTableRequest.class);
+        verify(amazonDynamoDB).updateTable(request.capture());
+        GlobalSecondaryIndexUpdate update = request.getValue().getGlobalSecondaryIndexUpdates().get(0);
+        assertEquals(StudyGroupMemberRecord.MEMBER_ID_INDEX, update.getCreate().getIndexName());
+        assertEquals(2, update.getCreate().getKeySchema().size());
+        assertEquals(2, request.getValue().getAttributeDefinitions().size());
+        assertEquals(10L, update.getCreate().getProvisionedThroughput().getReadCapacityUnits());
+    }
+
+    @Test
+    void migrate_onDemandTable_createsIndexWithoutCapacity() {
+        when(amazonDynamoDB.describeTable(anyString())).thenReturn(new DescribeTableResult().withTable(
+                new TableDescription().withBillingModeSummary(
+                        new BillingModeSummary().withBillingMode("PAY_PER_REQUEST"))));
+
+        subject.migrate(StudyGroupMemberRecord.class);
+
+        ArgumentCaptor<UpdateTableRequest> request = ArgumentCaptor.forClass(UpdateTableRequest.class);
+        verify(amazonDynamoDB).updateTable(request.capture());
+        assertNull(request.getValue().getGlobalSecondaryIndexUpdates().get(0).getCreate()
+                .getProvisionedThroughput());
+    }
+
+    @Test
+    void migrate_indexPresent_leavesTableAlone() {
+        when(amazonDynamoDB.describeTable(anyString())).thenReturn(new DescribeTableResult().withTable(
+                new TableDescription().withGlobalSecondaryIndexes(new GlobalSecondaryIndexDescription()
+                        .withIndexName(StudyGroupMemberRecord.MEMBER_ID_INDEX).withIndexStatus("ACTIVE"))));
+
+        assertNull(subject.migrate(StudyGroupMemberRecord.class));
+
+        verify(amazonDynamoDB, never()).updateTable(any(UpdateTableRequest.class));
+    }
+
+    @Test
+    void migrate_reviewIdIndexMissing_createsIt() {
+        when(amazonDynamoDB.describeTable(anyString())).thenReturn(new DescribeTableResult().withTable(
+                new TableDescription().withGlobalSecondaryIndexes(new GlobalSecondaryIndexDescription()
+                        .withIndexName(StudyGroupReviewRecord.DISCUSSION_TOPIC_INDEX).withIndexStatus("ACTIVE"))));
+
+        assertEquals(StudyGroupReviewRecord.REVIEW_ID_INDEX, subject.migrate(StudyGroupReviewRecord.class));
+    }
+
+    @Test
+    void migrate_userIdIndexMissing_createsIt() {
+        when(amazonDynamoDB.describeTable(anyString()))
+                .thenReturn(new DescribeTableResult().withTable(new TableDescription()));
+
+        assertEquals(NoteRecord.USER_ID_INDEX, subject.migrate(NoteRecord.class));
+    }
+
+    @Test
+    void migrate_indexStillBuilding_waits() {
+        when(amazonDynamoDB.describeTable(anyString())).thenReturn(new DescribeTableResult().withTable(
+                new TableDescription().withGlobalSecondaryIndexes(new GlobalSecondaryIndexDescription()
+                        .withIndexName(StudyGroupReviewRecord.DISCUSSION_TOPIC_INDEX).withIndexStatus("CREATING"))));
+
+        assertNull(subject.migrate(StudyGroupReviewRecord.class));
+
+        verify(amazonDynamoDB, never()).updateTable(any(UpdateTableRequest.class));
+    }
+
+    @Test
+    void isActive_onlyOnceTheIndexIsActive() {
+        when(amazonDynamoDB.describeTable(anyString())).thenReturn(new DescribeTableResult().withTable(
+                new TableDescription().withGlobalSecondaryIndexes(new GlobalSecondaryIndexDescription()
+                        .withIndexName(StudyGroupReviewRecord.REVIEW_ID_INDEX).withIndexStatus("CREATING"))));
+        assertFalse(subject.isActive(StudyGroupReviewRecord.class, StudyGroupReviewRecord.REVIEW_ID_INDEX));
+
+        subject.migrate(StudyGroupReviewRecord.class);
+        assertFalse(subject.isActive(StudyGroupReviewRecord.class, StudyGroupReviewRecord.REVIEW_ID_INDEX));
+
+        when(amazonDynamoDB.describeTable(anyString())).thenReturn(new DescribeTableResult().withTable(
+                new TableDescription().withGlobalSecondaryIndexes(new GlobalSecondaryIndexDescription()
+                        .withIndexName(StudyGroupReviewRecord.REVIEW_ID_INDEX).withIndexStatus("ACTIVE"))));
+        subject.migrate(StudyGroupReviewRecord.class);
+        assertTrue(subject.isActive(StudyGroupReviewRecord.class, StudyGroupReviewRecord.REVIEW_ID_INDEX));
+    }
+
+    @Test
+    void migrateAll_requestsIndexesUntilEveryOneIsActive() {
+        when(amazonDynamoDB.describeTable(anyString()))
+                .thenReturn(new DescribeTableResult().withTable(new TableDescription()));
+        assertFalse(subject.migrateAll());
+        verify(amazonDynamoDB, times(SecondaryIndexMigration.RECORDS.size()))
+                .updateTable(any(UpdateTableRequest.class));
+
+        // every table now reports every declared index, of any record, as ACTIVE
+        List<GlobalSecondaryIndexDescription> active = new ArrayList<>();
+        DynamoDBMapper mapper = new DynamoDBMapper(amazonDynamoDB);
+        for (Class<?> recordClass : SecondaryIndexMigration.RECORDS) {
+            for (GlobalSecondaryIndex index : mapper.generateCreateTableRequest(recordClass)
+                    .getGlobalSecondaryIndexes()) {
+                active.add(new GlobalSecondaryIndexDescription().withIndexName(index.getIndexName())
+                        .withIndexStatus("ACTIVE"));
+            }
+        }
+        when(amazonDynamoDB.describeTable(anyString())).thenReturn(new DescribeTableResult().withTable(
+                new TableDescription().withGlobalSecondaryIndexes(active)));
+
+        assertTrue(subject.migrateAll());
+        assertTrue(subject.isActive(CascadeDeletionJobRecord.class, CascadeDeletionJobRecord.STATUS_INDEX));
+    }
+
+    @Test
+    void isActive_migrationDisabled_assumesIndexesExist() {
+        SecondaryIndexMigration disabled = new SecondaryIndexMigration(amazonDynamoDB,
+                new DynamoDBMapper(amazonDynamoDB), DynamoDBMapperConfig.DEFAULT, false, "ALL", 10, 1,
+                Duration.ofSeconds(30));
+
+        assertTrue(disabled.isActive(NoteRecord.class, NoteRecord.USER_ID_INDEX));
+    }
+
+    @Test
+    void migrate_tableMissing_leftToEntity2ddl() {
+        when(amazonDynamoDB.describeTable(anyString())).thenThrow(new ResourceNotFoundException("missing"));
+
+        assertNull(subject.migrate(StudyGroupMemberRecord.class));
+
+        verify(amazonDynamoDB, never()).updateTable(any(UpdateTableRequest.class));
+    }
+
+    @Test
+    void enableTimeToLive_disabled_turnsItOn() {
+        when(amazonDynamoDB.describeTimeToLive(any(DescribeTimeToLiveRequest.class))).thenReturn(
+                new DescribeTimeToLiveResult().withTimeToLiveDescription(
+                        new TimeToLiveDescription().withTimeToLiveStatus("DISABLED")));
+
+        assertTrue(subject.enableTimeToLive(CascadeDeletionJobRecord.class, CascadeDeletionJobRecord.EXPIRES_AT));
+
+        ArgumentCaptor<UpdateTimeToLiveRequest> request = ArgumentCaptor.forClass(UpdateTimeToLiveRequest.class);
+        verify(amazonDynamoDB).updateTimeToLive(request.capture());
+        assertEquals("CascadeDeletionJob", request.getValue().getTableName());
+        assertEquals(CascadeDeletionJobRecord.EXPIRES_AT,
+                request.getValue().getTimeToLiveSpecification().getAttributeName());
+    }
+
+    @Test
+    void enableTimeToLive_tableNameOverride_usesResolvedName() {
+        SecondaryIndexMigration prefixed = new SecondaryIndexMigration(amazonDynamoDB,
+                new DynamoDBMapper(amazonDynamoDB), DynamoDBMapperConfig.builder()
+                .withTableNameOverride(DynamoDBMapperConfig.TableNameOverride.withTableNamePrefix("test-"))
+                .build(), true, "ALL", 10, 1, Duration.ofSeconds(30));
+        when(amazonDynamoDB.describeTimeToLive(any(DescribeTimeToLiveRequest.class))).thenReturn(
+                new DescribeTimeToLiveResult().withTimeToLiveDescription(
+                        new TimeToLiveDescription().withTimeToLiveStatus("DISABLED")));
+
+        prefixed.enableTimeToLive(CascadeDeletionJobRecord.class, CascadeDeletionJobRecord.EXPIRES_AT);
+
+        ArgumentCaptor<UpdateTimeToLiveRequest> request = ArgumentCaptor.forClass(UpdateTimeToLiveRequest.class);
+        verify(amazonDynamoDB).updateTimeToLive(request.capture());
+        assertEquals("test-CascadeDeletionJob", request.getValue().getTableName());
+    }
+
+    @Test
+    void enableTimeToLive_alreadyEnabled_leavesTableAlone() {
+        when(amazonDynamoDB.describeTimeToLive(any(DescribeTimeToLiveRequest.class))).thenReturn(
+                new DescribeTimeToLiveResult().withTimeToLiveDescription(
+                        new TimeToLiveDescription().withTimeToLiveStatus("ENABLED")));
+
+        assertFalse(subject.enableTimeToLive(CascadeDeletionJobRecord.class, CascadeDeletionJobRecord.EXPIRES_AT));
+
+        verify(amazonDynamoDB, never()).updateTimeToLive(any(UpdateTimeToLiveRequest.class));
+    }
+}
@@ -0,0 +1,161 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberId;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class BatchWriterTest {
+    private static final int CONCURRENCY = 2;
+
+    // answers batchWrite calls in place of DynamoDB
+    private volatile BatchWriteCall batchWrite;
+    private SimpleMeterRegistry meterRegistry;
+    private BatchWriter batchWriter;
+
+    @BeforeEach
+    void setup() {
+        DynamoDBMapper mapper = new DynamoDBMapper(mock(AmazonDynamoDB.class)) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public List<FailedBatch> batchWrite(Iterable<?> objectsToWrite, Iterable<?> objectsToDelete,
+                                                DynamoDBMapperConfig config) {
+                return batchWrite.apply((List<StudyGroupMemberRecord>) objectsToWrite,
+                        (List<StudyGroupMemberRecord>) objectsToDelete);
+            }
+        };
+        meterRegistry = new SimpleMeterRegistry();
+        batchWriter = new BatchWriter(mapper, meterRegistry, CONCURRENCY, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchWriter.shutdown();
+    }
+
+    @Test
+    void saveAll_splitsIntoBatchesOf25() {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        batchWrite = (puts, deletes) -> {
+            batchSizes.add(puts.size());
+            assertTrue(deletes.isEmpty());
+            return new ArrayList<>();
+        };
+
+        List<StudyGroupMemberRecord> unwritten = batchWriter.saveAll(records(60));
+
+        assertTrue(unwritten.isEmpty());
+        List<Integer> sorted = new ArrayList<>(batchSizes);
+        Collections.sort(sorted);
+        assertEquals(List.of(10, 25, 25), sorted);
+        assertEquals(60, meterRegistry.counter("dynamodb.batch.write.items", "table", "StudyGroupMember",
+                "operation", "put", "result", "written").count());
+    }
+
+    @Test
+    void deleteAll_runsAtMostConcurrencyBatchesAtATime() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        batchWrite = (puts, deletes) -> {
+            assertTrue(puts.isEmpty());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return new ArrayList<>();
+        };
+
+        List<StudyGroupMemberRecord> unwritten = batchWriter.deleteAll(records(200));
+
+        assertTrue(unwritten.isEmpty());
+        assertTrue(maxRunning.get() <= CONCURRENCY);
+    }
+
+    @Test
+    void saveAll_itemsStillUnprocessedAfterRetries_areReturned() {
+        batchWrite = (puts, deletes) -> Collections.singletonList(failedBatch(
+                new WriteRequest().withPutRequest(new PutRequest().withItem(key("member1@aol.com")))));
+
+        List<StudyGroupMemberRecord> unwritten = batchWriter.saveAll(records(3));
+
+        assertEquals(1, unwritten.size());
+        assertEquals("member1@aol.com", unwritten.get(0).getMemberId());
+        assertEquals(1, meterRegistry.counter("dynamodb.batch.write.items", "table", "StudyGroupMember",
+                "operation", "put", "result", "unwritten").count());
+    }
+
+    @Test
+    void deleteAll_keysStillUnprocessedAfterRetries_areReturned() {
+        batchWrite = (puts, deletes) -> Collections.singletonList(failedBatch(
+                new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key("member2@aol.com")))));
+
+        List<StudyGroupMemberRecord> unwritten = batchWriter.deleteAll(records(3));
+
+        assertEquals(1, unwritten.size());
+        assertEquals("member2@aol.com", unwritten.get(0).getMemberId());
+    }
+
+    @Test
+    void saveAll_batchThrows_returnsWholeBatch() {
+        batchWrite = (puts, deletes) -> {
+            throw new RuntimeException("throttled");
+        };
+
+        List<StudyGroupMemberRecord> unwritten = batchWriter.saveAll(records(30));
+
+        assertEquals(30, unwritten.size());
+    }
+
+    private interface BatchWriteCall {
+        List<DynamoDBMapper.FailedBatch> apply(List<StudyGroupMemberRecord> puts, List<StudyGroupMemberRecord> deletes);
+    }
+
+    private static DynamoDBMapper.FailedBatch failedBatch(WriteRequest writeRequest) {
+        Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+        unprocessed.put("StudyGroupMember", Collections.singletonList(writeRequest));
+        DynamoDBMapper.FailedBatch failedBatch = new DynamoDBMapper.FailedBatch();
+        failedBatch.setUnprocessedItems(unprocessed);
+        return failedBatch;
+    }
+
+    private static Map<String, AttributeValue> key(String memberId) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("GroupId", new AttributeValue().withS("1"));
+        key.put("MemberId", new AttributeValue().withS(memberId));
+        return key;
+    }
+
+    private static List<StudyGroupMemberRecord> records(int count) {
+        List<StudyGroupMemberRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(new StudyGroupMemberRecord(new StudyGroupMemberId("1", "member" + i + "@aol.com"),
+                    "group1", "API", ZonedDateTime.now(), true));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,57 @@
+package com.kenzie.appserver.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSystemNoteBlobStoreTest {
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final byte[] CONTENT = "test".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private FileSystemNoteBlobStore subject;
+
+    @BeforeEach
+    void setup() {
+        subject = new FileSystemNoteBlobStore(directory);
+    }
+
+    @Test
+    void retain_identicalContent_storedOnce() {
+        assertTrue(subject.retain(HASH, CONTENT));
+        assertFalse(subject.retain(HASH, CONTENT));
+
+        assertArrayEquals(CONTENT, subject.get(HASH));
+    }
+
+    @Test
+    void release_deletesBlobWithLastReference() {
+        subject.retain(HASH, CONTENT);
+        subject.retain(HASH, CONTENT);
+
+        subject.release(HASH);
+        assertArrayEquals(CONTENT, subject.get(HASH));
+
+        subject.release(HASH);
+        assertNull(subject.get(HASH));
+    }
+
+    @Test
+    void release_unknownHash_ignored() {
+        subject.release(HASH);
+
+        assertTrue(subject.retain(HASH, CONTENT));
+    }
+
+    @Test
+    void get_notAHash_throws() {
+        assertThrows(IllegalArgumentException.class, () -> subject.get("../../etc/passwd"));
+    }
+}
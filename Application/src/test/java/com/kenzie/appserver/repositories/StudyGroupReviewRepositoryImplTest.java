@@ -0,0 +1,130 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBScanExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.datamodeling.ScanResultPage;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.config.SecondaryIndexMigration;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewId;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StudyGroupReviewRepositoryImplTest {
+    // the table, keyed by reviewId
+    private final Map<String, StudyGroupReviewRecord> reviews = new HashMap<>();
+    private final List<String> indexQueries = new ArrayList<>();
+    private final List<String> getItems = new ArrayList<>();
+    private final List<Map<String, AttributeValue>> scans = new ArrayList<>();
+    private SecondaryIndexMigration indexMigration;
+    private StudyGroupReviewRepositoryImpl subject;
+
+    @BeforeEach
+    void setup() {
+        DynamoDBMapper mapper = new DynamoDBMapper(mock(AmazonDynamoDB.class)) {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> QueryResultPage<T> queryPage(Class<T> clazz, DynamoDBQueryExpression<T> queryExpression,
+                                                    DynamoDBMapperConfig config) {
+                assertEquals(StudyGroupReviewRecord.REVIEW_ID_INDEX, queryExpression.getIndexName());
+                String reviewId = ((StudyGroupReviewRecord) queryExpression.getHashKeyValues()).getReviewId();
+                indexQueries.add(reviewId);
+                QueryResultPage<T> page = new QueryResultPage<>();
+                StudyGroupReviewRecord record = reviews.get(reviewId);
+                page.setResults(record == null ? Collections.emptyList() : Collections.singletonList((T) record));
+                return page;
+            }
+
+            // two pages of one review each; the filter keeps the ones with the requested id
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> ScanResultPage<T> scanPage(Class<T> clazz, DynamoDBScanExpression scanExpression,
+                                                  DynamoDBMapperConfig config) {
+                scans.add(scanExpression.getExclusiveStartKey());
+                String reviewId = scanExpression.getExpressionAttributeValues().get(":reviewId").getS();
+                boolean firstPage = scanExpression.getExclusiveStartKey() == null;
+                String scanned = firstPage ? "review0" : "review1";
+                ScanResultPage<T> page = new ScanResultPage<>();
+                StudyGroupReviewRecord record = reviews.get(scanned);
+                page.setResults(record != null && scanned.equals(reviewId)
+                        ? Collections.singletonList((T) record) : Collections.emptyList());
+                page.setLastEvaluatedKey(firstPage
+                        ? Collections.singletonMap("ReviewId", new AttributeValue().withS(scanned)) : null);
+                return page;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> T load(Class<T> clazz, Object hashKey, Object rangeKey, DynamoDBMapperConfig config) {
+                getItems.add(hashKey + "/" + rangeKey);
+                StudyGroupReviewRecord record = reviews.get((String) rangeKey);
+                return record != null && record.getGroupId().equals(hashKey) ? (T) record : null;
+            }
+        };
+        indexMigration = mock(SecondaryIndexMigration.class);
+        when(indexMigration.isActive(any(), anyString())).thenReturn(true);
+        subject = new StudyGroupReviewRepositoryImpl(mapper, indexMigration, 100);
+        reviews.put("review1", new StudyGroupReviewRecord(new StudyGroupReviewId("group1", "review1"),
+                "group one", "API", 4.0, "good", 4.0));
+    }
+
+    @Test
+    void findByReviewId_resolvesGroupOnceThenGetsItemByFullKey() {
+        Optional<StudyGroupReviewRecord> first = subject.findByReviewId("review1");
+        Optional<StudyGroupReviewRecord> second = subject.findByReviewId("review1");
+
+        assertTrue(first.isPresent());
+        assertTrue(second.isPresent());
+        assertEquals("group1", second.get().getGroupId());
+        assertEquals(Collections.singletonList("review1"), indexQueries);
+        assertEquals(Collections.singletonList("group1/review1"), getItems);
+    }
+
+    @Test
+    void findByReviewId_unknownReview_returnsEmpty() {
+        assertFalse(subject.findByReviewId("missing").isPresent());
+    }
+
+    @Test
+    void findByReviewId_reviewDeletedAfterLookup_returnsEmptyAndForgetsGroup() {
+        subject.findByReviewId("review1");
+        reviews.remove("review1");
+
+        assertFalse(subject.findByReviewId("review1").isPresent());
+        assertFalse(subject.findByReviewId("review1").isPresent());
+        assertEquals(2, indexQueries.size());
+    }
+
+    @Test
+    void findByReviewId_indexNotActive_scansUntilFound() {
+        when(indexMigration.isActive(StudyGroupReviewRecord.class, StudyGroupReviewRecord.REVIEW_ID_INDEX))
+                .thenReturn(false);
+
+        Optional<StudyGroupReviewRecord> found = subject.findByReviewId("review1");
+
+        assertTrue(found.isPresent());
+        assertEquals(2, scans.size());
+        assertTrue(indexQueries.isEmpty());
+        // the group is remembered, so the next read is a GetItem
+        subject.findByReviewId("review1");
+        assertEquals(2, scans.size());
+        assertEquals(Collections.singletonList("group1/review1"), getItems);
+    }
+}
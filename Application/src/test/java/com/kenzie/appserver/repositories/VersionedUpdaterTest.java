@@ -0,0 +1,107 @@
+package com.kenzie.appserver.repositories;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnValue;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemResult;
+import com.kenzie.appserver.exception.VersionConflictException;
+import com.kenzie.appserver.repositories.model.UserRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class VersionedUpdaterTest {
+    private AmazonDynamoDB amazonDynamoDB;
+    private VersionedUpdater subject;
+
+    @BeforeEach
+    void setup() {
+        amazonDynamoDB = mock(AmazonDynamoDB.class);
+        subject = new VersionedUpdater(new DynamoDBMapper(amazonDynamoDB), amazonDynamoDB,
+                DynamoDBMapperConfig.DEFAULT);
+    }
+
+    @Test
+    void update_expectedVersion_singleConditionalUpdateItem() {
+        Map<String, AttributeValue> updated = new HashMap<>();
+        updated.put("Email", new AttributeValue("person1@aol.com"));
+        updated.put("FirstName", new AttributeValue("Ada"));
+        updated.put("Version", new AttributeValue().withN("4"));
+        when(amazonDynamoDB.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(new UpdateItemResult().withAttributes(updated));
+
+        Optional<UserRecord> result = subject.update(UserRecord.class, user(), 3L, ReturnValue.ALL_NEW,
+                "FirstName", "LastName");
+
+        ArgumentCaptor<UpdateItemRequest> request = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(amazonDynamoDB).updateItem(request.capture());
+        verify(amazonDynamoDB, never()).getItem(any(GetItemRequest.class));
+        assertEquals("User", request.getValue().getTableName());
+        assertEquals(new AttributeValue("person1@aol.com"), request.getValue().getKey().get("Email"));
+        assertEquals("SET #version = if_not_exists(#version, :zero) + :one, #a0 = :a0 REMOVE #a1",
+                request.getValue().getUpdateExpression());
+        assertEquals("attribute_exists(#key) AND #version = :expected", request.getValue().getConditionExpression());
+        assertEquals("3", request.getValue().getExpressionAttributeValues().get(":expected").getN());
+        assertEquals("LastName", request.getValue().getExpressionAttributeNames().get("#a1"));
+        assertEquals(4L, result.get().getVersion());
+    }
+
+    @Test
+    void update_unversionedItem_expectsNoVersionAttribute() {
+        when(amazonDynamoDB.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(new UpdateItemResult().withAttributes(new HashMap<>()));
+
+        subject.update(UserRecord.class, user(), 0L, ReturnValue.ALL_NEW, "FirstName");
+
+        ArgumentCaptor<UpdateItemRequest> request = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(amazonDynamoDB).updateItem(request.capture());
+        assertEquals("attribute_exists(#key) AND attribute_not_exists(#version)",
+                request.getValue().getConditionExpression());
+    }
+
+    @Test
+    void update_staleVersion_throwsWithCurrentVersion() {
+        when(amazonDynamoDB.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(new ConditionalCheckFailedException("The conditional request failed"));
+        Map<String, AttributeValue> stored = new HashMap<>();
+        stored.put("Version", new AttributeValue().withN("7"));
+        when(amazonDynamoDB.getItem(any(GetItemRequest.class))).thenReturn(new GetItemResult().withItem(stored));
+
+        VersionConflictException e = assertThrows(VersionConflictException.class,
+                () -> subject.update(UserRecord.class, user(), 3L, ReturnValue.ALL_NEW, "FirstName"));
+
+        assertEquals(7, e.getCurrentVersion());
+        ArgumentCaptor<GetItemRequest> read = ArgumentCaptor.forClass(GetItemRequest.class);
+        verify(amazonDynamoDB).getItem(read.capture());
+        assertTrue(read.getValue().getConsistentRead());
+    }
+
+    @Test
+    void update_missingItem_returnsEmpty() {
+        when(amazonDynamoDB.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(new ConditionalCheckFailedException("The conditional request failed"));
+        when(amazonDynamoDB.getItem(any(GetItemRequest.class))).thenReturn(new GetItemResult());
+
+        assertFalse(subject.update(UserRecord.class, user(), null, ReturnValue.ALL_NEW, "FirstName").isPresent());
+    }
+
+    private static UserRecord user() {
+        UserRecord record = new UserRecord();
+        record.setEmail("person1@aol.com");
+        record.setFirstName("Ada");
+        return record;
+    }
+}
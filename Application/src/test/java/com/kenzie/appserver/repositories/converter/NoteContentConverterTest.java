@@ -0,0 +1,89 @@
+package com.kenzie.appserver.repositories.converter;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class NoteContentConverterTest {
+    // the converter reports to the global registry, as it does under Spring Boot
+    private static final SimpleMeterRegistry METER_REGISTRY = new SimpleMeterRegistry();
+    private final NoteContentConverter converter = new NoteContentConverter();
+
+    @BeforeAll
+    static void addRegistry() {
+        Metrics.addRegistry(METER_REGISTRY);
+    }
+
+    @AfterAll
+    static void removeRegistry() {
+        Metrics.removeRegistry(METER_REGISTRY);
+    }
+
+    @Test
+    void convert_shortContent_staysPlainString() {
+        AttributeValue value = converter.convert("Short note");
+
+        assertEquals("Short note", value.getS());
+        assertNull(value.getB());
+    }
+
+    @Test
+    void convert_longContent_isCompressedAndReadsBack() {
+        String content = repeat("Threads share the heap; synchronize access to shared state. ", 100);
+
+        AttributeValue value = converter.convert(content);
+
+        assertNull(value.getS());
+        assertEquals(NoteContentConverter.DEFLATE, value.getB().get(0));
+        assertTrue(value.getB().remaining() < content.length() / 4);
+        assertEquals(content, converter.unconvert(value));
+        assertTrue(METER_REGISTRY.counter("notes.content.capacity.saved", "operation", "write").count() > 0);
+    }
+
+    @Test
+    void unconvert_unknownMarker_throws() {
+        AttributeValue value = new AttributeValue().withB(ByteBuffer.wrap(new byte[] {9, 1, 2}));
+
+        assertThrows(IllegalArgumentException.class, () -> converter.unconvert(value));
+    }
+
+    @Test
+    void noteRecord_readsExistingPlainItemsAndWritesLongContentAsBinary() {
+        DynamoDBMapperTableModel<NoteRecord> model = new DynamoDBMapper(mock(AmazonDynamoDB.class))
+                .getTableModel(NoteRecord.class);
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put("NoteId", new AttributeValue("note1"));
+        item.put("UserId", new AttributeValue("person1@aol.com"));
+        item.put("Content", new AttributeValue("written before compression"));
+
+        assertEquals("written before compression", model.unconvert(item).getContent());
+
+        NoteRecord record = model.unconvert(item);
+        record.setContent(repeat("a long note ", 500));
+        Map<String, AttributeValue> written = model.convert(record);
+        assertNotNull(written.get("Content").getB());
+        assertEquals(record.getContent(), model.unconvert(written).getContent());
+    }
+
+    private static String repeat(String text, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+}
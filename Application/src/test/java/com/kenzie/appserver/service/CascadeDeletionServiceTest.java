@@ -0,0 +1,379 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.config.StudyGroupMemberCache;
+import com.kenzie.appserver.repositories.BatchWriter;
+import com.kenzie.appserver.repositories.CascadeDeletionJobRepository;
+import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.StudyGroupMemberRepository;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
+import com.kenzie.appserver.repositories.StudyGroupReviewRepository;
+import com.kenzie.appserver.repositories.model.CascadeDeletionJobRecord;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberId;
+import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewId;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import com.kenzie.appserver.service.model.CascadeDeletionJob;
+import com.kenzie.capstone.service.client.StudySessionServiceClient;
+import com.kenzie.capstone.service.model.StudySession;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class CascadeDeletionServiceTest {
+    private CascadeDeletionJobRepository jobRepository;
+    private StudyGroupMemberRepository studyGroupMemberRepository;
+    private StudyGroupReviewRepository reviewRepository;
+    private StudyGroupRatingRepository ratingRepository;
+    private NoteRepository noteRepository;
+    private NoteSearchIndex noteSearchIndex;
+    private NoteBodyStore noteBodyStore;
+    private StudySessionServiceClient studySessionServiceClient;
+    private BatchWriter batchWriter;
+    private StudyGroupService studyGroupService;
+    private UserService userService;
+    private CascadeDeletionService subject;
+
+    @BeforeEach
+    void setup() {
+        jobRepository = mock(CascadeDeletionJobRepository.class);
+        studyGroupMemberRepository = mock(StudyGroupMemberRepository.class);
+        reviewRepository = mock(StudyGroupReviewRepository.class);
+        ratingRepository = mock(StudyGroupRatingRepository.class);
+        noteRepository = mock(NoteRepository.class);
+        noteSearchIndex = mock(NoteSearchIndex.class);
+        noteBodyStore = mock(NoteBodyStore.class);
+        studySessionServiceClient = mock(StudySessionServiceClient.class);
+        batchWriter = mock(BatchWriter.class);
+        studyGroupService = mock(StudyGroupService.class);
+        userService = mock(UserService.class);
+        when(jobRepository.saveIfLeaseHeld(any(CascadeDeletionJobRecord.class))).thenReturn(true);
+        when(jobRepository.claim(any(CascadeDeletionJobRecord.class), anyLong())).thenReturn(true);
+        when(batchWriter.deleteAll(anyList())).thenReturn(new ArrayList<>());
+        when(studyGroupMemberRepository.findPageByGroupId(anyString(), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
+        when(studyGroupMemberRepository.findPageByMemberId(anyString(), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
+        when(reviewRepository.findByGroupId(anyString())).thenReturn(Optional.empty());
+        when(noteRepository.findPageByUserId(anyString(), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
+        StudyGroupMemberCache memberCache = new StudyGroupMemberCache(100, Duration.ofMinutes(1), null,
+                new SimpleMeterRegistry(), "test");
+        // runs each job on the calling thread
+        subject = new CascadeDeletionService(jobRepository, studyGroupMemberRepository, reviewRepository,
+                ratingRepository, mock(StudyGroupLeaderboard.class), noteRepository, noteSearchIndex,
+                noteBodyStore, studySessionServiceClient,
+                memberCache, batchWriter, Runnable::run, studyGroupService, userService, Duration.ofMinutes(5),
+                3, Duration.ofMinutes(1), Duration.ofDays(7));
+    }
+
+    @Test
+    void submitGroupDeletion_deletesMembersAndReviews() {
+        List<StudyGroupMemberRecord> firstPage = Arrays.asList(member("1", "person1@aol.com"),
+                member("1", "person2@aol.com"));
+        List<StudyGroupMemberRecord> secondPage = Collections.singletonList(member("1", "person3@aol.com"));
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("GroupId", new AttributeValue().withS("1"));
+        lastKey.put("MemberId", new AttributeValue().withS("person2@aol.com"));
+        when(studyGroupMemberRepository.findPageByGroupId(eq("1"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(firstPage, lastKey));
+        when(studyGroupMemberRepository.findPageByGroupId("1", 100, lastKey))
+                .thenReturn(new RecordPage<>(secondPage, null));
+        List<StudyGroupReviewRecord> reviews = Collections.singletonList(new StudyGroupReviewRecord(
+                new StudyGroupReviewId("1", "review1"), "group1", "API", 4.0, "good", 4.0));
+        when(reviewRepository.findByGroupId("1")).thenReturn(Optional.of(reviews));
+
+        CascadeDeletionJob job = subject.submitGroupDeletion("1");
+
+        assertEquals(CascadeDeletionJob.Status.PENDING, job.getStatus());
+        assertEquals(CascadeDeletionJob.TargetType.GROUP, job.getTargetType());
+        verify(batchWriter).deleteAll(firstPage);
+        verify(batchWriter).deleteAll(secondPage);
+        verify(batchWriter).deleteAll(reviews);
+        verify(ratingRepository).deleteById("1");
+
+        CascadeDeletionJobRecord finished = lastSaved();
+        assertEquals(job.getJobId(), finished.getJobId());
+        assertEquals("SUCCEEDED", finished.getStatus());
+        assertEquals(3L, finished.getDeletedCounts().get(CascadeDeletionService.MEMBERS));
+        assertEquals(1L, finished.getDeletedCounts().get(CascadeDeletionService.REVIEWS));
+    }
+
+    @Test
+    void submitUserDeletion_deletesMembershipsNotesAndSessions() {
+        List<StudyGroupMemberRecord> memberships = Arrays.asList(member("1", "person1@aol.com"),
+                member("2", "person1@aol.com"));
+        when(studyGroupMemberRepository.findPageByMemberId(eq("person1@aol.com"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(memberships, null));
+        NoteRecord note = new NoteRecord();
+        note.setNoteId("note1");
+        note.setUserId("person1@aol.com");
+        note.setContentHash("hash1");
+        List<NoteRecord> notes = Collections.singletonList(note);
+        when(noteRepository.findPageByUserId(eq("person1@aol.com"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(notes, null));
+        when(studySessionServiceClient.getStudySessionsByUserId("person1@aol.com")).thenReturn(Arrays.asList(
+                new StudySession("session1", "person1@aol.com", "API", 30, "2023-01-01", ""),
+                new StudySession("session2", "person1@aol.com", "API", 45, "2023-01-02", "")));
+
+        subject.submitUserDeletion("person1@aol.com");
+
+        verify(batchWriter).deleteAll(memberships);
+        verify(batchWriter).deleteAll(notes);
+        verify(noteSearchIndex).remove("note1");
+        verify(noteBodyStore).release("hash1");
+        verify(studySessionServiceClient).deleteStudySessionBySessionId("session1");
+        verify(studySessionServiceClient).deleteStudySessionBySessionId("session2");
+
+        CascadeDeletionJobRecord finished = lastSaved();
+        assertEquals("SUCCEEDED", finished.getStatus());
+        assertEquals(2L, finished.getDeletedCounts().get(CascadeDeletionService.MEMBERSHIPS));
+        assertEquals(1L, finished.getDeletedCounts().get(CascadeDeletionService.NOTES));
+        assertEquals(2L, finished.getDeletedCounts().get(CascadeDeletionService.SESSIONS));
+    }
+
+    @Test
+    void submitUserDeletion_notesLeftUndeleted_releasesBlobsOfDeletedNotesOnly() {
+        NoteRecord deleted = note("note1", "hash1");
+        NoteRecord left = note("note2", "hash2");
+        List<NoteRecord> notes = Arrays.asList(deleted, left);
+        when(noteRepository.findPageByUserId(eq("person1@aol.com"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(notes, null));
+        when(batchWriter.deleteAll(notes)).thenReturn(new ArrayList<>(Collections.singletonList(left)));
+
+        subject.submitUserDeletion("person1@aol.com");
+
+        verify(noteBodyStore).release("hash1");
+        verify(noteBodyStore, never()).release("hash2");
+        verify(noteSearchIndex, never()).remove("note2");
+        assertEquals("FAILED", lastSaved().getStatus());
+    }
+
+    @Test
+    void submitGroupDeletion_rowsLeftUndeleted_failsJob() {
+        List<StudyGroupMemberRecord> members = Arrays.asList(member("1", "person1@aol.com"),
+                member("1", "person2@aol.com"));
+        when(studyGroupMemberRepository.findPageByGroupId(eq("1"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(members, null));
+        when(batchWriter.deleteAll(members)).thenReturn(new ArrayList<>(members.subList(1, 2)));
+
+        subject.submitGroupDeletion("1");
+
+        CascadeDeletionJobRecord finished = lastSaved();
+        assertEquals("FAILED", finished.getStatus());
+        assertNotNull(finished.getError());
+        assertEquals(1L, finished.getDeletedCounts().get(CascadeDeletionService.MEMBERS));
+        verify(reviewRepository, never()).findByGroupId(anyString());
+    }
+
+    @Test
+    void resumeUnfinishedJobs_runsPendingAndRunningJobs() {
+        CascadeDeletionJobRecord pending = jobRecord("job1", "GROUP", "1", "PENDING");
+        CascadeDeletionJobRecord running = jobRecord("job2", "USER", "person1@aol.com", "RUNNING");
+        when(jobRepository.findByStatus("PENDING")).thenReturn(Collections.singletonList(pending));
+        when(jobRepository.findByStatus("RUNNING")).thenReturn(Collections.singletonList(running));
+        when(studySessionServiceClient.getStudySessionsByUserId("person1@aol.com")).thenReturn(new ArrayList<>());
+
+        subject.resumeUnfinishedJobs();
+
+        assertEquals("SUCCEEDED", pending.getStatus());
+        assertEquals("SUCCEEDED", running.getStatus());
+        verify(reviewRepository).findByGroupId("1");
+        verify(noteRepository).findPageByUserId(eq("person1@aol.com"), anyInt(), noStartKey());
+        // in case the instance that submitted them stopped before deleting the rows
+        verify(studyGroupService).deleteStudyGroup("1");
+        verify(userService).deleteUser("person1@aol.com");
+    }
+
+    @Test
+    void submitGroupDeletion_succeeded_setsExpiry() {
+        subject.submitGroupDeletion("1");
+
+        CascadeDeletionJobRecord finished = lastSaved();
+        assertEquals("SUCCEEDED", finished.getStatus());
+        long inSevenDays = System.currentTimeMillis() / 1000 + Duration.ofDays(7).getSeconds();
+        assertTrue(Math.abs(finished.getExpiresAtSeconds() - inSevenDays) < 60);
+    }
+
+    @Test
+    void submitGroupDeletion_failed_backsOffWithoutExpiry() {
+        List<StudyGroupMemberRecord> members = Collections.singletonList(member("1", "person1@aol.com"));
+        when(studyGroupMemberRepository.findPageByGroupId(eq("1"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(members, null));
+        when(batchWriter.deleteAll(members)).thenReturn(new ArrayList<>(members));
+
+        subject.submitGroupDeletion("1");
+
+        CascadeDeletionJobRecord failed = lastSaved();
+        assertEquals("FAILED", failed.getStatus());
+        assertEquals(1, failed.getFailures());
+        assertNull(failed.getExpiresAtSeconds());
+        long inOneMinute = System.currentTimeMillis() + Duration.ofMinutes(1).toMillis();
+        assertTrue(Math.abs(failed.getLeaseExpiresAtMillis() - inOneMinute) < 10_000);
+    }
+
+    @Test
+    void resumeUnfinishedJobs_failedJobAfterBackoff_runsItAgain() {
+        CascadeDeletionJobRecord failed = jobRecord("job1", "GROUP", "1", "FAILED");
+        failed.setFailures(1);
+        failed.setLeaseOwner("another-instance");
+        failed.setLeaseExpiresAtMillis(1L);
+        when(jobRepository.findByStatus("FAILED")).thenReturn(Collections.singletonList(failed));
+
+        subject.resumeUnfinishedJobs();
+
+        assertEquals("SUCCEEDED", failed.getStatus());
+        verify(reviewRepository).findByGroupId("1");
+    }
+
+    @Test
+    void resumeUnfinishedJobs_failedJobOutOfAttempts_leavesIt() {
+        CascadeDeletionJobRecord failed = jobRecord("job1", "GROUP", "1", "FAILED");
+        failed.setFailures(3);
+        failed.setLeaseExpiresAtMillis(1L);
+        failed.setExpiresAtSeconds(System.currentTimeMillis() / 1000);
+        when(jobRepository.findByStatus("FAILED")).thenReturn(Collections.singletonList(failed));
+
+        subject.resumeUnfinishedJobs();
+
+        verify(jobRepository, never()).claim(any(CascadeDeletionJobRecord.class), anyLong());
+    }
+
+    @Test
+    void run_lastAttemptFails_setsExpiry() {
+        List<StudyGroupMemberRecord> members = Collections.singletonList(member("1", "person1@aol.com"));
+        when(studyGroupMemberRepository.findPageByGroupId(eq("1"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(members, null));
+        when(batchWriter.deleteAll(members)).thenReturn(new ArrayList<>(members));
+        CascadeDeletionJobRecord job = jobRecord("job1", "GROUP", "1", "FAILED");
+        job.setFailures(2);
+
+        subject.run(job);
+
+        assertEquals("FAILED", job.getStatus());
+        assertEquals(3, job.getFailures());
+        assertNotNull(job.getExpiresAtSeconds());
+    }
+
+    @Test
+    void resumeUnfinishedJobs_leaseStillHeld_leavesJobToItsOwner() {
+        CascadeDeletionJobRecord running = jobRecord("job1", "GROUP", "1", "RUNNING");
+        running.setLeaseOwner("another-instance");
+        running.setLeaseExpiresAtMillis(System.currentTimeMillis() + 60_000);
+        when(jobRepository.findByStatus("PENDING")).thenReturn(new ArrayList<>());
+        when(jobRepository.findByStatus("RUNNING")).thenReturn(Collections.singletonList(running));
+
+        subject.resumeUnfinishedJobs();
+
+        verify(jobRepository, never()).claim(any(CascadeDeletionJobRecord.class), anyLong());
+        verify(studyGroupService, never()).deleteStudyGroup(anyString());
+        verify(reviewRepository, never()).findByGroupId(anyString());
+    }
+
+    @Test
+    void resumeUnfinishedJobs_claimLost_doesNotRunJob() {
+        CascadeDeletionJobRecord running = jobRecord("job1", "GROUP", "1", "RUNNING");
+        running.setLeaseOwner("another-instance");
+        running.setLeaseExpiresAtMillis(1L);
+        when(jobRepository.findByStatus("PENDING")).thenReturn(new ArrayList<>());
+        when(jobRepository.findByStatus("RUNNING")).thenReturn(Collections.singletonList(running));
+        when(jobRepository.claim(any(CascadeDeletionJobRecord.class), anyLong())).thenReturn(false);
+
+        subject.resumeUnfinishedJobs();
+
+        verify(reviewRepository, never()).findByGroupId(anyString());
+    }
+
+    @Test
+    void submitGroupDeletion_savesJobBeforeDeletingGroup() {
+        subject.submitGroupDeletion("1");
+
+        org.mockito.InOrder inOrder = inOrder(jobRepository, studyGroupService);
+        inOrder.verify(jobRepository).save(any(CascadeDeletionJobRecord.class));
+        inOrder.verify(studyGroupService).deleteStudyGroup("1");
+    }
+
+    @Test
+    void submitGroupDeletion_groupDeleteFails_removesJob() {
+        doThrow(new RuntimeException("throttled")).when(studyGroupService).deleteStudyGroup("1");
+
+        assertThrows(RuntimeException.class, () -> subject.submitGroupDeletion("1"));
+
+        verify(jobRepository).delete(any(CascadeDeletionJobRecord.class));
+        verify(studyGroupMemberRepository, never()).findPageByGroupId(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void run_leaseLost_stopsWithoutMarkingJob() {
+        List<StudyGroupMemberRecord> members = Collections.singletonList(member("1", "person1@aol.com"));
+        when(studyGroupMemberRepository.findPageByGroupId(eq("1"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(members, null));
+        // the RUNNING update goes through; the progress update after the first page finds another owner
+        when(jobRepository.saveIfLeaseHeld(any(CascadeDeletionJobRecord.class))).thenReturn(true, false);
+
+        subject.submitGroupDeletion("1");
+
+        verify(jobRepository, times(2)).saveIfLeaseHeld(any(CascadeDeletionJobRecord.class));
+        verify(reviewRepository, never()).findByGroupId(anyString());
+    }
+
+    @Test
+    void getJob_unknownJob_returnsNull() {
+        when(jobRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertNull(subject.getJob("missing"));
+    }
+
+    private CascadeDeletionJobRecord lastSaved() {
+        ArgumentCaptor<CascadeDeletionJobRecord> captor = ArgumentCaptor.forClass(CascadeDeletionJobRecord.class);
+        verify(jobRepository, atLeastOnce()).saveIfLeaseHeld(captor.capture());
+        List<CascadeDeletionJobRecord> saved = captor.getAllValues();
+        return saved.get(saved.size() - 1);
+    }
+
+    private static NoteRecord note(String noteId, String contentHash) {
+        NoteRecord note = new NoteRecord();
+        note.setNoteId(noteId);
+        note.setUserId("person1@aol.com");
+        note.setContentHash(contentHash);
+        return note;
+    }
+
+    private static CascadeDeletionJobRecord jobRecord(String jobId, String targetType, String targetId,
+                                                      String status) {
+        CascadeDeletionJobRecord record = new CascadeDeletionJobRecord();
+        record.setJobId(jobId);
+        record.setTargetType(targetType);
+        record.setTargetId(targetId);
+        record.setStatus(status);
+        record.setCreatedAtMillis(1L);
+        record.setUpdatedAtMillis(1L);
+        return record;
+    }
+
+    private static StudyGroupMemberRecord member(String groupId, String memberId) {
+        return new StudyGroupMemberRecord(new StudyGroupMemberId(groupId, memberId), "group" + groupId, "API",
+                ZonedDateTime.now(), true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
+}
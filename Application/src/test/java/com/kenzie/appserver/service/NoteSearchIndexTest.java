@@ -0,0 +1,146 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.NoteBlobStore;
+import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.service.model.Note;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NoteSearchIndexTest {
+
+    private NoteRepository noteRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private NoteSearchIndex subject;
+
+    @BeforeEach
+    void setup() {
+        noteRepository = mock(NoteRepository.class);
+        when(noteRepository.findSegmentPage(anyInt(), anyInt(), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
+        meterRegistry = new SimpleMeterRegistry();
+        subject = new NoteSearchIndex(noteRepository,
+                new NoteBodyStore(mock(NoteBlobStore.class), meterRegistry, 4096, 1 << 20), meterRegistry, 2);
+    }
+
+    @Test
+    void search_ranksNotesWithMoreOfTheQueryFirst() {
+        subject.put(note("note1", "person1@aol.com", "Threads share memory; locks guard it."));
+        subject.put(note("note2", "person1@aol.com", "Threads, threads and more threads."));
+        subject.put(note("note3", "person1@aol.com", "Recursion calls itself."));
+
+        assertEquals(Arrays.asList("note2", "note1"), subject.search("person1@aol.com", "threads", 10));
+        assertEquals(Collections.singletonList("note1"), subject.search("person1@aol.com", "LOCKS", 10));
+        assertEquals(Collections.singletonList("note2"), subject.search("person1@aol.com", "threads", 1));
+    }
+
+    @Test
+    void search_onlyReturnsTheUsersOwnNotes() {
+        subject.put(note("note1", "person1@aol.com", "binary trees"));
+        subject.put(note("note2", "person2@aol.com", "binary search"));
+
+        assertEquals(Collections.singletonList("note1"), subject.search("person1@aol.com", "binary", 10));
+        assertTrue(subject.search("person3@aol.com", "binary", 10).isEmpty());
+    }
+
+    @Test
+    void put_sameNoteId_replacesOldTerms() {
+        subject.put(note("note1", "person1@aol.com", "hash maps"));
+        subject.put(note("note1", "person1@aol.com", "linked lists"));
+
+        assertTrue(subject.search("person1@aol.com", "hash", 10).isEmpty());
+        assertEquals(Collections.singletonList("note1"), subject.search("person1@aol.com", "lists", 10));
+    }
+
+    @Test
+    void remove_dropsNoteFromResults() {
+        subject.put(note("note1", "person1@aol.com", "graphs"));
+        subject.put(note("note2", "person1@aol.com", "graphs and trees"));
+
+        subject.remove("note1");
+
+        assertEquals(Collections.singletonList("note2"), subject.search("person1@aol.com", "graphs", 10));
+    }
+
+    @Test
+    void search_findsNoteByItsId() {
+        subject.put(note("Dynamic Programming", "person1@aol.com", "memoize overlapping subproblems"));
+
+        assertEquals(Collections.singletonList("Dynamic Programming"),
+                subject.search("person1@aol.com", "dynamic", 10));
+    }
+
+    @Test
+    void rebuild_indexesEverySegmentAndKeepsChangesMadeDuringTheScan() {
+        when(noteRepository.findSegmentPage(eq(0), eq(2), anyInt(), noStartKey())).thenAnswer(invocation -> {
+            // written by this instance while the scan is running
+            subject.put(note("note3", "person1@aol.com", "heaps"));
+            return new RecordPage<>(Collections.singletonList(record("note1", "person1@aol.com", "heaps and stacks")),
+                    null);
+        });
+        when(noteRepository.findSegmentPage(eq(1), eq(2), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("note2", "person2@aol.com", "queues")),
+                        null));
+
+        subject.rebuild();
+
+        List<String> heaps = subject.search("person1@aol.com", "heaps", 10);
+        assertEquals(2, heaps.size());
+        assertTrue(heaps.containsAll(Arrays.asList("note1", "note3")));
+        assertEquals(Collections.singletonList("note2"), subject.search("person2@aol.com", "queues", 10));
+    }
+
+    @Test
+    void rebuild_noteWithMissingBlob_isSkipped() {
+        NoteRecord missingBlob = record("note1", "person1@aol.com", null);
+        missingBlob.setContentHash("9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08");
+        when(noteRepository.findSegmentPage(eq(0), eq(2), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Arrays.asList(missingBlob, record("note2", "person1@aol.com", "tries")),
+                        null));
+
+        subject.rebuild();
+
+        assertEquals(Collections.singletonList("note2"), subject.search("person1@aol.com", "tries", 10));
+        assertEquals(1.0, meterRegistry.counter("notes.search.rebuild.skipped").count());
+    }
+
+    @Test
+    void termFrequencies_splitsOnNonLetters() {
+        Map<String, Integer> terms = NoteSearchIndex.termFrequencies("Big-O: O(n) vs O(n log n)!");
+
+        assertEquals(Integer.valueOf(3), terms.get("o"));
+        assertEquals(Integer.valueOf(3), terms.get("n"));
+        assertTrue(terms.containsKey("big"));
+        assertFalse(terms.containsKey(""));
+    }
+
+    private static Note note(String noteId, String userId, String content) {
+        return new Note(noteId, userId, content, ZonedDateTime.now(), ZonedDateTime.now());
+    }
+
+    private static NoteRecord record(String noteId, String userId, String content) {
+        NoteRecord record = new NoteRecord();
+        record.setNoteId(noteId);
+        record.setUserId(userId);
+        record.setContent(content);
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
+}
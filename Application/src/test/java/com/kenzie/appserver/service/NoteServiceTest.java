@@ -1,14 +1,22 @@
 package com.kenzie.appserver.service;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.kenzie.appserver.exception.NoteNotFoundException;
 import com.kenzie.appserver.exception.StudyGroupNotFoundException;
 import com.kenzie.appserver.repositories.MemberRepository;
+import com.kenzie.appserver.repositories.NoteBlobStore;
 import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.converter.PageCursorConverter;
 import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
 import com.kenzie.appserver.service.model.Note;
+import com.kenzie.appserver.service.model.NotePage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 
+import java.nio.charset.StandardCharsets;
 import java.time.ZonedDateTime;
 import java.util.*;
 
@@ -16,15 +24,25 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 public class NoteServiceTest {
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
     private NoteService subject;
     private NoteRepository noteRepository;
     private MemberRepository memberRepository;
+    private NoteSearchIndex searchIndex;
+    private NoteWriteCoalescer writeCoalescer;
+    private NoteBlobStore blobStore;
 
     @BeforeEach
     void setup(){
         noteRepository = mock(NoteRepository.class);
         memberRepository = mock(MemberRepository.class);
-        subject = new NoteService(noteRepository,memberRepository);
+        when(noteRepository.saveIfAbsent(any(NoteRecord.class))).thenReturn(Optional.empty());
+        searchIndex = mock(NoteSearchIndex.class);
+        writeCoalescer = mock(NoteWriteCoalescer.class);
+        blobStore = mock(NoteBlobStore.class);
+        NoteBodyStore bodyStore = new NoteBodyStore(blobStore, new SimpleMeterRegistry(), 1024, 1 << 20);
+        subject = new NoteService(noteRepository,memberRepository,searchIndex,writeCoalescer,bodyStore);
     }
 
     @Test
@@ -51,7 +69,9 @@ public class NoteServiceTest {
 
         assertNotNull(newNote);
 
-        verify(noteRepository, times(1)).save(record);
+        verify(noteRepository, times(1)).saveIfAbsent(record);
+        verify(noteRepository, never()).findAll();
+        verify(searchIndex).put(newNote);
 
         assertEquals(record.getNoteId(), newNote.getNoteId());
         assertEquals(record.getUserId(), newNote.getUserId());
@@ -77,12 +97,109 @@ public class NoteServiceTest {
 
         Note note = new Note(noteId,userId,content,createdDate,updatedDate);
 
-        when(noteRepository.save(any())).thenThrow(new NoteNotFoundException("Failed to save the note"));
+        when(noteRepository.saveIfAbsent(any())).thenThrow(new NoteNotFoundException("Failed to save the note"));
 
         assertThrows(NoteNotFoundException.class, () -> subject.createNote(note));
 
-        verify(noteRepository, times(1)).save(any());
+        verify(noteRepository, times(1)).saveIfAbsent(any());
+
+    }
 
+    @Test
+    void createNote_noteIdTaken_returnsStoredNote() {
+        String noteId = UUID.randomUUID().toString();
+        NoteRecord stored = new NoteRecord();
+        stored.setNoteId(noteId);
+        stored.setUserId("person1@aol.com");
+        stored.setContent("First version");
+        stored.setCreatedDateTime(ZonedDateTime.now());
+        stored.setUpdatedDateTime(ZonedDateTime.now());
+        when(noteRepository.saveIfAbsent(any(NoteRecord.class))).thenReturn(Optional.of(stored));
+
+        Note result = subject.createNote(new Note(noteId, "person1@aol.com", "Second version", ZonedDateTime.now(),
+                ZonedDateTime.now()));
+
+        assertEquals("First version", result.getContent());
+        verify(noteRepository, never()).save(any(NoteRecord.class));
+    }
+
+    @Test
+    void createNote_longContent_storesHashInRecord() {
+        String content = "Threads share memory. ".repeat(100);
+
+        Note created = subject.createNote(new Note("note1", "person1@aol.com", content, ZonedDateTime.now(),
+                ZonedDateTime.now()));
+
+        ArgumentCaptor<NoteRecord> saved = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).saveIfAbsent(saved.capture());
+        assertNull(saved.getValue().getContent());
+        assertEquals(64, saved.getValue().getContentHash().length());
+        verify(blobStore).retain(saved.getValue().getContentHash(), content.getBytes(StandardCharsets.UTF_8));
+        assertEquals(content, created.getContent());
+    }
+
+    @Test
+    void createNote_longContentNoteIdTaken_releasesBlob() {
+        NoteRecord stored = new NoteRecord();
+        stored.setNoteId("note1");
+        stored.setUserId("person1@aol.com");
+        stored.setContent("First version");
+        when(noteRepository.saveIfAbsent(any(NoteRecord.class))).thenReturn(Optional.of(stored));
+
+        subject.createNote(new Note("note1", "person1@aol.com", "Second version. ".repeat(100),
+                ZonedDateTime.now(), ZonedDateTime.now()));
+
+        ArgumentCaptor<NoteRecord> saved = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).saveIfAbsent(saved.capture());
+        verify(blobStore).release(saved.getValue().getContentHash());
+    }
+
+    @Test
+    void findByNoteId_hashedContent_readsBlob() {
+        NoteRecord record = new NoteRecord();
+        record.setNoteId("note1");
+        record.setUserId("person1@aol.com");
+        record.setContentHash(HASH);
+        when(noteRepository.findById("note1")).thenReturn(Optional.of(record));
+        when(blobStore.get(HASH)).thenReturn("Stored body".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("Stored body", subject.findByNoteId("note1").getContent());
+        // the second read is served from the cache
+        assertEquals("Stored body", subject.findByNoteId("note1").getContent());
+        verify(blobStore, times(1)).get(HASH);
+    }
+
+    @Test
+    void getNotesForUser_returnsPageAndCursor() {
+        NoteRecord record = new NoteRecord();
+        record.setNoteId("note1");
+        record.setUserId("person1@aol.com");
+        record.setContent("Sample content");
+        record.setCreatedDateTime(ZonedDateTime.now());
+        record.setUpdatedDateTime(ZonedDateTime.now());
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("UserId", new AttributeValue().withS("person1@aol.com"));
+        lastKey.put("UpdatedDateTime", new AttributeValue().withS("2023-01-01"));
+        lastKey.put("NoteId", new AttributeValue().withS("note1"));
+        when(noteRepository.findPageByUserId(eq("person1@aol.com"), eq(1), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record), lastKey));
+        when(noteRepository.findPageByUserId("person1@aol.com", 1, lastKey))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
+
+        NotePage first = subject.getNotesForUser("person1@aol.com", null, 1);
+        NotePage second = subject.getNotesForUser("person1@aol.com", first.getNextCursor(), 1);
+
+        assertEquals("note1", first.getNotes().get(0).getNoteId());
+        assertTrue(second.getNotes().isEmpty());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void getNotesForUser_cursorWithoutKey_throws() {
+        String cursor = new PageCursorConverter().convert(Collections.singletonMap("NoteId",
+                new AttributeValue().withS("note1")));
+
+        assertThrows(IllegalArgumentException.class, () -> subject.getNotesForUser("person1@aol.com", cursor, 10));
     }
 
     // source: https://stackoverflow.com/questions/4801794/use-of-javas-collections-singletonlist
@@ -105,7 +222,7 @@ public class NoteServiceTest {
         record.setCreatedDateTime(createdDate);
         record.setUpdatedDateTime(updatedDate);
 
-        when(noteRepository.findAll()).thenReturn(Collections.singletonList(record));
+        when(noteRepository.findById(noteId)).thenReturn(Optional.of(record));
 
         Note existingNote = subject.getExistingNote(note);
 
@@ -116,7 +233,7 @@ public class NoteServiceTest {
         assertEquals(note.getCreatedDateTime(), existingNote.getCreatedDateTime());
         assertEquals(note.getUpdatedDateTime(), existingNote.getUpdatedDateTime());
 
-        verify(noteRepository, times(1)).findAll();
+        verify(noteRepository, times(1)).findById(noteId);
         noteRepository.deleteById(noteId);
     }
 
@@ -131,19 +248,19 @@ public class NoteServiceTest {
         Note note = new Note(noteId, userId, content, createdDate, updatedDate);
 
         NoteRecord record = new NoteRecord();
-        record.setNoteId(UUID.randomUUID().toString());
+        record.setNoteId(noteId);
         record.setUserId("person2@aol.com");
         record.setContent("Different content");
         record.setCreatedDateTime(ZonedDateTime.now());
         record.setUpdatedDateTime(ZonedDateTime.now());
 
-        when(noteRepository.findAll()).thenReturn(Collections.singletonList(record));
+        when(noteRepository.findById(noteId)).thenReturn(Optional.of(record));
 
         Note existingNote = subject.getExistingNote(note);
 
         assertNull(existingNote);
 
-        verify(noteRepository, times(1)).findAll();
+        verify(noteRepository, never()).findAll();
     }
 
     @Test
@@ -190,69 +307,100 @@ public class NoteServiceTest {
     }
 
     @Test
-    void updateNote_existingNote_updatePropertiesAndSave() {
+    void updateNote_existingNote_savesThroughCoalescerWithoutRead() {
         String noteId = UUID.randomUUID().toString();
-        String userId = "person4@aol.com";
-        String content = "Sample content";
-        ZonedDateTime createdDate = ZonedDateTime.now();
-        ZonedDateTime updatedDate = ZonedDateTime.now();
+        ZonedDateTime now = ZonedDateTime.now();
+        Note note = new Note(noteId, "person4@aol.com", "Sample content", now, now, 3L);
+        Note saved = new Note(noteId, "person4@aol.com", "Sample content", now, now, 4L);
 
-        Note note = new Note(noteId, userId, content, createdDate, updatedDate);
+        when(writeCoalescer.save(note)).thenReturn(saved);
 
-        NoteRecord existingNoteRecord = new NoteRecord();
-        existingNoteRecord.setNoteId(noteId);
-        existingNoteRecord.setUserId(userId);
-        existingNoteRecord.setContent("Old content");
-        existingNoteRecord.setCreatedDateTime(ZonedDateTime.now());
-        existingNoteRecord.setUpdatedDateTime(ZonedDateTime.now());
+        Note updated = subject.updateNote(note);
 
-        when(noteRepository.findById(noteId)).thenReturn(Optional.of(existingNoteRecord));
+        assertEquals(4L, updated.getVersion());
+        verify(searchIndex).put(saved);
+        verify(noteRepository, never()).findById(noteId);
+        verify(noteRepository, never()).save(any(NoteRecord.class));
+    }
 
-        subject.updateNote(note);
+    @Test
+    void findByNoteId_pendingEdit_returnsPendingVersion() {
+        String noteId = UUID.randomUUID().toString();
+        ZonedDateTime now = ZonedDateTime.now();
+        Note pending = new Note(noteId, "person4@aol.com", "Unsaved draft", now, now);
 
-        verify(noteRepository, times(1)).findById(noteId);
+        when(writeCoalescer.get(noteId)).thenReturn(pending);
 
-        assertEquals(noteId, existingNoteRecord.getNoteId());
-        assertEquals(userId, existingNoteRecord.getUserId());
-        assertEquals(content, existingNoteRecord.getContent());
-        assertEquals(createdDate, existingNoteRecord.getCreatedDateTime());
-        assertEquals(updatedDate, existingNoteRecord.getUpdatedDateTime());
+        Note result = subject.findByNoteId(noteId);
 
-        verify(noteRepository, times(1)).save(existingNoteRecord);
+        assertEquals("Unsaved draft", result.getContent());
+        verify(noteRepository, never()).findById(noteId);
     }
 
     @Test
     void updateNote_nonExistingNote_throwNoteNotFoundException() {
         String nonExistingNoteId = UUID.randomUUID().toString();
-        String userId = "person1@aol.com";
-        String content = "Sample content";
-        ZonedDateTime createdDate = ZonedDateTime.now();
-        ZonedDateTime updatedDate = ZonedDateTime.now();
+        ZonedDateTime now = ZonedDateTime.now();
+        Note note = new Note(nonExistingNoteId, "person1@aol.com", "Sample content", now, now);
 
-        Note note = new Note(nonExistingNoteId, userId, content, createdDate, updatedDate);
-
-        when(noteRepository.findById(nonExistingNoteId)).thenReturn(Optional.empty());
+        when(writeCoalescer.save(note)).thenThrow(new NoteNotFoundException("Note not found"));
 
         assertThrows(NoteNotFoundException.class, () -> subject.updateNote(note));
 
-        verify(noteRepository, times(1)).findById(nonExistingNoteId);
-
-        verify(noteRepository, never()).save(any(NoteRecord.class));
+        verify(searchIndex, never()).put(any(Note.class));
     }
 
     @Test
-    void deleteNote_existingNoteId_deleteById() {
+    void deleteNote_existingNoteId_deletesNoteAndReleasesBlob() {
         String noteId = UUID.randomUUID().toString();
+        NoteRecord record = new NoteRecord();
+        record.setNoteId(noteId);
+        record.setContentHash(HASH);
+        when(noteRepository.findById(noteId)).thenReturn(Optional.of(record));
 
         subject.deleteNote(noteId);
 
-        verify(noteRepository, times(1)).deleteById(noteId);
+        verify(writeCoalescer).discard(noteId);
+        verify(noteRepository, times(1)).delete(record);
+        verify(blobStore).release(HASH);
+        verify(searchIndex).remove(noteId);
     }
 
+    @Test
+    void searchNotes_returnsIndexedMatchesInRankOrder() {
+        when(searchIndex.search("person1@aol.com", "threads", 10)).thenReturn(Arrays.asList("note2", "note1", "gone"));
+        when(noteRepository.findAllById(Arrays.asList("note2", "note1", "gone"))).thenReturn(Arrays.asList(
+                noteRecord("note1", "person1@aol.com", "threads and locks"),
+                noteRecord("note2", "person1@aol.com", "threads threads threads")));
+
+        List<Note> results = subject.searchNotes("person1@aol.com", "threads", 10);
+
+        assertEquals(2, results.size());
+        assertEquals("note2", results.get(0).getNoteId());
+        assertEquals("note1", results.get(1).getNoteId());
+        verify(noteRepository, never()).findAll();
+    }
 
+    @Test
+    void searchNotes_noMatches_readsNothing() {
+        when(searchIndex.search("person1@aol.com", "threads", 10)).thenReturn(new ArrayList<>());
 
+        assertTrue(subject.searchNotes("person1@aol.com", "threads", 10).isEmpty());
+        verify(noteRepository, never()).findAllById(anyList());
+    }
 
+    private static NoteRecord noteRecord(String noteId, String userId, String content) {
+        NoteRecord record = new NoteRecord();
+        record.setNoteId(noteId);
+        record.setUserId(userId);
+        record.setContent(content);
+        record.setCreatedDateTime(ZonedDateTime.now());
+        record.setUpdatedDateTime(ZonedDateTime.now());
+        return record;
+    }
 
-
-
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
 }
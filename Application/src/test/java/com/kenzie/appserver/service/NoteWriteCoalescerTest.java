@@ -0,0 +1,416 @@
+package com.kenzie.appserver.service;
+
+import com.kenzie.appserver.exception.NoteNotFoundException;
+import com.kenzie.appserver.exception.VersionConflictException;
+import com.kenzie.appserver.repositories.NoteBlobStore;
+import com.kenzie.appserver.repositories.NoteRepository;
+import com.kenzie.appserver.repositories.model.NoteRecord;
+import com.kenzie.appserver.service.model.Note;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class NoteWriteCoalescerTest {
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    private NoteRepository noteRepository;
+    private NoteBlobStore blobStore;
+    private SimpleMeterRegistry meterRegistry;
+    private NoteWriteCoalescer subject;
+
+    @BeforeEach
+    void setup() {
+        noteRepository = mock(NoteRepository.class);
+        // the note was at the version the write expected
+        when(noteRepository.updateNote(any(NoteRecord.class), any())).thenAnswer(invocation -> {
+            NoteRecord record = (NoteRecord) invocation.getArguments()[0];
+            return Optional.of(storedRecord(record.getNoteId(), "Stored", (Long) invocation.getArguments()[1]));
+        });
+        blobStore = mock(NoteBlobStore.class);
+        meterRegistry = new SimpleMeterRegistry();
+        NoteBodyStore bodyStore = new NoteBodyStore(blobStore, meterRegistry, 1024, 1 << 20);
+        // the window never closes during a test, so the tests flush by hand
+        subject = new NoteWriteCoalescer(noteRepository, bodyStore, meterRegistry, Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        subject.shutdown();
+    }
+
+    @Test
+    void save_firstEdit_writesStraightThrough() {
+        Note saved = subject.save(edit("note1", "Draft", 3L));
+
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).updateNote(written.capture(), eq(3L));
+        assertEquals("Draft", written.getValue().getContent());
+        assertEquals(4L, saved.getVersion());
+        verify(noteRepository, never()).findById(any());
+    }
+
+    @Test
+    void save_firstEditWithoutVersion_writesWhateverVersionIsStored() {
+        doReturn(Optional.of(storedRecord("note1", "Stored", 6L)))
+                .when(noteRepository).updateNote(any(NoteRecord.class), isNull());
+
+        Note saved = subject.save(edit("note1", "Draft", null));
+
+        assertEquals(7L, saved.getVersion());
+    }
+
+    @Test
+    void save_firstEditOfNoteWithoutVersion_countsItAsVersionZero() {
+        doReturn(Optional.of(storedRecord("note1", "Stored", null)))
+                .when(noteRepository).updateNote(any(NoteRecord.class), isNull());
+
+        assertEquals(1L, subject.save(edit("note1", "Draft", null)).getVersion());
+    }
+
+    @Test
+    void save_firstEditOfMissingNote_throwsNoteNotFound() {
+        doReturn(Optional.empty()).when(noteRepository).updateNote(any(NoteRecord.class), any());
+
+        assertThrows(NoteNotFoundException.class, () -> subject.save(edit("note1", "Draft", 3L)));
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void save_firstEditWithStaleVersion_throwsVersionConflict() {
+        doThrow(new VersionConflictException("Version conflict for NoteRecord", 3))
+                .when(noteRepository).updateNote(any(NoteRecord.class), eq(2L));
+
+        VersionConflictException e = assertThrows(VersionConflictException.class,
+                () -> subject.save(edit("note1", "Edited elsewhere", 2L)));
+
+        assertEquals(3, e.getCurrentVersion());
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void save_firstEditMissingCreationDate_keepsStoredOne() {
+        NoteRecord previous = storedRecord("note1", "Stored", 3L);
+        previous.setCreatedDateTime(ZonedDateTime.now().minusDays(3));
+        doReturn(Optional.of(previous)).when(noteRepository).updateNote(any(NoteRecord.class), eq(3L));
+
+        Note saved = subject.save(new Note("note1", "person1@aol.com", "Autosaved", null, ZonedDateTime.now(), 3L));
+
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).updateNote(written.capture(), eq(3L));
+        assertNull(written.getValue().getCreatedDateTime());
+        assertEquals(previous.getCreatedDateTime(), saved.getCreatedDateTime());
+    }
+
+    @Test
+    void save_failedWriteThrough_releasesBlobTheNoteDoesNotHold() {
+        doThrow(new RuntimeException("timed out")).when(noteRepository).updateNote(any(NoteRecord.class), any());
+        when(noteRepository.findCurrent("note1")).thenReturn(Optional.of(storedRecord("note1", "Stored", 3L)));
+
+        assertThrows(RuntimeException.class, () -> subject.save(edit("note1", "Draft. ".repeat(200), 3L)));
+
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).updateNote(written.capture(), eq(3L));
+        verify(blobStore).release(written.getValue().getContentHash());
+    }
+
+    @Test
+    void save_burstOfEdits_writesFirstAndLatest() {
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Dr", 1L));
+        subject.save(edit("note1", "Draft", 2L));
+
+        subject.flush("note1");
+
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository, times(2)).updateNote(written.capture(), any());
+        assertEquals("D", written.getAllValues().get(0).getContent());
+        assertEquals("Draft", written.getAllValues().get(1).getContent());
+        verify(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+    }
+
+    @Test
+    void save_pendingEdit_givesVersionAfterWrittenOne() {
+        subject.save(edit("note1", "Draft", 4L));
+
+        assertEquals(6L, subject.save(edit("note1", "Draft, continued", 5L)).getVersion());
+        assertEquals(6L, subject.save(edit("note1", "Draft, continued further", 6L)).getVersion());
+    }
+
+    @Test
+    void save_versionBehindPendingEdit_throwsVersionConflict() {
+        subject.save(edit("note1", "Draft", 4L));
+        subject.save(edit("note1", "Draft, continued", 5L));
+
+        VersionConflictException e = assertThrows(VersionConflictException.class,
+                () -> subject.save(edit("note1", "Stale tab", 5L)));
+
+        assertEquals(6, e.getCurrentVersion());
+        assertEquals("Draft, continued", subject.get("note1").getContent());
+    }
+
+    @Test
+    void flush_nothingQueuedAfterFirstEdit_writesNothingMore() {
+        subject.save(edit("note1", "Draft", 3L));
+
+        subject.flush("note1");
+
+        verify(noteRepository, times(1)).updateNote(any(NoteRecord.class), any());
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void get_returnsPendingVersionUntilWritten() {
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+
+        assertEquals("Draft", subject.get("note1").getContent());
+
+        subject.flush("note1");
+
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void flush_editDuringWrite_writesItNext() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(storedRecord("note1", "Draft", 4L));
+        }).when(noteRepository).updateNote(any(NoteRecord.class), eq(4L));
+        subject.save(edit("note1", "Draft", 3L));
+        subject.save(edit("note1", "Draft, continued", 4L));
+        Thread flush = new Thread(() -> subject.flush("note1"));
+        flush.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // the client saw version 5, the one being written; its next edit comes after it
+        Note saved = subject.save(edit("note1", "Draft, continued further", 5L));
+        release.countDown();
+        flush.join(5000);
+
+        assertEquals(6L, saved.getVersion());
+        assertEquals("Draft, continued further", subject.get("note1").getContent());
+
+        subject.flush("note1");
+
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).updateNote(written.capture(), eq(5L));
+        assertEquals("Draft, continued further", written.getValue().getContent());
+        assertNull(subject.get("note1"));
+        assertEquals(0, meterRegistry.counter("notes.autosave.flushes", "result", "conflict").count());
+    }
+
+    @Test
+    void flush_failedWrite_keepsPendingVersion() {
+        doThrow(new RuntimeException("throttled")).when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+
+        subject.flush("note1");
+
+        assertEquals("Draft", subject.get("note1").getContent());
+        assertEquals(1, meterRegistry.counter("notes.autosave.flushes", "result", "failed").count());
+    }
+
+    @Test
+    void flush_failingWrite_dropsEditsAfterLastAttempt() {
+        doThrow(new RuntimeException("validation error"))
+                .when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        when(noteRepository.findCurrent("note1")).thenReturn(Optional.of(storedRecord("note1", "D", 1L)));
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            subject.flush("note1");
+        }
+
+        assertNull(subject.get("note1"));
+        assertEquals(1, meterRegistry.counter("notes.autosave.flushes", "result", "dropped").count());
+    }
+
+    @Test
+    void flush_failedWriteThatLanded_countsAsWritten() {
+        doThrow(new RuntimeException("timed out")).when(noteRepository).updateNote(any(NoteRecord.class), eq(4L));
+        when(noteRepository.findCurrent("note1")).thenReturn(Optional.of(storedRecord("note1", "Draft", 5L)));
+        subject.save(edit("note1", "D", 3L));
+        subject.save(edit("note1", "Draft", 4L));
+
+        subject.flush("note1");
+        subject.flush("note1");
+
+        verify(noteRepository, times(1)).updateNote(any(NoteRecord.class), eq(4L));
+        assertNull(subject.get("note1"));
+        assertEquals(0, meterRegistry.counter("notes.autosave.flushes", "result", "conflict").count());
+    }
+
+    @Test
+    void flush_failedWriteThatLandedThenNewEdit_writesNewEditAfterIt() {
+        doThrow(new RuntimeException("timed out")).when(noteRepository).updateNote(any(NoteRecord.class), eq(4L));
+        when(noteRepository.findCurrent("note1")).thenReturn(Optional.of(storedRecord("note1", "Draft", 5L)));
+        subject.save(edit("note1", "D", 3L));
+        subject.save(edit("note1", "Draft", 4L));
+        subject.flush("note1");
+
+        // the client was told version 5 for the edit whose write failed
+        Note saved = subject.save(edit("note1", "Draft, continued", 5L));
+        subject.flush("note1");
+
+        assertEquals(6L, saved.getVersion());
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).updateNote(written.capture(), eq(5L));
+        assertEquals("Draft, continued", written.getValue().getContent());
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void flush_failedWriteThatDidNotLand_writesAgain() {
+        doThrow(new RuntimeException("throttled"))
+                .doReturn(Optional.of(storedRecord("note1", "D", 1L)))
+                .when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        when(noteRepository.findCurrent("note1")).thenReturn(Optional.of(storedRecord("note1", "D", 1L)));
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+
+        subject.flush("note1");
+        subject.flush("note1");
+
+        verify(noteRepository, times(2)).updateNote(any(NoteRecord.class), eq(1L));
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void flush_deletedNote_dropsPendingVersion() {
+        doReturn(Optional.empty()).when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+
+        subject.flush("note1");
+
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void flush_versionConflict_dropsPendingVersion() {
+        doThrow(new VersionConflictException("Version conflict for NoteRecord", 5))
+                .when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+
+        subject.flush("note1");
+
+        assertNull(subject.get("note1"));
+        assertEquals(1, meterRegistry.counter("notes.autosave.flushes", "result", "conflict").count());
+    }
+
+    @Test
+    void flush_longContent_writesHashAndReleasesPreviousBlob() {
+        NoteRecord previous = storedRecord("note1", null, 1L);
+        previous.setContentHash(HASH);
+        doReturn(Optional.of(previous)).when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft. ".repeat(200), 1L));
+
+        subject.flush("note1");
+
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).updateNote(written.capture(), eq(1L));
+        assertNull(written.getValue().getContent());
+        verify(blobStore).retain(eq(written.getValue().getContentHash()), any(byte[].class));
+        verify(blobStore).release(HASH);
+    }
+
+    @Test
+    void flush_longContentFailedWrite_keepsNewBlobUntilWriteKnownNotToHaveLanded() {
+        doThrow(new RuntimeException("throttled"))
+                .doReturn(Optional.of(storedRecord("note1", "D", 1L)))
+                .when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        when(noteRepository.findCurrent("note1")).thenReturn(Optional.of(storedRecord("note1", "D", 1L)));
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft. ".repeat(200), 1L));
+
+        subject.flush("note1");
+
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        verify(noteRepository).updateNote(written.capture(), eq(1L));
+        String hash = written.getValue().getContentHash();
+        verify(blobStore, never()).release(hash);
+
+        subject.flush("note1");
+
+        // released for the attempt that did not land; the second attempt's reference stays with the note
+        verify(blobStore, times(1)).release(hash);
+    }
+
+    @Test
+    void flush_longContentFailedWriteThatLanded_releasesBlobItReplaced() {
+        doThrow(new RuntimeException("timed out")).when(noteRepository).updateNote(any(NoteRecord.class), eq(1L));
+        subject.save(edit("note1", "Draft. ".repeat(200), 0L));
+        subject.save(edit("note1", "Longer draft. ".repeat(200), 1L));
+        ArgumentCaptor<NoteRecord> written = ArgumentCaptor.forClass(NoteRecord.class);
+        subject.flush("note1");
+        verify(noteRepository, times(2)).updateNote(written.capture(), any());
+        String first = written.getAllValues().get(0).getContentHash();
+        String second = written.getAllValues().get(1).getContentHash();
+        NoteRecord stored = storedRecord("note1", null, 2L);
+        stored.setContentHash(second);
+        when(noteRepository.findCurrent("note1")).thenReturn(Optional.of(stored));
+
+        subject.flush("note1");
+
+        verify(blobStore).release(first);
+        verify(blobStore, never()).release(second);
+        assertNull(subject.get("note1"));
+    }
+
+    @Test
+    void discard_dropsUnwrittenEdits() {
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+
+        subject.discard("note1");
+        subject.flush("note1");
+
+        assertNull(subject.get("note1"));
+        verify(noteRepository, times(1)).updateNote(any(NoteRecord.class), any());
+    }
+
+    @Test
+    void shutdown_writesEveryPendingNote() {
+        subject.save(edit("note1", "D", 0L));
+        subject.save(edit("note1", "Draft", 1L));
+        subject.save(edit("note2", "O", 0L));
+        subject.save(edit("note2", "Other draft", 1L));
+
+        subject.shutdown();
+
+        verify(noteRepository, times(2)).updateNote(any(NoteRecord.class), eq(1L));
+        assertNull(subject.get("note1"));
+        assertNull(subject.get("note2"));
+    }
+
+    private static Note edit(String noteId, String content, Long version) {
+        ZonedDateTime now = ZonedDateTime.now();
+        return new Note(noteId, "person1@aol.com", content, now, now, version);
+    }
+
+    private static NoteRecord storedRecord(String noteId, String content, Long version) {
+        NoteRecord record = new NoteRecord();
+        record.setNoteId(noteId);
+        record.setContent(content);
+        record.setVersion(version);
+        return record;
+    }
+}
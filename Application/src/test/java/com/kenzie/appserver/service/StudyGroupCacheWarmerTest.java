@@ -0,0 +1,169 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.config.CacheSnapshotFile;
+import com.kenzie.appserver.config.CacheStore;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import com.kenzie.appserver.service.model.StudyGroup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Status;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StudyGroupCacheWarmerTest {
+
+    private StudyGroupRepository studyGroupRepository;
+    private CacheStore cache;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setup() {
+        studyGroupRepository = mock(StudyGroupRepository.class);
+        cache = mock(CacheStore.class);
+    }
+
+    @Test
+    void warmUp_scansEverySegment_loadsAllGroupsLocally() {
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("GroupId", new AttributeValue().withS("a"));
+        when(studyGroupRepository.findSegmentPage(eq(0), eq(2), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("a")), lastKey));
+        when(studyGroupRepository.findSegmentPage(0, 2, 500, lastKey))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("b")), null));
+        when(studyGroupRepository.findSegmentPage(eq(1), eq(2), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("c")), null));
+        StudyGroupCacheWarmer subject = newWarmer(2, Duration.ofSeconds(5), 100);
+
+        assertEquals(Status.OUT_OF_SERVICE, subject.health().getStatus());
+        StudyGroupCacheWarmer.WarmUpReport report = subject.warmUp();
+
+        assertEquals(3, report.getLoadedEntries());
+        assertTrue(report.isComplete());
+        assertEquals(Status.UP, subject.health().getStatus());
+        verify(cache).addLocal(eq("a"), any(StudyGroup.class));
+        verify(cache).addLocal(eq("b"), any(StudyGroup.class));
+        verify(cache).addLocal(eq("c"), any(StudyGroup.class));
+        verify(cache, never()).add(anyString(), any(StudyGroup.class));
+    }
+
+    @Test
+    void warmUp_maxEntriesReached_stopsEarly() {
+        when(studyGroupRepository.findSegmentPage(eq(0), eq(1), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Arrays.asList(record("a"), record("b"), record("c")), null));
+        StudyGroupCacheWarmer subject = newWarmer(1, Duration.ofSeconds(5), 2);
+
+        StudyGroupCacheWarmer.WarmUpReport report = subject.warmUp();
+
+        assertEquals(2, report.getLoadedEntries());
+        assertFalse(report.isComplete());
+    }
+
+    @Test
+    @Timeout(10)
+    void warmUp_slowScan_stopsAtTimeBudget() {
+        // the scan is held until warm-up has returned, so warm-up can only finish by giving up at its budget
+        CountDownLatch scanReleased = new CountDownLatch(1);
+        when(studyGroupRepository.findSegmentPage(eq(0), eq(1), anyInt(), noStartKey())).thenAnswer(invocation -> {
+            scanReleased.await();
+            return new RecordPage<>(Collections.singletonList(record("a")), null);
+        });
+        StudyGroupCacheWarmer subject = newWarmer(1, Duration.ofMillis(100), 100);
+
+        StudyGroupCacheWarmer.WarmUpReport report;
+        try {
+            report = subject.warmUp();
+        } finally {
+            scanReleased.countDown();
+        }
+
+        assertFalse(report.isComplete());
+        assertEquals(Status.UP, subject.health().getStatus());
+    }
+
+    @Test
+    void restoreSnapshot_thenReconcile_refreshesRestoredGroupsAndDropsDeletedOnes() throws IOException {
+        CacheSnapshotFile snapshotFile = new CacheSnapshotFile(directory.resolve("cache.snapshot"));
+        snapshotFile.write(Arrays.asList(
+                new StudyGroup("a", "old name", "topic", ZonedDateTime.now(), true),
+                new StudyGroup("deleted", "deleted", "topic", ZonedDateTime.now(), true)));
+        when(studyGroupRepository.findAllById(any()))
+                .thenReturn(Collections.singletonList(record("a")));
+        StudyGroupCacheWarmer subject = new StudyGroupCacheWarmer(studyGroupRepository, cache, snapshotFile,
+                new SimpleMeterRegistry(), true, 1, Duration.ofSeconds(5), 100, Duration.ofHours(24), Duration.ZERO);
+
+        when(cache.replaceLocal(eq("a"), any(StudyGroup.class), any(StudyGroup.class))).thenReturn(true);
+
+        CacheSnapshotFile.Snapshot snapshot = subject.restoreSnapshot();
+
+        assertEquals(2, snapshot.getStudyGroups().size());
+        assertEquals(Status.UP, subject.health().getStatus());
+        verify(cache).addLocal(eq("deleted"), any(StudyGroup.class));
+        verify(studyGroupRepository, never()).findSegmentPage(anyInt(), anyInt(), anyInt(), any());
+
+        subject.reconcile(snapshot);
+
+        // only while the entries are still the restored copies
+        verify(cache).replaceLocal(eq("a"), same(snapshot.getStudyGroups().get(0)), any(StudyGroup.class));
+        verify(cache).evictLocal("deleted", snapshot.getStudyGroups().get(1));
+        verify(cache, times(1)).addLocal(eq("a"), any(StudyGroup.class));
+        // only the restored keys are read, never the whole table
+        verify(studyGroupRepository, never()).findPage(anyInt(), any());
+    }
+
+    @Test
+    void writeSnapshot_writesLocalEntriesOnceWarm() throws IOException {
+        CacheSnapshotFile snapshotFile = new CacheSnapshotFile(directory.resolve("cache.snapshot"));
+        when(cache.localEntries()).thenReturn(Collections.singletonList(
+                new StudyGroup("a", "name", "topic", ZonedDateTime.now(), true)));
+        when(studyGroupRepository.findSegmentPage(eq(0), eq(1), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("a")), null));
+        StudyGroupCacheWarmer subject = new StudyGroupCacheWarmer(studyGroupRepository, cache, snapshotFile,
+                new SimpleMeterRegistry(), true, 1, Duration.ofSeconds(5), 100, Duration.ofHours(24), Duration.ZERO);
+
+        subject.writeSnapshot();
+        assertNull(snapshotFile.read(Long.MAX_VALUE));
+
+        subject.warmUp();
+        subject.writeSnapshot();
+        assertEquals("a", snapshotFile.read(Long.MAX_VALUE).getStudyGroups().get(0).getGroupId());
+    }
+
+    private StudyGroupCacheWarmer newWarmer(int segments, Duration budget, int maxEntries) {
+        return new StudyGroupCacheWarmer(studyGroupRepository, cache, null, new SimpleMeterRegistry(),
+                true, segments, budget, maxEntries, Duration.ofHours(24), Duration.ZERO);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
+
+    private static StudyGroupRecord record(String groupId) {
+        StudyGroupRecord record = new StudyGroupRecord();
+        record.setGroupId(groupId);
+        record.setGroupName(groupId);
+        record.setDiscussionTopic("topic");
+        record.setCreationDate(ZonedDateTime.now());
+        record.setActive(true);
+        return record;
+    }
+}
@@ -0,0 +1,108 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import com.kenzie.appserver.service.model.StudyGroup;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StudyGroupCatalogTest {
+
+    private StudyGroupRepository studyGroupRepository;
+    private StudyGroupCatalog subject;
+
+    @BeforeEach
+    void setup() {
+        studyGroupRepository = mock(StudyGroupRepository.class);
+        subject = new StudyGroupCatalog(studyGroupRepository, 10);
+    }
+
+    @Test
+    void rebuild_scansAllPages_pagesOrderedByGroupId() {
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("GroupId", new AttributeValue().withS("c"));
+        when(studyGroupRepository.findPage(anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Arrays.asList(record("c"), record("a")), lastKey));
+        when(studyGroupRepository.findPage(anyInt(), eq(lastKey)))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("b")), null));
+
+        assertFalse(subject.isLoaded());
+        subject.rebuild();
+
+        assertTrue(subject.isLoaded());
+        List<StudyGroup> firstPage = subject.page(null, 2);
+        assertEquals("a", firstPage.get(0).getGroupId());
+        assertEquals("b", firstPage.get(1).getGroupId());
+        assertTrue(subject.hasGroupsAfter("b"));
+
+        List<StudyGroup> secondPage = subject.page("b", 2);
+        assertEquals(1, secondPage.size());
+        assertEquals("c", secondPage.get(0).getGroupId());
+        assertFalse(subject.hasGroupsAfter("c"));
+    }
+
+    @Test
+    void putAndRemove_updateSnapshotIncrementally() {
+        when(studyGroupRepository.findPage(anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("a")), null));
+        subject.rebuild();
+
+        subject.put(new StudyGroup("b", "b", "topic", ZonedDateTime.now(), true));
+        subject.remove("a");
+
+        List<StudyGroup> page = subject.page(null, 10);
+        assertEquals(1, page.size());
+        assertEquals("b", page.get(0).getGroupId());
+        verify(studyGroupRepository, times(1)).findPage(anyInt(), noStartKey());
+    }
+
+    @Test
+    void page_returnsCopies() {
+        subject.put(new StudyGroup("a", "name", "topic", ZonedDateTime.now(), true));
+
+        subject.page(null, 1).get(0).setGroupName("changed");
+
+        assertEquals("name", subject.page(null, 1).get(0).getGroupName());
+    }
+
+    @Test
+    void rebuild_tableLargerThanMaxSize_catalogNotLoaded() {
+        StudyGroupRecord[] records = new StudyGroupRecord[11];
+        for (int i = 0; i < records.length; i++) {
+            records[i] = record("group" + i);
+        }
+        when(studyGroupRepository.findPage(anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Arrays.asList(records), null));
+
+        subject.rebuild();
+
+        assertFalse(subject.isLoaded());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
+
+    private static StudyGroupRecord record(String groupId) {
+        StudyGroupRecord record = new StudyGroupRecord();
+        record.setGroupId(groupId);
+        record.setGroupName(groupId);
+        record.setDiscussionTopic("topic");
+        record.setCreationDate(ZonedDateTime.now());
+        record.setActive(true);
+        return record;
+    }
+}
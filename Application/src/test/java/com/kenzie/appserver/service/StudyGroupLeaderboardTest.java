@@ -0,0 +1,145 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.service.model.StudyGroupRating;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StudyGroupLeaderboardTest {
+
+    private StudyGroupRatingRepository ratingRepository;
+    private StudyGroupLeaderboard subject;
+
+    @BeforeEach
+    void setup() {
+        ratingRepository = mock(StudyGroupRatingRepository.class);
+        when(ratingRepository.findSegmentPage(anyInt(), anyInt(), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
+        // shows 2 groups per topic (keeps 8), ranks groups with at least 2 reviews, scans 2 segments
+        subject = new StudyGroupLeaderboard(ratingRepository, 2, 2, 2);
+    }
+
+    @Test
+    void rebuild_mergesSegmentsIntoRankingPerTopic() {
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("GroupId", new AttributeValue().withS("b"));
+        when(ratingRepository.findSegmentPage(eq(0), eq(2), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Arrays.asList(record("a", "API", 4.0, 4.0), record("b", "API", 5.0, 5.0)),
+                        lastKey));
+        when(ratingRepository.findSegmentPage(eq(0), eq(2), anyInt(), eq(lastKey)))
+                .thenReturn(new RecordPage<>(Collections.singletonList(record("c", "Threads", 3.0, 3.0)), null));
+        when(ratingRepository.findSegmentPage(eq(1), eq(2), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Arrays.asList(record("d", "API", 4.5, 4.5),
+                        // too few reviews to rank
+                        record("e", "API", 5.0)), null));
+
+        subject.rebuild();
+
+        assertEquals(Arrays.asList("b", "d"), groupIds(subject.top("API", 2)));
+        assertEquals(Collections.singletonList("c"), groupIds(subject.top("Threads", 2)));
+        assertTrue(subject.top("Strings", 2).isEmpty());
+    }
+
+    @Test
+    void update_reranksGroupWithoutReadingDynamoDb() {
+        subject.update(rating("a", "API", 4.0, 4.0));
+        subject.update(rating("b", "API", 3.0, 3.0));
+        subject.update(rating("c", "API", 5.0, 4.0));
+
+        assertEquals(Arrays.asList("c", "a"), groupIds(subject.top("API", 2)));
+
+        // c's average drops below b's; b moves up from the reserve
+        subject.update(rating("c", "API", 5.0, 4.0, 1.0, 1.0));
+
+        assertEquals(Arrays.asList("a", "b"), groupIds(subject.top("API", 2)));
+        verify(ratingRepository, never()).findSegmentPage(anyInt(), anyInt(), anyInt(), any());
+    }
+
+    @Test
+    void update_groupBelowMinReviews_isNotRanked() {
+        subject.update(rating("a", "API", 5.0));
+
+        assertTrue(subject.top("API", 2).isEmpty());
+    }
+
+    @Test
+    void remove_dropsGroupFromItsTopic() {
+        subject.update(rating("a", "API", 4.0, 4.0));
+        subject.update(rating("b", "API", 3.0, 3.0));
+
+        subject.remove("a");
+
+        assertEquals(Collections.singletonList("b"), groupIds(subject.top("API", 2)));
+    }
+
+    @Test
+    void update_keepsOnlyReservePerTopic() {
+        for (int i = 0; i < 20; i++) {
+            subject.update(rating("group" + i, "API", 1.0 + i * 0.2, 1.0 + i * 0.2));
+        }
+
+        assertEquals(Arrays.asList("group19", "group18"), groupIds(subject.top("API", 2)));
+        // everything below the reserve of 8 was let go
+        for (int i = 0; i < 12; i++) {
+            subject.remove("group" + (19 - i));
+        }
+        assertTrue(subject.top("API", 2).isEmpty());
+    }
+
+    @Test
+    void update_duringRebuild_isKeptOverScannedTotals() {
+        when(ratingRepository.findSegmentPage(eq(0), eq(2), anyInt(), noStartKey())).thenAnswer(invocation -> {
+            subject.update(rating("a", "API", 5.0, 5.0, 5.0));
+            return new RecordPage<>(Collections.singletonList(record("a", "API", 1.0, 1.0)), null);
+        });
+
+        subject.rebuild();
+
+        List<StudyGroupRating> top = subject.top("API", 2);
+        assertEquals(1, top.size());
+        assertEquals(3, top.get(0).getReviewCount());
+    }
+
+    private static List<String> groupIds(List<StudyGroupRating> ratings) {
+        List<String> groupIds = new ArrayList<>();
+        for (StudyGroupRating rating : ratings) {
+            groupIds.add(rating.getGroupId());
+        }
+        return groupIds;
+    }
+
+    private static StudyGroupRating rating(String groupId, String topic, double... ratings) {
+        StudyGroupRatingRecord record = record(groupId, topic, ratings);
+        return new StudyGroupRating(groupId, "group " + groupId, topic, record.getReviewCount(),
+                record.getRatingSum(), record.getHistogram());
+    }
+
+    private static StudyGroupRatingRecord record(String groupId, String topic, double... ratings) {
+        StudyGroupRatingRecord record = new StudyGroupRatingRecord();
+        record.setGroupId(groupId);
+        record.setGroupName("group " + groupId);
+        record.setDiscussionTopic(topic);
+        for (double rating : ratings) {
+            record.add(rating);
+        }
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
+}
@@ -0,0 +1,70 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupNameRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+public class StudyGroupNameBackfillTest {
+    private StudyGroupRepository studyGroupRepository;
+    private StudyGroupNameBackfill subject;
+
+    @BeforeEach
+    void setup() {
+        studyGroupRepository = mock(StudyGroupRepository.class);
+        subject = new StudyGroupNameBackfill(studyGroupRepository, new SimpleMeterRegistry(), true);
+    }
+
+    @Test
+    void backfill_claimsOnlyUnclaimedNames() {
+        when(studyGroupRepository.findPage(anyInt(), noStartKey())).thenReturn(new RecordPage<>(Arrays.asList(
+                group("1", "Algorithms"), group("2", "Databases"), group("3", "Compilers")), null));
+        Map<String, String> owners = new HashMap<>();
+        owners.put(StudyGroupNameRecord.nameTopicKey("Algorithms", "CS"), "1");
+        owners.put(StudyGroupNameRecord.nameTopicKey("Databases", "CS"), "9");
+        when(studyGroupRepository.findGroupIdsByNameKeys(anyCollection())).thenReturn(owners);
+        when(studyGroupRepository.claimName("3", "Compilers", "CS")).thenReturn(true);
+
+        subject.backfill();
+
+        verify(studyGroupRepository).claimName("3", "Compilers", "CS");
+        verify(studyGroupRepository, never()).claimName(eq("1"), any(), any());
+        // group 2 duplicates group 9's name: reported, not claimed
+        verify(studyGroupRepository, never()).claimName(eq("2"), any(), any());
+    }
+
+    @Test
+    void backfill_emptyTable_claimsNothing() {
+        when(studyGroupRepository.findPage(anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.emptyList(), null));
+        when(studyGroupRepository.findGroupIdsByNameKeys(anyCollection())).thenReturn(new HashMap<>());
+
+        subject.backfill();
+
+        verify(studyGroupRepository, never()).claimName(any(), any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
+
+    private static StudyGroupRecord group(String groupId, String groupName) {
+        StudyGroupRecord record = new StudyGroupRecord();
+        record.setGroupId(groupId);
+        record.setGroupName(groupName);
+        record.setDiscussionTopic("CS");
+        return record;
+    }
+}
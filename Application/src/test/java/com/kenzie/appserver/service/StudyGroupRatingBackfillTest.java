@@ -0,0 +1,60 @@
+package com.kenzie.appserver.service;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
+import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupRecord;
+import com.kenzie.appserver.service.model.StudyGroupRating;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+
+public class StudyGroupRatingBackfillTest {
+    private StudyGroupRepository studyGroupRepository;
+    private StudyGroupRatingRepository ratingRepository;
+    private StudyGroupReviewService reviewService;
+    private StudyGroupRatingBackfill subject;
+
+    @BeforeEach
+    void setup() {
+        studyGroupRepository = mock(StudyGroupRepository.class);
+        ratingRepository = mock(StudyGroupRatingRepository.class);
+        reviewService = mock(StudyGroupReviewService.class);
+        subject = new StudyGroupRatingBackfill(studyGroupRepository, ratingRepository, reviewService,
+                new SimpleMeterRegistry(), true);
+    }
+
+    @Test
+    void backfill_rebuildsOnlyGroupsWithoutTotals() {
+        when(studyGroupRepository.findPage(anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Arrays.asList(group("1"), group("2")), null));
+        StudyGroupRatingRecord totals = new StudyGroupRatingRecord();
+        totals.setGroupId("1");
+        when(ratingRepository.findAllById(any())).thenReturn(Collections.singletonList(totals));
+        when(reviewService.getStudyGroupRating("2")).thenReturn(StudyGroupRating.none("2"));
+
+        subject.backfill();
+
+        verify(reviewService).getStudyGroupRating("2");
+        verify(reviewService, never()).getStudyGroupRating("1");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
+
+    private static StudyGroupRecord group(String groupId) {
+        StudyGroupRecord record = new StudyGroupRecord();
+        record.setGroupId(groupId);
+        return record;
+    }
+}
@@ -0,0 +1,156 @@
+package com.kenzie.appserver.service;
+
+import com.kenzie.appserver.exception.ReviewNotFoundException;
+import com.kenzie.appserver.exception.ReviewQueueFullException;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
+import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import com.kenzie.appserver.service.model.ReviewBatchResult;
+import com.kenzie.appserver.service.model.StudyGroupReview;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class StudyGroupReviewIngestionTest {
+    private StudyGroupReviewService reviewService;
+    private SimpleMeterRegistry meterRegistry;
+    private StudyGroupReviewIngestion subject;
+    @Captor
+    private ArgumentCaptor<List<StudyGroupReviewRecord>> batches;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        reviewService = mock(StudyGroupReviewService.class);
+        when(reviewService.getStudyGroupReviewRecord(any(StudyGroupReview.class))).thenCallRealMethod();
+        when(reviewService.persistReviews(anyList()))
+                .thenReturn(new ReviewBatchResult(new ArrayList<>(), new ArrayList<>()));
+        meterRegistry = new SimpleMeterRegistry();
+        // the drainer is never started, so the tests flush by hand
+        subject = new StudyGroupReviewIngestion(reviewService, meterRegistry, true, 3, 2, Duration.ZERO);
+    }
+
+    @Test
+    void submit_queuesReviewAndReturnsItsId() {
+        String reviewId = subject.submit(review("review1"));
+
+        assertEquals("review1", reviewId);
+        verify(reviewService).validateReview(any(StudyGroupReview.class));
+        verify(reviewService, never()).persistReviews(anyList());
+        assertEquals(1.0, meterRegistry.get("studygroup.review.ingestion.queue.depth").gauge().value());
+    }
+
+    @Test
+    void submit_invalidReview_isNotQueued() {
+        doThrow(new ReviewNotFoundException("Invalid review")).when(reviewService)
+                .validateReview(any(StudyGroupReview.class));
+
+        assertThrows(ReviewNotFoundException.class, () -> subject.submit(review("review1")));
+        assertFalse(subject.flushNext(0));
+    }
+
+    @Test
+    void submit_queueFull_throws() {
+        subject.submit(review("review1"));
+        subject.submit(review("review2"));
+        subject.submit(review("review3"));
+
+        assertThrows(ReviewQueueFullException.class, () -> subject.submit(review("review4")));
+        assertEquals(1.0, meterRegistry.counter("studygroup.review.ingestion.reviews", "result", "rejected").count());
+    }
+
+    @Test
+    void flushNext_persistsUpToBatchSize() {
+        subject.submit(review("review1"));
+        subject.submit(review("review2"));
+        subject.submit(review("review3"));
+
+        assertTrue(subject.flushNext(0));
+        assertTrue(subject.flushNext(0));
+        assertFalse(subject.flushNext(0));
+
+        verify(reviewService, times(2)).persistReviews(batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals(1, batches.getAllValues().get(1).size());
+        assertEquals(3.0, meterRegistry.counter("studygroup.review.ingestion.reviews", "result", "written").count());
+        assertEquals(2, meterRegistry.get("studygroup.review.ingestion.flush").timer().count());
+    }
+
+    @Test
+    void flushNext_unwrittenReview_isRetriedThenDropped() {
+        subject.submit(review("review1"));
+        when(reviewService.persistReviews(anyList())).thenAnswer(invocation -> new ReviewBatchResult(
+                new ArrayList<StudyGroupReviewRecord>(invocation.getArgument(0)), new ArrayList<>()));
+
+        int flushes = 0;
+        while (subject.flushNext(0)) {
+            flushes++;
+        }
+
+        assertEquals(3, flushes);
+        assertEquals(1.0, meterRegistry.counter("studygroup.review.ingestion.reviews", "result", "dropped").count());
+    }
+
+    @Test
+    void flushNext_uncountedRatings_areRetriedWithoutRewritingReviews() {
+        StudyGroupRatingRecord delta = new StudyGroupRatingRecord();
+        delta.setGroupId("1");
+        delta.add(4.0);
+        when(reviewService.persistReviews(anyList())).thenReturn(new ReviewBatchResult(new ArrayList<>(),
+                new ArrayList<>(Collections.singletonList(delta))));
+        subject.submit(review("review1"));
+
+        subject.flushNext(0);
+        subject.retryRatings();
+
+        verify(reviewService).persistReviews(anyList());
+        verify(reviewService).applyRatingDelta(delta);
+        assertEquals(1.0, meterRegistry.counter("studygroup.review.ingestion.ratings", "result", "failed").count());
+        assertEquals(0.0, meterRegistry.counter("studygroup.review.ingestion.ratings", "result", "dropped").count());
+    }
+
+    @Test
+    void retryRatings_keepsFailing_dropsDeltaAfterMaxAttempts() {
+        StudyGroupRatingRecord delta = new StudyGroupRatingRecord();
+        delta.setGroupId("1");
+        delta.add(4.0);
+        when(reviewService.persistReviews(anyList())).thenReturn(new ReviewBatchResult(new ArrayList<>(),
+                new ArrayList<>(Collections.singletonList(delta))));
+        doThrow(new RuntimeException("throttled")).when(reviewService).applyRatingDelta(delta);
+        subject.submit(review("review1"));
+
+        subject.flushNext(0);
+        for (int i = 0; i < 5; i++) {
+            subject.retryRatings();
+        }
+
+        verify(reviewService, times(2)).applyRatingDelta(delta);
+        assertEquals(3.0, meterRegistry.counter("studygroup.review.ingestion.ratings", "result", "failed").count());
+        assertEquals(1.0, meterRegistry.counter("studygroup.review.ingestion.ratings", "result", "dropped").count());
+    }
+
+    @Test
+    void shutdown_flushesWhatIsQueued() {
+        subject.submit(review("review1"));
+
+        StudyGroupReviewRecord queued = reviewService.getStudyGroupReviewRecord(review("review1"));
+
+        subject.shutdown();
+
+        verify(reviewService).persistReviews(Collections.singletonList(queued));
+    }
+
+    private static StudyGroupReview review(String reviewId) {
+        return new StudyGroupReview("1", "group1", reviewId, "API", 4.0, 0.0, "Good");
+    }
+}
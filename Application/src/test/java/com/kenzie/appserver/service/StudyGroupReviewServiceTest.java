@@ -1,14 +1,26 @@
 package com.kenzie.appserver.service;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.kenzie.appserver.exception.ReviewNotFoundException;
+import com.kenzie.appserver.repositories.BatchWriter;
+import com.kenzie.appserver.repositories.StudyGroupRatingRepository;
 import com.kenzie.appserver.repositories.StudyGroupReviewRepository;
+import com.kenzie.appserver.repositories.converter.PageCursorConverter;
+import com.kenzie.appserver.repositories.model.RecordPage;
+import com.kenzie.appserver.repositories.model.StudyGroupRatingRecord;
 import com.kenzie.appserver.repositories.model.StudyGroupReviewId;
 import com.kenzie.appserver.repositories.model.StudyGroupReviewRecord;
+import com.kenzie.appserver.service.model.ReviewBatchResult;
+import com.kenzie.appserver.service.model.StudyGroupCommentPage;
+import com.kenzie.appserver.service.model.StudyGroupRating;
+import com.kenzie.appserver.service.model.StudyGroupRatingPage;
 import com.kenzie.appserver.service.model.StudyGroupReview;
+import com.kenzie.appserver.service.model.StudyGroupReviewPage;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,12 +29,21 @@ import static org.mockito.Mockito.*;
 public class StudyGroupReviewServiceTest {
 
     private StudyGroupReviewRepository reviewRepository;
+    private StudyGroupRatingRepository ratingRepository;
+    private BatchWriter batchWriter;
+    private StudyGroupLeaderboard leaderboard;
     private StudyGroupReviewService subject;
 
     @BeforeEach
     void setup(){
         reviewRepository = mock(StudyGroupReviewRepository.class);
-        subject = new StudyGroupReviewService(reviewRepository);
+        ratingRepository = mock(StudyGroupRatingRepository.class);
+        when(ratingRepository.findById(anyString())).thenReturn(Optional.empty());
+        batchWriter = mock(BatchWriter.class);
+        when(batchWriter.deleteAll(anyList())).thenReturn(new ArrayList<>());
+        leaderboard = mock(StudyGroupLeaderboard.class);
+        subject = new StudyGroupReviewService(reviewRepository, ratingRepository, batchWriter, leaderboard,
+                Duration.ofSeconds(10));
     }
 
     @Test
@@ -45,18 +66,75 @@ public class StudyGroupReviewServiceTest {
         savedRecord.setReviewComments(reviewComments);
 
         StudyGroupReview review = new StudyGroupReview(groupId, groupName, reviewId, discussionTopic, rating, rating, reviewComments);
-        when(reviewRepository.save(any(StudyGroupReviewRecord.class))).thenReturn(savedRecord);
         when(reviewRepository.findByGroupId(groupId)).thenReturn(Optional.empty());
+        when(ratingRepository.addReview(any(StudyGroupReviewRecord.class), any(StudyGroupRatingRecord.class)))
+                .thenReturn(Optional.of(totals(groupId, rating)));
 
         // class or the method under test
         StudyGroupReview studyGroupReview = subject.submitStudyGroupReview(review);
 
-        verify(reviewRepository).save(any(StudyGroupReviewRecord.class));
+        verify(ratingRepository).addReview(eq(savedRecord), eq(totals(groupId, rating)));
+        verify(reviewRepository, never()).save(any(StudyGroupReviewRecord.class));
+        verify(ratingRepository, never()).addRatings(any(StudyGroupRatingRecord.class));
         Assertions.assertEquals(savedRecord.getGroupId(), studyGroupReview.getGroupId());
         Assertions.assertEquals(savedRecord.getGroupName(), studyGroupReview.getGroupName());
         Assertions.assertEquals(savedRecord.getDiscussionTopic(), studyGroupReview.getDiscussionTopic());
         Assertions.assertEquals(savedRecord.getRating(), studyGroupReview.getRating());
         Assertions.assertEquals(savedRecord.getReviewComments(), studyGroupReview.getReviewComments());
+        Assertions.assertEquals(averageRating, studyGroupReview.getAverageRating());
+    }
+
+    @Test
+    public void submitStudyGroupReview_takesAverageFromUpdatedTotals() {
+        StudyGroupReview review = new StudyGroupReview("group123", "Study Group 123", "review124", "Strings",
+                2.0, 2.0, "Too fast");
+        when(ratingRepository.addReview(any(StudyGroupReviewRecord.class), any(StudyGroupRatingRecord.class)))
+                .thenReturn(Optional.of(totals("group123", 4.0, 5.0, 2.0)));
+
+        StudyGroupReview studyGroupReview = subject.submitStudyGroupReview(review);
+
+        assertEquals(11.0 / 3, studyGroupReview.getAverageRating());
+        verify(reviewRepository, never()).findByGroupId(anyString());
+        verify(leaderboard).update(any(StudyGroupRating.class));
+    }
+
+    @Test
+    public void submitStudyGroupReview_alreadySubmitted_reportsCurrentAverageWithoutCountingAgain() {
+        StudyGroupReview review = new StudyGroupReview("group123", "Study Group 123", "review124", "Strings",
+                2.0, 2.0, "Too fast");
+        when(ratingRepository.addReview(any(StudyGroupReviewRecord.class), any(StudyGroupRatingRecord.class)))
+                .thenReturn(Optional.empty());
+        when(ratingRepository.findById("group123")).thenReturn(Optional.of(totals("group123", 4.0, 2.0)));
+
+        StudyGroupReview studyGroupReview = subject.submitStudyGroupReview(review);
+
+        assertEquals(3.0, studyGroupReview.getAverageRating());
+        verify(ratingRepository, never()).addRatings(any(StudyGroupRatingRecord.class));
+        verify(leaderboard, never()).update(any(StudyGroupRating.class));
+    }
+
+    @Test
+    public void submitStudyGroupReview_firstReviewSinceTotalsWereKept_rebuildsTotalsFromReviews() {
+        String groupId = "group123";
+        StudyGroupReview review = new StudyGroupReview(groupId, "Study Group 123", "review3", "Strings",
+                5.0, 5.0, "Great");
+        StudyGroupRatingRecord afterAdd = totals(groupId, 5.0);
+        when(ratingRepository.addReview(any(StudyGroupReviewRecord.class), any(StudyGroupRatingRecord.class)))
+                .thenReturn(Optional.of(afterAdd));
+        List<StudyGroupReviewRecord> reviews = Arrays.asList(
+                new StudyGroupReviewRecord(new StudyGroupReviewId(groupId, "review1"), "Study Group 123",
+                        "Strings", 3.0, "Okay", 3.0),
+                new StudyGroupReviewRecord(new StudyGroupReviewId(groupId, "review2"), "Study Group 123",
+                        "Strings", 4.0, "Good", 4.0),
+                new StudyGroupReviewRecord(new StudyGroupReviewId(groupId, "review3"), "Study Group 123",
+                        "Strings", 5.0, "Great", 5.0));
+        when(reviewRepository.findByGroupId(groupId)).thenReturn(Optional.of(reviews));
+
+        StudyGroupReview studyGroupReview = subject.submitStudyGroupReview(review);
+
+        assertEquals(4.0, studyGroupReview.getAverageRating());
+        StudyGroupRatingRecord rebuilt = totals(groupId, 3.0, 4.0, 5.0);
+        verify(ratingRepository).replaceIfCountIs(rebuilt, 1L);
     }
 
     @Test
@@ -381,116 +459,84 @@ public class StudyGroupReviewServiceTest {
 
     @Test
     public void getGroupsWithDesiredRating_groupListFound() {
-        // Test data
-        String groupId1 = "1";
-        String reviewId1 = "review123";
-        String groupName1 = "group123";
         String discussionTopic = "Strings";
-        double rating1 = 4.8;
-        String reviewComments1 = "A good session";
-        double averageRating1 = 4.8;
-
-        String groupId2 = "2";
-        String reviewId2 = "review123";
-        String groupName2 = "group123";
-        double rating2 = 4.9;
-        String reviewComments2 = "A really good session";
-        double averageRating2 = 4.9;
-
-        String groupId3 = "2";
-        String reviewId3 = "review456";
-        String groupName3 = "group456";
-        double rating3 = 4.9;
-        String reviewComments3 = "perfect for me";
-        double averageRating3 = 4.9;
-
-        StudyGroupReviewId id1 = new StudyGroupReviewId(groupId1, reviewId1);
-        StudyGroupReviewRecord record1 = new StudyGroupReviewRecord(id1, groupName1, discussionTopic, rating1, reviewComments1, averageRating1);
-
-        StudyGroupReviewId id2 = new StudyGroupReviewId(groupId2, reviewId2);
-        StudyGroupReviewRecord record2 = new StudyGroupReviewRecord(id2, groupName2, discussionTopic, rating2, reviewComments2, averageRating2);
-
-        StudyGroupReviewId id3 = new StudyGroupReviewId(groupId3, reviewId3);
-        StudyGroupReviewRecord record3 = new StudyGroupReviewRecord(id3, groupName3, discussionTopic, rating3, reviewComments3, averageRating3);
-
-        List<StudyGroupReviewRecord> recordList = new ArrayList<>();
-        recordList.add(record1);
-        recordList.add(record2);
-        recordList.add(record3);
-
-        // Mock the repository behavior
-        when(reviewRepository.findAll()).thenReturn(recordList);
-
-        // Expected result
-        double expectedAverageRating1 = 4.8;
-        double expectedAverageRating2 = 4.9;
-        Map<String, Double> expectedMap = new HashMap<>();
-        expectedMap.put("1", expectedAverageRating1);
-        expectedMap.put("2", expectedAverageRating2);
-
-        // Actual result
-        Map<String, Double> actualMap = subject.getGroupsWithDesiredRating(4.0, discussionTopic);
-
-        // Verify the results
-        assertEquals(expectedMap.size(), actualMap.size());
-        assertEquals(expectedMap.keySet(), actualMap.keySet());
-        for (String groupId : expectedMap.keySet()) {
-            double expectedAverageRating = expectedMap.get(groupId);
-            double actualAverageRating = actualMap.get(groupId);
-            assertEquals(expectedAverageRating, actualAverageRating, 0.01);
-        }
-
-        // Verify the repository method calls
-        verify(reviewRepository, times(1)).findAll();
+        // group 2 has one review below the threshold, but its true average still qualifies
+        when(ratingRepository.findByDiscussionTopic(discussionTopic)).thenReturn(Arrays.asList(
+                totals("1", 4.8),
+                totals("2", 4.9, 4.9, 3.5),
+                totals("3", 3.0, 4.0)));
+
+        StudyGroupRatingPage page = subject.getGroupsWithDesiredRating(4.0, discussionTopic, null, 10);
+
+        assertEquals(2, page.getRatings().size());
+        assertEquals("1", page.getRatings().get(0).getGroupId());
+        assertEquals(4.8, page.getRatings().get(0).getAverageRating(), 0.01);
+        assertEquals("2", page.getRatings().get(1).getGroupId());
+        assertEquals(4.43, page.getRatings().get(1).getAverageRating(), 0.01);
+        assertNull(page.getNextCursor());
+        verify(reviewRepository, never()).findAll();
     }
 
-
-
     @Test
     public void getGroupsWithFiveRating_groupListNotFound(){
-        reviewRepository.deleteAll();
-
         String discussionTopic = "Strings";
-        //List<StudyGroupReviewRecord> reviewRecords = new ArrayList<>();
+        when(ratingRepository.findByDiscussionTopic(discussionTopic)).thenReturn(Arrays.asList(
+                totals("1", 3.0, 4.0)));
 
-        String groupId = "1";
-        String reviewId1 = "review123";
-        String groupName1 = "group123";
-        double rating1 = 3.0;
-        String reviewComments1 = "A good session";
-        double averageRating1 = 0.0;
+        StudyGroupRatingPage page = subject.getGroupsWithDesiredRating(5, discussionTopic, null, 10);
 
-        List<StudyGroupReviewRecord> recordList = new ArrayList<>();
-        StudyGroupReviewId id = new StudyGroupReviewId(groupId, reviewId1);
-        StudyGroupReviewRecord record1 = new StudyGroupReviewRecord(id,
-                groupName1, discussionTopic, rating1, reviewComments1, averageRating1);
-        recordList.add(record1);
-
-        String groupId2 = "1";
-        String reviewId2 = "review123";
-        String groupName2 = "group123";
-        double rating2 = 4.0;
-        String reviewComments2 = "It was marvelous";
-        double averageRating2 = 0.0;
-
-        StudyGroupReviewId id2 = new StudyGroupReviewId(groupId2, reviewId2);
-        StudyGroupReviewRecord record2 = new StudyGroupReviewRecord(id2,
-                groupName2, discussionTopic, rating2, reviewComments2, averageRating2);
-
-        recordList.add(record2);
-
-        when(reviewRepository.findByGroupId(groupId)).thenReturn(Optional.of(recordList));
-        when(reviewRepository.findAll()).thenReturn(recordList);
-
-        Map<String, Double> groupsWithDesiredRating = subject.getGroupsWithDesiredRating(5,discussionTopic);
+        assertNotNull(page.getRatings());
+        assertEquals(0, page.getRatings().size());
+        verify(reviewRepository, never()).findAll();
+    }
 
-        assertNotNull(groupsWithDesiredRating);
-        assertEquals(0,groupsWithDesiredRating.size());
+    @Test
+    public void getGroupsWithDesiredRating_pagesInOrderOfAverageRating() {
+        String discussionTopic = "Strings";
+        when(ratingRepository.findByDiscussionTopic(discussionTopic)).thenReturn(Arrays.asList(
+                totals("a", 4.0),
+                totals("b", 5.0),
+                totals("c", 4.0),
+                totals("d", 4.5),
+                totals("e", 2.0)));
+
+        StudyGroupRatingPage first = subject.getGroupsWithDesiredRating(3.0, discussionTopic, null, 2);
+        StudyGroupRatingPage second = subject.getGroupsWithDesiredRating(3.0, discussionTopic,
+                first.getNextCursor(), 2);
+
+        assertEquals(Arrays.asList("b", "d"), groupIds(first));
+        assertNotNull(first.getNextCursor());
+        assertEquals(Arrays.asList("a", "c"), groupIds(second));
+        assertNull(second.getNextCursor());
+        // both pages come from the one sorted read of the topic
+        verify(ratingRepository, times(1)).findByDiscussionTopic(discussionTopic);
+    }
 
-        verify(reviewRepository, times(1)).findAll();
+    @Test
+    public void getGroupsWithDesiredRating_invalidCursor_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> subject.getGroupsWithDesiredRating(3.0, "Strings", "not-a-cursor", 2));
     }
 
+    @Test
+    public void getGroupsWithDesiredRating_cursorWithoutNumericRating_throws() {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("AverageRating", new AttributeValue().withS("4.5"));
+        key.put("GroupId", new AttributeValue().withS("1"));
+        String cursor = new PageCursorConverter().convert(key);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> subject.getGroupsWithDesiredRating(3.0, "Strings", cursor, 2));
+        verify(ratingRepository, never()).findByDiscussionTopic(anyString());
+    }
 
+    private static List<String> groupIds(StudyGroupRatingPage page) {
+        List<String> groupIds = new ArrayList<>();
+        for (StudyGroupRating rating : page.getRatings()) {
+            groupIds.add(rating.getGroupId());
+        }
+        return groupIds;
+    }
 
     @Test
     public void deleteStudyGroupReview_Successful() throws Exception {
@@ -525,7 +571,10 @@ public class StudyGroupReviewServiceTest {
 
         subject.deleteGroupFromReviewRecord(groupId);
         // Assert
-        verify(reviewRepository, times(1)).deleteAll(recordList);
+        verify(batchWriter, times(1)).deleteAll(recordList);
+        verify(reviewRepository, never()).deleteAll(anyList());
+        verify(ratingRepository).deleteById(groupId);
+        verify(leaderboard).remove(groupId);
     }
 
     @Test
@@ -536,31 +585,173 @@ public class StudyGroupReviewServiceTest {
 
         assertThrows(ReviewNotFoundException.class, () -> subject.deleteGroupFromReviewRecord(groupId));
 
-        verify(reviewRepository, never()).deleteAll(anyList());
+        verify(batchWriter, never()).deleteAll(anyList());
     }
 
+    @Test
+    public void calculateAverageRating_readsStoredTotals() {
+        String groupId = "1";
+        when(ratingRepository.findById(groupId)).thenReturn(Optional.of(totals(groupId, 4.5, 3.5, 1.0)));
 
+        assertEquals(3.0, subject.calculateAverageRating(groupId));
+        verify(reviewRepository, never()).findByGroupId(anyString());
+    }
 
+    @Test
+    public void getStudyGroupRating_countsReviewsPerStar() {
+        String groupId = "1";
+        when(ratingRepository.findById(groupId)).thenReturn(Optional.of(totals(groupId, 4.6, 5.0, 1.0, 2.4)));
 
+        long[] histogram = subject.getStudyGroupRating(groupId).getHistogram();
 
+        assertArrayEquals(new long[] {1, 1, 0, 0, 2}, histogram);
+    }
 
+    @Test
+    public void getStudyGroupReviewPageByTopic_resumesFromCursorWithinTheTopic() {
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("DiscussionTopic", new AttributeValue().withS("API"));
+        lastKey.put("GroupId", new AttributeValue().withS("1"));
+        lastKey.put("ReviewId", new AttributeValue().withS("review1"));
+        when(reviewRepository.findPageByDiscussionTopic(eq("API"), eq(1), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(review("1", "review1", "API", "Good")),
+                        lastKey));
+        when(reviewRepository.findPageByDiscussionTopic("API", 1, lastKey))
+                .thenReturn(new RecordPage<>(Collections.singletonList(review("2", "review2", "API", "Okay")), null));
+
+        StudyGroupReviewPage first = subject.getStudyGroupReviewPageByTopic("API", null, 1);
+        StudyGroupReviewPage second = subject.getStudyGroupReviewPageByTopic("API", first.getNextCursor(), 1);
+
+        assertEquals("review1", first.getReviews().get(0).getReviewId());
+        assertNotNull(first.getNextCursor());
+        assertEquals("review2", second.getReviews().get(0).getReviewId());
+        assertNull(second.getNextCursor());
+    }
 
+    @Test
+    public void getStudyGroupReviewPageByTopic_cursorWithoutKey_throws() {
+        String cursor = new PageCursorConverter().convert(Collections.singletonMap("GroupId",
+                new AttributeValue().withS("1")));
 
+        assertThrows(IllegalArgumentException.class, () -> subject.getStudyGroupReviewPageByTopic("API", cursor, 10));
+    }
 
+    @Test
+    public void getCommentPageForStudyGroup_returnsOnePageOfComments() {
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("GroupId", new AttributeValue().withS("1"));
+        lastKey.put("ReviewId", new AttributeValue().withS("review2"));
+        when(reviewRepository.findPageByGroupId(eq("1"), eq(2), noStartKey())).thenReturn(new RecordPage<>(
+                Arrays.asList(review("1", "review1", "API", "Good"), review("1", "review2", "API", "Okay")), lastKey));
+
+        StudyGroupCommentPage page = subject.getCommentPageForStudyGroup("1", null, 2);
+
+        assertEquals(Arrays.asList("Good", "Okay"), page.getComments());
+        assertEquals(lastKey, new PageCursorConverter().unconvert(page.getNextCursor()));
+        verify(reviewRepository, never()).findByGroupId(anyString());
+    }
 
+    @Test
+    public void streamCommentsForStudyGroup_readsEveryPage() {
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("GroupId", new AttributeValue().withS("1"));
+        lastKey.put("ReviewId", new AttributeValue().withS("review1"));
+        when(reviewRepository.findPageByGroupId(eq("1"), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(Collections.singletonList(review("1", "review1", "API", "Good")),
+                        lastKey));
+        when(reviewRepository.findPageByGroupId(eq("1"), anyInt(), eq(lastKey)))
+                .thenReturn(new RecordPage<>(Collections.singletonList(review("1", "review2", "API", "Okay")), null));
+
+        List<String> comments = new ArrayList<>();
+        subject.streamCommentsForStudyGroup("1", comments::add);
+
+        assertEquals(Arrays.asList("Good", "Okay"), comments);
+    }
 
+    @Test
+    public void streamStudyGroupReviewsByTopic_handsOverEveryReview() {
+        when(reviewRepository.findPageByDiscussionTopic(eq("API"), anyInt(), noStartKey())).thenReturn(
+                new RecordPage<>(Arrays.asList(review("1", "review1", "API", "Good"),
+                        review("2", "review2", "API", "Okay")), new HashMap<>()));
 
+        List<StudyGroupReview> reviews = new ArrayList<>();
+        subject.streamStudyGroupReviewsByTopic("API", reviews::add);
 
+        assertEquals(2, reviews.size());
+        assertEquals("2", reviews.get(1).getGroupId());
+    }
 
+    @Test
+    public void persistReviews_appliesOneDeltaPerGroupAndSkipsUnwrittenReviews() {
+        StudyGroupReviewRecord first = new StudyGroupReviewRecord(new StudyGroupReviewId("1", "review1"), "group1",
+                "API", 4.0, "Good", 4.0);
+        StudyGroupReviewRecord second = new StudyGroupReviewRecord(new StudyGroupReviewId("1", "review2"), "group1",
+                "API", 5.0, "Great", 5.0);
+        StudyGroupReviewRecord third = new StudyGroupReviewRecord(new StudyGroupReviewId("2", "review3"), "group2",
+                "API", 3.0, "Okay", 3.0);
+        StudyGroupReviewRecord unwritten = new StudyGroupReviewRecord(new StudyGroupReviewId("1", "review4"),
+                "group1", "API", 1.0, "Bad", 1.0);
+        when(batchWriter.saveAll(anyList())).thenReturn(new ArrayList<>(Collections.singletonList(unwritten)));
+        when(ratingRepository.addRatings(any(StudyGroupRatingRecord.class)))
+                .thenReturn(totals("1", 2.0, 2.0, 4.0, 5.0))
+                .thenReturn(totals("2", 2.0, 3.0));
+
+        ReviewBatchResult result = subject.persistReviews(Arrays.asList(first, unwritten, second, third));
+
+        assertEquals(Collections.singletonList(unwritten), result.getUnwritten());
+        assertTrue(result.getUncountedRatings().isEmpty());
+        org.mockito.ArgumentCaptor<StudyGroupRatingRecord> deltas =
+                org.mockito.ArgumentCaptor.forClass(StudyGroupRatingRecord.class);
+        verify(ratingRepository, times(2)).addRatings(deltas.capture());
+        StudyGroupRatingRecord groupOne = deltas.getAllValues().get(0);
+        assertEquals("1", groupOne.getGroupId());
+        assertEquals(2L, groupOne.getReviewCount());
+        assertEquals(9.0, groupOne.getRatingSum());
+        StudyGroupRatingRecord groupTwo = deltas.getAllValues().get(1);
+        assertEquals("2", groupTwo.getGroupId());
+        assertEquals(1L, groupTwo.getReviewCount());
+        verify(leaderboard, times(2)).update(any(StudyGroupRating.class));
+        verify(reviewRepository, never()).findByGroupId(anyString());
+    }
 
+    @Test
+    public void persistReviews_ratingUpdateFails_returnsDeltaAndCountsOtherGroups() {
+        StudyGroupReviewRecord first = new StudyGroupReviewRecord(new StudyGroupReviewId("1", "review1"), "group1",
+                "API", 4.0, "Good", 4.0);
+        StudyGroupReviewRecord second = new StudyGroupReviewRecord(new StudyGroupReviewId("2", "review2"), "group2",
+                "API", 3.0, "Okay", 3.0);
+        when(batchWriter.saveAll(anyList())).thenReturn(new ArrayList<>());
+        when(ratingRepository.addRatings(any(StudyGroupRatingRecord.class)))
+                .thenThrow(new RuntimeException("throttled"))
+                .thenReturn(totals("2", 2.0, 3.0));
+
+        ReviewBatchResult result = subject.persistReviews(Arrays.asList(first, second));
+
+        assertTrue(result.getUnwritten().isEmpty());
+        assertEquals(1, result.getUncountedRatings().size());
+        StudyGroupRatingRecord uncounted = result.getUncountedRatings().get(0);
+        assertEquals("1", uncounted.getGroupId());
+        assertEquals(1L, uncounted.getReviewCount());
+        assertEquals(4.0, uncounted.getRatingSum());
+        verify(leaderboard).update(any(StudyGroupRating.class));
+    }
 
+    private static StudyGroupReviewRecord review(String groupId, String reviewId, String topic, String comment) {
+        return new StudyGroupReviewRecord(new StudyGroupReviewId(groupId, reviewId), "group" + groupId, topic, 4.0,
+                comment, 4.0);
+    }
 
+    @SuppressWarnings("unchecked")
+    private static Map<String, AttributeValue> noStartKey() {
+        return (Map<String, AttributeValue>) isNull();
+    }
 
-
+    private static StudyGroupRatingRecord totals(String groupId, double... ratings) {
+        StudyGroupRatingRecord record = new StudyGroupRatingRecord();
+        record.setGroupId(groupId);
+        for (double rating : ratings) {
+            record.add(rating);
+        }
+        return record;
+    }
 }
-
-
-
-
-
-
@@ -1,28 +1,50 @@
 package com.kenzie.appserver.service;
 
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.kenzie.appserver.config.CacheStore;
+import com.kenzie.appserver.config.StudyGroupMemberCache;
+import com.kenzie.appserver.repositories.BatchWriter;
 import com.kenzie.appserver.exception.MemberNotFoundException;
+import com.kenzie.appserver.exception.StudyGroupNameTakenException;
 import com.kenzie.appserver.exception.StudyGroupNotFoundException;
+import com.kenzie.appserver.exception.VersionConflictException;
 import com.kenzie.appserver.repositories.MemberRepository;
 import com.kenzie.appserver.repositories.StudyGroupMemberRepository;
 import com.kenzie.appserver.repositories.StudyGroupRepository;
+import com.kenzie.appserver.repositories.converter.PageCursorConverter;
 import com.kenzie.appserver.repositories.model.MemberRecord;
+import com.kenzie.appserver.repositories.model.RecordPage;
 import com.kenzie.appserver.repositories.model.StudyGroupMemberId;
 import com.kenzie.appserver.repositories.model.StudyGroupMemberRecord;
 import com.kenzie.appserver.repositories.model.StudyGroupRecord;
 import com.kenzie.appserver.service.model.Member;
 import com.kenzie.appserver.service.model.StudyGroup;
+import com.kenzie.appserver.service.model.MembershipResult;
 import com.kenzie.appserver.service.model.StudyGroupMember;
+import com.kenzie.appserver.service.model.StudyGroupMemberPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.kenzie.appserver.service.model.StudyGroupPage;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.MockitoAnnotations;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -38,14 +60,25 @@ public class StudyGroupServiceTest {
     private StudyGroupService subject;
     private MemberRepository memberRepository;
     private CacheStore cache;
+    private StudyGroupMemberCache memberCache;
+    private BatchWriter batchWriter;
+    private StudyGroupCatalog catalog;
+    @Captor
+    private ArgumentCaptor<List<StudyGroupMemberRecord>> memberRecords;
 
     @BeforeEach
     void setup() {
+        MockitoAnnotations.openMocks(this);
         studyGroupMemberRepository = mock(StudyGroupMemberRepository.class);
         studyGroupRepository = mock(StudyGroupRepository.class);
         memberRepository = mock(MemberRepository.class);
         cache = mock(CacheStore.class);
-        subject = new StudyGroupService(studyGroupRepository, studyGroupMemberRepository, memberRepository, cache);
+        catalog = mock(StudyGroupCatalog.class);
+        memberCache = new StudyGroupMemberCache(100, Duration.ofMinutes(1), null, new SimpleMeterRegistry(), "test");
+        batchWriter = mock(BatchWriter.class);
+        when(batchWriter.saveAll(anyList())).thenReturn(new ArrayList<>());
+        when(batchWriter.deleteAll(anyList())).thenReturn(new ArrayList<>());
+        subject = new StudyGroupService(studyGroupRepository, studyGroupMemberRepository, memberRepository, cache, catalog, memberCache, batchWriter);
     }
 
     // both unit test and postman passes
@@ -60,11 +93,14 @@ public class StudyGroupServiceTest {
         record.setCreationDate(group.getCreationDate());
         record.setActive(true);
 
+        when(studyGroupRepository.saveIfNameAvailable(record)).thenReturn("1");
 
         // class under test
         StudyGroup newStudyGroup = subject.addNewStudyGroup(group);
 
-        verify(studyGroupRepository, times(1)).save(record);
+        verify(studyGroupRepository, times(1)).saveIfNameAvailable(record);
+        verify(studyGroupRepository, never()).findAll();
+        verify(catalog).put(newStudyGroup);
 
         assertEquals(record.getGroupId(), newStudyGroup.getGroupId());
         assertEquals(record.getGroupName(), newStudyGroup.getGroupName());
@@ -80,16 +116,41 @@ public class StudyGroupServiceTest {
 
         StudyGroup group = new StudyGroup("1", "Group1", "API", ZonedDateTime.now(), true);
 
-        when(studyGroupRepository.save(any())).thenThrow(new StudyGroupNotFoundException("Failed to save study group"));
+        when(studyGroupRepository.saveIfNameAvailable(any())).thenThrow(new StudyGroupNotFoundException("Failed to save study group"));
 
         // class under test
         assertThrows(StudyGroupNotFoundException.class, () -> subject.addNewStudyGroup(group));
 
-        verify(studyGroupRepository, times(1)).save(any());
+        verify(studyGroupRepository, times(1)).saveIfNameAvailable(any());
     }
 
     @Test
-    void getAllStudyGroups_returnsListOfStudyGroup() {
+    void addNewStudyGroup_nameAlreadyTaken_returnsExistingGroup() {
+        ZonedDateTime date = ZonedDateTime.now();
+        StudyGroup group = new StudyGroup("2", "Group1", "API", date, true);
+
+        StudyGroupRecord existingRecord = new StudyGroupRecord();
+        existingRecord.setGroupId("1");
+        existingRecord.setGroupName("Group1");
+        existingRecord.setDiscussionTopic("API");
+        existingRecord.setCreationDate(date);
+        existingRecord.setActive(true);
+
+        when(studyGroupRepository.saveIfNameAvailable(any())).thenReturn("1");
+        when(studyGroupRepository.findById("1")).thenReturn(Optional.of(existingRecord));
+
+        // class under test
+        StudyGroup result = subject.addNewStudyGroup(group);
+
+        assertEquals("1", result.getGroupId());
+        assertEquals("Group1", result.getGroupName());
+        assertEquals("API", result.getDiscussionTopic());
+        verify(studyGroupRepository, never()).save(any());
+        verify(studyGroupRepository, never()).findAll();
+    }
+
+    @Test
+    void getStudyGroupPage_catalogNotLoaded_readsOnePageFromRepository() {
         List<StudyGroupRecord> recordList = new ArrayList<>();
 
         StudyGroupRecord record1 = new StudyGroupRecord();
@@ -108,19 +169,17 @@ public class StudyGroupServiceTest {
         record2.setActive(true);
         recordList.add(record2);
 
-        when(studyGroupRepository.findAll()).thenReturn(recordList);
+        Map<String, AttributeValue> lastKey = new HashMap<>();
+        lastKey.put("GroupId", new AttributeValue().withS("2"));
 
-        List<StudyGroup> allStudyGroups = subject.getAllStudyGroups();
+        when(catalog.isLoaded()).thenReturn(false);
+        when(studyGroupRepository.findPage(2, null)).thenReturn(new RecordPage<>(recordList, lastKey));
 
-        // list is not null
-        assertNotNull(allStudyGroups);
+        StudyGroupPage page = subject.getStudyGroupPage(null, 2);
 
-        // list contains the expected number of study groups
-        assertEquals(recordList.size(), allStudyGroups.size());
-
-        // study group record converted to a StudyGroup object
-        for (int i = 0; i < allStudyGroups.size(); i++) {
-            StudyGroup group = allStudyGroups.get(i);
+        assertEquals(recordList.size(), page.getStudyGroups().size());
+        for (int i = 0; i < page.getStudyGroups().size(); i++) {
+            StudyGroup group = page.getStudyGroups().get(i);
             StudyGroupRecord record = recordList.get(i);
 
             assertEquals(record.getGroupId(), group.getGroupId());
@@ -129,19 +188,75 @@ public class StudyGroupServiceTest {
             assertEquals(record.getCreationDate(), group.getCreationDate());
             assertEquals(record.isActive(), group.isActive());
         }
+        assertNotNull(page.getNextCursor());
+        verify(studyGroupRepository, never()).findAll();
+
+        // the cursor resumes the scan where the previous page stopped
+        when(studyGroupRepository.findPage(2, lastKey)).thenReturn(new RecordPage<>(Collections.emptyList(), null));
+        StudyGroupPage nextPage = subject.getStudyGroupPage(page.getNextCursor(), 2);
 
+        assertTrue(nextPage.getStudyGroups().isEmpty());
+        assertNull(nextPage.getNextCursor());
     }
 
     @Test
-    void getAllStudyGroups_returnsEmptyListIfRepositoryReturnsNull() {
+    void getStudyGroupPage_catalogLoaded_servesPageFromMemory() {
+        StudyGroup group1 = new StudyGroup("1", "Group1", "API", ZonedDateTime.now(), true);
+        StudyGroup group2 = new StudyGroup("2", "Group2", "Database", ZonedDateTime.now(), true);
+
+        when(catalog.isLoaded()).thenReturn(true);
+        when(catalog.page(null, 1)).thenReturn(Collections.singletonList(group1));
+        when(catalog.hasGroupsAfter("1")).thenReturn(true);
+        when(catalog.page("1", 1)).thenReturn(Collections.singletonList(group2));
+        when(catalog.hasGroupsAfter("2")).thenReturn(false);
+
+        StudyGroupPage firstPage = subject.getStudyGroupPage(null, 1);
+        StudyGroupPage secondPage = subject.getStudyGroupPage(firstPage.getNextCursor(), 1);
+
+        assertEquals("1", firstPage.getStudyGroups().get(0).getGroupId());
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals("2", secondPage.getStudyGroups().get(0).getGroupId());
+        assertNull(secondPage.getNextCursor());
+        verify(studyGroupRepository, never()).findPage(anyInt(), any());
+        verify(studyGroupRepository, never()).findAll();
+    }
 
-        Iterable<StudyGroupRecord> emptyStudyGroupRecords = Collections.emptyList();
-        when(studyGroupRepository.findAll()).thenReturn(emptyStudyGroupRecords);
+    @Test
+    void getStudyGroupPage_invalidCursor_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> subject.getStudyGroupPage("not a cursor", 10));
+    }
 
-        List<StudyGroup> result = subject.getAllStudyGroups();
+    @Test
+    void getStudyGroupPage_cursorWithNullValue_throwsException() {
+        String nullValue = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"GroupId\":null}".getBytes(StandardCharsets.UTF_8));
+        String nullCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("null".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> subject.getStudyGroupPage(nullValue, 10));
+        assertThrows(IllegalArgumentException.class, () -> subject.getStudyGroupPage(nullCursor, 10));
+    }
 
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
+    @Test
+    void getStudyGroupPage_catalogCursorWithoutGroupId_throwsException() {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("Catalog", new AttributeValue().withS("1"));
+        String cursor = new PageCursorConverter().convert(key);
+        when(catalog.isLoaded()).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> subject.getStudyGroupPage(cursor, 10));
+    }
+
+    @Test
+    void getStudyGroupPage_catalogCursorWhileCatalogNotLoaded_throwsInsteadOfScanning() {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put("GroupId", new AttributeValue().withS("5"));
+        key.put("Catalog", new AttributeValue().withS("1"));
+        String cursor = new PageCursorConverter().convert(key);
+        when(catalog.isLoaded()).thenReturn(false);
+
+        assertThrows(IllegalArgumentException.class, () -> subject.getStudyGroupPage(cursor, 10));
+        verify(studyGroupRepository, never()).findPage(anyInt(), any());
     }
 
     @Test
@@ -150,25 +265,15 @@ public class StudyGroupServiceTest {
 
         StudyGroup group = new StudyGroup("1", "Group1", "API", time, true);
 
-        List<StudyGroupRecord> recordList = new ArrayList<>();
-
         StudyGroupRecord record1 = new StudyGroupRecord();
         record1.setGroupId("1");
         record1.setGroupName("Group1");
         record1.setDiscussionTopic("API");
         record1.setCreationDate(time);
         record1.setActive(true);
-        recordList.add(record1);
-
-        StudyGroupRecord record2 = new StudyGroupRecord();
-        record2.setGroupId("2");
-        record2.setGroupName("Group2");
-        record2.setDiscussionTopic("Database");
-        record2.setCreationDate(ZonedDateTime.now());
-        record2.setActive(true);
-        recordList.add(record2);
 
-        when(studyGroupRepository.findAll()).thenReturn(recordList);
+        when(studyGroupRepository.findGroupIdByName("Group1", "API")).thenReturn(Optional.of("1"));
+        when(studyGroupRepository.findById("1")).thenReturn(Optional.of(record1));
 
         StudyGroup existingStudyGroup = new StudyGroup(record1.getGroupId(), record1.getGroupName(), record1.getDiscussionTopic(), time, record1.isActive());
 
@@ -179,6 +284,7 @@ public class StudyGroupServiceTest {
         assertEquals(group.getGroupName(), result.getGroupName());
         assertEquals(group.getCreationDate(), result.getCreationDate());
         assertEquals(group.getDiscussionTopic(), result.getDiscussionTopic());
+        verify(studyGroupRepository, never()).findAll();
 
     }
 
@@ -186,14 +292,13 @@ public class StudyGroupServiceTest {
     void getExistingStudyGroup_ExistingGroupNotFound() {
         StudyGroup group = new StudyGroup("1", "Group1", "Discussion", ZonedDateTime.now(), true);
 
-        List<StudyGroupRecord> existingStudyGroupRecords = new ArrayList<>();
-
-        when(studyGroupRepository.findAll()).thenReturn(existingStudyGroupRecords);
+        when(studyGroupRepository.findGroupIdByName("Group1", "Discussion")).thenReturn(Optional.empty());
 
         StudyGroup existingStudyGroup = subject.getExistingStudyGroup(group);
 
         //no study group is returned
         assertEquals(null, existingStudyGroup);
+        verify(studyGroupRepository, never()).findAll();
     }
 
 //    @Test
@@ -235,11 +340,11 @@ public class StudyGroupServiceTest {
 
 
     // write one where the cache.get return null
-    // and verify that repository gets called and cache gets added
+    // and verify that repository gets called through the cache loader
 
     /**
      * ---------------------------------------------------------------------------------
-     *  StudyGroup Not In Cache - repository gets called - cache gets added
+     *  StudyGroup Not In Cache - repository gets called by the cache loader
      * ---------------------------------------------------------------------------------
      */
 
@@ -253,12 +358,13 @@ public class StudyGroupServiceTest {
         backendStudyGroup.setActive(true);
 
         when(studyGroupRepository.findById("1")).thenReturn(Optional.of(backendStudyGroup));
+        stubCacheMiss("1");
 
         // Class under test
         StudyGroup result = subject.findByCachedGroupId("1");
 
         verify(studyGroupRepository, times(1)).findById("1");
-        verify(cache, times(1)).add("1", result);
+        verify(cache, times(1)).get(eq("1"), any());
 
         assertEquals(backendStudyGroup.getGroupId(), result.getGroupId());
         assertEquals(backendStudyGroup.getGroupName(), result.getGroupName());
@@ -279,7 +385,7 @@ public class StudyGroupServiceTest {
         String groupId = "1";
         StudyGroup cachedStudyGroup = new StudyGroup(groupId, "Group1", "API", ZonedDateTime.now(), true);
 
-        when(cache.get(groupId)).thenReturn(cachedStudyGroup);
+        when(cache.get(eq(groupId), any())).thenReturn(cachedStudyGroup);
 
         // Class under test
         StudyGroup result = subject.findByCachedGroupId(groupId);
@@ -293,6 +399,7 @@ public class StudyGroupServiceTest {
     @Test
     public void findByCachedGroupId_NonexistentGroup_ReturnsNull() {
         when(studyGroupRepository.findById("1")).thenReturn(Optional.empty());
+        stubCacheMiss("1");
 
         // Class under test
         StudyGroup result = subject.findByCachedGroupId("1");
@@ -301,6 +408,15 @@ public class StudyGroupServiceTest {
         assertNull(result);
     }
 
+    private static Map<String, AttributeValue> noStartKey() {
+        return isNull();
+    }
+
+    private void stubCacheMiss(String groupId) {
+        when(cache.get(eq(groupId), any())).thenAnswer(invocation ->
+                invocation.<Function<String, StudyGroup>>getArgument(1).apply(groupId));
+    }
+
     @Test
     public void addMemberToStudyGroup_NewMember_Successful() {
         ZonedDateTime date = ZonedDateTime.now();
@@ -311,6 +427,7 @@ public class StudyGroupServiceTest {
         StudyGroupMemberId id = new StudyGroupMemberId("1", "abc@aol.com");
         StudyGroupMemberRecord savedRecord = new StudyGroupMemberRecord(id, "Group1", "API", date, true);
 
+        when(studyGroupMemberRepository.findById(id)).thenReturn(Optional.empty());
         when(studyGroupMemberRepository.save(any(StudyGroupMemberRecord.class))).thenReturn(savedRecord);
 
         StudyGroupMember result = subject.addMemberToStudyGroup(group, newMember.getMemberId());
@@ -342,13 +459,12 @@ public class StudyGroupServiceTest {
         StudyGroup group = new StudyGroup("1", "group1", "API", date, true);
 
         StudyGroupMemberId studyGroupMemberId = new StudyGroupMemberId("1", "abc@aol.com");
-        when(studyGroupMemberRepository.existsById(studyGroupMemberId)).thenReturn(true);
 
         StudyGroupMemberRecord existingRecord = new StudyGroupMemberRecord(studyGroupMemberId, "group1", "API", date, true);
 
         StudyGroupMember existingMember = new StudyGroupMember("1", "abc@aol.com", "group1", "API", date, true);
 
-        when(studyGroupMemberRepository.findByMemberId(studyGroupMemberId.getMemberId())).thenReturn(Optional.of(existingRecord));
+        when(studyGroupMemberRepository.findById(studyGroupMemberId)).thenReturn(Optional.of(existingRecord));
 
         // Class under test
         StudyGroupMember result = subject.addMemberToStudyGroup(group, "abc@aol.com");
@@ -359,6 +475,7 @@ public class StudyGroupServiceTest {
         assertEquals(existingMember.getDiscussionTopic(), result.getDiscussionTopic());
         assertEquals(existingMember.getCreationDate(), result.getCreationDate());
         assertEquals(existingMember.isActive(), result.isActive());
+        verify(studyGroupMemberRepository, never()).save(any(StudyGroupMemberRecord.class));
     }
 
     @Test
@@ -398,7 +515,8 @@ public class StudyGroupServiceTest {
         memberRecords.add(new StudyGroupMemberRecord(studyGroupMemberId1, "group1", "API", date, true));
         StudyGroupMemberId studyGroupMemberId2 = new StudyGroupMemberId("1", "xyz@aol.com");
         memberRecords.add(new StudyGroupMemberRecord(studyGroupMemberId2, "group1", "API", date, true));
-        when(studyGroupMemberRepository.findByGroupId(groupId)).thenReturn(Optional.of(memberRecords));
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(memberRecords, null));
 
         List<StudyGroupMember> member = new ArrayList<>();
         StudyGroupMember member1 = new StudyGroupMember("1", "abc@aol.com", "group1", "API", date, true);
@@ -425,35 +543,177 @@ public class StudyGroupServiceTest {
     }
 
     @Test
-    public void getStudyGroupMembers_NoMembers_ReturnsEmptyList() {
+    public void getStudyGroupMembers_withNoMembers_ReturnsEmptyList() {
         String groupId = "1";
 
-        when(studyGroupMemberRepository.findByGroupId(groupId)).thenReturn(Optional.empty());
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
 
         // Class under test
         List<StudyGroupMember> result = subject.getStudyGroupMembers(groupId);
 
         assertNotNull(result);
         assertTrue(result.isEmpty());
+        verify(studyGroupMemberRepository, never()).findByGroupId(anyString());
     }
 
     @Test
-    public void getStudyGroupMembers_withNoMembers_ReturnsEmptyList() {
+    public void getStudyGroupMembers_calledTwice_queriesOnceAndAppliesMembershipChanges() {
         String groupId = "1";
+        ZonedDateTime date = ZonedDateTime.now();
+        StudyGroupMemberRecord existing = new StudyGroupMemberRecord(new StudyGroupMemberId(groupId, "abc@aol.com"), "group1", "API", date, true);
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(Collections.singletonList(existing)), null));
 
-        List<StudyGroupMemberRecord> memberRecords = new ArrayList<>();
-        Optional<List<StudyGroupMemberRecord>> optional = Optional.of(memberRecords);
+        assertEquals(1, subject.getStudyGroupMembers(groupId).size());
 
-        when(studyGroupMemberRepository.findByGroupId(groupId)).thenReturn(optional);
+        StudyGroupMemberId newMemberId = new StudyGroupMemberId(groupId, "new@aol.com");
+        when(studyGroupMemberRepository.findById(newMemberId)).thenReturn(Optional.empty());
+        subject.addMemberToStudyGroup(new StudyGroup(groupId, "group1", "API", date, true), "new@aol.com");
+        StudyGroupMemberId existingId = new StudyGroupMemberId(groupId, "abc@aol.com");
+        when(studyGroupMemberRepository.existsById(existingId)).thenReturn(true);
+        when(studyGroupMemberRepository.findById(existingId)).thenReturn(Optional.of(existing));
+        subject.removeMemberFromStudyGroup(groupId, "abc@aol.com");
 
-        // Class under test
         List<StudyGroupMember> result = subject.getStudyGroupMembers(groupId);
+        assertEquals(1, result.size());
+        assertEquals("new@aol.com", result.get(0).getMemberId());
+        verify(studyGroupMemberRepository, times(1)).findPageByGroupId(eq(groupId), anyInt(), noStartKey());
+    }
 
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
+    @Test
+    public void getStudyGroupMembers_groupTooLargeToCache_loadsPastTheCapOnlyOnce() {
+        String groupId = "1";
+        ZonedDateTime date = ZonedDateTime.now();
+        List<StudyGroupMemberRecord> memberRecords = new ArrayList<>();
+        for (int i = 0; i <= 5000; i++) {
+            memberRecords.add(new StudyGroupMemberRecord(new StudyGroupMemberId(groupId, "member" + i + "@aol.com"),
+                    "group1", "API", date, true));
+        }
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(memberRecords, null));
+
+        assertEquals(5001, subject.getStudyGroupMembers(groupId).size());
+        assertEquals(5001, subject.getStudyGroupMembers(groupId).size());
+        subject.getStudyGroupMemberPage(groupId, null, 2);
+
+        // the loader once, then the direct query of each read
+        verify(studyGroupMemberRepository, times(4)).findPageByGroupId(eq(groupId), anyInt(), noStartKey());
+    }
+
+    @Test
+    public void getStudyGroupMemberPage_pagesThroughCachedMembers() {
+        String groupId = "1";
+        ZonedDateTime date = ZonedDateTime.now();
+        List<StudyGroupMemberRecord> memberRecords = new ArrayList<>();
+        for (String memberId : new String[] {"c@aol.com", "a@aol.com", "b@aol.com"}) {
+            memberRecords.add(new StudyGroupMemberRecord(new StudyGroupMemberId(groupId, memberId), "group1", "API", date, true));
+        }
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(memberRecords, null));
+
+        StudyGroupMemberPage firstPage = subject.getStudyGroupMemberPage(groupId, null, 2);
+        StudyGroupMemberPage secondPage = subject.getStudyGroupMemberPage(groupId, firstPage.getNextCursor(), 2);
+
+        assertEquals("a@aol.com", firstPage.getMembers().get(0).getMemberId());
+        assertEquals("b@aol.com", firstPage.getMembers().get(1).getMemberId());
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals(1, secondPage.getMembers().size());
+        assertEquals("c@aol.com", secondPage.getMembers().get(0).getMemberId());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    public void getStudyGroupMemberPage_invalidCursor_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> subject.getStudyGroupMemberPage("1", "not-a-cursor", 2));
     }
 
 
+    @Test
+    public void addMembersToStudyGroup_writesOnlyNewMembersAndReportsEach() {
+        ZonedDateTime date = ZonedDateTime.now();
+        String groupId = "1";
+        StudyGroup group = new StudyGroup(groupId, "group1", "API", date, true);
+        StudyGroupMemberRecord existing = new StudyGroupMemberRecord(new StudyGroupMemberId(groupId, "old@aol.com"), "group1", "API", date, true);
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(Collections.singletonList(existing)), null));
+        when(studyGroupMemberRepository.findExistingMemberIds(eq(groupId), anyCollection()))
+                .thenReturn(new HashSet<>(Collections.singletonList("old@aol.com")));
+        // cached before the request, so the test sees it updated in place
+        subject.getStudyGroupMembers(groupId);
+        when(batchWriter.saveAll(anyList())).thenAnswer(invocation -> {
+            List<StudyGroupMemberRecord> records = invocation.getArgument(0);
+            List<StudyGroupMemberRecord> unwritten = new ArrayList<>();
+            for (StudyGroupMemberRecord record : records) {
+                if (record.getMemberId().equals("throttled@aol.com")) {
+                    unwritten.add(record);
+                }
+            }
+            return unwritten;
+        });
+
+        List<MembershipResult> results = subject.addMembersToStudyGroup(group,
+                Arrays.asList("new@aol.com", "old@aol.com", "new@aol.com", "", "throttled@aol.com"));
+
+        assertEquals(4, results.size());
+        assertEquals("new@aol.com", results.get(0).getMemberId());
+        assertEquals(MembershipResult.Status.ADDED, results.get(0).getStatus());
+        assertEquals(MembershipResult.Status.ALREADY_MEMBER, results.get(1).getStatus());
+        assertEquals(MembershipResult.Status.INVALID, results.get(2).getStatus());
+        assertEquals("throttled@aol.com", results.get(3).getMemberId());
+        assertEquals(MembershipResult.Status.FAILED, results.get(3).getStatus());
+
+        verify(batchWriter).saveAll(memberRecords.capture());
+        assertEquals(2, memberRecords.getValue().size());
+        verify(studyGroupMemberRepository, never()).save(any(StudyGroupMemberRecord.class));
+        verify(studyGroupMemberRepository).findExistingMemberIds(groupId,
+                new LinkedHashSet<>(Arrays.asList("new@aol.com", "old@aol.com", "throttled@aol.com")));
+
+        // the cached member list picked up the written member only
+        List<String> memberIds = new ArrayList<>();
+        for (StudyGroupMember member : subject.getStudyGroupMembers(groupId)) {
+            memberIds.add(member.getMemberId());
+        }
+        assertEquals(Arrays.asList("new@aol.com", "old@aol.com"), memberIds);
+    }
+
+    @Test
+    public void addMembersToStudyGroup_nullStudyGroup_exceptionThrown() {
+        assertThrows(StudyGroupNotFoundException.class,
+                () -> subject.addMembersToStudyGroup(null, Collections.singletonList("abc@aol.com")));
+    }
+
+    @Test
+    public void getGroupsForMember_returnsPageFromMemberIndex() {
+        ZonedDateTime date = ZonedDateTime.now();
+        String memberId = "abc@aol.com";
+        List<StudyGroupMemberRecord> records = new ArrayList<>();
+        records.add(new StudyGroupMemberRecord(new StudyGroupMemberId("1", memberId), "group1", "API", date, true));
+        records.add(new StudyGroupMemberRecord(new StudyGroupMemberId("2", memberId), "group2", "API", date, true));
+        Map<String, AttributeValue> lastEvaluatedKey = new HashMap<>();
+        lastEvaluatedKey.put("GroupId", new AttributeValue().withS("2"));
+        lastEvaluatedKey.put("MemberId", new AttributeValue().withS(memberId));
+        when(studyGroupMemberRepository.findPageByMemberId(eq(memberId), eq(2), noStartKey()))
+                .thenReturn(new RecordPage<>(records, lastEvaluatedKey));
+        when(studyGroupMemberRepository.findPageByMemberId(eq(memberId), eq(2), eq(lastEvaluatedKey)))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
+
+        StudyGroupMemberPage firstPage = subject.getGroupsForMember(memberId, null, 2);
+        StudyGroupMemberPage secondPage = subject.getGroupsForMember(memberId, firstPage.getNextCursor(), 2);
+
+        assertEquals(2, firstPage.getMembers().size());
+        assertEquals("group1", firstPage.getMembers().get(0).getGroupName());
+        assertEquals("group2", firstPage.getMembers().get(1).getGroupName());
+        assertNotNull(firstPage.getNextCursor());
+        assertTrue(secondPage.getMembers().isEmpty());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    public void getGroupsForMember_invalidCursor_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> subject.getGroupsForMember("abc@aol.com", "not-a-cursor", 2));
+    }
+
     @Test
     void removeMemberFromStudyGroup_ExistingGroupAndMember_RemovesMember() {
         ZonedDateTime date = ZonedDateTime.now();
@@ -500,22 +760,34 @@ public class StudyGroupServiceTest {
         StudyGroupMemberRecord studyGroupMemberRecord2 = new StudyGroupMemberRecord(studyGroupMemberId2, "group1", "API", date, true);
         studyGroupMemberRecords.add(studyGroupMemberRecord2);
 
-        Optional<List<StudyGroupMemberRecord>> groupMemberList = Optional.of(studyGroupMemberRecords);
-        when(studyGroupMemberRepository.findByGroupId(groupId)).thenReturn(groupMemberList);
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(studyGroupMemberRecords, null));
         subject.removeAllMembersFromStudyGroup(groupId);
 
-        for (StudyGroupMemberRecord memberRecord : studyGroupMemberRecords) {
-            verify(studyGroupMemberRepository).delete(memberRecord);
-        }
-        verify(studyGroupMemberRepository, times(studyGroupMemberRecords.size())).delete(any(StudyGroupMemberRecord.class));
+        verify(batchWriter).deleteAll(studyGroupMemberRecords);
+        verify(studyGroupMemberRepository, never()).delete(any(StudyGroupMemberRecord.class));
+
+    }
+
+    @Test
+    void removeAllMembersFromStudyGroup_someDeletesUnprocessed_ThrowsException() {
+        ZonedDateTime date = ZonedDateTime.now();
+        String groupId = "1";
+        StudyGroupMemberRecord memberRecord = new StudyGroupMemberRecord(new StudyGroupMemberId(groupId, "person1@aol.com"), "group1", "API", date, true);
+        List<StudyGroupMemberRecord> studyGroupMemberRecords = new ArrayList<>(Collections.singletonList(memberRecord));
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(studyGroupMemberRecords, null));
+        when(batchWriter.<StudyGroupMemberRecord>deleteAll(anyList())).thenReturn(studyGroupMemberRecords);
 
+        assertThrows(IllegalStateException.class, () -> subject.removeAllMembersFromStudyGroup(groupId));
     }
 
     @Test
     void removeAllMembersFromStudyGroup_NonexistentGroup_ThrowsException() {
         String groupId = "1";
 
-        when(studyGroupMemberRepository.findByGroupId(groupId)).thenReturn(Optional.empty());
+        when(studyGroupMemberRepository.findPageByGroupId(eq(groupId), anyInt(), noStartKey()))
+                .thenReturn(new RecordPage<>(new ArrayList<>(), null));
 
 
         assertThrows(StudyGroupNotFoundException.class, () -> subject.removeAllMembersFromStudyGroup(groupId));
@@ -526,7 +798,7 @@ public class StudyGroupServiceTest {
 
     /**
      * ---------------------------------------------------------------------------------
-     *  StudyGroup updated - cached Study Group evicted
+     *  StudyGroup updated - cached Study Group replaced
      * ---------------------------------------------------------------------------------
      */
 
@@ -543,18 +815,33 @@ public class StudyGroupServiceTest {
 
         StudyGroupRecord existingStudyGroupRecord = new StudyGroupRecord();
         existingStudyGroupRecord.setGroupId(groupId);
+        existingStudyGroupRecord.setGroupName("Group Name");
+        existingStudyGroupRecord.setDiscussionTopic("Topic");
+
+        existingStudyGroupRecord.setVersion(3L);
 
-        when(studyGroupRepository.findById(groupId)).thenReturn(Optional.of(existingStudyGroupRecord));
+        when(studyGroupRepository.claimName(groupId, "Updated Group Name", "Updated Topic")).thenReturn(true);
+        when(studyGroupRepository.updateStudyGroup(any(StudyGroupRecord.class), any()))
+                .thenReturn(Optional.of(existingStudyGroupRecord));
 
         // Class under test
-        subject.updateStudyGroup(studyGroup);
+        StudyGroup updated = subject.updateStudyGroup(studyGroup);
 
-        verify(studyGroupRepository).save(existingStudyGroupRecord);
-        assertEquals("Updated Group Name", existingStudyGroupRecord.getGroupName());
-        assertEquals("Updated Topic", existingStudyGroupRecord.getDiscussionTopic());
-        assertEquals(date, existingStudyGroupRecord.getCreationDate());
-        assertTrue(existingStudyGroupRecord.isActive());
-        verify(cache).evict(groupId);
+        verify(studyGroupRepository).releaseName(groupId, "Group Name", "Topic");
+        verify(studyGroupRepository).claimName(groupId, "Updated Group Name", "Updated Topic");
+
+        ArgumentCaptor<StudyGroupRecord> written = ArgumentCaptor.forClass(StudyGroupRecord.class);
+        verify(studyGroupRepository).updateStudyGroup(written.capture(), isNull());
+        verify(studyGroupRepository, never()).findById(groupId);
+        verify(studyGroupRepository, never()).save(any());
+        assertEquals("Updated Group Name", written.getValue().getGroupName());
+        assertEquals("Updated Topic", written.getValue().getDiscussionTopic());
+        assertEquals(date, written.getValue().getCreationDate());
+        assertTrue(written.getValue().isActive());
+        assertEquals(4L, updated.getVersion());
+        ArgumentCaptor<StudyGroup> cachedStudyGroup = ArgumentCaptor.forClass(StudyGroup.class);
+        verify(cache).add(eq(groupId), cachedStudyGroup.capture());
+        assertEquals("Updated Group Name", cachedStudyGroup.getValue().getGroupName());
     }
 
     /**
@@ -567,14 +854,54 @@ public class StudyGroupServiceTest {
         String groupId = "group1";
         StudyGroup studyGroup = new StudyGroup();
         studyGroup.setGroupId(groupId);
+        studyGroup.setGroupName("Group Name");
+        studyGroup.setDiscussionTopic("Topic");
 
+        when(studyGroupRepository.claimName(groupId, "Group Name", "Topic")).thenReturn(true);
+        when(studyGroupRepository.updateStudyGroup(any(StudyGroupRecord.class), any())).thenReturn(Optional.empty());
         when(studyGroupRepository.findById(groupId)).thenReturn(Optional.empty());
 
         assertThrows(StudyGroupNotFoundException.class, () -> {
             subject.updateStudyGroup(studyGroup);
         });
+        // the claim made for a group that does not exist is given back
+        verify(studyGroupRepository).releaseName(groupId, "Group Name", "Topic");
         verify(studyGroupRepository, never()).save(any());
         verify(cache, never()).evict(any());
+        verify(cache, never()).add(any(), any());
+    }
+
+    @Test
+    void updateStudyGroup_staleVersion_conflictLeavesCacheAlone() {
+        StudyGroup studyGroup = new StudyGroup("group1", "Group Name", "Topic", ZonedDateTime.now(), true, 2L);
+        StudyGroupRecord stored = new StudyGroupRecord();
+        stored.setGroupId("group1");
+        stored.setGroupName("Group Name");
+        stored.setDiscussionTopic("Topic");
+
+        when(studyGroupRepository.claimName("group1", "Group Name", "Topic")).thenReturn(true);
+        when(studyGroupRepository.updateStudyGroup(any(StudyGroupRecord.class), eq(2L)))
+                .thenThrow(new VersionConflictException("Version conflict for StudyGroupRecord", 3));
+        when(studyGroupRepository.findById("group1")).thenReturn(Optional.of(stored));
+
+        VersionConflictException e = assertThrows(VersionConflictException.class,
+                () -> subject.updateStudyGroup(studyGroup));
+        assertEquals(3, e.getCurrentVersion());
+        // the stored group still has the name, so its claim stays
+        verify(studyGroupRepository, never()).releaseName(any(), any(), any());
+        verify(cache, never()).add(any(), any());
+    }
+
+    @Test
+    void updateStudyGroup_nameTakenByAnotherGroup_writesNothing() {
+        StudyGroup studyGroup = new StudyGroup("group1", "Taken Name", "Topic", ZonedDateTime.now(), true, 2L);
+
+        when(studyGroupRepository.claimName("group1", "Taken Name", "Topic")).thenReturn(false);
+
+        assertThrows(StudyGroupNameTakenException.class, () -> subject.updateStudyGroup(studyGroup));
+        verify(studyGroupRepository, never()).updateStudyGroup(any(StudyGroupRecord.class), any());
+        verify(studyGroupRepository, never()).releaseName(any(), any(), any());
+        verify(cache, never()).add(any(), any());
     }
 
     /**
@@ -584,33 +911,26 @@ public class StudyGroupServiceTest {
      */
 
     @Test
-    void deleteStudyGroup_alsoRemovesMembers_deletesGroupAndMembers() {
-        ZonedDateTime date = ZonedDateTime.now();
+    void deleteStudyGroup_deletesGroupButLeavesMembersToCascadeJob() {
         String groupId = "1";
-        List<StudyGroupMemberRecord> studyGroupMemberRecords = new ArrayList<>();
-        String memberId1 = "person1@aol.com";
-        StudyGroupMemberId studyGroupMemberId1 = new StudyGroupMemberId(groupId, memberId1);
-        StudyGroupMemberRecord studyGroupMemberRecord1 = new StudyGroupMemberRecord(studyGroupMemberId1, "group1", "API", date, true);
-        studyGroupMemberRecords.add(studyGroupMemberRecord1);
-        String memberId2 = "person2@aol.com";
-        StudyGroupMemberId studyGroupMemberId2 = new StudyGroupMemberId(groupId, memberId2);
-        StudyGroupMemberRecord studyGroupMemberRecord2 = new StudyGroupMemberRecord(studyGroupMemberId2, "group1", "API", date, true);
-        studyGroupMemberRecords.add(studyGroupMemberRecord2);
-
-        Optional<List<StudyGroupMemberRecord>> groupMemberList = Optional.of(studyGroupMemberRecords);
-        when(studyGroupMemberRepository.findByGroupId(groupId)).thenReturn(groupMemberList);
 
+        StudyGroupRecord studyGroupRecord = new StudyGroupRecord();
+        studyGroupRecord.setGroupId(groupId);
+        studyGroupRecord.setGroupName("group1");
+        studyGroupRecord.setDiscussionTopic("API");
+        when(studyGroupRepository.findById(groupId)).thenReturn(Optional.of(studyGroupRecord));
 
         subject.deleteStudyGroup(groupId);
 
+        verify(studyGroupRepository).releaseName(groupId, "group1", "API");
+        verify(catalog).remove(groupId);
+
         ArgumentCaptor<String> groupIdValue = ArgumentCaptor.forClass(String.class);
         verify(studyGroupRepository).deleteById(groupIdValue.capture());
         assertEquals(groupId, groupIdValue.getValue());
 
-        for (StudyGroupMemberRecord memberRecord : studyGroupMemberRecords) {
-            verify(studyGroupMemberRepository).delete(memberRecord);
-        }
-        verify(studyGroupMemberRepository, times(studyGroupMemberRecords.size())).delete(any(StudyGroupMemberRecord.class));
+        verify(batchWriter, never()).deleteAll(anyList());
+        verify(studyGroupMemberRepository, never()).delete(any(StudyGroupMemberRecord.class));
 
         ArgumentCaptor<String> cachedGroupIdValue = ArgumentCaptor.forClass(String.class);
         verify(cache).evict(cachedGroupIdValue.capture());
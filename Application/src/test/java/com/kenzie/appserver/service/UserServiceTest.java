@@ -10,6 +10,7 @@ import com.kenzie.appserver.service.model.User;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -212,25 +213,29 @@ public class UserServiceTest {
                 lastName3, firstName3, new ZonedDateTimeConverter().unconvert(creationDate3));
 
 
-        UserRecord existingUserRecord = new UserRecord();
-        existingUserRecord.setEmail(email3);
-        existingUserRecord.setPassword(password4);
-        existingUserRecord.setLastName(lastName4);
-        existingUserRecord.setFirstName(firstName4);
-        existingUserRecord.setDateCreated(new ZonedDateTimeConverter().unconvert(creationDate4));
+        UserRecord updatedUserRecord = new UserRecord();
+        updatedUserRecord.setEmail(email3);
+        updatedUserRecord.setPassword(password3);
+        updatedUserRecord.setLastName(lastName3);
+        updatedUserRecord.setFirstName(firstName3);
+        updatedUserRecord.setDateCreated(new ZonedDateTimeConverter().unconvert(creationDate3));
+        updatedUserRecord.setVersion(2L);
 
-        when(userRepository.findById(user.getEmail())).thenReturn(Optional.of(existingUserRecord));
+        when(userRepository.updateUser(any(UserRecord.class), any())).thenReturn(Optional.of(updatedUserRecord));
 
-        subject.updateUser(user);
+        User updated = subject.updateUser(user);
 
-        verify(userRepository, times(1)).findById(user.getEmail());
-        verify(userRepository, times(1)).save(existingUserRecord);
+        ArgumentCaptor<UserRecord> written = ArgumentCaptor.forClass(UserRecord.class);
+        verify(userRepository, times(1)).updateUser(written.capture(), isNull());
+        verify(userRepository, never()).findById(user.getEmail());
+        verify(userRepository, never()).save(any(UserRecord.class));
 
-        assertEquals(user.getEmail(), existingUserRecord.getEmail());
-        assertEquals(user.getPassword(), existingUserRecord.getPassword());
-        assertEquals(user.getLastName(), existingUserRecord.getLastName());
-        assertEquals(user.getFirstName(), existingUserRecord.getFirstName());
-        assertEquals(user.getCreationDate(), existingUserRecord.getDateCreated());
+        assertEquals(user.getEmail(), written.getValue().getEmail());
+        assertEquals(user.getPassword(), written.getValue().getPassword());
+        assertEquals(user.getLastName(), written.getValue().getLastName());
+        assertEquals(user.getFirstName(), written.getValue().getFirstName());
+        assertEquals(user.getCreationDate(), written.getValue().getDateCreated());
+        assertEquals(2L, updated.getVersion());
     }
 
 
@@ -247,11 +252,9 @@ public class UserServiceTest {
                 lastName3, firstName3, new ZonedDateTimeConverter().unconvert(creationDate3));
 
 
-        when(userRepository.findById(user.getEmail())).thenReturn(Optional.empty());
+        when(userRepository.updateUser(any(UserRecord.class), any())).thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () -> subject.updateUser(user));
-
-        verify(userRepository, times(1)).findById(user.getEmail());
     }
 
     @Test
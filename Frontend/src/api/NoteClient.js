@@ -5,7 +5,7 @@ export default class NoteClient extends BaseClass {
 
     constructor(props = {}){
         super();
-        this.bindClassMethods(['clientLoaded', 'createNote', 'getNoteById', 'updateNote', 'deleteNote'], this);
+        this.bindClassMethods(['clientLoaded', 'createNote', 'getNoteById', 'getNotesByUserId', 'searchNotes', 'updateNote', 'deleteNote'], this);
         this.props = props;
         this.clientLoaded(axios);
     }
@@ -46,10 +46,41 @@ export default class NoteClient extends BaseClass {
         }
     }
 
+    /**
+     * Gets one page of the user's notes, most recently updated first.
+     * @param cursor (Optional) The nextCursor of the previous page.
+     * @returns {notes, nextCursor} - nextCursor is null on the last page
+     */
+    async getNotesByUserId(userId, cursor, errorCallback){
+        try{
+            const params = {userId: userId};
+            if (cursor) {
+                params.cursor = cursor;
+            }
+            const response = await this.client.get(`/v1/notes`, {params: params});
+            return {notes: response.data, nextCursor: response.headers['x-next-cursor'] || null};
+        } catch (error) {
+            this.handleError("getNotesByUserId", error, errorCallback);
+        }
+    }
+
+    /**
+     * Gets the user's notes containing any word of the query, best match first.
+     */
+    async searchNotes(userId, query, errorCallback){
+        try{
+            const response = await this.client.get(`/v1/notes/search`, {params: {userId: userId, q: query}});
+            return response.data;
+        } catch (error) {
+            this.handleError("searchNotes", error, errorCallback);
+        }
+    }
+
     async updateNote(noteId, userId, content, createdDateTime, updatedDateTime, errorCallback){
         try{
             const response = await this.client.put(`/v1/notes/${noteId}`,
                 {
+                    noteId: noteId,
                     userId: userId,
                     content: content,
                     createdDateTime: createdDateTime,
@@ -6,8 +6,8 @@ export default class StudyGroupClient extends BaseClass {
     constructor(props = {}){
         super();
         this.bindClassMethods(['clientLoaded', 'addNewStudyGroup', 'getStudyGroupById', 'getAllStudyGroups',
-        'updateStudyGroup', 'deleteStudyGroup', 'addMemberToStudyGroup', 'getStudyGroupMembers',
-        'removeMemberFromStudyGroup', 'removeAllMemberFromStudyGroup'], this);
+        'updateStudyGroup', 'deleteStudyGroup', 'addMemberToStudyGroup', 'addMembersToStudyGroup', 'getStudyGroupMembers',
+        'getGroupsForMember', 'removeMemberFromStudyGroup', 'removeAllMemberFromStudyGroup'], this);
         this.props = props;
         this.clientLoaded(axios);
     }
@@ -49,8 +49,27 @@ export default class StudyGroupClient extends BaseClass {
 
     async getAllStudyGroups(errorCallback){
         try{
-            const response = await this.client.get(`/v1/groups`);
-            return response.data;
+            let groups = [];
+            let cursor = null;
+            let restarted = false;
+            do {
+                let response;
+                try {
+                    response = await this.client.get(`/v1/groups`, {params: cursor ? {cursor} : {}});
+                } catch (error) {
+                    // a cursor from another instance's catalog is refused; start the listing over once
+                    if (!cursor || restarted || !error.response || error.response.status !== 400) {
+                        throw error;
+                    }
+                    restarted = true;
+                    groups = [];
+                    cursor = null;
+                    response = await this.client.get(`/v1/groups`);
+                }
+                groups = groups.concat(response.data || []);
+                cursor = response.headers['x-next-cursor'];
+            } while (cursor);
+            return groups;
         } catch (error) {
             this.handleError("getAllStudyGroups", error, errorCallback);
         }
@@ -90,15 +109,45 @@ export default class StudyGroupClient extends BaseClass {
         }
     }
 
-    async getStudyGroupMembers(groupId, errorCallback){
+    async addMembersToStudyGroup(groupId, memberIds, errorCallback){
         try{
-            const response = await this.client.get(`/v1/groups/${groupId}/members/`);
+            const response = await this.client.post(`/v1/groups/${groupId}/members`, {memberIds: memberIds});
             return response.data;
+        } catch (error) {
+            this.handleError("addMembersToStudyGroup", error, errorCallback);
+        }
+    }
+
+    async getStudyGroupMembers(groupId, errorCallback){
+        try{
+            let members = [];
+            let cursor = null;
+            do {
+                const response = await this.client.get(`/v1/groups/${groupId}/members/`, {params: cursor ? {cursor} : {}});
+                members = members.concat(response.data || []);
+                cursor = response.headers['x-next-cursor'];
+            } while (cursor);
+            return members;
         } catch (error) {
             this.handleError("getStudyGroupMembers", error, errorCallback);
         }
     }
 
+    async getGroupsForMember(memberId, errorCallback){
+        try{
+            let groups = [];
+            let cursor = null;
+            do {
+                const response = await this.client.get(`/v1/members/${memberId}/groups`, {params: cursor ? {cursor} : {}});
+                groups = groups.concat(response.data || []);
+                cursor = response.headers['x-next-cursor'];
+            } while (cursor);
+            return groups;
+        } catch (error) {
+            this.handleError("getGroupsForMember", error, errorCallback);
+        }
+    }
+
     async removeMemberFromStudyGroup(groupId, memberId, errorCallback){
         try{
             const response = await this.client.delete(`/v1/groups/${groupId}/members/${memberId}`);
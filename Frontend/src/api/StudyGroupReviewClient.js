@@ -6,7 +6,7 @@ export default class StudyGroupReviewClient extends BaseClass {
     constructor(props = {}){
         super();
         this.bindClassMethods(['clientLoaded', 'submitReview', 'getReviewByReviewId', 'getStudyGroupReviewsByTopic',
-        'getGroupsWithDesiredAvgRatingByTopic', 'getAverageRatingById'], this);
+        'getGroupsWithDesiredAvgRatingByTopic', 'getAverageRatingById', 'getTopRatedGroupsByTopic'], this);
         this.props = props;
         this.clientLoaded(axios);
     }
@@ -49,8 +49,15 @@ export default class StudyGroupReviewClient extends BaseClass {
 
     async getStudyGroupReviewsByTopic(discussionTopic, errorCallback){
         try{
-            const response = await this.client.get(`/v1/studygroup/reviews/discussionTopic/${discussionTopic}`);
-            return response.data;
+            let reviews = [];
+            let cursor = null;
+            do {
+                const response = await this.client.get(`/v1/studygroup/reviews/discussionTopic/${discussionTopic}`,
+                    {params: cursor ? {cursor} : {}});
+                reviews = reviews.concat(response.data || []);
+                cursor = response.headers['x-next-cursor'];
+            } while (cursor);
+            return reviews;
         } catch (error) {
             this.handleError("getStudyGroupReviewsByTopic", error, errorCallback);
         }
@@ -58,8 +65,16 @@ export default class StudyGroupReviewClient extends BaseClass {
 
     async getGroupsWithDesiredAvgRatingByTopic(averageRating, discussionTopic, errorCallback){
         try{
-            const response = await this.client.get(`/v1/studygroup/ratings/${averageRating}/${discussionTopic}`);
-            return response.data;
+            // pages come highest average first, so merging them keeps the order
+            let ratings = {};
+            let cursor = null;
+            do {
+                const response = await this.client.get(`/v1/studygroup/ratings/${averageRating}/${discussionTopic}`,
+                    {params: cursor ? {cursor} : {}});
+                ratings = Object.assign(ratings, response.data || {});
+                cursor = response.headers['x-next-cursor'];
+            } while (cursor);
+            return ratings;
         } catch (error) {
             this.handleError("getGroupsWithDesiredAvgRatingByTopic", error, errorCallback);
         }
@@ -74,6 +89,16 @@ export default class StudyGroupReviewClient extends BaseClass {
         }
     }
 
+    async getTopRatedGroupsByTopic(discussionTopic, limit, errorCallback){
+        try{
+            const response = await this.client.get(`/v1/studygroup/leaderboard/${discussionTopic}`,
+                { params: { limit: limit } });
+            return response.data;
+        } catch (error) {
+            this.handleError("getTopRatedGroupsByTopic", error, errorCallback);
+        }
+    }
+
     /**
      * Helper method to log the error and run any error functions.
      * @param error The error received from the server.
@@ -130,7 +130,8 @@ class MyGroupPage extends BaseClass {
     async loadDropDowns() {
         console.log("load");
         let userId = localStorage.getItem("userId");
-        let groups = await this.groupClient.getAllStudyGroups(this.errorHandler);
+        //groups the current user is part of
+        let groups = await this.groupClient.getGroupsForMember(userId, this.errorHandler);
         console.log(groups)
 
 
@@ -139,21 +140,9 @@ class MyGroupPage extends BaseClass {
             //Groups dropdown
             let groupDropDown = document.getElementById('my-groups');
 
-            //Gather all groups
+            //add options for dropdown
             for(const group of groups) {
-                //get members from groups
-                let members = await this.groupClient.getStudyGroupMembers(group.groupId, this.errorCallback);
-                console.log(members)
-                if(members){
-                    for(const member of members){
-                        //grab memberId
-                        let memberId = member.memberId;
-                        //select groups that current user is part off. add options for dropdown
-                        if(memberId == userId){
-                            dropDownHtml += `<option value="${group.groupId}">Group Name: ${group.groupName}</option>`
-                        }
-                    }
-                }
+                dropDownHtml += `<option value="${group.groupId}">Group Name: ${group.groupName}</option>`
             }
 
             if(dropDownHtml == "") {
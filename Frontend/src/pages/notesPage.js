@@ -7,7 +7,7 @@ import NoteClient from "../api/NoteClient";
 class NotesPage extends BaseClass {
     constructor() {
         super();
-        this.bindClassMethods(['onCreate', 'onDelete', 'onUpdate', 'renderNotes', 'errorHandler'], this);
+        this.bindClassMethods(['onLoad', 'onSearch', 'onCreate', 'onDelete', 'onUpdate', 'renderNotes', 'errorHandler'], this);
         this.dataStore = new DataStore();
     }
 
@@ -18,6 +18,7 @@ class NotesPage extends BaseClass {
         document.getElementById('create').addEventListener('click', this.onCreate);
         document.getElementById('delete').addEventListener('click', this.onDelete);
         document.getElementById('update').addEventListener('click', this.onUpdate);
+        document.getElementById('search').addEventListener('click', this.onSearch);
 
         window.addEventListener('load', this.onLoad);
         this.dataStore.addChangeListener(this.renderNotes);
@@ -78,10 +79,36 @@ class NotesPage extends BaseClass {
 
     // Event Handlers --------------------------------------------------------------------------------------------------
 
+    /**
+     * Shows the first page of the signed-in user's notes.
+     */
+    async onLoad() {
+        let userId = localStorage.getItem("userId");
+        if (!userId) {
+            return;
+        }
+        let page = await this.client.getNotesByUserId(userId, null, this.errorHandler);
+        if (page && page.notes.length > 0) {
+            this.dataStore.set("notes", page.notes);
+        }
+    }
+
     /**
      * Method to run when the search flights submit button is pressed.
      */
 
+    async onSearch(event) {
+        event.preventDefault();
+        let userId = localStorage.getItem("userId");
+        let query = document.getElementById('search-notes').value;
+        if (!query) {
+            await this.onLoad();
+            return;
+        }
+        let notes = await this.client.searchNotes(userId, query, this.errorHandler);
+        this.dataStore.set("notes", notes && notes.length > 0 ? notes : null);
+    }
+
     async onCreate(event) {
         // Prevent the form from refreshing the page
         event.preventDefault();
@@ -146,21 +173,9 @@ class NotesPage extends BaseClass {
         //Get the values from the form inputs
         let noteId = document.getElementById('update-note-id').value
         let content = document.getElementById('update-notes').value;
-        let date = new Date();
-
-        //Get existing note
-        let oldNote = await this.client.getNoteById(noteId, this.errorHandler);
-
-        let createDate = oldNote.createdDateTime;
-        console.log(createDate);
-
-        //delete the old note
-        await this.client.deleteNote(noteId, this.errorHandler);
-
-        //Create a new note
-        let notes = await this.client.createNote(noteId, userId, content, createDate, date, this.errorHandler);
-
 
+        // the server merges rapid saves of one note into a single write and keeps its creation date
+        let notes = await this.client.updateNote(noteId, userId, content, null, null, this.errorHandler);
 
             console.log(notes);
             let noteResults = document.getElementById("results");
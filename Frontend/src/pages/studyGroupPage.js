@@ -174,6 +174,15 @@ class StudyGroupPage extends BaseClass {
             let topicHtml = `<p>${topic}</p>`;
 
             topicContainer.innerHTML = topicHtml;
+
+            let topGroups = await this.reviewClient.getTopRatedGroupsByTopic(topic, 5, this.errorHandler);
+            if(topGroups && topGroups.length > 0) {
+                let topRatedHtml = "";
+                for(const group of topGroups) {
+                    topRatedHtml += `<p>${group.rank}. ${group.groupName} (${group.averageRating.toFixed(1)})</p>`;
+                }
+                document.getElementById('top-rated').innerHTML = topRatedHtml;
+            }
         }
     }
 
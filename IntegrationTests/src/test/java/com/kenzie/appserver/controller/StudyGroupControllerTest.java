@@ -333,6 +333,51 @@ public class StudyGroupControllerTest {
                 .andExpect(status().is4xxClientError());
     }
 
+    /**
+     * Acceptance criteria: get all groups of a member
+     * Endpoint(s) tested: "/v1/members/{memberId}/groups"
+     * GIVEN (Preconditions): two study groups are added, the member is added to both
+     * WHEN (Action(s)): get request
+     * THEN (Verification steps): 200, both groups are in the list
+     */
+    @Test
+    public void getGroupsForMember_success() throws Exception {
+        String discussionTopic = "discussionTopic";
+        ZonedDateTime date = ZonedDateTime.now();
+
+        String memberId = "person3@aol.com";
+        String password = "Password3!";
+        userLogInController.registerUser(getUserLoginRequest(memberId, password));
+
+        StudyGroup firstGroup = studyGroupService.addNewStudyGroup(
+                new StudyGroup(UUID.randomUUID().toString(), mockNeat.strings().valStr(), discussionTopic, date, true));
+        StudyGroup secondGroup = studyGroupService.addNewStudyGroup(
+                new StudyGroup(UUID.randomUUID().toString(), mockNeat.strings().valStr(), discussionTopic, date, true));
+        studyGroupService.addMemberToStudyGroup(firstGroup, memberId);
+        studyGroupService.addMemberToStudyGroup(secondGroup, memberId);
+
+        // when
+        ResultActions actions = mvc.perform(get("/v1/members/{memberId}/groups", memberId)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().is2xxSuccessful());
+
+        // then
+        String responseBody = actions.andReturn().getResponse().getContentAsString();
+        List<StudyGroupMemberResponse> responseList = mapper.readValue(responseBody, new TypeReference<>() {
+        });
+
+        List<String> groupIds = new ArrayList<>();
+        for (StudyGroupMemberResponse response : responseList) {
+            assertThat(response.getMemberId()).isEqualTo(memberId);
+            groupIds.add(response.getGroupId());
+        }
+        assertThat(groupIds).contains(firstGroup.getGroupId(), secondGroup.getGroupId());
+
+        studyGroupService.deleteStudyGroup(firstGroup.getGroupId());
+        studyGroupService.deleteStudyGroup(secondGroup.getGroupId());
+    }
+
     /** ------------------------------------------------------------------------
      *  Delete A Member From Study Group
      *  ------------------------------------------------------------------------